@@ -0,0 +1,108 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.backup
+
+import android.os.Debug
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import assertk.assertThat
+import assertk.assertions.isGreaterThan
+import assertk.assertions.isLessThan
+import org.greenrobot.eventbus.EventBus
+import org.greenrobot.eventbus.Subscribe
+import org.greenrobot.eventbus.ThreadMode
+import org.junit.Ignore
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.signal.core.util.logging.Log
+import org.signal.core.util.stream.NullOutputStream
+import org.thoughtcrime.securesms.crypto.AttachmentSecretProvider
+import org.thoughtcrime.securesms.database.MessageTable
+import org.thoughtcrime.securesms.database.MessageTypes
+import org.thoughtcrime.securesms.database.SignalDatabase
+import org.thoughtcrime.securesms.recipients.Recipient
+import org.thoughtcrime.securesms.testing.SignalActivityRule
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.time.Duration.Companion.nanoseconds
+
+/**
+ * Exports a large message table through [FullBackupExporter.transfer] and logs rows per second and GC counts.
+ */
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+@RunWith(AndroidJUnit4::class)
+class FullBackupExporterPerformanceTests {
+
+  @get:Rule
+  val harness = SignalActivityRule()
+
+  private val progressEvents = AtomicInteger()
+
+  @Subscribe(threadMode = ThreadMode.POSTING)
+  fun onEvent(event: BackupEvent) {
+    if (event.type == BackupEvent.Type.PROGRESS) {
+      progressEvents.incrementAndGet()
+    }
+  }
+
+  @Test
+  fun testPerformance_exportMessageTable() {
+    val recipient = Recipient.resolved(harness.others[0])
+    val threadId = SignalDatabase.threads.getOrCreateThreadIdFor(recipient)
+
+    insertMessages(threadId, recipient, MESSAGE_COUNT)
+
+    val context = harness.application
+    val attachmentSecret = AttachmentSecretProvider.getInstance(context).getOrCreateAttachmentSecret()
+
+    EventBus.getDefault().register(this)
+    try {
+      val gcCountBefore = Debug.getRuntimeStat("art.gc.gc-count").toLong()
+      val gcTimeBefore = Debug.getRuntimeStat("art.gc.gc-time").toLong()
+      val start = System.nanoTime()
+
+      FullBackupExporter.transfer(context, attachmentSecret, SignalDatabase.backupDatabase, NullOutputStream, "deadbeef")
+
+      val duration = (System.nanoTime() - start).nanoseconds
+      val gcCount = Debug.getRuntimeStat("art.gc.gc-count").toLong() - gcCountBefore
+      val gcTime = Debug.getRuntimeStat("art.gc.gc-time").toLong() - gcTimeBefore
+      val rowsPerSecond = MESSAGE_COUNT / (duration.inWholeMicroseconds / 1_000_000.0)
+
+      Log.i(TAG, "Exported $MESSAGE_COUNT messages in $duration (${"%.0f".format(rowsPerSecond)} rows/sec), gc count: $gcCount, gc time: ${gcTime}ms, progress events: ${progressEvents.get()}")
+    } finally {
+      EventBus.getDefault().unregister(this)
+    }
+
+    assertThat(progressEvents.get()).isGreaterThan(0)
+    assertThat(progressEvents.get()).isLessThan(MESSAGE_COUNT / 100)
+  }
+
+  private fun insertMessages(threadId: Long, recipient: Recipient, count: Int) {
+    val self = Recipient.self().id.serialize()
+    val type = MessageTypes.BASE_INBOX_TYPE or MessageTypes.SECURE_MESSAGE_BIT
+
+    SignalDatabase.rawDatabase.execSQL(
+      """
+      WITH RECURSIVE seq(n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < $count)
+      INSERT INTO ${MessageTable.TABLE_NAME} (
+        ${MessageTable.DATE_SENT},
+        ${MessageTable.DATE_RECEIVED},
+        ${MessageTable.DATE_SERVER},
+        ${MessageTable.THREAD_ID},
+        ${MessageTable.FROM_RECIPIENT_ID},
+        ${MessageTable.TO_RECIPIENT_ID},
+        ${MessageTable.TYPE},
+        ${MessageTable.BODY}
+      )
+      SELECT n, n, n, $threadId, ${recipient.id.serialize()}, $self, $type, 'Message body number ' || n FROM seq
+      """
+    )
+  }
+
+  companion object {
+    private val TAG = Log.tag(FullBackupExporterPerformanceTests::class.java)
+    private const val MESSAGE_COUNT = 1_000_000
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.backup
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import assertk.assertThat
+import assertk.assertions.isEqualTo
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.signal.core.util.stream.NullOutputStream
+import org.thoughtcrime.securesms.backup.proto.SqlStatement
+import org.thoughtcrime.securesms.database.SignalDatabase
+import org.thoughtcrime.securesms.testing.SignalDatabaseRule
+
+@Suppress("ClassName")
+@RunWith(AndroidJUnit4::class)
+class FullBackupExporterTest_exportTable {
+
+  @get:Rule
+  val databaseRule = SignalDatabaseRule()
+
+  private val exported = mutableListOf<Long>()
+
+  private val outputStream = object : BackupFrameOutputStream(NullOutputStream, "deadbeef") {
+    override fun write(statement: SqlStatement) {
+      exported += statement.parameters[0].integerParameter!!
+    }
+  }
+
+  @Before
+  fun setUp() {
+    SignalDatabase.rawDatabase.execSQL("CREATE TABLE $TABLE (_id INTEGER PRIMARY KEY, body TEXT)")
+  }
+
+  @After
+  fun tearDown() {
+    SignalDatabase.rawDatabase.execSQL("DROP TABLE IF EXISTS $TABLE")
+  }
+
+  @Test
+  fun givenRowsAcrossSeveralPages_whenIExport_thenIExpectEveryRowOnceInRowIdOrder() {
+    insertRows(FullBackupExporter.TABLE_EXPORT_PAGE_SIZE * 3 + 17)
+
+    val count = FullBackupExporter.exportTable(TABLE, SignalDatabase.rawDatabase, outputStream)
+
+    assertThat(exported).isEqualTo(remainingIds())
+    assertThat(count).isEqualTo(exported.size)
+  }
+
+  @Test
+  fun givenDeletedRowIds_whenIExport_thenIExpectEveryRemainingRowOnceInRowIdOrder() {
+    val pageSize = FullBackupExporter.TABLE_EXPORT_PAGE_SIZE
+    insertRows(pageSize * 5)
+
+    SignalDatabase.rawDatabase.execSQL("DELETE FROM $TABLE WHERE _id % 7 = 0")
+    SignalDatabase.rawDatabase.execSQL("DELETE FROM $TABLE WHERE _id BETWEEN ${pageSize / 2} AND ${pageSize * 2}")
+    SignalDatabase.rawDatabase.execSQL("DELETE FROM $TABLE WHERE _id = ${pageSize * 3}")
+
+    val count = FullBackupExporter.exportTable(TABLE, SignalDatabase.rawDatabase, outputStream)
+
+    assertThat(exported).isEqualTo(remainingIds())
+    assertThat(exported.toSet().size).isEqualTo(exported.size)
+    assertThat(count).isEqualTo(exported.size)
+  }
+
+  @Test
+  fun givenAnEmptyTable_whenIExport_thenIExpectNothing() {
+    val count = FullBackupExporter.exportTable(TABLE, SignalDatabase.rawDatabase, outputStream)
+
+    assertThat(exported).isEqualTo(emptyList<Long>())
+    assertThat(count).isEqualTo(0)
+  }
+
+  private fun insertRows(count: Int) {
+    SignalDatabase.rawDatabase.execSQL(
+      """
+      WITH RECURSIVE seq(n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < $count)
+      INSERT INTO $TABLE (_id, body) SELECT n, 'Row ' || n FROM seq
+      """
+    )
+  }
+
+  private fun remainingIds(): List<Long> {
+    val ids = mutableListOf<Long>()
+
+    SignalDatabase.rawDatabase.rawQuery("SELECT _id FROM $TABLE ORDER BY _id", null).use { cursor ->
+      while (cursor.moveToNext()) {
+        ids += cursor.getLong(0)
+      }
+    }
+
+    return ids
+  }
+
+  companion object {
+    private const val TABLE = "backup_export_test"
+  }
+}
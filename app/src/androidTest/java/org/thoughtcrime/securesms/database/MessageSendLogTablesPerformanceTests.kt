@@ -0,0 +1,83 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.database
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert.assertNotNull
+import org.junit.Ignore
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.signal.core.util.logging.Log
+import org.thoughtcrime.securesms.database.model.MessageId
+import org.thoughtcrime.securesms.recipients.Recipient
+import org.thoughtcrime.securesms.testing.SignalActivityRule
+import org.whispersystems.signalservice.api.crypto.ContentHint
+import org.whispersystems.signalservice.api.messages.SendMessageResult
+import org.whispersystems.signalservice.api.push.ServiceId.ACI
+import org.whispersystems.signalservice.api.push.SignalServiceAddress
+import org.whispersystems.signalservice.internal.push.Content
+import org.whispersystems.signalservice.internal.push.DataMessage
+import java.util.Optional
+import java.util.UUID
+import kotlin.time.Duration.Companion.nanoseconds
+
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+@RunWith(AndroidJUnit4::class)
+class MessageSendLogTablesPerformanceTests {
+
+  companion object {
+    val TAG = Log.tag(MessageSendLogTablesPerformanceTests::class.java)
+
+    private const val RECIPIENT_COUNT = 1000
+    private const val BATCH_SIZE = 100
+    private val DEVICES = listOf(1, 2, 3)
+  }
+
+  @get:Rule
+  val harness = SignalActivityRule()
+
+  private val content = Content(dataMessage = DataMessage(body = "Hello"))
+
+  @Test
+  fun testPerformance_insertIfPossible() {
+    val sentTimestamp = System.currentTimeMillis()
+    val recipients = createRecipients()
+    val results = recipients.map { it.toSuccessResult() }
+
+    val start = System.nanoTime()
+    SignalDatabase.messageLog.insertIfPossible(sentTimestamp, recipients, results, ContentHint.RESENDABLE, MessageId(1), true)
+    val duration = (System.nanoTime() - start).nanoseconds
+
+    Log.i(TAG, "[insertIfPossible] Logged ${RECIPIENT_COUNT * DEVICES.size} recipient devices in $duration")
+    assertNotNull(SignalDatabase.messageLog.getLogEntry(recipients.last().id, DEVICES.last(), sentTimestamp))
+  }
+
+  @Test
+  fun testPerformance_addRecipientsToExistingEntryIfPossible() {
+    val sentTimestamp = System.currentTimeMillis()
+    val recipients = createRecipients()
+    val batches = recipients.map { it.toSuccessResult() }.chunked(BATCH_SIZE)
+
+    val start = System.nanoTime()
+    var payloadId = SignalDatabase.messageLog.insertIfPossible(sentTimestamp, recipients, batches.first(), ContentHint.RESENDABLE, MessageId(1), true)
+    for (batch in batches.drop(1)) {
+      payloadId = SignalDatabase.messageLog.addRecipientsToExistingEntryIfPossible(payloadId, sentTimestamp, recipients, batch, ContentHint.RESENDABLE, MessageId(1), true)
+    }
+    val duration = (System.nanoTime() - start).nanoseconds
+
+    Log.i(TAG, "[addRecipientsToExistingEntryIfPossible] Logged ${RECIPIENT_COUNT * DEVICES.size} recipient devices in batches of $BATCH_SIZE recipients in $duration")
+    assertNotNull(SignalDatabase.messageLog.getLogEntry(recipients.last().id, DEVICES.last(), sentTimestamp))
+  }
+
+  private fun createRecipients(): List<Recipient> {
+    return List(RECIPIENT_COUNT) { Recipient.resolved(SignalDatabase.recipients.getOrInsertFromServiceId(ACI.from(UUID.randomUUID()))) }
+  }
+
+  private fun Recipient.toSuccessResult(): SendMessageResult {
+    return SendMessageResult.success(SignalServiceAddress(requireAci()), DEVICES, true, false, 0, Optional.of(content))
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.database
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import assertk.assertThat
+import assertk.assertions.isEqualTo
+import assertk.assertions.isNotEqualTo
+import assertk.assertions.isNotNull
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.thoughtcrime.securesms.database.model.MessageId
+import org.thoughtcrime.securesms.recipients.Recipient
+import org.thoughtcrime.securesms.testing.SignalActivityRule
+import org.whispersystems.signalservice.api.crypto.ContentHint
+import org.whispersystems.signalservice.api.messages.SendMessageResult
+import org.whispersystems.signalservice.api.push.ServiceId.ACI
+import org.whispersystems.signalservice.api.push.SignalServiceAddress
+import org.whispersystems.signalservice.internal.push.Content
+import org.whispersystems.signalservice.internal.push.DataMessage
+import java.util.Optional
+import java.util.UUID
+
+@RunWith(AndroidJUnit4::class)
+class MessageSendLogTablesTest {
+
+  @get:Rule
+  val harness = SignalActivityRule()
+
+  private val content = Content(dataMessage = DataMessage(body = "Hello"))
+
+  @Test
+  fun givenAnExistingEntry_whenIAddRecipientsInBulk_thenIExpectEachRecipientDeviceToBeLogged() {
+    val sentTimestamp = System.currentTimeMillis()
+    val recipients = createRecipients(10)
+    val results = recipients.map { it.toSuccessResult(devices = listOf(1, 2)) }
+
+    val payloadId = SignalDatabase.messageLog.insertIfPossible(sentTimestamp, recipients, results.take(1), ContentHint.RESENDABLE, MessageId(1), true)
+    val updatedPayloadId = SignalDatabase.messageLog.addRecipientsToExistingEntryIfPossible(payloadId, sentTimestamp, recipients, results.drop(1), ContentHint.RESENDABLE, MessageId(1), true)
+
+    assertThat(updatedPayloadId).isEqualTo(payloadId)
+    for (recipient in recipients) {
+      for (device in listOf(1, 2)) {
+        assertThat(SignalDatabase.messageLog.getLogEntry(recipient.id, device, sentTimestamp)).isNotNull()
+      }
+    }
+  }
+
+  @Test
+  fun givenADeletedEntry_whenIAddRecipientsInBulk_thenIExpectANewEntry() {
+    val sentTimestamp = System.currentTimeMillis()
+    val recipients = createRecipients(3)
+    val results = recipients.map { it.toSuccessResult(devices = listOf(1)) }
+
+    val payloadId = SignalDatabase.messageLog.insertIfPossible(sentTimestamp, recipients, results.take(1), ContentHint.RESENDABLE, MessageId(1), true)
+    SignalDatabase.messageLog.deleteAll()
+
+    val updatedPayloadId = SignalDatabase.messageLog.addRecipientsToExistingEntryIfPossible(payloadId, sentTimestamp, recipients, results.drop(1), ContentHint.RESENDABLE, MessageId(1), true)
+
+    assertThat(updatedPayloadId).isNotEqualTo(payloadId)
+    assertThat(SignalDatabase.messageLog.getLogEntry(recipients.last().id, 1, sentTimestamp)).isNotNull()
+  }
+
+  @Test
+  fun givenAGroupSend_whenILogInPartialBatches_thenIExpectEveryRecipientToBeLogged() {
+    val sentTimestamp = System.currentTimeMillis()
+    val recipients = createRecipients(30)
+    val results = recipients.map { it.toSuccessResult(devices = listOf(1, 2, 3)) }
+    val batches = results.chunked(10)
+
+    var payloadId = SignalDatabase.messageLog.insertIfPossible(sentTimestamp, recipients, batches.first(), ContentHint.RESENDABLE, MessageId(1), true)
+    for (batch in batches.drop(1)) {
+      payloadId = SignalDatabase.messageLog.addRecipientsToExistingEntryIfPossible(payloadId, sentTimestamp, recipients, batch, ContentHint.RESENDABLE, MessageId(1), true)
+    }
+
+    for (recipient in recipients) {
+      assertThat(SignalDatabase.messageLog.getLogEntry(recipient.id, 3, sentTimestamp)).isNotNull()
+    }
+  }
+
+  @Test
+  fun givenMoreRecipientDevicesThanFitInOneInsert_whenILogThem_thenIExpectEveryRecipientDeviceToBeLogged() {
+    val sentTimestamp = System.currentTimeMillis()
+    val recipients = createRecipients(120)
+    val results = recipients.map { it.toSuccessResult(devices = listOf(1, 2, 3)) }
+
+    SignalDatabase.messageLog.insertIfPossible(sentTimestamp, recipients, results, ContentHint.RESENDABLE, MessageId(1), true)
+
+    for (recipient in recipients) {
+      for (device in listOf(1, 2, 3)) {
+        assertThat(SignalDatabase.messageLog.getLogEntry(recipient.id, device, sentTimestamp)).isNotNull()
+      }
+    }
+  }
+
+  private fun createRecipients(count: Int): List<Recipient> {
+    return List(count) { Recipient.resolved(SignalDatabase.recipients.getOrInsertFromServiceId(ACI.from(UUID.randomUUID()))) }
+  }
+
+  private fun Recipient.toSuccessResult(devices: List<Int>): SendMessageResult {
+    return SendMessageResult.success(SignalServiceAddress(requireAci()), devices, true, false, 0, Optional.of(content))
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.database
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.signal.core.util.logging.Log
+import org.thoughtcrime.securesms.recipients.Recipient
+import org.thoughtcrime.securesms.testing.SignalActivityRule
+import kotlin.time.Duration.Companion.nanoseconds
+
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+@RunWith(AndroidJUnit4::class)
+class MessageTableReceiptsPerformanceTests {
+
+  companion object {
+    val TAG = Log.tag(MessageTableReceiptsPerformanceTests::class.java)
+
+    private const val MESSAGE_COUNT = 2_000L
+  }
+
+  @get:Rule
+  val harness = SignalActivityRule()
+
+  @Test
+  fun testPerformance_incrementDeliveryReceiptCount() {
+    val recipient = Recipient.resolved(harness.others[0])
+    val timestamps: List<Long> = (1L..MESSAGE_COUNT).toList()
+    val messageIds: List<Long> = timestamps.map { MmsHelper.insert(recipient = recipient, sentTimeMillis = it) }
+
+    val start = System.nanoTime()
+    for (timestamp in timestamps) {
+      SignalDatabase.messages.incrementDeliveryReceiptCount(timestamp, recipient.id, timestamp + 1)
+    }
+    val duration = (System.nanoTime() - start).nanoseconds
+
+    Log.i(TAG, "[incrementDeliveryReceiptCount] Processed ${timestamps.size} delivery receipts in $duration (${duration / timestamps.size} per receipt)")
+    assertTrue(SignalDatabase.messages.getMessageRecord(messageIds.last()).hasDeliveryReceipt())
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.database
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import assertk.assertThat
+import assertk.assertions.isEmpty
+import assertk.assertions.isFalse
+import assertk.assertions.isTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.thoughtcrime.securesms.recipients.Recipient
+import org.thoughtcrime.securesms.testing.SignalActivityRule
+
+@Suppress("ClassName")
+@RunWith(AndroidJUnit4::class)
+class MessageTableTest_receipts {
+
+  @get:Rule
+  val harness = SignalActivityRule()
+
+  @Test
+  fun givenAnOutgoingMessage_whenIReceiveADeliveryReceipt_thenIExpectItToBeMarkedDelivered() {
+    val recipient = Recipient.resolved(harness.others[0])
+    val sentTimestamp = 1000L
+    val messageId = MmsHelper.insert(recipient = recipient, sentTimeMillis = sentTimestamp)
+
+    val missing = SignalDatabase.messages.incrementDeliveryReceiptCounts(listOf(sentTimestamp), recipient.id, 2000L)
+
+    assertThat(missing).isEmpty()
+    assertThat(SignalDatabase.messages.getMessageRecord(messageId).hasDeliveryReceipt()).isTrue()
+    assertThat(SignalDatabase.messages.getMessageRecord(messageId).hasReadReceipt()).isFalse()
+  }
+
+  @Test
+  fun givenAnOutgoingMessage_whenIReceiveAReadReceipt_thenIExpectItToBeMarkedRead() {
+    val recipient = Recipient.resolved(harness.others[0])
+    val sentTimestamp = 1000L
+    val messageId = MmsHelper.insert(recipient = recipient, sentTimeMillis = sentTimestamp)
+
+    SignalDatabase.messages.incrementReadReceiptCounts(listOf(sentTimestamp), recipient.id, 2000L)
+
+    assertThat(SignalDatabase.messages.getMessageRecord(messageId).hasReadReceipt()).isTrue()
+  }
+
+  @Test
+  fun givenManyOutgoingMessages_whenIReceiveReceiptsForAll_thenIExpectEachToBeMarked() {
+    val recipient = Recipient.resolved(harness.others[0])
+    val timestamps: List<Long> = (1L..MESSAGE_COUNT).toList()
+    val messageIds: List<Long> = timestamps.map { MmsHelper.insert(recipient = recipient, sentTimeMillis = it) }
+
+    for (timestamp in timestamps) {
+      SignalDatabase.messages.incrementDeliveryReceiptCount(timestamp, recipient.id, timestamp + 1)
+    }
+
+    for (id in messageIds) {
+      assertThat(SignalDatabase.messages.getMessageRecord(id).hasDeliveryReceipt()).isTrue()
+    }
+  }
+
+  companion object {
+    private const val MESSAGE_COUNT = 20L
+  }
+}
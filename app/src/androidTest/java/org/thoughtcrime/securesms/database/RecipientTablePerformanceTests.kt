@@ -0,0 +1,138 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.database
+
+import androidx.core.content.contentValuesOf
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert.assertEquals
+import org.junit.Ignore
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.signal.core.util.Base64
+import org.signal.core.util.logging.Log
+import org.signal.core.util.withinTransaction
+import org.thoughtcrime.securesms.database.RecipientTable.PnpTuple
+import org.thoughtcrime.securesms.recipients.RecipientId
+import org.thoughtcrime.securesms.storage.StorageSyncHelper
+import org.thoughtcrime.securesms.testing.SignalDatabaseRule
+import org.whispersystems.signalservice.api.push.ServiceId.ACI
+import org.whispersystems.signalservice.api.push.ServiceId.PNI
+import java.util.UUID
+import kotlin.random.Random
+import kotlin.time.Duration.Companion.nanoseconds
+
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+@RunWith(AndroidJUnit4::class)
+class RecipientTablePerformanceTests {
+
+  companion object {
+    val TAG = Log.tag(RecipientTablePerformanceTests::class.java)
+
+    private const val TABLE_SIZE = 50_000
+    private const val TUPLE_COUNT = 10_000
+    private const val NEW_TUPLE_COUNT = 500
+    private const val STORAGE_ID_COUNT = 2_000
+  }
+
+  @get:Rule
+  val databaseRule = SignalDatabaseRule()
+
+  @Test
+  fun testPerformance_getAndPossiblyMerge() {
+    val tuples = buildTuples()
+
+    val start = System.nanoTime()
+    val ids: List<RecipientId> = SignalDatabase.rawDatabase.withinTransaction {
+      tuples.map { SignalDatabase.recipients.getAndPossiblyMerge(it.aci, it.pni, it.e164) }
+    }
+    val duration = (System.nanoTime() - start).nanoseconds
+
+    Log.i(TAG, "[getAndPossiblyMerge] Resolved ${tuples.size} tuples against $TABLE_SIZE recipients in $duration")
+    assertEquals(TUPLE_COUNT, ids.size)
+  }
+
+  @Test
+  fun testPerformance_bulkGetAndPossiblyMerge() {
+    val tuples = buildTuples()
+
+    val start = System.nanoTime()
+    val ids: List<RecipientId> = SignalDatabase.recipients.bulkGetAndPossiblyMerge(tuples)
+    val duration = (System.nanoTime() - start).nanoseconds
+
+    Log.i(TAG, "[bulkGetAndPossiblyMerge] Resolved ${tuples.size} tuples against $TABLE_SIZE recipients in $duration")
+    assertEquals(TUPLE_COUNT, ids.size)
+  }
+
+  @Test
+  fun testPerformance_getByStorageIds() {
+    val storageIds: List<ByteArray> = insertRecipientsWithStorageIds()
+
+    var start = System.nanoTime()
+    val single = storageIds.mapNotNull { SignalDatabase.recipients.getByStorageId(it) }
+    val singleDuration = (System.nanoTime() - start).nanoseconds
+
+    start = System.nanoTime()
+    val bulk = SignalDatabase.recipients.getByStorageIds(storageIds)
+    val bulkDuration = (System.nanoTime() - start).nanoseconds
+
+    Log.i(TAG, "[getByStorageIds] Looked up ${storageIds.size} storage IDs. Single: $singleDuration, Bulk: $bulkDuration")
+    assertEquals(single.size, bulk.size)
+  }
+
+  private fun insertRecipientsWithStorageIds(): List<ByteArray> {
+    val storageIds: List<ByteArray> = List(STORAGE_ID_COUNT) { StorageSyncHelper.generateKey() }
+
+    SignalDatabase.rawDatabase.withinTransaction { db ->
+      for (storageId in storageIds) {
+        db.insert(
+          RecipientTable.TABLE_NAME,
+          null,
+          contentValuesOf(
+            RecipientTable.ACI_COLUMN to ACI.from(UUID.randomUUID()).toString(),
+            RecipientTable.STORAGE_SERVICE_ID to Base64.encodeWithPadding(storageId)
+          )
+        )
+      }
+    }
+
+    return storageIds
+  }
+
+  /**
+   * Fills the table with [TABLE_SIZE] registered recipients and returns [TUPLE_COUNT] tuples, most of which match one of them exactly,
+   * like a CDS refresh where only a few results have changed.
+   */
+  private fun buildTuples(): List<PnpTuple> {
+    Log.i(TAG, "Inserting $TABLE_SIZE recipients...")
+
+    val existing: List<PnpTuple> = (0 until TABLE_SIZE).map { i -> PnpTuple(e164 = e164(i), pni = PNI.from(UUID.randomUUID()), aci = ACI.from(UUID.randomUUID())) }
+
+    SignalDatabase.rawDatabase.withinTransaction { db ->
+      for (tuple in existing) {
+        db.insert(
+          RecipientTable.TABLE_NAME,
+          null,
+          contentValuesOf(
+            RecipientTable.E164 to tuple.e164,
+            RecipientTable.PNI_COLUMN to tuple.pni.toString(),
+            RecipientTable.ACI_COLUMN to tuple.aci.toString(),
+            RecipientTable.REGISTERED to RecipientTable.RegisteredState.REGISTERED.id
+          )
+        )
+      }
+    }
+
+    val matching = existing.shuffled().take(TUPLE_COUNT - NEW_TUPLE_COUNT)
+    val new = (0 until NEW_TUPLE_COUNT).map { i -> PnpTuple(e164 = e164(TABLE_SIZE + i), pni = PNI.from(UUID.randomUUID()), aci = ACI.from(UUID.randomUUID())) }
+
+    return (matching + new).shuffled()
+  }
+
+  private val e164Offset: Long = Random.nextLong(1_000_000_000L)
+
+  private fun e164(i: Int): String = "+1" + (2_000_000_000L + e164Offset + i)
+}
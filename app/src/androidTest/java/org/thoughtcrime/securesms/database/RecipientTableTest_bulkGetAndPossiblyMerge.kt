@@ -0,0 +1,104 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.database
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.signal.core.util.orNull
+import org.thoughtcrime.securesms.database.RecipientTable.PnpTuple
+import org.thoughtcrime.securesms.recipients.RecipientId
+import org.thoughtcrime.securesms.testing.SignalDatabaseRule
+import org.whispersystems.signalservice.api.push.ServiceId.ACI
+import org.whispersystems.signalservice.api.push.ServiceId.PNI
+import java.util.UUID
+import kotlin.random.Random
+
+@Suppress("ClassName")
+@RunWith(AndroidJUnit4::class)
+class RecipientTableTest_bulkGetAndPossiblyMerge {
+
+  @get:Rule
+  val databaseRule = SignalDatabaseRule()
+
+  @Test
+  fun givenTuplesThatAlreadyMatch_whenIBulkMerge_thenIExpectTheExistingIds() {
+    val tuples = (0 until 20).map { PnpTuple(randomE164(), randomPni(), randomAci()) }
+    val existing = tuples.map { SignalDatabase.recipients.getAndPossiblyMerge(it.aci, it.pni, it.e164) }
+
+    val result = SignalDatabase.recipients.bulkGetAndPossiblyMerge(tuples)
+
+    assertEquals(existing, result)
+  }
+
+  @Test
+  fun givenNewTuples_whenIBulkMerge_thenIExpectOneRecipientPerTuple() {
+    val tuples = (0 until 20).map { PnpTuple(randomE164(), randomPni(), randomAci()) }
+
+    val result = SignalDatabase.recipients.bulkGetAndPossiblyMerge(tuples)
+
+    assertEquals(tuples.size, result.toSet().size)
+    tuples.zip(result).forEach { (tuple, id) -> expect(id, tuple) }
+  }
+
+  @Test
+  fun givenTheSameNewTupleTwice_whenIBulkMerge_thenIExpectASingleRecipient() {
+    val tuple = PnpTuple(randomE164(), randomPni(), randomAci())
+
+    val result = SignalDatabase.recipients.bulkGetAndPossiblyMerge(listOf(tuple, tuple))
+
+    assertEquals(result[0], result[1])
+    expect(result[0], tuple)
+  }
+
+  @Test
+  fun givenSeparateE164AndAciRecipients_whenIBulkMergeAFullTuple_thenIExpectThemMerged() {
+    val e164 = randomE164()
+    val aci = randomAci()
+    val byE164 = SignalDatabase.recipients.getAndPossiblyMerge(null, null, e164)
+    val byAci = SignalDatabase.recipients.getAndPossiblyMerge(aci, null, null)
+    assertNotEquals(byE164, byAci)
+
+    val result = SignalDatabase.recipients.bulkGetAndPossiblyMerge(listOf(PnpTuple(e164, randomPni(), aci)))
+
+    assertEquals(byAci, result[0])
+    assertEquals(byAci, SignalDatabase.recipients.getByE164(e164).orNull())
+  }
+
+  @Test
+  fun givenTuplesThatBuildOnEachOther_whenIBulkMerge_thenIExpectTheSameResultAsOneAtATime() {
+    val e164 = randomE164()
+    val pni = randomPni()
+    val aci = randomAci()
+
+    val result = SignalDatabase.recipients.bulkGetAndPossiblyMerge(
+      listOf(
+        PnpTuple(e164, null, null),
+        PnpTuple(e164, pni, null),
+        PnpTuple(null, pni, aci)
+      )
+    )
+
+    assertEquals(1, result.toSet().size)
+    expect(result[0], PnpTuple(e164, pni, aci))
+  }
+
+  private fun expect(id: RecipientId, tuple: PnpTuple) {
+    val record = SignalDatabase.recipients.getRecord(id)
+    assertEquals(tuple.e164, record.e164)
+    assertEquals(tuple.pni, record.pni)
+    assertEquals(tuple.aci, record.aci)
+  }
+
+  private fun randomE164(): String = "+1555" + Random.nextInt(1_000_000, 9_999_999)
+
+  private fun randomPni(): PNI = PNI.from(UUID.randomUUID())
+
+  private fun randomAci(): ACI = ACI.from(UUID.randomUUID())
+}
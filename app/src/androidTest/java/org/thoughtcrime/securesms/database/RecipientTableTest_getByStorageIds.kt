@@ -0,0 +1,74 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.database
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import assertk.assertThat
+import assertk.assertions.isEqualTo
+import assertk.assertions.isNotNull
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.signal.core.util.Base64
+import org.thoughtcrime.securesms.recipients.RecipientId
+import org.thoughtcrime.securesms.storage.StorageSyncHelper
+import org.thoughtcrime.securesms.testing.SignalActivityRule
+import org.whispersystems.signalservice.api.push.ServiceId.ACI
+import java.util.UUID
+
+@Suppress("ClassName")
+@RunWith(AndroidJUnit4::class)
+class RecipientTableTest_getByStorageIds {
+
+  @get:Rule
+  val harness = SignalActivityRule()
+
+  @Test
+  fun givenRecipientsWithStorageIds_whenIGetByStorageIds_thenIExpectAllToBeFound() {
+    val storageIds: Map<RecipientId, ByteArray> = insertRecipientsWithStorageIds(50)
+
+    val results = SignalDatabase.recipients.getByStorageIds(storageIds.values)
+
+    assertThat(results.size).isEqualTo(storageIds.size)
+    for ((recipientId, storageId) in storageIds) {
+      val record = results[Base64.encodeWithPadding(storageId)]
+      assertThat(record).isNotNull()
+      assertThat(record!!.id).isEqualTo(recipientId)
+    }
+  }
+
+  @Test
+  fun givenUnknownStorageIds_whenIGetByStorageIds_thenIExpectThemToBeOmitted() {
+    val storageIds: Map<RecipientId, ByteArray> = insertRecipientsWithStorageIds(5)
+    val unknown = List(5) { StorageSyncHelper.generateKey() }
+
+    val results = SignalDatabase.recipients.getByStorageIds(storageIds.values + unknown)
+
+    assertThat(results.size).isEqualTo(storageIds.size)
+  }
+
+  @Test
+  fun givenManyRecipients_whenIGetByStorageIds_thenIExpectItToMatchSingleLookups() {
+    val storageIds: List<ByteArray> = insertRecipientsWithStorageIds(40).values.toList()
+
+    val single = storageIds.mapNotNull { SignalDatabase.recipients.getByStorageId(it) }
+    val bulk = SignalDatabase.recipients.getByStorageIds(storageIds)
+
+    assertThat(bulk.size).isEqualTo(single.size)
+    for (record in single) {
+      assertThat(bulk[Base64.encodeWithPadding(record.storageId!!)]?.id).isEqualTo(record.id)
+    }
+  }
+
+  private fun insertRecipientsWithStorageIds(count: Int): Map<RecipientId, ByteArray> {
+    return (0 until count).associate {
+      val id = SignalDatabase.recipients.getOrInsertFromServiceId(ACI.from(UUID.randomUUID()))
+      val storageId = StorageSyncHelper.generateKey()
+      SignalDatabase.recipients.updateStorageId(id, storageId)
+      id to storageId
+    }
+  }
+}
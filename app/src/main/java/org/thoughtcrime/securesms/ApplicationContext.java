@@ -110,6 +110,7 @@ import org.thoughtcrime.securesms.util.TextSecurePreferences;
 import org.thoughtcrime.securesms.util.Util;
 import org.thoughtcrime.securesms.util.VersionTracker;
 import org.thoughtcrime.securesms.util.dynamiclanguage.DynamicLanguageContextWrapper;
+import org.thoughtcrime.securesms.video.EncryptedSegmentStorage;
 
 import java.io.InterruptedIOException;
 import java.net.SocketException;
@@ -518,6 +519,9 @@ public class ApplicationContext extends Application implements AppForegroundObse
   private void initializeCleanup() {
     int deleted = SignalDatabase.attachments().deleteAbandonedPreuploadedAttachments();
     Log.i(TAG, "Deleted " + deleted + " abandoned attachments.");
+
+    int deletedSegments = EncryptedSegmentStorage.deleteAbandonedSegments(this);
+    Log.i(TAG, "Deleted " + deletedSegments + " abandoned video segments.");
   }
 
   private void initializeGlideCodecs() {
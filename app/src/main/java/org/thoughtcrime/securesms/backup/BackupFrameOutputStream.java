@@ -46,9 +46,9 @@ class BackupFrameOutputStream extends FullBackupBase.BackupStream {
   private final Cipher       cipher;
   private final Mac          mac;
 
-  private final byte[] cipherKey;
-  private final byte[] iv;
-  private       int    counter;
+  private final SecretKeySpec cipherKey;
+  private final byte[]        iv;
+  private       int           counter;
 
   private int frames;
 
@@ -59,7 +59,7 @@ class BackupFrameOutputStream extends FullBackupBase.BackupStream {
       byte[]   derived = HKDF.deriveSecrets(key, "Backup Export".getBytes(), 64);
       byte[][] split   = ByteUtil.split(derived, 32, 32);
 
-      this.cipherKey = split[0];
+      this.cipherKey = new SecretKeySpec(split[0], "AES");
       byte[] macKey = split[1];
 
       this.cipher       = Cipher.getInstance("AES/CTR/NoPadding");
@@ -167,7 +167,7 @@ class BackupFrameOutputStream extends FullBackupBase.BackupStream {
   private long writeStream(@NonNull InputStream inputStream) throws IOException {
     try {
       Conversions.intToByteArray(iv, 0, counter++);
-      cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(cipherKey, "AES"), new IvParameterSpec(iv));
+      cipher.init(Cipher.ENCRYPT_MODE, cipherKey, new IvParameterSpec(iv));
       mac.update(iv);
 
       byte[] buffer = new byte[8192];
@@ -202,7 +202,7 @@ class BackupFrameOutputStream extends FullBackupBase.BackupStream {
   private void write(@NonNull OutputStream out, @NonNull BackupFrame frame) throws IOException {
     try {
       Conversions.intToByteArray(iv, 0, counter++);
-      cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(cipherKey, "AES"), new IvParameterSpec(iv));
+      cipher.init(Cipher.ENCRYPT_MODE, cipherKey, new IvParameterSpec(iv));
 
       byte[] encodedFrame = frame.encode();
 
@@ -217,7 +217,7 @@ class BackupFrameOutputStream extends FullBackupBase.BackupStream {
         length = encryptedLength;
       }
 
-      byte[] frameCiphertext = cipher.doFinal(frame.encode());
+      byte[] frameCiphertext = cipher.doFinal(encodedFrame);
       if (frameCiphertext.length != encodedFrame.length) {
         throw new IOException("Stream cipher assumption has been violated!");
       }
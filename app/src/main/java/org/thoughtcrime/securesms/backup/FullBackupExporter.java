@@ -20,6 +20,8 @@ import org.signal.core.util.CursorUtil;
 import org.signal.core.util.SetUtil;
 import org.signal.core.util.SqlUtil;
 import org.signal.core.util.Stopwatch;
+import org.signal.core.util.ThreadUtil;
+import org.signal.core.util.concurrent.SignalExecutors;
 import org.signal.core.util.logging.Log;
 import org.thoughtcrime.securesms.attachments.AttachmentId;
 import org.thoughtcrime.securesms.backup.proto.KeyValue;
@@ -29,6 +31,7 @@ import org.thoughtcrime.securesms.crypto.AttachmentSecret;
 import org.thoughtcrime.securesms.crypto.ClassicDecryptingPartInputStream;
 import org.thoughtcrime.securesms.crypto.ModernDecryptingPartInputStream;
 import org.thoughtcrime.securesms.database.AttachmentTable;
+import org.thoughtcrime.securesms.database.EarlyMessageTable;
 import org.thoughtcrime.securesms.database.EmojiSearchTable;
 import org.thoughtcrime.securesms.database.GroupReceiptTable;
 import org.thoughtcrime.securesms.database.KeyValueDatabase;
@@ -79,6 +82,19 @@ public class FullBackupExporter extends FullBackupBase {
   private static final long IDENTITY_KEY_BACKUP_RECORD_COUNT = 2L;
   private static final long FINAL_MESSAGE_COUNT              = 1L;
   private static final long EXPIRATION_BACKUP_THRESHOLD      = TimeUnit.DAYS.toMillis(1);
+  private static final long PROGRESS_INTERVAL_MS             = 100;
+
+  /** Number of attachments decrypted ahead of the writer during device transfer, see {@link PrefetchingStreamWriter}. */
+  private static final int TRANSFER_ATTACHMENT_PREFETCH_COUNT    = 4;
+  private static final int TRANSFER_ATTACHMENT_PREFETCH_CHUNK    = 64 * 1024;
+  private static final int TRANSFER_ATTACHMENT_PREFETCH_BUFFERED = 8;
+
+  private static final String EXPORT_ROWID = "_backup_export_rowid";
+
+  @VisibleForTesting
+  static final int TABLE_EXPORT_PAGE_SIZE = 1000;
+
+  private static final SqlStatement.SqlParameter NULL_PARAMETER = new SqlStatement.SqlParameter.Builder().nullparameter(true).build();
 
   /**
    * Tables in list will still have their *schema* exported (so the tables will be created),
@@ -93,6 +109,7 @@ public class FullBackupExporter extends FullBackupBase {
       SenderKeyTable.TABLE_NAME,
       SenderKeySharedTable.TABLE_NAME,
       PendingRetryReceiptTable.TABLE_NAME,
+      EarlyMessageTable.TABLE_NAME,
       AvatarPickerDatabase.TABLE_NAME,
       RemappedRecordTables.Recipients.TABLE_NAME,
       RemappedRecordTables.Threads.TABLE_NAME
@@ -107,7 +124,7 @@ public class FullBackupExporter extends FullBackupBase {
       throws IOException
   {
     try (OutputStream outputStream = new FileOutputStream(output)) {
-      return internalExport(context, attachmentSecret, input, outputStream, passphrase, true, cancellationSignal);
+      return internalExport(context, attachmentSecret, input, outputStream, passphrase, true, false, cancellationSignal);
     }
   }
 
@@ -121,7 +138,7 @@ public class FullBackupExporter extends FullBackupBase {
       throws IOException
   {
     try (OutputStream outputStream = Objects.requireNonNull(context.getContentResolver().openOutputStream(output.getUri()))) {
-      return internalExport(context, attachmentSecret, input, outputStream, passphrase, true, cancellationSignal);
+      return internalExport(context, attachmentSecret, input, outputStream, passphrase, true, false, cancellationSignal);
     }
   }
 
@@ -132,7 +149,7 @@ public class FullBackupExporter extends FullBackupBase {
                               @NonNull String passphrase)
       throws IOException
   {
-    EventBus.getDefault().post(internalExport(context, attachmentSecret, input, outputStream, passphrase, false, () -> false));
+    EventBus.getDefault().post(internalExport(context, attachmentSecret, input, outputStream, passphrase, false, true, () -> false));
   }
 
   private static BackupEvent internalExport(@NonNull Context context,
@@ -141,12 +158,14 @@ public class FullBackupExporter extends FullBackupBase {
                                             @NonNull OutputStream fileOutputStream,
                                             @NonNull String passphrase,
                                             boolean closeOutputStream,
+                                            boolean prefetchAttachments,
                                             @NonNull BackupCancellationSignal cancellationSignal)
       throws IOException
   {
-    BackupFrameOutputStream outputStream          = new BackupFrameOutputStream(fileOutputStream, passphrase);
-    int                     count                 = 0;
-    long                    estimatedCountOutside;
+    BackupFrameOutputStream               outputStream          = new BackupFrameOutputStream(fileOutputStream, passphrase);
+    PrefetchingStreamWriter<AttachmentId> attachmentPrefetcher  = prefetchAttachments ? createAttachmentPrefetcher(outputStream) : null;
+    int                                   count                 = 0;
+    long                                  estimatedCountOutside;
 
     try {
       outputStream.writeDatabaseVersion(input.getVersion());
@@ -158,44 +177,49 @@ public class FullBackupExporter extends FullBackupBase {
       final long estimatedCount = calculateCount(context, input, tables);
       estimatedCountOutside = estimatedCount;
 
+      ProgressReporter progress = new ProgressReporter(estimatedCount);
+
       Stopwatch stopwatch = new Stopwatch("Backup");
 
       for (String table : tables) {
         throwIfCanceled(cancellationSignal);
         if (table.equals(MessageTable.TABLE_NAME)) {
-          count = exportTable(table, input, outputStream, cursor -> isNonExpiringMessage(input, cursor), null, count, estimatedCount, cancellationSignal);
+          count = exportTable(table, input, outputStream, cursor -> isNonExpiringMessage(input, cursor), null, count, progress, cancellationSignal);
         } else if (table.equals(ReactionTable.TABLE_NAME)) {
-          count = exportTable(table, input, outputStream, cursor -> isForNonExpiringMessage(input, CursorUtil.requireLong(cursor, ReactionTable.MESSAGE_ID)), null, count, estimatedCount, cancellationSignal);
+          count = exportTable(table, input, outputStream, cursor -> isForNonExpiringMessage(input, CursorUtil.requireLong(cursor, ReactionTable.MESSAGE_ID)), null, count, progress, cancellationSignal);
         } else if (table.equals(MentionTable.TABLE_NAME)) {
-          count = exportTable(table, input, outputStream, cursor -> isForNonExpiringMessage(input, CursorUtil.requireLong(cursor, MentionTable.MESSAGE_ID)), null, count, estimatedCount, cancellationSignal);
+          count = exportTable(table, input, outputStream, cursor -> isForNonExpiringMessage(input, CursorUtil.requireLong(cursor, MentionTable.MESSAGE_ID)), null, count, progress, cancellationSignal);
         } else if (table.equals(GroupReceiptTable.TABLE_NAME)) {
-          count = exportTable(table, input, outputStream, cursor -> isForNonExpiringMessage(input, cursor.getLong(cursor.getColumnIndexOrThrow(GroupReceiptTable.MMS_ID))), null, count, estimatedCount, cancellationSignal);
+          count = exportTable(table, input, outputStream, cursor -> isForNonExpiringMessage(input, cursor.getLong(cursor.getColumnIndexOrThrow(GroupReceiptTable.MMS_ID))), null, count, progress, cancellationSignal);
         } else if (table.equals(AttachmentTable.TABLE_NAME)) {
-          count = exportTable(table, input, outputStream, cursor -> isForNonExpiringMessage(input, cursor.getLong(cursor.getColumnIndexOrThrow(AttachmentTable.MESSAGE_ID))), (cursor, innerCount) -> exportAttachment(attachmentSecret, cursor, outputStream, innerCount, estimatedCount), count, estimatedCount, cancellationSignal);
+          count = exportTable(table, input, outputStream, cursor -> isForNonExpiringMessage(input, cursor.getLong(cursor.getColumnIndexOrThrow(AttachmentTable.MESSAGE_ID))), (cursor, innerCount) -> exportAttachment(attachmentSecret, cursor, outputStream, attachmentPrefetcher, innerCount, progress), count, progress, cancellationSignal);
+          if (attachmentPrefetcher != null) {
+            attachmentPrefetcher.flush();
+          }
         } else if (table.equals(StickerTable.TABLE_NAME)) {
-          count = exportTable(table, input, outputStream, cursor -> true, (cursor, innerCount) -> exportSticker(attachmentSecret, cursor, outputStream, innerCount, estimatedCount), count, estimatedCount, cancellationSignal);
+          count = exportTable(table, input, outputStream, cursor -> true, (cursor, innerCount) -> exportSticker(attachmentSecret, cursor, outputStream, innerCount, progress), count, progress, cancellationSignal);
         } else if (!TABLE_CONTENT_BLOCKLIST.contains(table)) {
-          count = exportTable(table, input, outputStream, null, null, count, estimatedCount, cancellationSignal);
+          count = exportTable(table, input, outputStream, null, null, count, progress, cancellationSignal);
         }
         stopwatch.split("table::" + table);
       }
 
       for (SharedPreference preference : TextSecurePreferences.getPreferencesToSaveToBackup(context)) {
         throwIfCanceled(cancellationSignal);
-        EventBus.getDefault().post(new BackupEvent(BackupEvent.Type.PROGRESS, ++count, estimatedCount));
+        progress.onProgress(++count);
         outputStream.write(preference);
       }
 
       stopwatch.split("prefs");
 
-      count = exportKeyValues(outputStream, SignalStore.getKeysToIncludeInBackup(), count, estimatedCount, cancellationSignal);
+      count = exportKeyValues(outputStream, SignalStore.getKeysToIncludeInBackup(), count, progress, cancellationSignal);
 
       stopwatch.split("key_values");
 
       for (AvatarHelper.Avatar avatar : AvatarHelper.getAvatars(context)) {
         throwIfCanceled(cancellationSignal);
         if (avatar != null) {
-          EventBus.getDefault().post(new BackupEvent(BackupEvent.Type.PROGRESS, ++count, estimatedCount));
+          progress.onProgress(++count);
           try (InputStream inputStream = avatar.getInputStream()) {
             outputStream.write(avatar.getFilename(), inputStream, avatar.getLength());
           }
@@ -207,6 +231,9 @@ public class FullBackupExporter extends FullBackupBase {
 
       outputStream.writeEnd();
     } finally {
+      if (attachmentPrefetcher != null) {
+        attachmentPrefetcher.close();
+      }
       if (closeOutputStream) {
         outputStream.close();
       }
@@ -378,74 +405,112 @@ public class FullBackupExporter extends FullBackupBase {
            !isEmojiFtsSecretTable;
   }
 
+  /**
+   * Exports every row of a table, without any filtering or progress events.
+   */
+  @VisibleForTesting
+  static int exportTable(@NonNull String table, @NonNull SQLiteDatabase input, @NonNull BackupFrameOutputStream outputStream) throws IOException {
+    return exportTable(table, input, outputStream, null, null, 0, new ProgressReporter(0), () -> false);
+  }
+
   private static int exportTable(@NonNull String table,
                                  @NonNull SQLiteDatabase input,
                                  @NonNull BackupFrameOutputStream outputStream,
                                  @Nullable Predicate<Cursor> predicate,
                                  @Nullable PostProcessor postProcess,
                                  int count,
-                                 long estimatedCount,
+                                 @NonNull ProgressReporter progress,
                                  @NonNull BackupCancellationSignal cancellationSignal)
       throws IOException
   {
     Log.d(TAG, "Exporting table: " + table);
 
-    String template = "INSERT INTO " + table + " VALUES ";
+    String                          query      = "SELECT rowid AS " + EXPORT_ROWID + ", * FROM " + table + " WHERE rowid > ? ORDER BY rowid LIMIT " + TABLE_EXPORT_PAGE_SIZE;
+    String                          template   = null;
+    List<SqlStatement.SqlParameter> parameters = new ArrayList<>();
+    long                            lastRowId  = Long.MIN_VALUE;
+    int                             pageCount;
 
-    try (Cursor cursor = input.rawQuery("SELECT * FROM " + table, null)) {
-      while (cursor != null && cursor.moveToNext()) {
-        throwIfCanceled(cancellationSignal);
+    do {
+      pageCount = 0;
+
+      try (Cursor cursor = input.rawQuery(query, SqlUtil.buildArgs(lastRowId))) {
+        if (cursor == null) {
+          break;
+        }
+
+        int columnCount = cursor.getColumnCount();
 
-        if (predicate == null || predicate.test(cursor)) {
-          StringBuilder        statement        = new StringBuilder(template);
-          SqlStatement.Builder statementBuilder = new SqlStatement.Builder();
-
-          statementBuilder.parameters = new ArrayList<>();
-
-          statement.append('(');
-
-          for (int i = 0; i < cursor.getColumnCount(); i++) {
-            statement.append('?');
-
-            if (cursor.getType(i) == Cursor.FIELD_TYPE_STRING) {
-              statementBuilder.parameters.add(new SqlStatement.SqlParameter.Builder().stringParamter(cursor.getString(i)).build());
-            } else if (cursor.getType(i) == Cursor.FIELD_TYPE_FLOAT) {
-              statementBuilder.parameters.add(new SqlStatement.SqlParameter.Builder().doubleParameter(cursor.getDouble(i)).build());
-            } else if (cursor.getType(i) == Cursor.FIELD_TYPE_INTEGER) {
-              statementBuilder.parameters.add(new SqlStatement.SqlParameter.Builder().integerParameter(cursor.getLong(i)).build());
-            } else if (cursor.getType(i) == Cursor.FIELD_TYPE_BLOB) {
-              statementBuilder.parameters.add(new SqlStatement.SqlParameter.Builder().blobParameter(new ByteString(cursor.getBlob(i))).build());
-            } else if (cursor.getType(i) == Cursor.FIELD_TYPE_NULL) {
-              statementBuilder.parameters.add(new SqlStatement.SqlParameter.Builder().nullparameter(true).build());
-            } else {
-              throw new AssertionError("unknown type?" + cursor.getType(i));
+        if (template == null) {
+          template = buildInsertTemplate(table, columnCount - 1);
+        }
+
+        while (cursor.moveToNext()) {
+          throwIfCanceled(cancellationSignal);
+
+          pageCount++;
+          lastRowId = cursor.getLong(0);
+
+          if (predicate == null || predicate.test(cursor)) {
+            parameters.clear();
+
+            for (int i = 1; i < columnCount; i++) {
+              int type = cursor.getType(i);
+
+              if (type == Cursor.FIELD_TYPE_STRING) {
+                parameters.add(new SqlStatement.SqlParameter.Builder().stringParamter(cursor.getString(i)).build());
+              } else if (type == Cursor.FIELD_TYPE_FLOAT) {
+                parameters.add(new SqlStatement.SqlParameter.Builder().doubleParameter(cursor.getDouble(i)).build());
+              } else if (type == Cursor.FIELD_TYPE_INTEGER) {
+                parameters.add(new SqlStatement.SqlParameter.Builder().integerParameter(cursor.getLong(i)).build());
+              } else if (type == Cursor.FIELD_TYPE_BLOB) {
+                parameters.add(new SqlStatement.SqlParameter.Builder().blobParameter(new ByteString(cursor.getBlob(i))).build());
+              } else if (type == Cursor.FIELD_TYPE_NULL) {
+                parameters.add(NULL_PARAMETER);
+              } else {
+                throw new AssertionError("unknown type?" + type);
+              }
             }
 
-            if (i < cursor.getColumnCount() - 1) {
-              statement.append(',');
+            progress.onProgress(++count);
+            outputStream.write(new SqlStatement.Builder().statement(template).parameters(parameters).build());
+
+            if (postProcess != null) {
+              count = postProcess.postProcess(cursor, count);
             }
           }
+        }
+      }
+    } while (pageCount == TABLE_EXPORT_PAGE_SIZE);
 
-          statement.append(')');
+    return count;
+  }
 
-          EventBus.getDefault().post(new BackupEvent(BackupEvent.Type.PROGRESS, ++count, estimatedCount));
-          outputStream.write(statementBuilder.statement(statement.toString()).build());
+  /**
+   * Builds the INSERT statement shared by every row of a table, e.g. "INSERT INTO table VALUES (?,?,?)".
+   */
+  @VisibleForTesting
+  static @NonNull String buildInsertTemplate(@NonNull String table, int columnCount) {
+    StringBuilder statement = new StringBuilder(table.length() + 22 + columnCount * 2);
 
-          if (postProcess != null) {
-            count = postProcess.postProcess(cursor, count);
-          }
-        }
+    statement.append("INSERT INTO ").append(table).append(" VALUES (");
+
+    for (int i = 0; i < columnCount; i++) {
+      if (i > 0) {
+        statement.append(',');
       }
+      statement.append('?');
     }
 
-    return count;
+    return statement.append(')').toString();
   }
 
   private static int exportAttachment(@NonNull AttachmentSecret attachmentSecret,
                                       @NonNull Cursor cursor,
                                       @NonNull BackupFrameOutputStream outputStream,
+                                      @Nullable PrefetchingStreamWriter<AttachmentId> prefetcher,
                                       int count,
-                                      long estimatedCount)
+                                      @NonNull ProgressReporter progress)
       throws IOException
   {
     long rowId = cursor.getLong(cursor.getColumnIndexOrThrow(AttachmentTable.ID));
@@ -464,8 +529,10 @@ public class FullBackupExporter extends FullBackupBase {
       }
     }
 
-    EventBus.getDefault().post(new BackupEvent(BackupEvent.Type.PROGRESS, ++count, estimatedCount));
-    if (!TextUtils.isEmpty(data) && size > 0) {
+    progress.onProgress(++count);
+    if (!TextUtils.isEmpty(data) && size > 0 && prefetcher != null) {
+      prefetcher.enqueue(new AttachmentId(rowId), size, () -> openAttachmentStream(attachmentSecret, random, data));
+    } else if (!TextUtils.isEmpty(data) && size > 0) {
       try (InputStream inputStream = openAttachmentStream(attachmentSecret, random, data)) {
         outputStream.write(new AttachmentId(rowId), inputStream, size);
       } catch (FileNotFoundException e) {
@@ -480,7 +547,7 @@ public class FullBackupExporter extends FullBackupBase {
                                    @NonNull Cursor cursor,
                                    @NonNull BackupFrameOutputStream outputStream,
                                    int count,
-                                   long estimatedCount)
+                                   @NonNull ProgressReporter progress)
       throws IOException
   {
     long rowId = cursor.getLong(cursor.getColumnIndexOrThrow(StickerTable.ID));
@@ -490,7 +557,7 @@ public class FullBackupExporter extends FullBackupBase {
     byte[] random = cursor.getBlob(cursor.getColumnIndexOrThrow(StickerTable.FILE_RANDOM));
 
     if (!TextUtils.isEmpty(data) && size > 0) {
-      EventBus.getDefault().post(new BackupEvent(BackupEvent.Type.PROGRESS, ++count, estimatedCount));
+      progress.onProgress(++count);
       try (InputStream inputStream = ModernDecryptingPartInputStream.createFor(attachmentSecret, random, new File(data), 0)) {
         outputStream.writeSticker(rowId, inputStream, size);
       } catch (FileNotFoundException e) {
@@ -501,6 +568,14 @@ public class FullBackupExporter extends FullBackupBase {
     return count;
   }
 
+  private static @NonNull PrefetchingStreamWriter<AttachmentId> createAttachmentPrefetcher(@NonNull BackupFrameOutputStream outputStream) {
+    return new PrefetchingStreamWriter<>(SignalExecutors.newCachedBoundedExecutor("signal-backup-prefetch", ThreadUtil.PRIORITY_BACKGROUND_THREAD, 1, TRANSFER_ATTACHMENT_PREFETCH_COUNT, 5),
+                                         outputStream::write,
+                                         TRANSFER_ATTACHMENT_PREFETCH_COUNT,
+                                         TRANSFER_ATTACHMENT_PREFETCH_CHUNK,
+                                         TRANSFER_ATTACHMENT_PREFETCH_BUFFERED);
+  }
+
   private static long calculateVeryOldStreamLength(@NonNull AttachmentSecret attachmentSecret, @Nullable byte[] random, @NonNull String data) {
     long result = 0;
 
@@ -533,7 +608,7 @@ public class FullBackupExporter extends FullBackupBase {
   private static int exportKeyValues(@NonNull BackupFrameOutputStream outputStream,
                                      @NonNull List<String> keysToIncludeInBackup,
                                      int count,
-                                     long estimatedCount,
+                                     @NonNull ProgressReporter progress,
                                      BackupCancellationSignal cancellationSignal) throws IOException
   {
     KeyValueDataSet dataSet = KeyValueDatabase.getInstance(AppDependencies.getApplication())
@@ -575,7 +650,7 @@ public class FullBackupExporter extends FullBackupBase {
         throw new AssertionError("Unknown type: " + type);
       }
 
-      EventBus.getDefault().post(new BackupEvent(BackupEvent.Type.PROGRESS, ++count, estimatedCount));
+      progress.onProgress(++count);
       outputStream.write(builder.build());
     }
 
@@ -616,6 +691,29 @@ public class FullBackupExporter extends FullBackupBase {
     return false;
   }
 
+  /**
+   * Posts {@link BackupEvent.Type#PROGRESS} events at a fixed maximum rate rather than once per exported record.
+   * Large tables would otherwise post hundreds of thousands of events, each dispatched synchronously to every subscriber.
+   */
+  private static final class ProgressReporter {
+    private final long estimatedCount;
+
+    private long lastPostTime;
+
+    ProgressReporter(long estimatedCount) {
+      this.estimatedCount = estimatedCount;
+    }
+
+    void onProgress(long count) {
+      long now = System.currentTimeMillis();
+
+      if (now - lastPostTime >= PROGRESS_INTERVAL_MS) {
+        lastPostTime = now;
+        EventBus.getDefault().post(new BackupEvent(BackupEvent.Type.PROGRESS, count, estimatedCount));
+      }
+    }
+  }
+
   public interface PostProcessor {
     int postProcess(@NonNull Cursor cursor, int count) throws IOException;
   }
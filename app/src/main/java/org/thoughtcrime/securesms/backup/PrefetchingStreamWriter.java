@@ -0,0 +1,284 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.backup;
+
+import androidx.annotation.NonNull;
+
+import org.signal.core.util.logging.Log;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Opens and reads upcoming streams (e.g. decrypting attachments) on worker threads, so the single thread writing the
+ * backup can keep encrypting frames and feeding the output while the next streams are being prepared.
+ * <p>
+ * Streams are handed to the {@link StreamWriter} in the order they were enqueued. At most {@code maxPending} streams
+ * are in flight, and each worker reads at most {@code maxBufferedChunks} chunks ahead of the writer before blocking,
+ * so memory use is bounded regardless of stream size.
+ * <p>
+ * Not thread safe: {@link #enqueue}, {@link #flush} and {@link #close} must be called from the writing thread.
+ */
+final class PrefetchingStreamWriter<T> implements Closeable {
+
+  private static final String TAG = Log.tag(PrefetchingStreamWriter.class);
+
+  private final ExecutorService        executor;
+  private final StreamWriter<T>        writer;
+  private final int                    maxPending;
+  private final int                    chunkSize;
+  private final int                    maxBufferedChunks;
+  private final ArrayDeque<Pending<T>> pending;
+
+  /**
+   * @param executor Used to run the workers. Owned by this writer and shut down on {@link #close()}.
+   */
+  PrefetchingStreamWriter(@NonNull ExecutorService executor,
+                          @NonNull StreamWriter<T> writer,
+                          int maxPending,
+                          int chunkSize,
+                          int maxBufferedChunks)
+  {
+    this.executor          = executor;
+    this.writer            = writer;
+    this.maxPending        = maxPending;
+    this.chunkSize         = chunkSize;
+    this.maxBufferedChunks = maxBufferedChunks;
+    this.pending           = new ArrayDeque<>(maxPending);
+  }
+
+  /**
+   * Schedules a stream to be opened and read ahead. If the maximum number of streams is already in flight, the
+   * oldest one is written out first.
+   */
+  void enqueue(@NonNull T item, long size, @NonNull StreamOpener opener) throws IOException {
+    if (pending.size() >= maxPending) {
+      writeNext();
+    }
+
+    Pending<T> next = new Pending<>(item, size, opener, chunkSize, maxBufferedChunks);
+    pending.addLast(next);
+    executor.execute(next);
+  }
+
+  /**
+   * Writes out every stream that is still in flight.
+   */
+  void flush() throws IOException {
+    while (!pending.isEmpty()) {
+      writeNext();
+    }
+  }
+
+  @Override
+  public void close() {
+    pending.clear();
+    executor.shutdownNow();
+  }
+
+  private void writeNext() throws IOException {
+    Pending<T> next = pending.removeFirst();
+
+    try {
+      next.awaitOpened();
+    } catch (FileNotFoundException e) {
+      Log.w(TAG, "Missing stream", e);
+      return;
+    }
+
+    writer.write(next.item, next.inputStream(), next.size);
+  }
+
+  interface StreamOpener {
+    @NonNull InputStream open() throws IOException;
+  }
+
+  interface StreamWriter<T> {
+    void write(@NonNull T item, @NonNull InputStream inputStream, long size) throws IOException;
+  }
+
+  private static final class Chunk {
+    private static final Chunk END = new Chunk(null, -1, null);
+
+    private final byte[]      buffer;
+    private final int         length;
+    private final IOException error;
+
+    private Chunk(byte[] buffer, int length, IOException error) {
+      this.buffer = buffer;
+      this.length = length;
+      this.error  = error;
+    }
+  }
+
+  private static final class Pending<T> implements Runnable {
+
+    private final T                    item;
+    private final long                 size;
+    private final StreamOpener         opener;
+    private final int                  chunkSize;
+    private final int                  maxBufferedChunks;
+    private final CountDownLatch       opened = new CountDownLatch(1);
+    private final BlockingQueue<Chunk> filled = new LinkedBlockingQueue<>();
+    private final BlockingQueue<byte[]> free;
+
+    private volatile IOException openError;
+
+    private Pending(T item, long size, StreamOpener opener, int chunkSize, int maxBufferedChunks) {
+      this.item              = item;
+      this.size              = size;
+      this.opener            = opener;
+      this.chunkSize         = chunkSize;
+      this.maxBufferedChunks = maxBufferedChunks;
+      this.free              = new ArrayBlockingQueue<>(maxBufferedChunks);
+    }
+
+    @Override
+    public void run() {
+      InputStream inputStream;
+
+      try {
+        inputStream = opener.open();
+      } catch (IOException e) {
+        openError = e;
+        opened.countDown();
+        return;
+      } catch (RuntimeException e) {
+        openError = new IOException(e);
+        opened.countDown();
+        return;
+      }
+
+      opened.countDown();
+
+      try (InputStream in = inputStream) {
+        int allocated = 0;
+
+        while (true) {
+          byte[] buffer;
+
+          if (allocated < maxBufferedChunks) {
+            buffer = free.poll();
+            if (buffer == null) {
+              buffer = new byte[chunkSize];
+              allocated++;
+            }
+          } else {
+            buffer = free.take();
+          }
+
+          int length = readFully(in, buffer);
+          if (length <= 0) {
+            filled.put(Chunk.END);
+            return;
+          }
+
+          filled.put(new Chunk(buffer, length, null));
+        }
+      } catch (IOException e) {
+        filled.offer(new Chunk(null, -1, e));
+      } catch (InterruptedException e) {
+        Log.w(TAG, "Interrupted while reading ahead, abandoning stream.");
+      }
+    }
+
+    private void awaitOpened() throws IOException {
+      try {
+        opened.await();
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException();
+      }
+
+      if (openError != null) {
+        throw openError;
+      }
+    }
+
+    private @NonNull InputStream inputStream() {
+      return new InputStream() {
+        private Chunk current;
+        private int   position;
+
+        @Override
+        public int read() throws IOException {
+          byte[] single = new byte[1];
+          int    read   = read(single, 0, 1);
+
+          return read == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+          if (len == 0) {
+            return 0;
+          }
+
+          if (current == Chunk.END) {
+            return -1;
+          }
+
+          if (current == null || position == current.length) {
+            if (current != null) {
+              free.offer(current.buffer);
+            }
+
+            current  = takeChunk();
+            position = 0;
+
+            if (current == Chunk.END) {
+              return -1;
+            }
+          }
+
+          int read = Math.min(len, current.length - position);
+          System.arraycopy(current.buffer, position, b, off, read);
+          position += read;
+
+          return read;
+        }
+      };
+    }
+
+    private @NonNull Chunk takeChunk() throws IOException {
+      Chunk chunk;
+
+      try {
+        chunk = filled.take();
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException();
+      }
+
+      if (chunk.error != null) {
+        throw chunk.error;
+      }
+
+      return chunk;
+    }
+
+    private static int readFully(@NonNull InputStream in, @NonNull byte[] buffer) throws IOException {
+      int offset = 0;
+
+      while (offset < buffer.length) {
+        int read = in.read(buffer, offset, buffer.length - offset);
+        if (read == -1) {
+          break;
+        }
+        offset += read;
+      }
+
+      return offset;
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package org.thoughtcrime.securesms.blurhash;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.thoughtcrime.securesms.util.LRUCache;
+
+import java.util.Objects;
+
+/**
+ * A small in-memory cache of decoded blur hash placeholders, keyed by (hash, width, height).
+ *
+ * Placeholders are tiny (at most a few KB each), but the same hash is decoded over and over as conversation items
+ * and media thumbnails are rebound. Cached bitmaps are immutable, so they are safe to hand out to multiple callers.
+ */
+final class BlurHashBitmapCache {
+
+  private static final int MAX_SIZE = 100;
+
+  private static final LRUCache<Key, Bitmap> CACHE = new LRUCache<>(MAX_SIZE);
+
+  private BlurHashBitmapCache() {}
+
+  static @Nullable Bitmap getOrDecode(@NonNull String hash, int width, int height) {
+    Key key = new Key(hash, width, height);
+
+    synchronized (CACHE) {
+      Bitmap cached = CACHE.get(key);
+      if (cached != null && !cached.isRecycled()) {
+        return cached;
+      }
+    }
+
+    Bitmap decoded = BlurHashDecoder.decode(hash, width, height);
+
+    if (decoded != null) {
+      synchronized (CACHE) {
+        CACHE.put(key, decoded);
+      }
+    }
+
+    return decoded;
+  }
+
+  private static final class Key {
+    private final String hash;
+    private final int    width;
+    private final int    height;
+
+    private Key(@NonNull String hash, int width, int height) {
+      this.hash   = hash;
+      this.width  = width;
+      this.height = height;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Key key = (Key) o;
+      return width == key.width && height == key.height && hash.equals(key.hash);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(hash, width, height);
+    }
+  }
+}
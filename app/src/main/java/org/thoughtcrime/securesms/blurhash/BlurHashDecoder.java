@@ -21,23 +21,46 @@
 package org.thoughtcrime.securesms.blurhash;
 
 import android.graphics.Bitmap;
-import android.graphics.Color;
 
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import static org.thoughtcrime.securesms.blurhash.BlurHashUtil.linearTosRGB;
 import static org.thoughtcrime.securesms.blurhash.BlurHashUtil.sRGBToLinear;
 import static org.thoughtcrime.securesms.blurhash.BlurHashUtil.signPow;
 
+/**
+ * Decodes a blur hash into pixels.
+ *
+ * The cosine basis only depends on a single axis, so rather than evaluating {@link Math#cos(double)} for every
+ * pixel and component pair we precompute one table per axis and compose the pixels directly into an int[] buffer.
+ */
 class BlurHashDecoder {
 
+  /** Linear values are quantized to this many steps when converted back to sRGB, which keeps us within one unit of the exact result. */
+  private static final int     SRGB_TABLE_STEPS = 16384;
+  private static final short[] SRGB_TABLE       = buildSrgbTable();
+
   static @Nullable Bitmap decode(@Nullable String blurHash, int width, int height) {
     return decode(blurHash, width, height, 1f);
   }
 
   static @Nullable Bitmap decode(@Nullable String blurHash, int width, int height, double punch) {
+    int[] pixels = decodePixels(blurHash, width, height, punch);
+
+    if (pixels == null) {
+      return null;
+    }
+
+    return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+  }
 
-    if (blurHash == null || blurHash.length() < 6) {
+  /**
+   * @return The decoded ARGB pixels in row-major order, or null if the hash or dimensions are invalid.
+   */
+  @VisibleForTesting
+  static @Nullable int[] decodePixels(@Nullable String blurHash, int width, int height, double punch) {
+    if (blurHash == null || blurHash.length() < 6 || width <= 0 || height <= 0) {
       return null;
     }
 
@@ -49,65 +72,106 @@ class BlurHashDecoder {
       return null;
     }
 
-    int        maxAcEnc = Base83.decode(blurHash, 1, 2);
-    double     maxAc    = (maxAcEnc + 1) / 166f;
-    double[][] colors   = new double[numCompX * numCompY][];
-    for (int i = 0; i < colors.length; i++) {
-      if (i == 0) {
-        int colorEnc = Base83.decode(blurHash, 2, 6);
-        colors[i] = decodeDc(colorEnc);
-      } else {
-        int from = 4 + i * 2;
-        int colorEnc = Base83.decode(blurHash, from, from + 2);
-        colors[i] = decodeAc(colorEnc, maxAc * punch);
-      }
+    int     maxAcEnc = Base83.decode(blurHash, 1, 2);
+    double  maxAc    = (maxAcEnc + 1) / 166f;
+    float[] colors   = new float[numCompX * numCompY * 3];
+
+    decodeDc(Base83.decode(blurHash, 2, 6), colors);
+
+    for (int i = 1; i < numCompX * numCompY; i++) {
+      int from = 4 + i * 2;
+      decodeAc(Base83.decode(blurHash, from, from + 2), maxAc * punch, colors, i * 3);
     }
 
-    return composeBitmap(width, height, numCompX, numCompY, colors);
+    return composePixels(width, height, numCompX, numCompY, colors);
   }
 
-  private static double[] decodeDc(int colorEnc) {
+  private static void decodeDc(int colorEnc, float[] out) {
     int r = colorEnc >> 16;
     int g = (colorEnc >> 8) & 255;
     int b = colorEnc & 255;
-    return new double[] {sRGBToLinear(r),
-                         sRGBToLinear(g),
-                         sRGBToLinear(b)};
+
+    out[0] = (float) sRGBToLinear(r);
+    out[1] = (float) sRGBToLinear(g);
+    out[2] = (float) sRGBToLinear(b);
   }
 
-  private static double[] decodeAc(int value, double maxAc) {
+  private static void decodeAc(int value, double maxAc, float[] out, int offset) {
     int r = value / (19 * 19);
     int g = (value / 19) % 19;
     int b = value % 19;
-    return new double[]{
-        signPow((r - 9) / 9.0f, 2f) * maxAc,
-        signPow((g - 9) / 9.0f, 2f) * maxAc,
-        signPow((b - 9) / 9.0f, 2f) * maxAc
-    };
+
+    out[offset]     = (float) (signPow((r - 9) / 9.0f, 2f) * maxAc);
+    out[offset + 1] = (float) (signPow((g - 9) / 9.0f, 2f) * maxAc);
+    out[offset + 2] = (float) (signPow((b - 9) / 9.0f, 2f) * maxAc);
+  }
+
+  /**
+   * @return A table where entry [p * numComp + c] is the basis value of component c at position p along an axis of the given size.
+   */
+  private static float[] cosineTable(int size, int numComp) {
+    float[] table = new float[size * numComp];
+
+    for (int p = 0; p < size; p++) {
+      for (int c = 0; c < numComp; c++) {
+        table[p * numComp + c] = (float) Math.cos(Math.PI * p * c / size);
+      }
+    }
+
+    return table;
   }
 
-  private static Bitmap composeBitmap(int width, int height, int numCompX, int numCompY, double[][] colors) {
-    Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+  private static int[] composePixels(int width, int height, int numCompX, int numCompY, float[] colors) {
+    float[] cosX   = cosineTable(width, numCompX);
+    float[] cosY   = cosineTable(height, numCompY);
+    int[]   pixels = new int[width * height];
+
     for (int y = 0; y < height; y++) {
+      int yOffset = y * numCompY;
+
       for (int x = 0; x < width; x++) {
+        int xOffset = x * numCompX;
 
-        double r = 0f;
-        double g = 0f;
-        double b = 0f;
+        float r = 0f;
+        float g = 0f;
+        float b = 0f;
 
         for (int j = 0; j < numCompY; j++) {
+          float basisY = cosY[yOffset + j];
+          int   row    = j * numCompX;
+
           for (int i = 0; i < numCompX; i++) {
-            double basis = (Math.cos(Math.PI * x * i / width) * Math.cos(Math.PI * y * j / height));
-            double[] color = colors[j * numCompX + i];
-            r += color[0] * basis;
-            g += color[1] * basis;
-            b += color[2] * basis;
+            float basis = cosX[xOffset + i] * basisY;
+            int   color = (row + i) * 3;
+
+            r += colors[color] * basis;
+            g += colors[color + 1] * basis;
+            b += colors[color + 2] * basis;
           }
         }
-        bitmap.setPixel(x, y, Color.rgb((int) linearTosRGB(r), (int) linearTosRGB(g), (int) linearTosRGB(b)));
+
+        pixels[y * width + x] = 0xFF000000        |
+                                (toSrgb(r) << 16) |
+                                (toSrgb(g) << 8)  |
+                                toSrgb(b);
       }
     }
 
-    return bitmap;
+    return pixels;
+  }
+
+  private static int toSrgb(float linear) {
+    float clamped = Math.max(0f, Math.min(1f, linear));
+    return SRGB_TABLE[(int) (clamped * SRGB_TABLE_STEPS + 0.5f)];
+  }
+
+  private static short[] buildSrgbTable() {
+    short[] table = new short[SRGB_TABLE_STEPS + 1];
+
+    for (int i = 0; i <= SRGB_TABLE_STEPS; i++) {
+      table[i] = (short) linearTosRGB(i / (double) SRGB_TABLE_STEPS);
+    }
+
+    return table;
   }
 }
@@ -34,6 +34,6 @@ public class BlurHashResourceDecoder implements ResourceDecoder<BlurHash, Bitmap
       finalWidth  = (int) (finalHeight * width / (float) height);
     }
 
-    return new SimpleResource<>(BlurHashDecoder.decode(source.getHash(), finalWidth, finalHeight));
+    return new SimpleResource<>(BlurHashBitmapCache.getOrDecode(source.getHash(), finalWidth, finalHeight));
   }
 }
\ No newline at end of file
@@ -24,7 +24,6 @@ import org.thoughtcrime.securesms.emoji.EmojiPageCache;
 import org.thoughtcrime.securesms.emoji.EmojiSource;
 import org.thoughtcrime.securesms.emoji.JumboEmoji;
 import org.thoughtcrime.securesms.keyvalue.SignalStore;
-import org.thoughtcrime.securesms.util.DeviceProperties;
 import org.thoughtcrime.securesms.util.FutureTaskListener;
 
 import java.util.concurrent.ExecutionException;
@@ -126,7 +125,7 @@ public class EmojiProvider {
       return new SystemEmojiDrawable(drawInfo.getEmoji());
     }
 
-    final int           lowMemoryDecodeScale = DeviceProperties.isLowMemoryDevice(context) ? 2 : 1;
+    final int           lowMemoryDecodeScale = EmojiPageCache.getDefaultInSampleSize(context);
     final EmojiSource   source               = EmojiSource.getLatest();
     final EmojiDrawable drawable             = new EmojiDrawable(source, drawInfo, lowMemoryDecodeScale);
     final AtomicBoolean jumboLoaded          = new AtomicBoolean(false);
@@ -211,7 +210,7 @@ public class EmojiProvider {
       return new SystemEmojiDrawable(drawInfo.getEmoji());
     }
 
-    final int           lowMemoryDecodeScale = DeviceProperties.isLowMemoryDevice(context) ? 2 : 1;
+    final int           lowMemoryDecodeScale = EmojiPageCache.getDefaultInSampleSize(context);
     final EmojiSource   source               = EmojiSource.getLatest();
     final EmojiDrawable drawable             = new EmojiDrawable(source, drawInfo, lowMemoryDecodeScale);
 
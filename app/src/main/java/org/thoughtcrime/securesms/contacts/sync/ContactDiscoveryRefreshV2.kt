@@ -39,13 +39,15 @@ object ContactDiscoveryRefreshV2 {
    */
   private const val MAXIMUM_ONE_OFF_REQUEST_SIZE = 3
 
+  private val systemE164Cache = SystemE164Cache()
+
   @Throws(IOException::class)
   @WorkerThread
   @Synchronized
   @JvmStatic
   fun refreshAll(context: Context, timeoutMs: Long? = null): ContactDiscovery.RefreshResult {
     val recipientE164s: Set<String> = SignalDatabase.recipients.getAllE164s().sanitize()
-    val systemE164s: Set<String> = SystemContactsRepository.getAllDisplayNumbers(context).toE164s(context).sanitize()
+    val systemE164s: Set<String> = SystemContactsRepository.getAllDisplayNumbers(context).toE164s(context)
 
     return refreshInternal(
       recipientE164s = recipientE164s,
@@ -244,20 +246,27 @@ object ContactDiscoveryRefreshV2 {
       .toSet()
   }
 
+  /**
+   * Converts raw system contact numbers into sanitized E164s, only formatting numbers we haven't seen in a previous refresh.
+   */
   private fun Set<String>.toE164s(context: Context): Set<String> {
-    return this.map { PhoneNumberFormatter.get(context).format(it) }.toSet()
+    val formatter = PhoneNumberFormatter.get(context)
+    val e164s = systemE164Cache.toE164s(formatter, this) { raw -> formatter.format(raw).takeIf { it.isSanitizedE164() } }
+
+    Log.d(TAG, "Formatted ${systemE164Cache.lastMissCount} of ${this.size} system contact numbers.")
+    return e164s
   }
 
   private fun Set<String>.sanitize(): Set<String> {
-    return this
-      .filter {
-        try {
-          it.startsWith("+") && it.length > 1 && it[1] != '0' && it.toLong() > 0
-        } catch (e: NumberFormatException) {
-          false
-        }
-      }
-      .toSet()
+    return this.filter { it.isSanitizedE164() }.toSet()
+  }
+
+  private fun String.isSanitizedE164(): Boolean {
+    return try {
+      this.startsWith("+") && this.length > 1 && this[1] != '0' && this.toLong() > 0
+    } catch (e: NumberFormatException) {
+      false
+    }
   }
 
   private fun Int.roundedString(): String {
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.contacts.sync
+
+/**
+ * Remembers how raw system contact numbers were converted into E164s across CDS refreshes.
+ *
+ * Formatting a number with libphonenumber is by far the most expensive local part of a refresh, and an address book rarely changes much
+ * between refreshes. We keep the result for each raw number, so a routine refresh only formats the numbers that were added or edited since
+ * the last one. If the set of raw numbers hasn't changed at all, the previous result is returned as-is.
+ *
+ * Results are only valid for the formatter they were produced with (the formatter depends on our own number), so any change of formatter
+ * drops the cache.
+ */
+class SystemE164Cache {
+
+  private var formatter: Any? = null
+  private val e164ByRaw: MutableMap<String, String?> = HashMap()
+
+  private var lastRawNumbers: Set<String> = emptySet()
+  private var lastE164s: Set<String> = emptySet()
+
+  /** The number of raw numbers that had to be formatted during the last call to [toE164s]. */
+  var lastMissCount: Int = 0
+    private set
+
+  /**
+   * @param formatter An object that identifies the formatter in use. A different instance invalidates the cache.
+   * @param format Converts a raw number into a sanitized E164, or null if the number is not valid.
+   */
+  @Synchronized
+  fun toE164s(formatter: Any, rawNumbers: Set<String>, format: (String) -> String?): Set<String> {
+    if (this.formatter !== formatter) {
+      this.formatter = formatter
+      e164ByRaw.clear()
+      lastRawNumbers = emptySet()
+      lastE164s = emptySet()
+    }
+
+    if (rawNumbers == lastRawNumbers) {
+      lastMissCount = 0
+      return lastE164s
+    }
+
+    var misses = 0
+    val e164s: MutableSet<String> = HashSet(rawNumbers.size)
+
+    for (raw in rawNumbers) {
+      val e164: String? = if (e164ByRaw.containsKey(raw)) {
+        e164ByRaw[raw]
+      } else {
+        misses++
+        format(raw).also { e164ByRaw[raw] = it }
+      }
+
+      if (e164 != null) {
+        e164s += e164
+      }
+    }
+
+    if (e164ByRaw.size > rawNumbers.size) {
+      e164ByRaw.keys.retainAll(rawNumbers)
+    }
+
+    lastMissCount = misses
+    lastRawNumbers = rawNumbers
+    lastE164s = e164s
+
+    return e164s
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.database
+
+import android.content.Context
+import org.signal.core.util.delete
+import org.signal.core.util.insertInto
+import org.signal.core.util.logging.Log
+import org.signal.core.util.readToList
+import org.signal.core.util.readToSet
+import org.signal.core.util.readToSingleInt
+import org.signal.core.util.readToSingleLongOrNull
+import org.signal.core.util.requireBlob
+import org.signal.core.util.requireBoolean
+import org.signal.core.util.requireInt
+import org.signal.core.util.requireLong
+import org.signal.core.util.requireNonNullBlob
+import org.signal.core.util.requireString
+import org.signal.core.util.select
+import org.signal.core.util.withinTransaction
+import org.thoughtcrime.securesms.database.model.ServiceMessageId
+import org.thoughtcrime.securesms.recipients.RecipientId
+import org.thoughtcrime.securesms.util.EarlyMessageCache
+import org.thoughtcrime.securesms.util.EarlyMessageCacheEntry
+import org.whispersystems.signalservice.api.crypto.EnvelopeMetadata
+import org.whispersystems.signalservice.api.push.ServiceId
+import org.whispersystems.signalservice.internal.push.Content
+import org.whispersystems.signalservice.internal.push.Envelope
+import java.io.IOException
+
+/**
+ * Holds early messages that the [EarlyMessageCache] couldn't fit in memory.
+ */
+class EarlyMessageTable(context: Context, databaseHelper: SignalDatabase) : DatabaseTable(context, databaseHelper), EarlyMessageCache.SpillStore {
+
+  companion object {
+    private val TAG = Log.tag(EarlyMessageTable::class.java)
+
+    const val TABLE_NAME = "early_message"
+
+    private const val ID = "_id"
+    private const val TARGET_SENDER_ID = "target_sender_id"
+    private const val TARGET_SENT_TIMESTAMP = "target_sent_timestamp"
+    private const val STORED_AT = "stored_at"
+    private const val ENVELOPE = "envelope"
+    private const val CONTENT = "content"
+    private const val SOURCE_SERVICE_ID = "source_service_id"
+    private const val SOURCE_E164 = "source_e164"
+    private const val SOURCE_DEVICE_ID = "source_device_id"
+    private const val SEALED_SENDER = "sealed_sender"
+    private const val GROUP_ID = "group_id"
+    private const val DESTINATION_SERVICE_ID = "destination_service_id"
+    private const val SERVER_DELIVERED_TIMESTAMP = "server_delivered_timestamp"
+
+    const val CREATE_TABLE = """
+      CREATE TABLE $TABLE_NAME (
+        $ID INTEGER PRIMARY KEY,
+        $TARGET_SENDER_ID INTEGER NOT NULL,
+        $TARGET_SENT_TIMESTAMP INTEGER NOT NULL,
+        $STORED_AT INTEGER NOT NULL,
+        $ENVELOPE BLOB NOT NULL,
+        $CONTENT BLOB NOT NULL,
+        $SOURCE_SERVICE_ID BLOB NOT NULL,
+        $SOURCE_E164 TEXT DEFAULT NULL,
+        $SOURCE_DEVICE_ID INTEGER NOT NULL,
+        $SEALED_SENDER INTEGER NOT NULL,
+        $GROUP_ID BLOB DEFAULT NULL,
+        $DESTINATION_SERVICE_ID BLOB NOT NULL,
+        $SERVER_DELIVERED_TIMESTAMP INTEGER NOT NULL
+      )
+    """
+
+    val CREATE_INDEXES = arrayOf(
+      "CREATE INDEX early_message_target_index ON $TABLE_NAME ($TARGET_SENDER_ID, $TARGET_SENT_TIMESTAMP)"
+    )
+  }
+
+  override fun runInTransaction(block: Runnable) {
+    writableDatabase.withinTransaction { block.run() }
+  }
+
+  override fun insert(messageId: ServiceMessageId, storedAt: Long, entries: List<EarlyMessageCacheEntry>) {
+    writableDatabase.withinTransaction { db ->
+      for (entry in entries) {
+        db.insertInto(TABLE_NAME)
+          .values(
+            TARGET_SENDER_ID to messageId.sender.serialize(),
+            TARGET_SENT_TIMESTAMP to messageId.sentTimestamp,
+            STORED_AT to storedAt,
+            ENVELOPE to entry.envelope.encode(),
+            CONTENT to entry.content.encode(),
+            SOURCE_SERVICE_ID to entry.metadata.sourceServiceId.toByteArray(),
+            SOURCE_E164 to entry.metadata.sourceE164,
+            SOURCE_DEVICE_ID to entry.metadata.sourceDeviceId,
+            SEALED_SENDER to entry.metadata.sealedSender,
+            GROUP_ID to entry.metadata.groupId,
+            DESTINATION_SERVICE_ID to entry.metadata.destinationServiceId.toByteArray(),
+            SERVER_DELIVERED_TIMESTAMP to entry.serverDeliveredTimestamp
+          )
+          .run()
+      }
+    }
+  }
+
+  override fun remove(messageId: ServiceMessageId): List<EarlyMessageCacheEntry> {
+    return writableDatabase.withinTransaction { db ->
+      val entries: List<EarlyMessageCacheEntry?> = db
+        .select()
+        .from(TABLE_NAME)
+        .where("$TARGET_SENDER_ID = ? AND $TARGET_SENT_TIMESTAMP = ?", messageId.sender, messageId.sentTimestamp)
+        .orderBy("$ID ASC")
+        .run()
+        .readToList { cursor ->
+          try {
+            EarlyMessageCacheEntry(
+              envelope = Envelope.ADAPTER.decode(cursor.requireNonNullBlob(ENVELOPE)),
+              content = Content.ADAPTER.decode(cursor.requireNonNullBlob(CONTENT)),
+              metadata = EnvelopeMetadata(
+                sourceServiceId = ServiceId.parseOrThrow(cursor.requireNonNullBlob(SOURCE_SERVICE_ID)),
+                sourceE164 = cursor.requireString(SOURCE_E164),
+                sourceDeviceId = cursor.requireInt(SOURCE_DEVICE_ID),
+                sealedSender = cursor.requireBoolean(SEALED_SENDER),
+                groupId = cursor.requireBlob(GROUP_ID),
+                destinationServiceId = ServiceId.parseOrThrow(cursor.requireNonNullBlob(DESTINATION_SERVICE_ID))
+              ),
+              serverDeliveredTimestamp = cursor.requireLong(SERVER_DELIVERED_TIMESTAMP)
+            )
+          } catch (e: IOException) {
+            Log.w(TAG, "Failed to read early message for $messageId", e)
+            null
+          } catch (e: IllegalArgumentException) {
+            Log.w(TAG, "Failed to read early message for $messageId", e)
+            null
+          }
+        }
+
+      db.delete(TABLE_NAME)
+        .where("$TARGET_SENDER_ID = ? AND $TARGET_SENT_TIMESTAMP = ?", messageId.sender, messageId.sentTimestamp)
+        .run()
+
+      entries.filterNotNull()
+    }
+  }
+
+  override fun getAllIds(): Set<ServiceMessageId> {
+    return readableDatabase
+      .select(TARGET_SENDER_ID, TARGET_SENT_TIMESTAMP)
+      .from(TABLE_NAME)
+      .run()
+      .readToSet { cursor ->
+        ServiceMessageId(RecipientId.from(cursor.requireLong(TARGET_SENDER_ID)), cursor.requireLong(TARGET_SENT_TIMESTAMP))
+      }
+  }
+
+  override fun getOldestStoredAt(): Long? {
+    return readableDatabase
+      .select("MIN($STORED_AT)")
+      .from(TABLE_NAME)
+      .run()
+      .readToSingleLongOrNull()
+  }
+
+  override fun deleteStoredBefore(timestamp: Long): Int {
+    return writableDatabase
+      .delete(TABLE_NAME)
+      .where("$STORED_AT < ?", timestamp)
+      .run()
+  }
+
+  override fun trimToSize(maxEntries: Int): Int {
+    return writableDatabase.withinTransaction { db ->
+      val count = db
+        .select("COUNT(*)")
+        .from(TABLE_NAME)
+        .run()
+        .readToSingleInt()
+
+      if (count <= maxEntries) {
+        0
+      } else {
+        db.delete(TABLE_NAME)
+          .where("$ID IN (SELECT $ID FROM $TABLE_NAME ORDER BY $STORED_AT ASC, $ID ASC LIMIT ?)", count - maxEntries)
+          .run()
+      }
+    }
+  }
+}
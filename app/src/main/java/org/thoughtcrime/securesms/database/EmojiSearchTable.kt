@@ -3,13 +3,13 @@ package org.thoughtcrime.securesms.database
 import android.content.Context
 import android.text.TextUtils
 import androidx.core.content.contentValuesOf
-import org.signal.core.util.readToSingleInt
+import org.signal.core.util.readToList
 import org.signal.core.util.requireInt
 import org.signal.core.util.requireNonNullString
 import org.signal.core.util.select
 import org.signal.core.util.withinTransaction
 import org.thoughtcrime.securesms.database.model.EmojiSearchData
-import kotlin.math.max
+import org.thoughtcrime.securesms.emoji.EmojiSearchIndex
 
 /**
  * Contains all info necessary for full-text search of emoji tags.
@@ -38,56 +38,20 @@ class EmojiSearchTable(context: Context, databaseHelper: SignalDatabase) : Datab
     )
   }
 
+  /** Built from the table the first time it's searched, and replaced whenever the table is. */
+  @Volatile
+  private var index: EmojiSearchIndex? = null
+
   /**
    * @param query A search query. Doesn't need any special formatted -- it'll be sanitized.
    * @return A list of emoji that are related to the search term, ordered by relevance.
    */
   fun query(originalQuery: String, originalLimit: Int): List<String> {
-    val query: String = originalQuery.trim()
-
-    if (TextUtils.isEmpty(query)) {
+    if (TextUtils.isEmpty(originalQuery.trim())) {
       return emptyList()
     }
 
-    val limit: Int = max(originalLimit, 200)
-    val entries = mutableListOf<Entry>()
-
-    val maxRank = readableDatabase
-      .select("MAX($RANK) AS max")
-      .from(TABLE_NAME)
-      .where("$RANK != ${Int.MAX_VALUE}")
-      .run()
-      .readToSingleInt()
-
-    readableDatabase
-      .select(LABEL, EMOJI, RANK)
-      .from(TABLE_NAME)
-      .where("$LABEL LIKE ? OR $EMOJI = ?", "%$query%", query)
-      .orderBy("$RANK ASC")
-      .limit(limit)
-      .run()
-      .use { cursor ->
-        while (cursor.moveToNext()) {
-          entries += Entry(
-            label = cursor.requireNonNullString(LABEL),
-            emoji = cursor.requireNonNullString(EMOJI),
-            rank = cursor.requireInt(RANK)
-          )
-        }
-      }
-
-    return entries
-      .sortedWith { lhs, rhs ->
-        val result = similarityScore(query, lhs, maxRank) - similarityScore(query, rhs, maxRank)
-        when {
-          result < 0 -> -1
-          result > 0 -> 1
-          else -> 0
-        }
-      }
-      .distinctBy { it.emoji }
-      .take(originalLimit)
-      .map { it.emoji }
+    return getIndex().query(originalQuery, originalLimit)
   }
 
   /**
@@ -104,53 +68,40 @@ class EmojiSearchTable(context: Context, databaseHelper: SignalDatabase) : Datab
           val values = contentValuesOf(
             LABEL to label,
             EMOJI to searchData.emoji,
-            RANK to if (searchData.rank == 0) Int.MAX_VALUE else searchData.rank
+            RANK to if (searchData.rank == 0) EmojiSearchIndex.UNRANKED else searchData.rank
           )
           db.insert(TABLE_NAME, null, values)
         }
       }
     }
-  }
 
-  /**
-   * Ranks how "similar" a match is to the original search term.
-   * A lower score means more similar, with 0 being a perfect match.
-   *
-   * We know that the `searchTerm` must be a substring of the `match`.
-   * We determine similarity by how many letters appear before or after the `searchTerm` in the `match`.
-   * We give letters that come before the term a bigger weight than those that come after as a way to prefer matches that are prefixed by the `searchTerm`.
-   */
-  private fun similarityScore(searchTerm: String, entry: Entry, maxRank: Int): Float {
-    val match: String = entry.label
-
-    if (searchTerm == entry.emoji || searchTerm == match) {
-      return entry.scaledRank(maxRank)
+    synchronized(this) {
+      index = EmojiSearchIndex.fromSearchData(searchIndex)
     }
+  }
 
-    val startIndex = match.indexOf(searchTerm)
-
-    val prefixCount = startIndex
-    val suffixCount = match.length - (startIndex + searchTerm.length)
-
-    val prefixRankWeight = 1.75f
-    val suffixRankWeight = 0.75f
-    val notExactMatchPenalty = 2f
+  private fun getIndex(): EmojiSearchIndex {
+    index?.let { return it }
 
-    return notExactMatchPenalty +
-      (prefixCount * prefixRankWeight) +
-      (suffixCount * suffixRankWeight) +
-      entry.scaledRank(maxRank)
+    return synchronized(this) {
+      index ?: readIndex().also { index = it }
+    }
   }
 
-  private data class Entry(val label: String, val emoji: String, val rank: Int) {
-    fun scaledRank(maxRank: Int): Float {
-      val unranked = 2f
-      val scaleFactor: Float = unranked / maxRank
-      return if (rank == Int.MAX_VALUE) {
-        unranked
-      } else {
-        rank * scaleFactor
+  private fun readIndex(): EmojiSearchIndex {
+    val entries = readableDatabase
+      .select(LABEL, EMOJI, RANK)
+      .from(TABLE_NAME)
+      .orderBy("$RANK ASC, $ID ASC")
+      .run()
+      .readToList { cursor ->
+        EmojiSearchIndex.Entry(
+          label = cursor.requireNonNullString(LABEL),
+          emoji = cursor.requireNonNullString(EMOJI),
+          rank = cursor.requireInt(RANK)
+        )
       }
-    }
+
+    return EmojiSearchIndex(entries)
   }
 }
@@ -207,6 +207,31 @@ class GroupTable(context: Context?, databaseHelper: SignalDatabase?) :
     return getGroup(SqlUtil.Query("$TABLE_NAME.$GROUP_ID = ?", buildArgs(groupId)))
   }
 
+  /**
+   * Bulk version of [getGroup] by recipient id. Ids without a group are absent from the result.
+   */
+  fun getGroups(recipientIds: Collection<RecipientId>): Map<RecipientId, GroupRecord> {
+    val groups: MutableMap<RecipientId, GroupRecord> = HashMap(recipientIds.size)
+
+    for (query in buildCollectionQuery("$TABLE_NAME.$RECIPIENT_ID", recipientIds.map { it.serialize() })) {
+      readableDatabase
+        .query("${joinedGroupSelect()} WHERE ${query.where}", query.whereArgs)
+        .use { cursor ->
+          val reader = Reader(cursor)
+          while (cursor.moveToNext()) {
+            reader.getCurrent()?.let { groups[it.recipientId] = it }
+          }
+        }
+    }
+
+    // Let the single lookup repair membership lists that still reference remapped recipients
+    groups.values
+      .filter { RemappedRecords.getInstance().areAnyRemapped(it.members) }
+      .forEach { stale -> getGroup(stale.recipientId).ifPresent { groups[stale.recipientId] = it } }
+
+    return groups
+  }
+
   private fun getGroup(query: SqlUtil.Query): Optional<GroupRecord> {
     //language=sql
     val select = "${joinedGroupSelect()} WHERE ${query.where}"
@@ -823,12 +848,15 @@ class GroupTable(context: Context?, databaseHelper: SignalDatabase?) :
         SenderKeyUtil.rotateOurKey(distributionId)
       }
 
-      change.promotePendingPniAciMembers.forEach { member ->
-        recipients.getAndPossiblyMergePnpVerified(
-          aci = ACI.parseOrNull(member.aciBytes),
-          pni = PNI.parseOrNull(member.pniBytes),
-          e164 = null
-        )
+      if (change.promotePendingPniAciMembers.isNotEmpty()) {
+        val promoted = change.promotePendingPniAciMembers.map { member ->
+          RecipientTable.PnpTuple(
+            e164 = null,
+            pni = PNI.parseOrNull(member.pniBytes),
+            aci = ACI.parseOrNull(member.aciBytes)
+          )
+        }
+        recipients.bulkGetAndPossiblyMerge(promoted, pniVerified = true)
       }
 
       if (receivedGroupSendEndorsements == null && (removed.isNotEmpty() || change.newMembers.isNotEmpty())) {
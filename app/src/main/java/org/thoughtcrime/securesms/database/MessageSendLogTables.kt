@@ -3,6 +3,7 @@ package org.thoughtcrime.securesms.database
 import android.content.ContentValues
 import android.content.Context
 import android.database.sqlite.SQLiteConstraintException
+import net.zetetic.database.sqlcipher.SQLiteStatement
 import org.signal.core.util.CursorUtil
 import org.signal.core.util.SqlUtil
 import org.signal.core.util.delete
@@ -64,6 +65,9 @@ class MessageSendLogTables constructor(context: Context?, databaseHelper: Signal
 
     @JvmField
     val CREATE_TRIGGERS: Array<String> = MslPayloadTable.CREATE_TRIGGERS
+
+    /** Three arguments per row, kept under SQLite's limit of 999 arguments per statement. */
+    private const val RECIPIENT_ROWS_PER_INSERT = 333
   }
 
   private object MslPayloadTable {
@@ -209,16 +213,7 @@ class MessageSendLogTables constructor(context: Context?, databaseHelper: Signal
 
       db.beginTransaction()
       try {
-        sendMessageResult.success.devices.forEach { device ->
-          val recipientValues = ContentValues().apply {
-            put(MslRecipientTable.PAYLOAD_ID, payloadId)
-            put(MslRecipientTable.RECIPIENT_ID, recipientId.serialize())
-            put(MslRecipientTable.DEVICE, device)
-          }
-
-          db.insert(MslRecipientTable.TABLE_NAME, null, recipientValues)
-        }
-
+        insertRecipientDevices(db, payloadId, listOf(RecipientDevice(recipientId, sendMessageResult.success.devices)))
         db.setTransactionSuccessful()
       } catch (e: SQLiteConstraintException) {
         Log.w(TAG, "Failed to append to existing entry. Creating a new one.")
@@ -233,6 +228,85 @@ class MessageSendLogTables constructor(context: Context?, databaseHelper: Signal
     return payloadId
   }
 
+  /**
+   * Bulk version of [addRecipientToExistingEntryIfPossible], intended for the partial results of a sender key send. All successful results are
+   * written in a single transaction.
+   *
+   * @return The ID of the entry the recipients were added to. If the existing entry no longer exists, a new one is created and its ID is returned.
+   */
+  fun addRecipientsToExistingEntryIfPossible(payloadId: Long, sentTimestamp: Long, possibleRecipients: List<Recipient>, results: List<SendMessageResult>, contentHint: ContentHint, messageId: MessageId, urgent: Boolean): Long {
+    if (!RemoteConfig.retryReceipts) return payloadId
+
+    val accessList = RecipientAccessList(possibleRecipients)
+
+    val recipientDevices: List<RecipientDevice> = results
+      .filter { it.isSuccess && it.success.content.isPresent }
+      .map { result -> RecipientDevice(accessList.requireByAddress(result.address).id, result.success.devices) }
+
+    if (recipientDevices.isEmpty()) {
+      return payloadId
+    }
+
+    val db = databaseHelper.signalWritableDatabase
+
+    db.beginTransaction()
+    try {
+      insertRecipientDevices(db, payloadId, recipientDevices)
+      db.setTransactionSuccessful()
+    } catch (e: SQLiteConstraintException) {
+      Log.w(TAG, "Failed to append to existing entry. Creating a new one.")
+      val newPayloadId = insertIfPossible(sentTimestamp, possibleRecipients, results, contentHint, messageId, urgent)
+      db.setTransactionSuccessful()
+      return newPayloadId
+    } finally {
+      db.endTransaction()
+    }
+
+    return payloadId
+  }
+
+  /**
+   * Writes a row for every recipient device with multi-row INSERTs of up to [RECIPIENT_ROWS_PER_INSERT] rows each. A large group send can
+   * produce thousands of rows, so the statement for a full chunk is compiled once and rebound for every full chunk rather than being built
+   * again for each one. Must be called within a transaction.
+   */
+  private fun insertRecipientDevices(db: SQLiteDatabase, payloadId: Long, recipients: List<RecipientDevice>) {
+    check(db.inTransaction())
+
+    val rows: List<Pair<Long, Int>> = recipients.flatMap { recipientDevice -> recipientDevice.devices.map { recipientDevice.recipientId.toLong() to it } }
+    var fullChunkStatement: SQLiteStatement? = null
+
+    try {
+      for (chunk in rows.chunked(RECIPIENT_ROWS_PER_INSERT)) {
+        if (chunk.size == RECIPIENT_ROWS_PER_INSERT) {
+          val statement = fullChunkStatement ?: db.compileStatement(buildRecipientInsert(chunk.size)).also { fullChunkStatement = it }
+          executeRecipientInsert(statement, payloadId, chunk)
+        } else {
+          db.compileStatement(buildRecipientInsert(chunk.size)).use { executeRecipientInsert(it, payloadId, chunk) }
+        }
+      }
+    } finally {
+      fullChunkStatement?.close()
+    }
+  }
+
+  private fun buildRecipientInsert(rowCount: Int): String {
+    val values = List(rowCount) { "(?, ?, ?)" }.joinToString(", ")
+    return "INSERT INTO ${MslRecipientTable.TABLE_NAME} (${MslRecipientTable.PAYLOAD_ID}, ${MslRecipientTable.RECIPIENT_ID}, ${MslRecipientTable.DEVICE}) VALUES $values"
+  }
+
+  private fun executeRecipientInsert(statement: SQLiteStatement, payloadId: Long, rows: List<Pair<Long, Int>>) {
+    statement.clearBindings()
+
+    rows.forEachIndexed { i, (recipientId, device) ->
+      statement.bindLong(i * 3 + 1, payloadId)
+      statement.bindLong(i * 3 + 2, recipientId)
+      statement.bindLong(i * 3 + 3, device.toLong())
+    }
+
+    statement.executeInsert()
+  }
+
   private fun insert(recipients: List<RecipientDevice>, dateSent: Long, content: Content, contentHint: ContentHint, messageIds: List<MessageId>, urgent: Boolean): Long {
     val db = databaseHelper.signalWritableDatabase
 
@@ -247,18 +321,7 @@ class MessageSendLogTables constructor(context: Context?, databaseHelper: Signal
 
       val payloadId: Long = db.insert(MslPayloadTable.TABLE_NAME, null, payloadValues)
 
-      val recipientValues: MutableList<ContentValues> = mutableListOf()
-      recipients.forEach { recipientDevice ->
-        recipientDevice.devices.forEach { device ->
-          recipientValues += ContentValues().apply {
-            put(MslRecipientTable.PAYLOAD_ID, payloadId)
-            put(MslRecipientTable.RECIPIENT_ID, recipientDevice.recipientId.serialize())
-            put(MslRecipientTable.DEVICE, device)
-          }
-        }
-      }
-      SqlUtil.buildBulkInsert(MslRecipientTable.TABLE_NAME, arrayOf(MslRecipientTable.PAYLOAD_ID, MslRecipientTable.RECIPIENT_ID, MslRecipientTable.DEVICE), recipientValues)
-        .forEach { query -> db.execSQL(query.where, query.whereArgs) }
+      insertRecipientDevices(db, payloadId, recipients)
 
       val messageValues: MutableList<ContentValues> = mutableListOf()
       messageIds.forEach { messageId ->
@@ -277,6 +277,12 @@ open class MessageTable(context: Context?, databaseHelper: SignalDatabase) : Dat
     private const val INDEX_THREAD_COUNT = "message_thread_count_index"
     private const val INDEX_THREAD_UNREAD_COUNT = "message_thread_unread_count_index"
 
+    /** Args: the mask to AND with, the mask to OR with, and the message id. Bound rather than inlined so the SQL text stays the same between calls. */
+    private const val UPDATE_MAILBOX_BITMASK_SQL = "UPDATE $TABLE_NAME SET $TYPE = ($TYPE & ? | ?) WHERE $ID = ?"
+
+    /** Args: the start timestamp, the message id, and the start timestamp again. */
+    private const val MARK_EXPIRE_STARTED_SQL = "UPDATE $TABLE_NAME SET $EXPIRE_STARTED = ? WHERE $ID = ? AND ($EXPIRE_STARTED = 0 OR $EXPIRE_STARTED > ?)"
+
     @JvmField
     val CREATE_INDEXS = arrayOf(
       "CREATE INDEX IF NOT EXISTS message_read_and_notified_and_thread_id_index ON $TABLE_NAME ($READ, $NOTIFIED, $THREAD_ID)",
@@ -688,14 +694,7 @@ open class MessageTable(context: Context?, databaseHelper: SignalDatabase) : Dat
 
   private fun updateTypeBitmask(id: Long, maskOff: Long, maskOn: Long) {
     writableDatabase.withinTransaction { db ->
-      db.execSQL(
-        """
-          UPDATE $TABLE_NAME 
-          SET $TYPE = ($TYPE & ${MessageTypes.TOTAL_MASK - maskOff} | $maskOn ) 
-          WHERE $ID = ?
-        """,
-        buildArgs(id)
-      )
+      db.execSQL(UPDATE_MAILBOX_BITMASK_SQL, arrayOf(MessageTypes.TOTAL_MASK - maskOff, maskOn, id))
 
       val threadId = getThreadIdForMessage(id)
       threads.updateSnippetTypeSilently(threadId)
@@ -2205,10 +2204,7 @@ open class MessageTable(context: Context?, databaseHelper: SignalDatabase) : Dat
   fun markExpireStarted(ids: Collection<kotlin.Pair<Long, Long>>) {
     writableDatabase.withinTransaction { db ->
       for ((id, startedAtTimestamp) in ids) {
-        db.update(TABLE_NAME)
-          .values(EXPIRE_STARTED to startedAtTimestamp)
-          .where("$ID = ? AND ($EXPIRE_STARTED = 0 OR $EXPIRE_STARTED > ?)", id, startedAtTimestamp)
-          .run()
+        db.execSQL(MARK_EXPIRE_STARTED_SQL, arrayOf(startedAtTimestamp, id, startedAtTimestamp))
         AppDependencies.databaseObserver.notifyMessageUpdateObservers(MessageId(id))
       }
     }
@@ -2345,11 +2341,11 @@ open class MessageTable(context: Context?, databaseHelper: SignalDatabase) : Dat
     return writableDatabase.rawQuery(
       """
           UPDATE $TABLE_NAME INDEXED BY $INDEX_THREAD_STORY_SCHEDULED_DATE_LATEST_REVISION_ID
-          SET $READ = 1, $REACTIONS_UNREAD = 0, $REACTIONS_LAST_SEEN = ${System.currentTimeMillis()}
+          SET $READ = 1, $REACTIONS_UNREAD = 0, $REACTIONS_LAST_SEEN = ?
           WHERE $where
           RETURNING $ID, $FROM_RECIPIENT_ID, $DATE_SENT, $DATE_RECEIVED, $TYPE, $EXPIRES_IN, $EXPIRE_STARTED, $THREAD_ID, $STORY_TYPE
         """,
-      arguments ?: emptyArray()
+      arrayOf(System.currentTimeMillis().toString()) + (arguments ?: emptyArray())
     ).readToList { cursor ->
       val threadId = cursor.requireLong(THREAD_ID)
       val recipientId = RecipientId.from(cursor.requireLong(FROM_RECIPIENT_ID))
@@ -4506,7 +4502,7 @@ open class MessageTable(context: Context?, databaseHelper: SignalDatabase) : Dat
       .from(TABLE_NAME)
       .where(
         """
-        $DATE_SENT = $targetTimestamp AND
+        $DATE_SENT = ? AND
         $FROM_RECIPIENT_ID = ? AND
         (
           $TO_RECIPIENT_ID = ? OR 
@@ -4520,6 +4516,7 @@ open class MessageTable(context: Context?, databaseHelper: SignalDatabase) : Dat
         )
         $qualifierWhere
         """,
+        targetTimestamp,
         Recipient.self().id,
         receiptAuthor
       )
@@ -4546,18 +4543,7 @@ open class MessageTable(context: Context?, databaseHelper: SignalDatabase) : Dat
     }
 
     if (!receiptData.marked) {
-      // We set the receipt_timestamp to the max of the two values because that single column represents the timestamp of the last receipt of any type.
-      // That means we want to update it for each new receipt type, but we never want the time to go backwards.
-      writableDatabase.execSQL(
-        """
-        UPDATE $TABLE_NAME
-        SET
-          ${receiptType.columnName} = 1,
-          $RECEIPT_TIMESTAMP = MAX($RECEIPT_TIMESTAMP, $receiptSentTimestamp) 
-        WHERE
-          $ID = ${receiptData.messageId}
-        """
-      )
+      writableDatabase.execSQL(receiptType.updateSql, arrayOf(receiptSentTimestamp, receiptData.messageId))
     }
     stopwatch?.split("receipt-update")
 
@@ -5160,7 +5146,15 @@ open class MessageTable(context: Context?, databaseHelper: SignalDatabase) : Dat
   protected enum class ReceiptType(val columnName: String, val groupStatus: Int) {
     READ(HAS_READ_RECEIPT, GroupReceiptTable.STATUS_READ),
     DELIVERY(HAS_DELIVERY_RECEIPT, GroupReceiptTable.STATUS_DELIVERED),
-    VIEWED(VIEWED_COLUMN, GroupReceiptTable.STATUS_VIEWED)
+    VIEWED(VIEWED_COLUMN, GroupReceiptTable.STATUS_VIEWED);
+
+    /**
+     * Marks the receipt on a message. Args: the receipt's sent timestamp and the message id.
+     *
+     * We set the receipt_timestamp to the max of the two values because that single column represents the timestamp of the last receipt of any type.
+     * That means we want to update it for each new receipt type, but we never want the time to go backwards.
+     */
+    val updateSql: String = "UPDATE $TABLE_NAME SET $columnName = 1, $RECEIPT_TIMESTAMP = MAX($RECEIPT_TIMESTAMP, ?) WHERE $ID = ?"
   }
 
   data class ReceiptData(
@@ -506,26 +506,134 @@ open class RecipientTable(context: Context, databaseHelper: SignalDatabase) : Da
       }
 
       db.runPostSuccessfulTransaction {
-        if (result.affectedIds.isNotEmpty()) {
-          result.affectedIds.forEach { AppDependencies.databaseObserver.notifyRecipientChanged(it) }
-          RetrieveProfileJob.enqueue(result.affectedIds)
-        }
+        notifyPnpTuplesProcessed(listOf(result))
+      }
+    }
+
+    return result.finalId
+  }
+
+  /**
+   * Bulk version of [getAndPossiblyMerge], for when there are many tuples to resolve at once.
+   *
+   * Tuples that already match a single recipient, which is nearly all of them in practice, are found with a few IN-list queries instead of
+   * a query each. The rest are processed in a single transaction, using the ids read up front unless an earlier tuple in the batch changed
+   * one of the recipients or fields involved, in which case they're read again.
+   *
+   * @return The final [RecipientId] of each tuple, in the same order as [tuples].
+   */
+  fun bulkGetAndPossiblyMerge(tuples: List<PnpTuple>, pniVerified: Boolean = false): List<RecipientId> {
+    val finalIds: Array<RecipientId?> = arrayOfNulls(tuples.size)
+    val unmatched: MutableList<Int> = mutableListOf()
+
+    val index = readPnpIndex(tuples)
+    for ((i, tuple) in tuples.withIndex()) {
+      val match = index.getSingleMatch(tuple)
+      if (match != null) {
+        finalIds[i] = match
+      } else {
+        unmatched += i
+      }
+    }
 
-        if (result.oldIds.isNotEmpty()) {
-          result.oldIds.forEach { oldId ->
-            Recipient.live(oldId).refresh(result.finalId)
-            AppDependencies.recipientCache.remap(oldId, result.finalId)
+    if (unmatched.isNotEmpty()) {
+      Log.d(TAG, "[bulkGetAndPossiblyMerge] ${unmatched.size} of ${tuples.size} tuples require a transaction.")
+
+      val db = writableDatabase
+      db.withinTransaction {
+        val unmatchedIndex = readPnpIndex(unmatched.map { tuples[it] })
+        val dirtyIds: MutableSet<RecipientId> = mutableSetOf()
+        val dirtyFields: MutableSet<String> = mutableSetOf()
+        val results: MutableList<ProcessPnpTupleResult> = mutableListOf()
+
+        for (i in unmatched) {
+          val tuple = tuples[i]
+          val byE164 = tuple.e164?.let { unmatchedIndex.byE164[it] }
+          val byPni = tuple.pni?.let { unmatchedIndex.byPni[it.toString()] }
+          val byAci = tuple.aci?.let { unmatchedIndex.byAci[it.toString()] }
+
+          val stale = tuple.fields.any { it in dirtyFields } || listOfNotNull(byE164, byPni, byAci).any { it in dirtyIds }
+          val changeSet = if (stale) {
+            processPnpTupleToChangeSet(tuple.e164, tuple.pni, tuple.aci, pniVerified)
+          } else {
+            processPnpTupleToChangeSet(tuple.e164, tuple.pni, tuple.aci, pniVerified, changeSelf = false, byE164 = byE164, byPni = byPni, byAci = byAci)
           }
+
+          val result = applyPnpChangeSet(changeSet, tuple.pni, pniVerified)
+
+          if (result.operations.isNotEmpty() || result.requiredInsert) {
+            Log.i(TAG, "[bulkGetAndPossiblyMerge] (${tuple.aci}, ${tuple.pni}, ${tuple.e164}) BreadCrumbs: ${result.breadCrumbs}, Operations: ${result.operations}, RequiredInsert: ${result.requiredInsert}, FinalId: ${result.finalId}")
+
+            dirtyFields += tuple.fields
+            dirtyIds += result.affectedIds
+            dirtyIds += result.oldIds
+            dirtyIds += result.finalId
+          }
+
+          finalIds[i] = result.finalId
+          results += result
         }
 
-        if (result.affectedIds.isNotEmpty() || result.oldIds.isNotEmpty()) {
-          StorageSyncHelper.scheduleSyncForDataChange()
-          RecipientId.clearCache()
+        db.runPostSuccessfulTransaction {
+          notifyPnpTuplesProcessed(results)
         }
       }
     }
 
-    return result.finalId
+    return finalIds.map { it!! }
+  }
+
+  private fun notifyPnpTuplesProcessed(results: List<ProcessPnpTupleResult>) {
+    val affectedIds: Set<RecipientId> = results.flatMapTo(mutableSetOf()) { it.affectedIds }
+    var hadOldIds = false
+
+    if (affectedIds.isNotEmpty()) {
+      affectedIds.forEach { AppDependencies.databaseObserver.notifyRecipientChanged(it) }
+      RetrieveProfileJob.enqueue(affectedIds)
+    }
+
+    for (result in results) {
+      result.oldIds.forEach { oldId ->
+        Recipient.live(oldId).refresh(result.finalId)
+        AppDependencies.recipientCache.remap(oldId, result.finalId)
+        hadOldIds = true
+      }
+    }
+
+    if (affectedIds.isNotEmpty() || hadOldIds) {
+      StorageSyncHelper.scheduleSyncForDataChange()
+      RecipientId.clearCache()
+    }
+  }
+
+  /**
+   * Reads the id of every recipient that has any of the fields of the given tuples, with one query per field and chunk.
+   */
+  private fun readPnpIndex(tuples: Collection<PnpTuple>): PnpIndex {
+    return PnpIndex(
+      byE164 = readIdsByColumn(E164, tuples.mapNotNullTo(mutableSetOf()) { it.e164 }),
+      byPni = readIdsByColumn(PNI_COLUMN, tuples.mapNotNullTo(mutableSetOf()) { it.pni?.toString() }),
+      byAci = readIdsByColumn(ACI_COLUMN, tuples.mapNotNullTo(mutableSetOf()) { it.aci?.toString() })
+    )
+  }
+
+  private fun readIdsByColumn(column: String, values: Collection<String>): Map<String, RecipientId> {
+    val ids: MutableMap<String, RecipientId> = HashMap(values.size)
+
+    for (query in SqlUtil.buildCollectionQuery(column, values)) {
+      readableDatabase
+        .select(ID, column)
+        .from(TABLE_NAME)
+        .where(query.where, query.whereArgs)
+        .run()
+        .use { cursor ->
+          while (cursor.moveToNext()) {
+            ids[cursor.requireNonNullString(column)] = RecipientId.from(cursor.requireLong(ID))
+          }
+        }
+    }
+
+    return ids
   }
 
   fun getAllServiceIdProfileKeyPairs(): Map<ServiceId, ProfileKey> {
@@ -792,6 +900,24 @@ open class RecipientTable(context: Context, databaseHelper: SignalDatabase) : Da
     }
   }
 
+  /**
+   * Bulk version of [getByStorageId]. Records that can't be found are simply omitted.
+   *
+   * @return A map of Base64-encoded (with padding) storage IDs to the matching [RecipientRecord].
+   */
+  fun getByStorageIds(storageIds: Collection<ByteArray>): Map<String, RecipientRecord> {
+    if (storageIds.isEmpty()) {
+      return emptyMap()
+    }
+
+    val encodedIds: List<String> = storageIds.map { Base64.encodeWithPadding(it) }
+
+    return SqlUtil.buildCollectionQuery("$TABLE_NAME.$STORAGE_SERVICE_ID", encodedIds)
+      .flatMap { query -> getRecordForSync(query.where, query.whereArgs) }
+      .filter { it.storageId != null }
+      .associateBy { Base64.encodeWithPadding(it.storageId!!) }
+  }
+
   fun markNeedsSyncWithoutRefresh(recipientIds: Collection<RecipientId>) {
     val db = writableDatabase
     db.beginTransaction()
@@ -1238,12 +1364,28 @@ open class RecipientTable(context: Context, databaseHelper: SignalDatabase) : Da
         }
       }
 
+    val groupV2StorageIds: Map<GroupId.V2, Pair<RecipientId, String?>> = readableDatabase
+      .select(ID, GROUP_ID, STORAGE_SERVICE_ID)
+      .from(TABLE_NAME)
+      .where("$TYPE = ? AND $GROUP_ID NOT NULL", RecipientType.GV2.id)
+      .run()
+      .readToList { cursor ->
+        GroupId.parseOrThrow(cursor.requireNonNullString(GROUP_ID)).requireV2() to (RecipientId.from(cursor.requireLong(ID)) to cursor.requireString(STORAGE_SERVICE_ID))
+      }
+      .toMap()
+
     for (id in groups.getAllGroupV2Ids()) {
-      val recipient = Recipient.externalGroupExact(id)
-      val recipientId = recipient.id
-      val existing: RecipientRecord = getRecordForSync(recipientId) ?: throw AssertionError()
-      val key = existing.storageId ?: throw AssertionError()
-      out[recipientId] = StorageId.forGroupV2(key)
+      val existing: Pair<RecipientId, String?>? = groupV2StorageIds[id]
+
+      if (existing != null) {
+        val key = existing.second ?: throw AssertionError()
+        out[existing.first] = StorageId.forGroupV2(Base64.decodeOrThrow(key))
+      } else {
+        val recipientId = Recipient.externalGroupExact(id).id
+        val record: RecipientRecord = getRecordForSync(recipientId) ?: throw AssertionError()
+        val key = record.storageId ?: throw AssertionError()
+        out[recipientId] = StorageId.forGroupV2(key)
+      }
     }
 
     return out
@@ -2392,21 +2534,8 @@ open class RecipientTable(context: Context, databaseHelper: SignalDatabase) : Da
    * @return A set of [RecipientId]s that were updated/inserted.
    */
   fun bulkProcessCdsResult(mapping: Map<String, CdsV2Result>): Set<RecipientId> {
-    val ids: MutableSet<RecipientId> = mutableSetOf()
-    val db = writableDatabase
-
-    db.beginTransaction()
-    try {
-      for ((e164, result) in mapping) {
-        ids += getAndPossiblyMerge(aci = result.aci, pni = result.pni, e164 = e164, pniVerified = false, changeSelf = false)
-      }
-
-      db.setTransactionSuccessful()
-    } finally {
-      db.endTransaction()
-    }
-
-    return ids
+    val tuples: List<PnpTuple> = mapping.map { (e164, result) -> PnpTuple(e164 = e164, pni = result.pni, aci = result.aci) }
+    return bulkGetAndPossiblyMerge(tuples, pniVerified = false).toSet()
   }
 
   fun bulkUpdatedRegisteredStatus(registered: Set<RecipientId>, unregistered: Collection<RecipientId>) {
@@ -2462,7 +2591,10 @@ open class RecipientTable(context: Context, databaseHelper: SignalDatabase) : Da
   @VisibleForTesting
   fun processPnpTuple(e164: String?, pni: PNI?, aci: ACI?, pniVerified: Boolean, changeSelf: Boolean = false): ProcessPnpTupleResult {
     val changeSet: PnpChangeSet = processPnpTupleToChangeSet(e164, pni, aci, pniVerified, changeSelf)
+    return applyPnpChangeSet(changeSet, pni, pniVerified)
+  }
 
+  private fun applyPnpChangeSet(changeSet: PnpChangeSet, pni: PNI?, pniVerified: Boolean): ProcessPnpTupleResult {
     val affectedIds: MutableSet<RecipientId> = mutableSetOf()
     val oldIds: MutableSet<RecipientId> = mutableSetOf()
     var changedNumberId: RecipientId? = null
@@ -2655,16 +2787,41 @@ open class RecipientTable(context: Context, databaseHelper: SignalDatabase) : Da
   fun processPnpTupleToChangeSet(e164: String?, pni: PNI?, aci: ACI?, pniVerified: Boolean, changeSelf: Boolean = false): PnpChangeSet {
     check(e164 != null || pni != null || aci != null) { "Must provide at least one field!" }
 
-    val breadCrumbs: MutableList<String> = mutableListOf()
-
-    val partialData = PnpDataSet(
+    return processPnpTupleToChangeSet(
       e164 = e164,
       pni = pni,
       aci = aci,
+      pniVerified = pniVerified,
+      changeSelf = changeSelf,
       byE164 = e164?.let { getByE164(it).orElse(null) },
       byPni = pni?.let { getByPni(it).orElse(null) },
       byAci = aci?.let { getByAci(it).orElse(null) }
     )
+  }
+
+  /**
+   * Same as above, but with the ids of the recipients that currently have each field already looked up.
+   */
+  private fun processPnpTupleToChangeSet(
+    e164: String?,
+    pni: PNI?,
+    aci: ACI?,
+    pniVerified: Boolean,
+    changeSelf: Boolean,
+    byE164: RecipientId?,
+    byPni: RecipientId?,
+    byAci: RecipientId?
+  ): PnpChangeSet {
+    val breadCrumbs: MutableList<String> = mutableListOf()
+
+    val partialData = PnpDataSet(
+      e164 = e164,
+      pni = pni,
+      aci = aci,
+      byE164 = byE164,
+      byPni = byPni,
+      byAci = byAci
+    )
 
     val allRequiredDbFields: MutableList<RecipientId?> = mutableListOf()
     if (e164 != null) {
@@ -4773,6 +4930,41 @@ open class RecipientTable(context: Context, databaseHelper: SignalDatabase) : Da
     val aci: ACI?
   )
 
+  data class PnpTuple(
+    val e164: String?,
+    val pni: PNI?,
+    val aci: ACI?
+  ) {
+    init {
+      require(e164 != null || pni != null || aci != null) { "Must provide an ACI, PNI, or E164!" }
+    }
+
+    /** The non-null fields, as they're stored in the database. */
+    val fields: List<String>
+      get() = listOfNotNull(e164, pni?.toString(), aci?.toString())
+  }
+
+  /**
+   * The ids of the recipients that have each E164, PNI and ACI of a batch of [PnpTuple]s, keyed by the column value.
+   */
+  private class PnpIndex(
+    val byE164: Map<String, RecipientId>,
+    val byPni: Map<String, RecipientId>,
+    val byAci: Map<String, RecipientId>
+  ) {
+    /**
+     * @return The id of the one recipient that already has every field of the tuple, or null if there isn't one.
+     */
+    fun getSingleMatch(tuple: PnpTuple): RecipientId? {
+      val e164Id = tuple.e164?.let { byE164[it] ?: return null }
+      val pniId = tuple.pni?.let { byPni[it.toString()] ?: return null }
+      val aciId = tuple.aci?.let { byAci[it.toString()] ?: return null }
+
+      val ids = listOfNotNull(e164Id, pniId, aciId).distinct()
+      return if (ids.size == 1) ids[0] else null
+    }
+  }
+
   data class ProcessPnpTupleResult(
     val finalId: RecipientId,
     val requiredInsert: Boolean,
@@ -194,6 +194,9 @@ class ThreadTable(context: Context, databaseHelper: SignalDatabase) : DatabaseTa
 
     const val NO_TRIM_BEFORE_DATE_SET: Long = 0
     const val NO_TRIM_MESSAGE_COUNT_SET = Int.MAX_VALUE
+
+    /** Args: has delivery receipt, has read receipt, status, and the thread id. */
+    private const val UPDATE_RECEIPT_STATUS_SQL = "UPDATE $TABLE_NAME SET $HAS_DELIVERY_RECEIPT = ?, $HAS_READ_RECEIPT = ?, $STATUS = ? WHERE $ID = ?"
   }
 
   private val threadIdCache = LRUCache<RecipientId, Long>(MAX_CACHE_SIZE)
@@ -1677,20 +1680,14 @@ class ThreadTable(context: Context, databaseHelper: SignalDatabase) : DatabaseTa
 
     if (status != null) {
       Log.d(TAG, "Updating receipt status for thread $threadId")
-      writableDatabase
-        .update(TABLE_NAME)
-        .values(
-          HAS_DELIVERY_RECEIPT to status.hasDeliveryReceipt.toInt(),
-          HAS_READ_RECEIPT to status.hasReadReceipt.toInt(),
-          STATUS to when {
-            MessageTypes.isFailedMessageType(status.type) -> MessageTable.Status.STATUS_FAILED
-            MessageTypes.isSentType(status.type) -> MessageTable.Status.STATUS_COMPLETE
-            MessageTypes.isPendingMessageType(status.type) -> MessageTable.Status.STATUS_PENDING
-            else -> MessageTable.Status.STATUS_NONE
-          }
-        )
-        .where("$ID = ?", threadId)
-        .run()
+      val threadStatus = when {
+        MessageTypes.isFailedMessageType(status.type) -> MessageTable.Status.STATUS_FAILED
+        MessageTypes.isSentType(status.type) -> MessageTable.Status.STATUS_COMPLETE
+        MessageTypes.isPendingMessageType(status.type) -> MessageTable.Status.STATUS_PENDING
+        else -> MessageTable.Status.STATUS_NONE
+      }
+
+      writableDatabase.execSQL(UPDATE_RECEIPT_STATUS_SQL, arrayOf(status.hasDeliveryReceipt.toInt(), status.hasReadReceipt.toInt(), threadStatus, threadId))
     } else {
       Log.d(TAG, "Receipt was for an old message, not updating thread.")
     }
@@ -121,6 +121,7 @@ import org.thoughtcrime.securesms.database.helpers.migration.V261_RemapCallRinge
 import org.thoughtcrime.securesms.database.helpers.migration.V263_InAppPaymentsSubscriberTableRebuild
 import org.thoughtcrime.securesms.database.helpers.migration.V264_FixGroupAddMemberUpdate
 import org.thoughtcrime.securesms.database.helpers.migration.V265_FixFtsTriggers
+import org.thoughtcrime.securesms.database.helpers.migration.V266_CreateEarlyMessageTable
 
 /**
  * Contains all of the database migrations for [SignalDatabase]. Broken into a separate file for cleanliness.
@@ -245,10 +246,11 @@ object SignalDatabaseMigrations {
     // V263 was originally V262, but a typo in the version mapping caused it not to be run.
     263 to V263_InAppPaymentsSubscriberTableRebuild,
     264 to V264_FixGroupAddMemberUpdate,
-    265 to V265_FixFtsTriggers
+    265 to V265_FixFtsTriggers,
+    266 to V266_CreateEarlyMessageTable
   )
 
-  const val DATABASE_VERSION = 265
+  const val DATABASE_VERSION = 266
 
   @JvmStatic
   fun migrate(context: Application, db: SQLiteDatabase, oldVersion: Int, newVersion: Int) {
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.database.helpers.migration
+
+import android.app.Application
+import net.zetetic.database.sqlcipher.SQLiteDatabase
+
+/**
+ * Adds a table for early messages that don't fit in the in-memory early message cache.
+ */
+@Suppress("ClassName")
+object V266_CreateEarlyMessageTable : SignalDatabaseMigration {
+  override fun migrate(context: Application, db: SQLiteDatabase, oldVersion: Int, newVersion: Int) {
+    db.execSQL(
+      """
+      CREATE TABLE early_message (
+        _id INTEGER PRIMARY KEY,
+        target_sender_id INTEGER NOT NULL,
+        target_sent_timestamp INTEGER NOT NULL,
+        stored_at INTEGER NOT NULL,
+        envelope BLOB NOT NULL,
+        content BLOB NOT NULL,
+        source_service_id BLOB NOT NULL,
+        source_e164 TEXT DEFAULT NULL,
+        source_device_id INTEGER NOT NULL,
+        sealed_sender INTEGER NOT NULL,
+        group_id BLOB DEFAULT NULL,
+        destination_service_id BLOB NOT NULL,
+        server_delivered_timestamp INTEGER NOT NULL
+      )
+      """
+    )
+
+    db.execSQL("CREATE INDEX early_message_target_index ON early_message (target_sender_id, target_sent_timestamp)")
+  }
+}
@@ -31,6 +31,7 @@ import org.thoughtcrime.securesms.crypto.storage.TextSecureSessionStore;
 import org.thoughtcrime.securesms.database.DatabaseObserver;
 import org.thoughtcrime.securesms.database.JobDatabase;
 import org.thoughtcrime.securesms.database.PendingRetryReceiptCache;
+import org.thoughtcrime.securesms.database.SignalDatabase;
 import org.thoughtcrime.securesms.jobmanager.JobManager;
 import org.thoughtcrime.securesms.jobmanager.JobMigrator;
 import org.thoughtcrime.securesms.jobmanager.impl.FactoryJobPredicate;
@@ -138,7 +139,12 @@ public class ApplicationDependencyProvider implements AppDependencies.Provider {
 
   @Override
   public @NonNull GroupsV2Operations provideGroupsV2Operations(@NonNull SignalServiceConfiguration signalServiceConfiguration) {
-    return new GroupsV2Operations(provideClientZkOperations(signalServiceConfiguration), RemoteConfig.groupLimits().getHardLimit());
+    int parallelism = Runtime.getRuntime().availableProcessors();
+
+    return new GroupsV2Operations(provideClientZkOperations(signalServiceConfiguration),
+                                  RemoteConfig.groupLimits().getHardLimit(),
+                                  SignalExecutors.newCachedBoundedExecutor("signal-gv2-decrypt", ThreadUtil.PRIORITY_BACKGROUND_THREAD, 1, Math.max(1, parallelism - 1), 15),
+                                  parallelism);
   }
 
   @Override
@@ -198,7 +204,7 @@ public class ApplicationDependencyProvider implements AppDependencies.Provider {
 
   @Override
   public @NonNull EarlyMessageCache provideEarlyMessageCache() {
-    return new EarlyMessageCache();
+    return new EarlyMessageCache(SignalDatabase.earlyMessages());
   }
 
   @Override
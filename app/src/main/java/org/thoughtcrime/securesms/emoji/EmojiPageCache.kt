@@ -1,36 +1,135 @@
 package org.thoughtcrime.securesms.emoji
 
+import android.content.ComponentCallbacks2
 import android.content.Context
+import android.content.res.Configuration
 import android.graphics.Bitmap
 import android.graphics.BitmapFactory
+import android.util.LruCache
 import androidx.annotation.MainThread
 import androidx.annotation.WorkerThread
 import org.signal.core.util.concurrent.SimpleTask
 import org.signal.core.util.logging.Log
+import org.thoughtcrime.securesms.dependencies.AppDependencies
 import org.thoughtcrime.securesms.mms.PartAuthority
+import org.thoughtcrime.securesms.util.DeviceProperties
 import org.thoughtcrime.securesms.util.ListenableFutureTask
-import org.thoughtcrime.securesms.util.SoftHashMap
+import org.thoughtcrime.securesms.util.Util
 import java.io.IOException
 import java.io.InputStream
+import java.util.Locale
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.math.max
 
+/**
+ * Holds decoded emoji sprite sheets in an LRU cache with a byte budget based on the device's memory class, so that pages stay around
+ * while scrolling the emoji keyboard instead of being collected and decoded again whenever the GC likes.
+ */
 object EmojiPageCache {
 
   private val TAG = Log.tag(EmojiPageCache::class.java)
 
-  private val cache: SoftHashMap<EmojiPageRequest, Bitmap> = SoftHashMap()
+  private const val CACHE_BYTES_PER_MEMORY_CLASS_MB = 1024 * 1024 / 8
+  private const val CACHE_MIN_BYTES = 8 * 1024 * 1024
+  private const val CACHE_MAX_BYTES = 48 * 1024 * 1024
+  private const val BYTES_PER_PIXEL = 4
+
+  private val cache: PageCache by lazy {
+    PageCache(Util.clamp(DeviceProperties.getMemoryClass(AppDependencies.application) * CACHE_BYTES_PER_MEMORY_CLASS_MB, CACHE_MIN_BYTES, CACHE_MAX_BYTES)).also {
+      AppDependencies.application.registerComponentCallbacks(TrimMemoryCallbacks(it))
+    }
+  }
+
   private val tasks: HashMap<EmojiPageRequest, ListenableFutureTask<Bitmap>> = hashMapOf()
 
+  private val hits = AtomicLong()
+  private val misses = AtomicLong()
+  private val downsampled = AtomicLong()
+  private val prefetches = AtomicLong()
+
+  /**
+   * The sample size pages should be decoded with on this device.
+   */
+  @JvmStatic
+  fun getDefaultInSampleSize(context: Context): Int {
+    return if (DeviceProperties.isLowMemoryDevice(context)) 2 else 1
+  }
+
   @MainThread
   fun load(context: Context, emojiPage: EmojiPage, inSampleSize: Int): LoadResult {
+    return load(context, EmojiPageRequest(emojiPage, inSampleSize), isPrefetch = false)
+  }
+
+  /**
+   * Starts loading pages that aren't already cached or loading, so they're ready by the time they're scrolled to. [emojiPages] should be
+   * ordered nearest to the viewport first. Pages are only loaded while they fit in half of the space the cache has left, so a prefetch
+   * never evicts the pages on screen, or the pages it loaded itself.
+   */
+  @MainThread
+  fun prefetch(context: Context, emojiPages: List<EmojiPage>, inSampleSize: Int) {
+    val applicationContext = context.applicationContext
+    val requests: List<EmojiPageRequest> = emojiPages.map { EmojiPageRequest(it, inSampleSize) }
+
+    SimpleTask.run({ requests.map { it to getDecodedSize(applicationContext, it) } }) { sizedRequests ->
+      var budget: Int = (cache.maxSize() - cache.size()) / 2
+
+      for ((request, size) in sizedRequests) {
+        if (cache[request] != null) {
+          continue
+        }
+
+        if (tasks.containsKey(request)) {
+          budget -= size
+          continue
+        }
+
+        if (size <= 0 || size > budget) {
+          break
+        }
+
+        budget -= size
+        load(applicationContext, request, isPrefetch = true)
+      }
+    }
+  }
+
+  fun clear() {
+    cache.evictAll()
+  }
+
+  fun getStats(): Stats {
+    return Stats(
+      hits = hits.get(),
+      misses = misses.get(),
+      downsampled = downsampled.get(),
+      prefetches = prefetches.get(),
+      evictions = cache.evictionCount().toLong(),
+      sizeBytes = cache.size(),
+      maxSizeBytes = cache.maxSize()
+    )
+  }
+
+  @MainThread
+  private fun load(context: Context, emojiPageRequest: EmojiPageRequest, isPrefetch: Boolean): LoadResult {
     val applicationContext = context.applicationContext
-    val emojiPageRequest = EmojiPageRequest(emojiPage, inSampleSize)
     val bitmap: Bitmap? = cache[emojiPageRequest]
     val task: ListenableFutureTask<Bitmap>? = tasks[emojiPageRequest]
 
     return when {
-      bitmap != null -> LoadResult.Immediate(bitmap)
+      bitmap != null -> {
+        if (!isPrefetch) {
+          hits.incrementAndGet()
+        }
+        LoadResult.Immediate(bitmap)
+      }
       task != null -> LoadResult.Async(task)
       else -> {
+        if (isPrefetch) {
+          prefetches.incrementAndGet()
+        } else {
+          misses.incrementAndGet()
+        }
+
         val newTask = ListenableFutureTask<Bitmap> {
           try {
             Log.i(TAG, "Loading page $emojiPageRequest")
@@ -49,7 +148,7 @@ object EmojiPageCache {
             if (newBitmap == null) {
               Log.w(TAG, "Failed to load emoji bitmap for request $emojiPageRequest")
             } else {
-              cache[emojiPageRequest] = newBitmap
+              cache.put(emojiPageRequest, newBitmap)
             }
           } finally {
             tasks.remove(emojiPageRequest)
@@ -61,27 +160,131 @@ object EmojiPageCache {
     }
   }
 
-  fun clear() {
-    cache.clear()
-  }
-
   @WorkerThread
   private fun loadInternal(context: Context, emojiPageRequest: EmojiPageRequest): Bitmap? {
-    val inputStream: InputStream = when (emojiPageRequest.emojiPage) {
-      is EmojiPage.Asset -> context.assets.open(emojiPageRequest.emojiPage.uri.toString().replace("file:///android_asset/", ""))
-      is EmojiPage.Disk -> EmojiFiles.openForReading(context, PartAuthority.getEmojiFilename(emojiPageRequest.emojiPage.uri))
+    val downsampledBitmap: Bitmap? = downsampleCachedVariant(emojiPageRequest)
+    if (downsampledBitmap != null) {
+      downsampled.incrementAndGet()
+      return downsampledBitmap
     }
 
     val bitmapOptions = BitmapFactory.Options()
     bitmapOptions.inSampleSize = emojiPageRequest.inSampleSize
 
-    return inputStream.use { BitmapFactory.decodeStream(it, null, bitmapOptions) }
+    return open(context, emojiPageRequest.emojiPage).use { BitmapFactory.decodeStream(it, null, bitmapOptions) }
+  }
+
+  /**
+   * The number of bytes the page will take up once decoded, read from its header without decoding it, or 0 if it can't be read.
+   */
+  @WorkerThread
+  private fun getDecodedSize(context: Context, emojiPageRequest: EmojiPageRequest): Int {
+    val bitmapOptions = BitmapFactory.Options()
+    bitmapOptions.inJustDecodeBounds = true
+    bitmapOptions.inSampleSize = emojiPageRequest.inSampleSize
+
+    try {
+      open(context, emojiPageRequest.emojiPage).use { BitmapFactory.decodeStream(it, null, bitmapOptions) }
+    } catch (e: IOException) {
+      Log.w(TAG, e)
+      return 0
+    }
+
+    return max(0, bitmapOptions.outWidth) * max(0, bitmapOptions.outHeight) * BYTES_PER_PIXEL
+  }
+
+  @WorkerThread
+  private fun open(context: Context, emojiPage: EmojiPage): InputStream {
+    return when (emojiPage) {
+      is EmojiPage.Asset -> context.assets.open(emojiPage.uri.toString().replace("file:///android_asset/", ""))
+      is EmojiPage.Disk -> EmojiFiles.openForReading(context, PartAuthority.getEmojiFilename(emojiPage.uri))
+    }
+  }
+
+  /**
+   * Scaling down a larger copy of the page that's already in memory is much cheaper than decoding the page again. Decoding with a sample
+   * size rounds the dimensions down, and so does this, so the result has the same size a decode would have produced.
+   */
+  @WorkerThread
+  private fun downsampleCachedVariant(emojiPageRequest: EmojiPageRequest): Bitmap? {
+    for (sampleSize in 1 until emojiPageRequest.inSampleSize) {
+      if (emojiPageRequest.inSampleSize % sampleSize != 0) {
+        continue
+      }
+
+      val source: Bitmap = cache[emojiPageRequest.copy(inSampleSize = sampleSize)] ?: continue
+      val scale: Int = emojiPageRequest.inSampleSize / sampleSize
+
+      return Bitmap.createScaledBitmap(source, max(1, source.width / scale), max(1, source.height / scale), true)
+    }
+
+    return null
   }
 
   private data class EmojiPageRequest(val emojiPage: EmojiPage, val inSampleSize: Int)
 
+  private class PageCache(maxSizeBytes: Int) : LruCache<EmojiPageRequest, Bitmap>(maxSizeBytes) {
+    override fun sizeOf(key: EmojiPageRequest, value: Bitmap): Int = value.allocationByteCount
+  }
+
+  /**
+   * Gives memory back when the system asks for it: half the cache while the app is running low, all of it once the UI is hidden.
+   * Evicted pages are decoded again the next time they're needed.
+   */
+  private class TrimMemoryCallbacks(private val cache: PageCache) : ComponentCallbacks2 {
+    override fun onTrimMemory(level: Int) {
+      if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+        Log.i(TAG, "Trim memory level $level, evicting all pages")
+        cache.evictAll()
+      } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+        Log.i(TAG, "Trim memory level $level, trimming to half")
+        cache.trimToSize(cache.maxSize() / 2)
+      }
+    }
+
+    override fun onConfigurationChanged(newConfig: Configuration) = Unit
+
+    override fun onLowMemory() {
+      cache.evictAll()
+    }
+  }
+
   sealed class LoadResult {
     data class Immediate(val bitmap: Bitmap) : LoadResult()
     data class Async(val task: ListenableFutureTask<Bitmap>) : LoadResult()
   }
+
+  /**
+   * @param hits Loads that were served straight from the cache.
+   * @param misses Loads that had to wait for the page to be loaded.
+   * @param downsampled Pages that were made from a larger cached copy rather than decoded.
+   * @param prefetches Pages that were loaded ahead of being needed.
+   */
+  data class Stats(
+    val hits: Long,
+    val misses: Long,
+    val downsampled: Long,
+    val prefetches: Long,
+    val evictions: Long,
+    val sizeBytes: Int,
+    val maxSizeBytes: Int
+  ) {
+    val hitRate: Float
+      get() = if (hits + misses > 0) hits.toFloat() / (hits + misses) else 0f
+
+    override fun toString(): String {
+      return String.format(
+        Locale.US,
+        "size: %d/%d bytes, hits: %d, misses: %d (%.1f%% hit rate), downsampled: %d, prefetched: %d, evictions: %d",
+        sizeBytes,
+        maxSizeBytes,
+        hits,
+        misses,
+        hitRate * 100,
+        downsampled,
+        prefetches,
+        evictions
+      )
+    }
+  }
 }
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.emoji
+
+import org.thoughtcrime.securesms.database.model.EmojiSearchData
+import java.util.PriorityQueue
+import kotlin.math.max
+
+/**
+ * An in-memory index of emoji search labels, so that searching as the user types doesn't need to scan the database on every keystroke.
+ *
+ * Labels are kept in rank order, and every label is listed under each of the 1, 2 and 3 character grams it contains. A search walks the
+ * shortest of those lists for its query, which visits labels best rank first, so it only looks at labels that can match and can stop as soon
+ * as it has enough of them.
+ *
+ * Immutable, and therefore thread safe.
+ */
+class EmojiSearchIndex(entries: List<Entry>) {
+
+  companion object {
+    /** The rank of an emoji that has no rank at all. */
+    const val UNRANKED = Int.MAX_VALUE
+
+    private const val MAX_GRAM_SIZE = 3
+
+    /** Matches are picked from this many of the best ranked labels, which keeps short queries from being swamped by obscure emoji. */
+    private const val MIN_CANDIDATES = 200
+
+    private const val UNRANKED_SCORE = 2f
+    private const val PREFIX_RANK_WEIGHT = 1.75f
+    private const val SUFFIX_RANK_WEIGHT = 0.75f
+    private const val NOT_EXACT_MATCH_PENALTY = 2f
+
+    private val EMPTY = IntArray(0)
+
+    @JvmStatic
+    fun fromSearchData(searchIndex: List<EmojiSearchData>): EmojiSearchIndex {
+      return EmojiSearchIndex(
+        searchIndex.flatMap { data ->
+          val rank = if (data.rank == 0) UNRANKED else data.rank
+          data.tags.map { label -> Entry(label, data.emoji, rank) }
+        }
+      )
+    }
+  }
+
+  /** Lowercased labels, in rank order. The other arrays are indexed the same way. */
+  private val labels: Array<String>
+  private val emoji: Array<String>
+  private val scaledRanks: FloatArray
+
+  /** Label positions containing each gram, in ascending order. */
+  private val postings: Map<String, IntArray>
+
+  /** Label positions for each emoji, in ascending order. */
+  private val emojiPositions: Map<String, IntArray>
+
+  init {
+    val sorted = entries.sortedBy { it.rank }
+    val maxRank = sorted.lastOrNull { it.rank != UNRANKED }?.rank ?: 0
+    val scaleFactor: Float = UNRANKED_SCORE / maxRank
+
+    labels = Array(sorted.size) { sorted[it].label.lowercase() }
+    emoji = Array(sorted.size) { sorted[it].emoji }
+    scaledRanks = FloatArray(sorted.size) { if (sorted[it].rank == UNRANKED) UNRANKED_SCORE else sorted[it].rank * scaleFactor }
+
+    val gramPositions = HashMap<String, MutableList<Int>>()
+    val positionsByEmoji = HashMap<String, MutableList<Int>>()
+
+    for (position in labels.indices) {
+      val label = labels[position]
+
+      for (size in 1..MAX_GRAM_SIZE) {
+        for (start in 0..label.length - size) {
+          val positions = gramPositions.getOrPut(label.substring(start, start + size)) { ArrayList(4) }
+          if (positions.lastOrNull() != position) {
+            positions += position
+          }
+        }
+      }
+
+      positionsByEmoji.getOrPut(emoji[position]) { ArrayList(4) } += position
+    }
+
+    postings = gramPositions.mapValues { it.value.toIntArray() }
+    emojiPositions = positionsByEmoji.mapValues { it.value.toIntArray() }
+  }
+
+  /**
+   * @param originalQuery A search query. Doesn't need any special formatting -- it'll be sanitized.
+   * @return A list of emoji that are related to the search term, ordered by relevance.
+   */
+  fun query(originalQuery: String, limit: Int): List<String> {
+    val query: String = originalQuery.trim()
+
+    if (query.isEmpty() || limit <= 0) {
+      return emptyList()
+    }
+
+    val searchTerm: String = query.lowercase()
+    val candidates: IntArray = findCandidates(query, searchTerm, max(limit, MIN_CANDIDATES))
+
+    return selectBest(query, searchTerm, candidates, limit)
+  }
+
+  /**
+   * @return The positions of the best ranked labels that contain the search term or belong to the queried emoji, in rank order.
+   */
+  private fun findCandidates(query: String, searchTerm: String, maxCandidates: Int): IntArray {
+    val byEmoji: IntArray = emojiPositions[query] ?: EMPTY
+    val byLabel: IntArray = shortestPosting(searchTerm) ?: EMPTY
+    val needsVerification: Boolean = searchTerm.length > MAX_GRAM_SIZE
+
+    val candidates = IntArray(maxCandidates)
+    var count = 0
+    var emojiIndex = 0
+    var labelIndex = 0
+    var nextLabelMatch = -1
+
+    while (count < maxCandidates) {
+      while (nextLabelMatch < 0 && labelIndex < byLabel.size) {
+        val position = byLabel[labelIndex++]
+        if (!needsVerification || labels[position].contains(searchTerm)) {
+          nextLabelMatch = position
+        }
+      }
+
+      val nextEmojiMatch: Int = if (emojiIndex < byEmoji.size) byEmoji[emojiIndex] else -1
+
+      if (nextEmojiMatch < 0 && nextLabelMatch < 0) {
+        break
+      }
+
+      if (nextLabelMatch < 0 || (nextEmojiMatch in 0..nextLabelMatch)) {
+        candidates[count++] = nextEmojiMatch
+        emojiIndex++
+        if (nextEmojiMatch == nextLabelMatch) {
+          nextLabelMatch = -1
+        }
+      } else {
+        candidates[count++] = nextLabelMatch
+        nextLabelMatch = -1
+      }
+    }
+
+    return candidates.copyOf(count)
+  }
+
+  /**
+   * Short terms are grams themselves. Longer terms can only be found in labels that contain all of their grams, so the rarest one is used.
+   */
+  private fun shortestPosting(searchTerm: String): IntArray? {
+    if (searchTerm.length <= MAX_GRAM_SIZE) {
+      return postings[searchTerm]
+    }
+
+    var shortest: IntArray? = null
+    for (start in 0..searchTerm.length - MAX_GRAM_SIZE) {
+      val posting = postings[searchTerm.substring(start, start + MAX_GRAM_SIZE)] ?: return null
+      if (shortest == null || posting.size < shortest.size) {
+        shortest = posting
+      }
+    }
+
+    return shortest
+  }
+
+  /**
+   * Scores each candidate once, keeps the best scoring label of each emoji, and picks the [limit] best of those. Ties go to the better rank.
+   */
+  private fun selectBest(query: String, searchTerm: String, candidates: IntArray, limit: Int): List<String> {
+    val scores = FloatArray(candidates.size) { similarityScore(query, searchTerm, candidates[it]) }
+    val bestByEmoji = HashMap<String, Int>()
+
+    for (i in candidates.indices) {
+      val current: Int? = bestByEmoji[emoji[candidates[i]]]
+      if (current == null || scores[i] < scores[current]) {
+        bestByEmoji[emoji[candidates[i]]] = i
+      }
+    }
+
+    val order: Comparator<Int> = compareBy<Int> { scores[it] }.thenBy { it }
+    val best = PriorityQueue(limit + 1, order.reversed())
+
+    for (i in bestByEmoji.values) {
+      best += i
+      if (best.size > limit) {
+        best.poll()
+      }
+    }
+
+    return best.sortedWith(order).map { emoji[candidates[it]] }
+  }
+
+  /**
+   * Ranks how "similar" a match is to the original search term.
+   * A lower score means more similar, with 0 being a perfect match.
+   *
+   * We know that the `searchTerm` must be a substring of the label, unless the query was the emoji itself.
+   * We determine similarity by how many letters appear before or after the `searchTerm` in the label.
+   * We give letters that come before the term a bigger weight than those that come after as a way to prefer matches that are prefixed by the `searchTerm`.
+   */
+  private fun similarityScore(query: String, searchTerm: String, position: Int): Float {
+    val match: String = labels[position]
+
+    if (query == emoji[position] || searchTerm == match) {
+      return scaledRanks[position]
+    }
+
+    val startIndex = match.indexOf(searchTerm)
+
+    val prefixCount = startIndex
+    val suffixCount = match.length - (startIndex + searchTerm.length)
+
+    return NOT_EXACT_MATCH_PENALTY +
+      (prefixCount * PREFIX_RANK_WEIGHT) +
+      (suffixCount * SUFFIX_RANK_WEIGHT) +
+      scaledRanks[position]
+  }
+
+  /**
+   * A single search label.
+   *
+   * @param rank How popular the emoji is, with 1 being the best rank, or [UNRANKED].
+   */
+  data class Entry(val label: String, val emoji: String, val rank: Int)
+}
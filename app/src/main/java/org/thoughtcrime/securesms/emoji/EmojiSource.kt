@@ -80,6 +80,23 @@ class EmojiSource(
     tree
   }
 
+  /**
+   * The sprite pages of a category, followed by the pages either side of it, nearest to the category's own pages first.
+   */
+  fun getPagesAround(categoryKey: String): List<EmojiPage> {
+    val spritePages: List<EmojiPageModel> = dataPages.filter { it.spriteUri != null }
+    val first: Int = spritePages.indexOfFirst { it.key == categoryKey }
+
+    if (first == -1) {
+      return emptyList()
+    }
+
+    val last: Int = spritePages.indexOfLast { it.key == categoryKey }
+    val around: List<EmojiPageModel> = spritePages.subList(first, last + 1) + listOfNotNull(spritePages.getOrNull(last + 1), spritePages.getOrNull(first - 1))
+
+    return around.map { emojiPageFactory(it.spriteUri!!) }
+  }
+
   companion object {
 
     private val emojiSource = AtomicReference<EmojiSource>()
@@ -37,8 +37,11 @@ public class EncryptedCacheDecoder<DecodeType> extends EncryptedCoder implements
 
   @Override
   public @Nullable Resource<DecodeType> decode(@NonNull File source, int width, int height, @NonNull Options options) throws IOException {
+    long startTime = System.nanoTime();
     try (InputStream inputStream = createEncryptedInputStream(secret, source)) {
       return decoder.decode(inputStream, width, height, options);
+    } finally {
+      GlideCacheMetrics.onCacheDecode(System.nanoTime() - startTime);
     }
   }
 }
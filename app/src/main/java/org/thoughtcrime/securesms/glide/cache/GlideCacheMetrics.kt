@@ -0,0 +1,127 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.glide.cache
+
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Counts how often images are found in each of Glide's cache tiers, and how long decoding them takes, so we can tell from a debug
+ * log whether scrolling through media is being served from memory, from the encrypted disk cache, or from the original attachment.
+ */
+object GlideCacheMetrics {
+
+  private val memoryHits = AtomicLong()
+  private val memoryMisses = AtomicLong()
+  private val diskHits = AtomicLong()
+  private val diskMisses = AtomicLong()
+
+  private val cacheDecodes = DecodeTimer()
+  private val sourceDecodes = DecodeTimer()
+
+  @JvmStatic
+  fun onMemoryCacheLookup(hit: Boolean) {
+    if (hit) memoryHits.incrementAndGet() else memoryMisses.incrementAndGet()
+  }
+
+  @JvmStatic
+  fun onDiskCacheLookup(hit: Boolean) {
+    if (hit) diskHits.incrementAndGet() else diskMisses.incrementAndGet()
+  }
+
+  /**
+   * Records a decode of something in the disk cache, including decrypting it.
+   */
+  @JvmStatic
+  fun onCacheDecode(durationNanos: Long) {
+    cacheDecodes.record(durationNanos)
+  }
+
+  /**
+   * Records a decode of an original image, which is usually much larger than anything in the disk cache.
+   */
+  @JvmStatic
+  fun onSourceDecode(durationNanos: Long) {
+    sourceDecodes.record(durationNanos)
+  }
+
+  @JvmStatic
+  fun getStats(): Stats {
+    return Stats(
+      memoryHits = memoryHits.get(),
+      memoryMisses = memoryMisses.get(),
+      diskHits = diskHits.get(),
+      diskMisses = diskMisses.get(),
+      cacheDecodes = cacheDecodes.count.get(),
+      cacheDecodeNanos = cacheDecodes.totalNanos.get(),
+      sourceDecodes = sourceDecodes.count.get(),
+      sourceDecodeNanos = sourceDecodes.totalNanos.get()
+    )
+  }
+
+  private class DecodeTimer {
+    val count = AtomicLong()
+    val totalNanos = AtomicLong()
+
+    fun record(durationNanos: Long) {
+      count.incrementAndGet()
+      totalNanos.addAndGet(durationNanos)
+    }
+  }
+
+  /**
+   * @param memoryHits Loads served from the memory cache. Images that are still on screen are served before the memory cache is checked, and aren't counted.
+   * @param diskHits Lookups that found a pre-scaled or original image in the encrypted disk cache.
+   */
+  data class Stats(
+    val memoryHits: Long,
+    val memoryMisses: Long,
+    val diskHits: Long,
+    val diskMisses: Long,
+    val cacheDecodes: Long,
+    val cacheDecodeNanos: Long,
+    val sourceDecodes: Long,
+    val sourceDecodeNanos: Long
+  ) {
+    val memoryHitRate: Float
+      get() = hitRate(memoryHits, memoryMisses)
+
+    val diskHitRate: Float
+      get() = hitRate(diskHits, diskMisses)
+
+    val averageCacheDecodeMs: Float
+      get() = averageMs(cacheDecodeNanos, cacheDecodes)
+
+    val averageSourceDecodeMs: Float
+      get() = averageMs(sourceDecodeNanos, sourceDecodes)
+
+    override fun toString(): String {
+      return String.format(
+        Locale.US,
+        "memory hits: %d, misses: %d (%.1f%% hit rate), disk hits: %d, misses: %d (%.1f%% hit rate), cache decodes: %d (%.2f ms avg), source decodes: %d (%.2f ms avg)",
+        memoryHits,
+        memoryMisses,
+        memoryHitRate * 100,
+        diskHits,
+        diskMisses,
+        diskHitRate * 100,
+        cacheDecodes,
+        averageCacheDecodeMs,
+        sourceDecodes,
+        averageSourceDecodeMs
+      )
+    }
+
+    private fun hitRate(hits: Long, misses: Long): Float {
+      return if (hits + misses > 0) hits.toFloat() / (hits + misses) else 0f
+    }
+
+    private fun averageMs(totalNanos: Long, count: Long): Float {
+      return if (count > 0) totalNanos.toFloat() / count / TimeUnit.MILLISECONDS.toNanos(1) else 0f
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.glide.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+
+import java.io.File;
+
+/**
+ * Wraps Glide's disk cache, which holds encrypted pre-scaled images and originals, to count its hits and misses in
+ * {@link GlideCacheMetrics}.
+ */
+public class InstrumentedDiskCache implements DiskCache {
+
+  private final DiskCache delegate;
+
+  public InstrumentedDiskCache(@NonNull DiskCache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public @Nullable File get(Key key) {
+    File file = delegate.get(key);
+    GlideCacheMetrics.onDiskCacheLookup(file != null);
+    return file;
+  }
+
+  @Override
+  public void put(Key key, Writer writer) {
+    delegate.put(key, writer);
+  }
+
+  @Override
+  public void delete(Key key) {
+    delegate.delete(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  public static class Factory implements DiskCache.Factory {
+
+    private final DiskCache.Factory delegate;
+
+    public Factory(@NonNull DiskCache.Factory delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public @Nullable DiskCache build() {
+      DiskCache diskCache = delegate.build();
+      return diskCache != null ? new InstrumentedDiskCache(diskCache) : null;
+    }
+  }
+}
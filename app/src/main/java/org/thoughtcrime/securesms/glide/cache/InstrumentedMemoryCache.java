@@ -0,0 +1,31 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.glide.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+
+/**
+ * Glide's memory cache of decoded images, keyed by model, size, and transformations, that counts its hits and misses in
+ * {@link GlideCacheMetrics}. Glide takes a resource out of the cache when it's used, so every lookup is a {@link #remove(Key)}.
+ */
+public class InstrumentedMemoryCache extends LruResourceCache {
+
+  public InstrumentedMemoryCache(long maxSizeBytes) {
+    super(maxSizeBytes);
+  }
+
+  @Override
+  public synchronized @Nullable Resource<?> remove(@NonNull Key key) {
+    Resource<?> resource = super.remove(key);
+    GlideCacheMetrics.onMemoryCacheLookup(resource != null);
+    return resource;
+  }
+}
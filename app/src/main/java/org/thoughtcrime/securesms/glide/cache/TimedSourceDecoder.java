@@ -0,0 +1,42 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.glide.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.engine.Resource;
+
+import java.io.IOException;
+
+/**
+ * Records how long decoding original images takes in {@link GlideCacheMetrics}.
+ */
+public class TimedSourceDecoder<DataType, ResourceType> implements ResourceDecoder<DataType, ResourceType> {
+
+  private final ResourceDecoder<DataType, ResourceType> decoder;
+
+  public TimedSourceDecoder(@NonNull ResourceDecoder<DataType, ResourceType> decoder) {
+    this.decoder = decoder;
+  }
+
+  @Override
+  public boolean handles(@NonNull DataType source, @NonNull Options options) throws IOException {
+    return decoder.handles(source, options);
+  }
+
+  @Override
+  public @Nullable Resource<ResourceType> decode(@NonNull DataType source, int width, int height, @NonNull Options options) throws IOException {
+    long startTime = System.nanoTime();
+    try {
+      return decoder.decode(source, width, height, options);
+    } finally {
+      GlideCacheMetrics.onSourceDecode(System.nanoTime() - startTime);
+    }
+  }
+}
@@ -10,6 +10,7 @@ import org.whispersystems.signalservice.api.groupsv2.DecryptedGroupChangeLog;
 import org.whispersystems.signalservice.api.groupsv2.DecryptedGroupUtil;
 import org.whispersystems.signalservice.api.groupsv2.GroupChangeReconstruct;
 import org.whispersystems.signalservice.api.groupsv2.GroupChangeUtil;
+import org.whispersystems.signalservice.api.groupsv2.MutableDecryptedGroup;
 import org.whispersystems.signalservice.api.groupsv2.NotAbleToApplyGroupV2ChangeException;
 
 import java.util.ArrayList;
@@ -17,6 +18,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Objects;
 
 final class GroupStatePatcher {
 
@@ -41,11 +43,93 @@ final class GroupStatePatcher {
   static @NonNull AdvanceGroupStateResult applyGroupStateDiff(@NonNull GroupStateDiff inputState,
                                                               int maximumRevisionToApply)
   {
+    if (canApplyIncrementally(inputState, maximumRevisionToApply)) {
+      return applyChangesIncrementally(inputState, maximumRevisionToApply);
+    }
+
     AdvanceGroupStateResult groupStateResult = processChanges(inputState, maximumRevisionToApply);
 
     return cleanDuplicatedChanges(groupStateResult, inputState.getPreviousGroupState());
   }
 
+  /**
+   * The common case of catching up a known group is a run of changes with no server states in between, which can be applied to a
+   * single {@link MutableDecryptedGroup} rather than going through a {@link StateChain}.
+   */
+  private static boolean canApplyIncrementally(@NonNull GroupStateDiff inputState, int maximumRevisionToApply) {
+    DecryptedGroup current = inputState.getPreviousGroupState();
+
+    if (current == null || current.revision < 0 || inputState.getServerHistory().isEmpty()) {
+      return false;
+    }
+
+    for (DecryptedGroupChangeLog entry : inputState.getServerHistory()) {
+      if (entry.getRevision() <= maximumRevisionToApply && (entry.getGroup() != null || entry.getChange() == null)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Gives the same result as {@link #processChanges} followed by {@link #cleanDuplicatedChanges} for input that passes
+   * {@link #canApplyIncrementally}, but resolves each change against the indexed state as it goes instead of against a rebuilt state.
+   */
+  private static @NonNull AdvanceGroupStateResult applyChangesIncrementally(@NonNull GroupStateDiff inputState,
+                                                                            int maximumRevisionToApply)
+  {
+    HashMap<Integer, DecryptedGroupChange> changesToApplyNow  = new HashMap<>(inputState.getServerHistory().size());
+    ArrayList<DecryptedGroupChangeLog>     statesToApplyLater = new ArrayList<>(inputState.getServerHistory().size());
+    DecryptedGroup                         current            = Objects.requireNonNull(inputState.getPreviousGroupState());
+
+    for (DecryptedGroupChangeLog entry : inputState.getServerHistory()) {
+      if (entry.getRevision() > maximumRevisionToApply) {
+        statesToApplyLater.add(entry);
+      } else {
+        changesToApplyNow.put(entry.getRevision(), entry.getChange());
+      }
+    }
+
+    Collections.sort(statesToApplyLater, BY_REVISION);
+
+    final int from = Math.max(0, inputState.getEarliestRevisionNumber());
+    final int to   = Math.min(inputState.getLatestRevisionNumber(), maximumRevisionToApply);
+
+    MutableDecryptedGroup       group          = new MutableDecryptedGroup(current);
+    List<AppliedGroupChangeLog> appliedChanges = new ArrayList<>(changesToApplyNow.size());
+
+    for (int revision = from; revision >= 0 && revision <= to; revision++) {
+      DecryptedGroupChange change = changesToApplyNow.get(revision);
+      if (change == null) {
+        Log.w(TAG, "Could not find group log on server V" + revision);
+        continue;
+      }
+
+      DecryptedGroupChange resolvedChange = group.resolveConflict(change).build();
+
+      try {
+        group.apply(change);
+      } catch (NotAbleToApplyGroupV2ChangeException e) {
+        Log.w(TAG, "Unable to apply V" + change.revision, e);
+        group = new MutableDecryptedGroup(current);
+        continue;
+      }
+
+      DecryptedGroup updated = group.toDecryptedGroup();
+
+      if (isSameState(current, updated)) {
+        group = new MutableDecryptedGroup(current);
+        continue;
+      }
+
+      appliedChanges.add(new AppliedGroupChangeLog(updated, resolvedChange));
+      current = updated;
+    }
+
+    return new AdvanceGroupStateResult(current, appliedChanges, statesToApplyLater);
+  }
+
   private static @NonNull AdvanceGroupStateResult processChanges(@NonNull GroupStateDiff inputState,
                                                                  int maximumRevisionToApply)
   {
@@ -141,7 +225,11 @@ final class GroupStatePatcher {
         }
       },
       (groupB, groupA) -> GroupChangeReconstruct.reconstructGroupChange(groupA, groupB),
-      (groupA, groupB) -> groupA.revision == groupB.revision && DecryptedGroupUtil.changeIsEmpty(GroupChangeReconstruct.reconstructGroupChange(groupA, groupB))
+      GroupStatePatcher::isSameState
     );
   }
+
+  private static boolean isSameState(@NonNull DecryptedGroup groupA, @NonNull DecryptedGroup groupB) {
+    return groupA.revision == groupB.revision && DecryptedGroupUtil.changeIsEmpty(GroupChangeReconstruct.reconstructGroupChange(groupA, groupB));
+  }
 }
@@ -21,6 +21,7 @@ import org.thoughtcrime.securesms.crypto.ModernDecryptingPartInputStream;
 import org.thoughtcrime.securesms.crypto.ModernEncryptingPartOutputStream;
 import org.thoughtcrime.securesms.database.AttachmentTable;
 import org.thoughtcrime.securesms.database.SignalDatabase;
+import org.thoughtcrime.securesms.dependencies.AppDependencies;
 import org.thoughtcrime.securesms.events.PartProgressEvent;
 import org.thoughtcrime.securesms.jobmanager.Job;
 import org.thoughtcrime.securesms.jobmanager.JsonJobData;
@@ -34,15 +35,18 @@ import org.thoughtcrime.securesms.mms.SentMediaQuality;
 import org.thoughtcrime.securesms.service.AttachmentProgressService;
 import org.thoughtcrime.securesms.transport.UndeliverableMessageException;
 import org.thoughtcrime.securesms.util.BitmapDecodingException;
+import org.thoughtcrime.securesms.util.DeviceProperties;
 import org.thoughtcrime.securesms.util.ImageCompressionUtil;
 import org.thoughtcrime.securesms.util.MediaUtil;
 import org.thoughtcrime.securesms.util.MemoryFileDescriptor.MemoryFileException;
 import org.thoughtcrime.securesms.util.RemoteConfig;
+import org.thoughtcrime.securesms.video.EncryptedSegmentStorage;
 import org.thoughtcrime.securesms.video.StreamingTranscoder;
 import org.thoughtcrime.securesms.video.TranscoderOptions;
 import org.thoughtcrime.securesms.video.exceptions.VideoPostProcessingException;
 import org.thoughtcrime.securesms.video.exceptions.VideoSourceException;
 import org.thoughtcrime.securesms.video.interfaces.TranscoderCancelationSignal;
+import org.thoughtcrime.securesms.video.postprocessing.Mp4FaststartMetadata;
 import org.thoughtcrime.securesms.video.postprocessing.Mp4FaststartPostProcessor;
 import org.thoughtcrime.securesms.video.videoconverter.exceptions.EncodingException;
 
@@ -64,6 +68,17 @@ public final class AttachmentCompressionJob extends BaseJob {
   private static final String KEY_MMS           = "mms";
   private static final String KEY_MMS_SUBSCRIPTION_ID = "mms_subscription_id";
 
+  /**
+   * Image compression is CPU bound and independent per attachment, so a batch of images can be spread over a few queues to
+   * compress in parallel. Every job holds a full resolution bitmap while it runs, so we only allow one queue per
+   * {@link #MEMORY_CLASS_MB_PER_IMAGE_QUEUE} of heap, and low memory devices keep compressing one at a time. Videos are
+   * always transcoded one at a time.
+   */
+  private static final int MAX_IMAGE_QUEUES                 = 4;
+  private static final int MEMORY_CLASS_MB_PER_IMAGE_QUEUE = 128;
+
+  private static volatile int imageQueueCount;
+
   private final AttachmentId attachmentId;
   private final boolean      mms;
   private final int          mmsSubscriptionId;
@@ -87,7 +102,7 @@ public final class AttachmentCompressionJob extends BaseJob {
                        .addConstraint(NetworkConstraint.KEY)
                        .setLifespan(TimeUnit.DAYS.toMillis(1))
                        .setMaxAttempts(Parameters.UNLIMITED)
-                       .setQueue(isVideoTranscode ? "VIDEO_TRANSCODE" : "GENERIC_TRANSCODE")
+                       .setQueue(isVideoTranscode ? "VIDEO_TRANSCODE" : getImageQueue(attachmentId))
                        .build(),
          attachmentId,
          mms,
@@ -257,11 +272,15 @@ public final class AttachmentCompressionJob extends BaseJob {
         }
 
         StreamingTranscoder transcoder = new StreamingTranscoder(dataSource, options, constraints.getVideoTranscodingSettings(), constraints.getCompressedVideoMaxSize(context), RemoteConfig.allowAudioRemuxing());
+        transcoder.setPipelined(RemoteConfig.pipelinedVideoTranscoding());
 
         if (transcoder.isTranscodeRequired()) {
           Log.i(TAG, "Compressing with streaming muxer");
           AttachmentSecret attachmentSecret = AttachmentSecretProvider.getInstance(context).getOrCreateAttachmentSecret();
 
+          EncryptedSegmentStorage segmentStorage = RemoteConfig.segmentedVideoTranscoding() ? new EncryptedSegmentStorage(context, attachmentSecret) : null;
+          transcoder.setSegmentStorage(segmentStorage);
+
           File file = AttachmentTable.newDataFile(context);
           file.deleteOnExit();
 
@@ -299,8 +318,11 @@ public final class AttachmentCompressionJob extends BaseJob {
               }
             });
 
-            final long plaintextLength = ModernEncryptingPartOutputStream.getPlaintextLength(file.length());
-            try (MediaStream mediaStream = new MediaStream(postProcessor.processWithMdatLength(plaintextLength, mdatLength), MimeTypes.VIDEO_MP4, 0, 0, true)) {
+            final Mp4FaststartMetadata faststartMetadata = transcoder.getFaststartMetadata();
+            final long                 plaintextLength   = ModernEncryptingPartOutputStream.getPlaintextLength(file.length());
+            try (MediaStream mediaStream = new MediaStream(faststartMetadata != null ? postProcessor.processWithMetadata(faststartMetadata)
+                                                                                     : postProcessor.processWithMdatLength(plaintextLength, mdatLength),
+                                                           MimeTypes.VIDEO_MP4, 0, 0, true)) {
               attachmentDatabase.updateAttachmentData(attachment, mediaStream);
               faststart = true;
             } catch (VideoPostProcessingException e) {
@@ -322,6 +344,9 @@ public final class AttachmentCompressionJob extends BaseJob {
             if (!file.delete()) {
               Log.w(TAG, "Failed to delete temp file");
             }
+            if (segmentStorage != null) {
+              segmentStorage.close();
+            }
           }
 
           attachmentDatabase.markAttachmentAsTransformed(attachment.attachmentId, faststart);
@@ -369,20 +394,15 @@ public final class AttachmentCompressionJob extends BaseJob {
       throw new UndeliverableMessageException("No attachment URI!");
     }
 
-    ImageCompressionUtil.Result result = null;
+    ImageCompressionUtil.Result result;
 
     try {
-      for (int size : mediaConstraints.getImageDimensionTargets(context)) {
-        result = ImageCompressionUtil.compressWithinConstraints(context,
-                                                                attachment.contentType,
-                                                                new DecryptableStreamUriLoader.DecryptableUri(uri),
-                                                                size,
-                                                                mediaConstraints.getImageMaxSize(context),
-                                                                mediaConstraints.getImageCompressionQualitySetting(context));
-        if (result != null) {
-          break;
-        }
-      }
+      result = ImageCompressionUtil.compressWithinConstraints(context,
+                                                              attachment.contentType,
+                                                              new DecryptableStreamUriLoader.DecryptableUri(uri),
+                                                              mediaConstraints.getImageDimensionTargets(context),
+                                                              mediaConstraints.getImageMaxSize(context),
+                                                              mediaConstraints.getImageCompressionQualitySetting(context));
     } catch (BitmapDecodingException e) {
       throw new UndeliverableMessageException(e);
     }
@@ -397,6 +417,32 @@ public final class AttachmentCompressionJob extends BaseJob {
                            result.getHeight());
   }
 
+  private static @NonNull String getImageQueue(@NonNull AttachmentId attachmentId) {
+    int queueCount = getImageQueueCount();
+
+    if (queueCount == 1) {
+      return "GENERIC_TRANSCODE";
+    }
+    return "GENERIC_TRANSCODE_" + (attachmentId.id % queueCount);
+  }
+
+  private static int getImageQueueCount() {
+    if (imageQueueCount == 0) {
+      Context context = AppDependencies.getApplication();
+
+      if (DeviceProperties.isLowMemoryDevice(context)) {
+        imageQueueCount = 1;
+      } else {
+        int byMemory = DeviceProperties.getMemoryClass(context) / MEMORY_CLASS_MB_PER_IMAGE_QUEUE;
+        int byCpu    = Runtime.getRuntime().availableProcessors() / 2;
+
+        imageQueueCount = Math.max(1, Math.min(Math.min(byMemory, byCpu), MAX_IMAGE_QUEUES));
+      }
+    }
+
+    return imageQueueCount;
+  }
+
   public static boolean jobSpecMatchesAttachmentId(@NonNull JobSpec jobSpec, @NonNull AttachmentId attachmentId) {
     if (!KEY.equals(jobSpec.getFactoryKey())) {
       return false;
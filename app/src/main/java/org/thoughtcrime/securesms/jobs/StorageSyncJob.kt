@@ -2,12 +2,14 @@ package org.thoughtcrime.securesms.jobs
 
 import android.content.Context
 import com.annimon.stream.Stream
+import org.signal.core.util.Base64
 import org.signal.core.util.Stopwatch
 import org.signal.core.util.logging.Log
 import org.signal.core.util.withinTransaction
 import org.signal.libsignal.protocol.InvalidKeyException
 import org.thoughtcrime.securesms.database.RecipientTable
 import org.thoughtcrime.securesms.database.SignalDatabase
+import org.thoughtcrime.securesms.database.model.RecipientRecord
 import org.thoughtcrime.securesms.dependencies.AppDependencies
 import org.thoughtcrime.securesms.jobmanager.Job
 import org.thoughtcrime.securesms.jobmanager.impl.NetworkConstraint
@@ -436,6 +438,9 @@ class StorageSyncJob private constructor(parameters: Parameters) : BaseJob(param
     }
 
     val records: MutableList<SignalStorageRecord> = ArrayList(ids.size)
+    val recipientRecordsByStorageId: Map<String, RecipientRecord> = SignalDatabase.recipients.getByStorageIds(
+      ids.filter { it.isRecipientBacked() }.map { it.raw }
+    )
 
     for (id in ids) {
       var type = ManifestRecord.Identifier.Type.fromValue(id.type)
@@ -445,7 +450,7 @@ class StorageSyncJob private constructor(parameters: Parameters) : BaseJob(param
 
       when (type) {
         ManifestRecord.Identifier.Type.CONTACT, ManifestRecord.Identifier.Type.GROUPV1, ManifestRecord.Identifier.Type.GROUPV2 -> {
-          val settings = SignalDatabase.recipients.getByStorageId(id.raw)
+          val settings = recipientRecordsByStorageId[Base64.encodeWithPadding(id.raw)]
           if (settings != null) {
             if (settings.recipientType == RecipientTable.RecipientType.GV2 && settings.syncExtras.groupMasterKey == null) {
               throw MissingGv2MasterKeyError()
@@ -465,7 +470,7 @@ class StorageSyncJob private constructor(parameters: Parameters) : BaseJob(param
         }
 
         ManifestRecord.Identifier.Type.STORY_DISTRIBUTION_LIST -> {
-          val record = SignalDatabase.recipients.getByStorageId(id.raw)
+          val record = recipientRecordsByStorageId[Base64.encodeWithPadding(id.raw)]
           if (record != null) {
             if (record.distributionListId != null) {
               records.add(StorageSyncModels.localToRemoteRecord(record))
@@ -478,7 +483,7 @@ class StorageSyncJob private constructor(parameters: Parameters) : BaseJob(param
         }
 
         ManifestRecord.Identifier.Type.CALL_LINK -> {
-          val callLinkRecord = SignalDatabase.recipients.getByStorageId(id.raw)
+          val callLinkRecord = recipientRecordsByStorageId[Base64.encodeWithPadding(id.raw)]
           if (callLinkRecord != null) {
             if (callLinkRecord.callLinkRoomId != null) {
               records.add(StorageSyncModels.localToRemoteRecord(callLinkRecord))
@@ -504,6 +509,20 @@ class StorageSyncJob private constructor(parameters: Parameters) : BaseJob(param
     return records
   }
 
+  /**
+   * @return True if records of this type are backed by a row in the recipient table, otherwise false.
+   */
+  private fun StorageId.isRecipientBacked(): Boolean {
+    return when (ManifestRecord.Identifier.Type.fromValue(type)) {
+      ManifestRecord.Identifier.Type.CONTACT,
+      ManifestRecord.Identifier.Type.GROUPV1,
+      ManifestRecord.Identifier.Type.GROUPV2,
+      ManifestRecord.Identifier.Type.STORY_DISTRIBUTION_LIST,
+      ManifestRecord.Identifier.Type.CALL_LINK -> true
+      else -> false
+    }
+  }
+
   private fun freshSelf(): Recipient {
     Recipient.self().live().refresh()
     return Recipient.self()
@@ -7,6 +7,7 @@ import android.view.View
 import android.view.ViewGroup
 import androidx.fragment.app.Fragment
 import androidx.lifecycle.ViewModelProvider
+import androidx.lifecycle.distinctUntilChanged
 import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
 import androidx.recyclerview.widget.RecyclerView.SCROLL_STATE_IDLE
@@ -16,6 +17,8 @@ import org.thoughtcrime.securesms.components.emoji.EmojiEventListener
 import org.thoughtcrime.securesms.components.emoji.EmojiPageView
 import org.thoughtcrime.securesms.components.emoji.EmojiPageViewGridAdapter
 import org.thoughtcrime.securesms.components.emoji.EmojiPageViewGridAdapter.EmojiHeader
+import org.thoughtcrime.securesms.emoji.EmojiPageCache
+import org.thoughtcrime.securesms.emoji.EmojiSource
 import org.thoughtcrime.securesms.keyboard.KeyboardPageCategoryIconMappingModel
 import org.thoughtcrime.securesms.keyboard.KeyboardPageSelected
 import org.thoughtcrime.securesms.keyvalue.SignalStore
@@ -92,7 +95,13 @@ class EmojiKeyboardPageFragment : Fragment(), EmojiEventListener, EmojiPageViewG
       emojiPageView.setList(pages) { (emojiPageView.layoutManager as? LinearLayoutManager)?.scrollToPositionWithOffset(1, 0) }
     }
 
-    viewModel.selectedKey.observe(viewLifecycleOwner) { updateCategoryTab(it) }
+    viewModel.selectedKey.observe(viewLifecycleOwner) {
+      updateCategoryTab(it)
+    }
+
+    viewModel.selectedKey.distinctUntilChanged().observe(viewLifecycleOwner) {
+      prefetchCategory(it)
+    }
 
     eventListener = requireListener()
   }
@@ -116,6 +125,14 @@ class EmojiKeyboardPageFragment : Fragment(), EmojiEventListener, EmojiPageViewG
     }
   }
 
+  private fun prefetchCategory(key: String) {
+    if (SignalStore.settings.isPreferSystemEmoji) {
+      return
+    }
+
+    EmojiPageCache.prefetch(requireContext(), EmojiSource.latest.getPagesAround(key), EmojiPageCache.getDefaultInSampleSize(requireContext()))
+  }
+
   private fun scrollTo(key: String) {
     emojiPageView.adapter?.let { adapter ->
       val index = adapter.indexOfFirst(EmojiHeader::class.java) { it.key == key }
@@ -6,6 +6,9 @@ import org.signal.core.util.MemoryTracker
 import org.signal.core.util.bytes
 import org.signal.core.util.kibiBytes
 import org.signal.core.util.roundedString
+import org.thoughtcrime.securesms.dependencies.AppDependencies
+import org.thoughtcrime.securesms.emoji.EmojiPageCache
+import org.thoughtcrime.securesms.glide.cache.GlideCacheMetrics
 
 class LogSectionMemory : LogSection {
   override fun getTitle(): String = "MEMORY"
@@ -43,6 +46,21 @@ class LogSectionMemory : LogSection {
       """.trimIndent()
     }
 
+    base += "\n\n"
+    base += """
+      -- Recipient Cache
+      ${AppDependencies.recipientCache.stats}
+      
+      -- Emoji Page Cache
+      ${EmojiPageCache.getStats()}
+      
+      -- Early Message Cache
+      ${AppDependencies.earlyMessageCache.stats}
+      
+      -- Glide Image Cache
+      ${GlideCacheMetrics.getStats()}
+    """.trimIndent()
+
     return base
   }
 
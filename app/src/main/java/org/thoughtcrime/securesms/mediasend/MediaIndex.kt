@@ -0,0 +1,111 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.mediasend
+
+/**
+ * The images and videos of a bucket in the order the gallery shows them, newest first, holding only what is needed to
+ * find them again. This is cheap enough to build for a bucket of any size, so that the full [Media] can be loaded a
+ * page at a time by position.
+ *
+ * Items are ordered by date, then images before videos, then by descending row id.
+ */
+class MediaIndex private constructor(
+  private val ids: LongArray,
+  private val dates: LongArray,
+  private val videos: BooleanArray
+) {
+
+  val size: Int
+    get() = ids.size
+
+  val imageCount: Int = videos.count { !it }
+
+  val videoCount: Int
+    get() = size - imageCount
+
+  fun getId(position: Int): Long = ids[position]
+
+  fun getDate(position: Int): Long = dates[position]
+
+  fun isVideo(position: Int): Boolean = videos[position]
+
+  /**
+   * A new index with the items of both, in order. Items are assumed to be distinct.
+   */
+  operator fun plus(other: MediaIndex): MediaIndex {
+    if (other.size == 0) return this
+    if (size == 0) return other
+
+    val builder = Builder(size + other.size)
+    var i = 0
+    var j = 0
+
+    while (i < size || j < other.size) {
+      if (j == other.size || (i < size && compare(this, i, other, j) <= 0)) {
+        builder.add(ids[i], dates[i], videos[i])
+        i++
+      } else {
+        builder.add(other.ids[j], other.dates[j], other.videos[j])
+        j++
+      }
+    }
+
+    return builder.build()
+  }
+
+  class Builder(capacity: Int = 64) {
+    private var ids = LongArray(capacity)
+    private var dates = LongArray(capacity)
+    private var videos = BooleanArray(capacity)
+    private var count = 0
+
+    fun add(id: Long, date: Long, isVideo: Boolean): Builder {
+      if (count == ids.size) {
+        val capacity = maxOf(16, count * 2)
+        ids = ids.copyOf(capacity)
+        dates = dates.copyOf(capacity)
+        videos = videos.copyOf(capacity)
+      }
+
+      ids[count] = id
+      dates[count] = date
+      videos[count] = isVideo
+      count++
+
+      return this
+    }
+
+    fun build(): MediaIndex {
+      return MediaIndex(ids.copyOf(count), dates.copyOf(count), videos.copyOf(count)).sorted()
+    }
+  }
+
+  private fun sorted(): MediaIndex {
+    if ((1 until size).all { compare(this, it - 1, this, it) <= 0 }) {
+      return this
+    }
+
+    val order = (0 until size).sortedWith { a, b -> compare(this, a, this, b) }
+    return MediaIndex(
+      LongArray(size) { ids[order[it]] },
+      LongArray(size) { dates[order[it]] },
+      BooleanArray(size) { videos[order[it]] }
+    )
+  }
+
+  companion object {
+    @JvmField
+    val EMPTY = MediaIndex(LongArray(0), LongArray(0), BooleanArray(0))
+
+    private fun compare(a: MediaIndex, i: Int, b: MediaIndex, j: Int): Int {
+      return when {
+        a.dates[i] != b.dates[j] -> b.dates[j].compareTo(a.dates[i])
+        a.videos[i] != b.videos[j] -> a.videos[i].compareTo(b.videos[j])
+        else -> b.ids[j].compareTo(a.ids[i])
+      }
+    }
+  }
+}
@@ -25,11 +25,11 @@ import org.thoughtcrime.securesms.database.AttachmentTable;
 import org.thoughtcrime.securesms.dependencies.AppDependencies;
 import org.thoughtcrime.securesms.keyvalue.SignalStore;
 import org.thoughtcrime.securesms.mms.PartAuthority;
+import org.thoughtcrime.securesms.util.LRUCache;
 import org.thoughtcrime.securesms.util.MediaUtil;
 import org.signal.core.util.SqlUtil;
 import org.signal.core.util.Stopwatch;
 import org.thoughtcrime.securesms.util.StorageUtil;
-import org.thoughtcrime.securesms.util.Util;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -44,6 +44,7 @@ import java.util.stream.Collectors;
 
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.schedulers.Schedulers;
+import kotlin.Unit;
 
 /**
  * Handles the retrieval of media present on the user's device.
@@ -53,6 +54,19 @@ public class MediaRepository {
   private static final String TAG    = Log.tag(MediaRepository.class);
   private static final String CAMERA = "Camera";
 
+  private static final String[] FOLDER_PROJECTION = new String[] { Images.Media._ID, Images.Media.BUCKET_ID, Images.Media.BUCKET_DISPLAY_NAME, Images.Media.DATE_MODIFIED };
+  private static final String[] INDEX_PROJECTION  = new String[] { Images.Media._ID, Images.Media.DATE_MODIFIED };
+
+  private static final int INDEX_CACHE_SIZE = 4;
+
+  /**
+   * Folder summaries and bucket indexes are kept between gallery openings, and brought up to date from the MediaStore
+   * generation they were read at. See {@link MediaStoreGeneration}.
+   */
+  private static final Object                        CACHE_LOCK    = new Object();
+  private static final LRUCache<String, CachedIndex> cachedIndexes = new LRUCache<>(INDEX_CACHE_SIZE);
+  private static       CachedFolders                 cachedFolders;
+
   /**
    * Retrieves a list of folders that contain media.
    */
@@ -85,19 +99,6 @@ public class MediaRepository {
                  .subscribeOn(Schedulers.io());
   }
 
-  /**
-   * Retrieves a list of media items (images and videos) that are present int he specified bucket.
-   */
-  public void getMediaInBucket(@NonNull Context context, @NonNull String bucketId, @NonNull Callback<List<Media>> callback) {
-    if (!StorageUtil.canReadAnyFromMediaStore()) {
-      Log.w(TAG, "No storage permissions!", new Throwable());
-      callback.onComplete(Collections.emptyList());
-      return;
-    }
-
-    SignalExecutors.BOUNDED.execute(() -> callback.onComplete(getMediaInBucket(context, bucketId)));
-  }
-
   /**
    * Given an existing list of {@link Media}, this will ensure that the media is populate with as
    * much data as we have, like width/height.
@@ -138,13 +139,37 @@ public class MediaRepository {
 
   @WorkerThread
   private @NonNull List<MediaFolder> getFolders(@NonNull Context context) {
-    FolderResult imageFolders       = getFolders(context, Images.Media.EXTERNAL_CONTENT_URI);
-    FolderResult videoFolders       = getFolders(context, Video.Media.EXTERNAL_CONTENT_URI);
+    MediaStoreGeneration generation = MediaStoreGeneration.current(context);
+    CachedFolders        cached;
+
+    synchronized (CACHE_LOCK) {
+      cached = cachedFolders;
+    }
+
+    FolderResult imageFolders = null;
+    FolderResult videoFolders = null;
+
+    if (cached != null && generation != null && cached.generation.canUpdateTo(generation)) {
+      imageFolders = updateFolders(context, cached.imageFolders, cached.generation, generation, Images.Media.EXTERNAL_CONTENT_URI);
+      videoFolders = imageFolders != null ? updateFolders(context, cached.videoFolders, cached.generation, generation, Video.Media.EXTERNAL_CONTENT_URI) : null;
+    }
+
+    if (imageFolders == null || videoFolders == null) {
+      imageFolders = getFolders(context, Images.Media.EXTERNAL_CONTENT_URI);
+      videoFolders = getFolders(context, Video.Media.EXTERNAL_CONTENT_URI);
+    }
+
+    synchronized (CACHE_LOCK) {
+      cachedFolders = generation != null ? new CachedFolders(generation, imageFolders, videoFolders) : null;
+    }
+
     Map<String, FolderData> folders = new HashMap<>(imageFolders.getFolderData());
 
     for (Map.Entry<String, FolderData> entry : videoFolders.getFolderData().entrySet()) {
-      if (folders.containsKey(entry.getKey())) {
-        folders.get(entry.getKey()).incrementCount(entry.getValue().getCount());
+      FolderData folder = folders.get(entry.getKey());
+
+      if (folder != null) {
+        folders.put(entry.getKey(), folder.withAdditionalCount(entry.getValue().getCount()));
       } else {
         folders.put(entry.getKey(), entry.getValue());
       }
@@ -182,43 +207,49 @@ public class MediaRepository {
 
   @WorkerThread
   private @NonNull FolderResult getFolders(@NonNull Context context, @NonNull Uri contentUri) {
-    String                  cameraBucketId     = null;
-    Uri                     globalThumbnail    = null;
-    long                    thumbnailTimestamp = 0;
-    Map<String, FolderData> folders            = new HashMap<>();
-
-    String[] projection = new String[] { Images.Media._ID, Images.Media.BUCKET_ID, Images.Media.BUCKET_DISPLAY_NAME, Images.Media.DATE_MODIFIED };
-    String   selection  = isNotPending() + " AND " + Images.Media.MIME_TYPE + " NOT LIKE ?";
-    String[] args       = SqlUtil.buildArgs("%image/svg%");
-    String   sortBy     = Images.Media.BUCKET_DISPLAY_NAME + " COLLATE NOCASE ASC, " + Images.Media.DATE_MODIFIED + " DESC";
+    FolderResult folders = new FolderResult();
+    String       sortBy  = Images.Media.BUCKET_DISPLAY_NAME + " COLLATE NOCASE ASC, " + Images.Media.DATE_MODIFIED + " DESC";
 
-    try (Cursor cursor = context.getContentResolver().query(contentUri, projection, selection, args, sortBy)) {
+    try (Cursor cursor = context.getContentResolver().query(contentUri, FOLDER_PROJECTION, getMediaSelection(Media.ALL_MEDIA_BUCKET_ID), getMediaSelectionArgs(Media.ALL_MEDIA_BUCKET_ID), sortBy)) {
       while (cursor != null && cursor.moveToNext()) {
-        long       rowId     = cursor.getLong(cursor.getColumnIndexOrThrow(projection[0]));
-        Uri        thumbnail = ContentUris.withAppendedId(contentUri, rowId);
-        String     bucketId  = cursor.getString(cursor.getColumnIndexOrThrow(projection[1]));
-        String     title     = cursor.getString(cursor.getColumnIndexOrThrow(projection[2]));
-        long       timestamp = cursor.getLong(cursor.getColumnIndexOrThrow(projection[3]));
-        FolderData folder    = Util.getOrDefault(folders, bucketId, new FolderData(thumbnail, localizeTitle(context, title), bucketId));
-
-        folder.incrementCount();
-        folders.put(bucketId, folder);
-
-        if (cameraBucketId == null && CAMERA.equals(title)) {
-          cameraBucketId = bucketId;
-        }
-
-        if (timestamp > thumbnailTimestamp) {
-          globalThumbnail    = thumbnail;
-          thumbnailTimestamp = timestamp;
-        }
+        folders.add(context, contentUri, cursor);
       }
     }
 
-    return new FolderResult(cameraBucketId, globalThumbnail, thumbnailTimestamp, folders);
+    return folders;
   }
 
-  private @NonNull String localizeTitle(@NonNull Context context, @NonNull String title) {
+  /**
+   * @return The cached folders with any media added since the cached generation, or null if they have to be read again.
+   */
+  @WorkerThread
+  private @Nullable FolderResult updateFolders(@NonNull Context context,
+                                               @NonNull FolderResult cached,
+                                               @NonNull MediaStoreGeneration cachedGeneration,
+                                               @NonNull MediaStoreGeneration generation,
+                                               @NonNull Uri contentUri)
+  {
+    String       selection     = getMediaSelection(Media.ALL_MEDIA_BUCKET_ID);
+    String[]     selectionArgs = getMediaSelectionArgs(Media.ALL_MEDIA_BUCKET_ID);
+    FolderResult updated       = cached.copy();
+    int          added         = 0;
+
+    if (!cachedGeneration.isUnchangedIn(generation)) {
+      added = cachedGeneration.readAdded(context, contentUri, FOLDER_PROJECTION, selection, selectionArgs, cursor -> {
+        updated.add(context, contentUri, cursor);
+        return Unit.INSTANCE;
+      });
+    }
+
+    if (added < 0 || MediaStoreGeneration.count(context, contentUri, selection, selectionArgs) != cached.getTotalCount() + added) {
+      Log.i(TAG, "Unable to update folders incrementally, rescanning " + contentUri);
+      return null;
+    }
+
+    return updated;
+  }
+
+  private static @NonNull String localizeTitle(@NonNull Context context, @NonNull String title) {
     if (CAMERA.equals(title)) {
       return context.getString(R.string.MediaRepository__camera);
     } else {
@@ -247,43 +278,219 @@ public class MediaRepository {
 
   @WorkerThread
   private @NonNull List<Media> getMediaInBucket(@NonNull Context context, @NonNull String bucketId, @NonNull Uri contentUri, boolean isImage) {
-    List<Media> media         = new LinkedList<>();
-    String      selection     = Images.Media.BUCKET_ID + " = ? AND " + isNotPending() + " AND " + Images.Media.MIME_TYPE + " NOT LIKE ?";
-    String[]    selectionArgs = new String[] { bucketId, "%image/svg%" };
-    String      sortBy        = Images.Media.DATE_MODIFIED + " DESC";
+    List<Media> media  = new LinkedList<>();
+    String      sortBy = Images.Media.DATE_MODIFIED + " DESC";
 
-    String[] projection;
+    try (Cursor cursor = context.getContentResolver().query(contentUri, getMediaProjection(isImage), getMediaSelection(bucketId), getMediaSelectionArgs(bucketId), sortBy)) {
+      while (cursor != null && cursor.moveToNext()) {
+        media.add(readMedia(context, cursor, contentUri, bucketId, isImage));
+      }
+    }
 
-    if (isImage) {
-      projection = new String[]{Images.Media._ID, Images.Media.MIME_TYPE, Images.Media.DATE_MODIFIED, Images.Media.ORIENTATION, Images.Media.WIDTH, Images.Media.HEIGHT, Images.Media.SIZE};
-    } else {
-      projection = new String[]{Images.Media._ID, Images.Media.MIME_TYPE, Images.Media.DATE_MODIFIED, Images.Media.WIDTH, Images.Media.HEIGHT, Images.Media.SIZE, Video.Media.DURATION};
+    return media;
+  }
+
+  /**
+   * Retrieves the date ordered index of the media in the specified bucket, which can be used to load the media a page
+   * at a time with {@link #getMedia(Context, String, MediaIndex, int, int)}.
+   * <p>
+   * Indexes of recently opened buckets are cached, and brought up to date with only the media added since, as long as
+   * nothing else has changed.
+   */
+  @WorkerThread
+  public @NonNull MediaIndex getMediaIndex(@NonNull Context context, @NonNull String bucketId) {
+    if (!StorageUtil.canReadAnyFromMediaStore()) {
+      Log.w(TAG, "No storage permissions!", new Throwable());
+      return MediaIndex.EMPTY;
     }
 
-    if (Media.ALL_MEDIA_BUCKET_ID.equals(bucketId)) {
-      selection     = isNotPending() + " AND " + Images.Media.MIME_TYPE + " NOT LIKE ?";
-      selectionArgs = SqlUtil.buildArgs("%image/svg%");
+    Stopwatch            stopwatch  = new Stopwatch("getMediaIndex");
+    MediaStoreGeneration generation = MediaStoreGeneration.current(context);
+    CachedIndex          cached;
+
+    synchronized (CACHE_LOCK) {
+      cached = cachedIndexes.get(bucketId);
+    }
+
+    MediaIndex index = null;
+
+    if (cached != null && generation != null && cached.generation.canUpdateTo(generation)) {
+      index = updateMediaIndex(context, bucketId, cached.index, cached.generation, generation);
+      stopwatch.split("update");
+    }
+
+    if (index == null) {
+      index = getMediaIndex(context, bucketId, Images.Media.EXTERNAL_CONTENT_URI, false).plus(getMediaIndex(context, bucketId, Video.Media.EXTERNAL_CONTENT_URI, true));
+      stopwatch.split("scan");
+    }
+
+    synchronized (CACHE_LOCK) {
+      if (generation != null) {
+        cachedIndexes.put(bucketId, new CachedIndex(generation, index));
+      } else {
+        cachedIndexes.remove(bucketId);
+      }
     }
 
-    try (Cursor cursor = context.getContentResolver().query(contentUri, projection, selection, selectionArgs, sortBy)) {
+    stopwatch.stop(TAG);
+    return index;
+  }
+
+  @WorkerThread
+  private @NonNull MediaIndex getMediaIndex(@NonNull Context context, @NonNull String bucketId, @NonNull Uri contentUri, boolean isVideo) {
+    MediaIndex.Builder builder = new MediaIndex.Builder();
+    String             sortBy  = Images.Media.DATE_MODIFIED + " DESC, " + Images.Media._ID + " DESC";
+
+    try (Cursor cursor = context.getContentResolver().query(contentUri, INDEX_PROJECTION, getMediaSelection(bucketId), getMediaSelectionArgs(bucketId), sortBy)) {
       while (cursor != null && cursor.moveToNext()) {
-        long   rowId       = cursor.getLong(cursor.getColumnIndexOrThrow(projection[0]));
-        Uri    uri         = ContentUris.withAppendedId(contentUri, rowId);
-        String mimetype    = cursor.getString(cursor.getColumnIndexOrThrow(Images.Media.MIME_TYPE));
-        long   date        = cursor.getLong(cursor.getColumnIndexOrThrow(Images.Media.DATE_MODIFIED));
-        int    orientation = isImage ? cursor.getInt(cursor.getColumnIndexOrThrow(Images.Media.ORIENTATION)) : 0;
-        int    width       = cursor.getInt(cursor.getColumnIndexOrThrow(getWidthColumn(orientation)));
-        int    height      = cursor.getInt(cursor.getColumnIndexOrThrow(getHeightColumn(orientation)));
-        long   size        = cursor.getLong(cursor.getColumnIndexOrThrow(Images.Media.SIZE));
-        long   duration    = !isImage ? cursor.getInt(cursor.getColumnIndexOrThrow(Video.Media.DURATION)) : 0;
-
-        media.add(fixMimeType(context, new Media(uri, mimetype, date, width, height, size, duration, false, false, Optional.of(bucketId), Optional.empty(), Optional.of(AttachmentTable.TransformProperties.forSentMediaQuality(SignalStore.settings().getSentMediaQuality().getCode())), Optional.empty())));
+        builder.add(cursor.getLong(0), cursor.getLong(1), isVideo);
+      }
+    }
+
+    return builder.build();
+  }
+
+  /**
+   * @return The cached index with any media added since the cached generation, or null if it has to be read again.
+   */
+  @WorkerThread
+  private @Nullable MediaIndex updateMediaIndex(@NonNull Context context,
+                                                @NonNull String bucketId,
+                                                @NonNull MediaIndex cached,
+                                                @NonNull MediaStoreGeneration cachedGeneration,
+                                                @NonNull MediaStoreGeneration generation)
+  {
+    String             selection     = getMediaSelection(bucketId);
+    String[]           selectionArgs = getMediaSelectionArgs(bucketId);
+    MediaIndex.Builder added         = new MediaIndex.Builder();
+    int                addedImages   = 0;
+    int                addedVideos   = 0;
+
+    if (!cachedGeneration.isUnchangedIn(generation)) {
+      addedImages = cachedGeneration.readAdded(context, Images.Media.EXTERNAL_CONTENT_URI, INDEX_PROJECTION, selection, selectionArgs, cursor -> {
+        added.add(cursor.getLong(0), cursor.getLong(1), false);
+        return Unit.INSTANCE;
+      });
+
+      if (addedImages < 0) {
+        return null;
+      }
+
+      addedVideos = cachedGeneration.readAdded(context, Video.Media.EXTERNAL_CONTENT_URI, INDEX_PROJECTION, selection, selectionArgs, cursor -> {
+        added.add(cursor.getLong(0), cursor.getLong(1), true);
+        return Unit.INSTANCE;
+      });
+
+      if (addedVideos < 0) {
+        return null;
+      }
+    }
+
+    if (MediaStoreGeneration.count(context, Images.Media.EXTERNAL_CONTENT_URI, selection, selectionArgs) != cached.getImageCount() + addedImages ||
+        MediaStoreGeneration.count(context, Video.Media.EXTERNAL_CONTENT_URI, selection, selectionArgs) != cached.getVideoCount() + addedVideos)
+    {
+      Log.i(TAG, "Media was removed from the bucket, rescanning.");
+      return null;
+    }
+
+    return cached.plus(added.build());
+  }
+
+  /**
+   * Loads the media at the given positions of an index from {@link #getMediaIndex(Context, String)}, one item per
+   * position.
+   *
+   * @return The media, or null if any of it has since been removed. The index is out of date at that point, so the
+   *         cached copy is dropped and it will be read again by the next {@link #getMediaIndex(Context, String)}.
+   */
+  @WorkerThread
+  public @Nullable List<Media> getMedia(@NonNull Context context, @NonNull String bucketId, @NonNull MediaIndex index, int start, int length) {
+    int        end      = Math.min(index.getSize(), start + length);
+    List<Long> imageIds = new ArrayList<>();
+    List<Long> videoIds = new ArrayList<>();
+
+    for (int i = start; i < end; i++) {
+      if (index.isVideo(i)) {
+        videoIds.add(index.getId(i));
+      } else {
+        imageIds.add(index.getId(i));
+      }
+    }
+
+    Map<Long, Media> images = getMediaById(context, bucketId, Images.Media.EXTERNAL_CONTENT_URI, true, imageIds);
+    Map<Long, Media> videos = getMediaById(context, bucketId, Video.Media.EXTERNAL_CONTENT_URI, false, videoIds);
+    List<Media>      media  = new ArrayList<>(Math.max(0, end - start));
+
+    for (int i = start; i < end; i++) {
+      Media item = index.isVideo(i) ? videos.get(index.getId(i)) : images.get(index.getId(i));
+
+      if (item == null) {
+        Log.i(TAG, "Media was removed from the bucket since it was indexed.");
+        synchronized (CACHE_LOCK) {
+          cachedIndexes.remove(bucketId);
+        }
+        return null;
+      }
+
+      media.add(item);
+    }
+
+    return media;
+  }
+
+  @WorkerThread
+  private @NonNull Map<Long, Media> getMediaById(@NonNull Context context, @NonNull String bucketId, @NonNull Uri contentUri, boolean isImage, @NonNull List<Long> ids) {
+    Map<Long, Media> media = new HashMap<>(ids.size());
+
+    for (SqlUtil.Query query : SqlUtil.buildCollectionQuery(Images.Media._ID, ids)) {
+      try (Cursor cursor = context.getContentResolver().query(contentUri, getMediaProjection(isImage), query.getWhere(), query.getWhereArgs(), null)) {
+        while (cursor != null && cursor.moveToNext()) {
+          media.put(cursor.getLong(cursor.getColumnIndexOrThrow(Images.Media._ID)), readMedia(context, cursor, contentUri, bucketId, isImage));
+        }
       }
     }
 
     return media;
   }
 
+  private @NonNull String[] getMediaProjection(boolean isImage) {
+    if (isImage) {
+      return new String[]{Images.Media._ID, Images.Media.MIME_TYPE, Images.Media.DATE_MODIFIED, Images.Media.ORIENTATION, Images.Media.WIDTH, Images.Media.HEIGHT, Images.Media.SIZE};
+    } else {
+      return new String[]{Images.Media._ID, Images.Media.MIME_TYPE, Images.Media.DATE_MODIFIED, Images.Media.WIDTH, Images.Media.HEIGHT, Images.Media.SIZE, Video.Media.DURATION};
+    }
+  }
+
+  private @NonNull String getMediaSelection(@NonNull String bucketId) {
+    if (Media.ALL_MEDIA_BUCKET_ID.equals(bucketId)) {
+      return isNotPending() + " AND " + Images.Media.MIME_TYPE + " NOT LIKE ?";
+    } else {
+      return Images.Media.BUCKET_ID + " = ? AND " + isNotPending() + " AND " + Images.Media.MIME_TYPE + " NOT LIKE ?";
+    }
+  }
+
+  private @NonNull String[] getMediaSelectionArgs(@NonNull String bucketId) {
+    if (Media.ALL_MEDIA_BUCKET_ID.equals(bucketId)) {
+      return SqlUtil.buildArgs("%image/svg%");
+    } else {
+      return new String[] { bucketId, "%image/svg%" };
+    }
+  }
+
+  private @NonNull Media readMedia(@NonNull Context context, @NonNull Cursor cursor, @NonNull Uri contentUri, @NonNull String bucketId, boolean isImage) {
+    long   rowId       = cursor.getLong(cursor.getColumnIndexOrThrow(Images.Media._ID));
+    Uri    uri         = ContentUris.withAppendedId(contentUri, rowId);
+    String mimetype    = cursor.getString(cursor.getColumnIndexOrThrow(Images.Media.MIME_TYPE));
+    long   date        = cursor.getLong(cursor.getColumnIndexOrThrow(Images.Media.DATE_MODIFIED));
+    int    orientation = isImage ? cursor.getInt(cursor.getColumnIndexOrThrow(Images.Media.ORIENTATION)) : 0;
+    int    width       = cursor.getInt(cursor.getColumnIndexOrThrow(getWidthColumn(orientation)));
+    int    height      = cursor.getInt(cursor.getColumnIndexOrThrow(getHeightColumn(orientation)));
+    long   size        = cursor.getLong(cursor.getColumnIndexOrThrow(Images.Media.SIZE));
+    long   duration    = !isImage ? cursor.getInt(cursor.getColumnIndexOrThrow(Video.Media.DURATION)) : 0;
+
+    return fixMimeType(context, new Media(uri, mimetype, date, width, height, size, duration, false, false, Optional.of(bucketId), Optional.empty(), Optional.of(AttachmentTable.TransformProperties.forSentMediaQuality(SignalStore.settings().getSentMediaQuality().getCode())), Optional.empty()));
+  }
+
   private @NonNull String isNotPending() {
     return Build.VERSION.SDK_INT <= 28 ? Images.Media.DATA + " NOT NULL" : MediaStore.MediaColumns.IS_PENDING + " != 1";
   }
@@ -328,8 +535,16 @@ public class MediaRepository {
 
   @WorkerThread
   private Optional<Media> getMostRecentItem(@NonNull Context context) {
-    List<Media> media = getMediaInBucket(context, Media.ALL_MEDIA_BUCKET_ID, Images.Media.EXTERNAL_CONTENT_URI, true);
-    return media.size() > 0 ? Optional.of(media.get(0)) : Optional.empty();
+    MediaIndex index = getMediaIndex(context, Media.ALL_MEDIA_BUCKET_ID);
+
+    for (int i = 0; i < index.getSize(); i++) {
+      if (!index.isVideo(i)) {
+        List<Media> media = getMedia(context, Media.ALL_MEDIA_BUCKET_ID, index, i, 1);
+        return media == null || media.isEmpty() ? Optional.empty() : Optional.of(media.get(0));
+      }
+    }
+
+    return Optional.empty();
   }
 
   @SuppressWarnings("SuspiciousNameCombination")
@@ -416,21 +631,83 @@ public class MediaRepository {
     return media;
   }
 
+  private static class CachedFolders {
+    private final MediaStoreGeneration generation;
+    private final FolderResult         imageFolders;
+    private final FolderResult         videoFolders;
+
+    private CachedFolders(@NonNull MediaStoreGeneration generation, @NonNull FolderResult imageFolders, @NonNull FolderResult videoFolders) {
+      this.generation   = generation;
+      this.imageFolders = imageFolders;
+      this.videoFolders = videoFolders;
+    }
+  }
+
+  private static class CachedIndex {
+    private final MediaStoreGeneration generation;
+    private final MediaIndex           index;
+
+    private CachedIndex(@NonNull MediaStoreGeneration generation, @NonNull MediaIndex index) {
+      this.generation = generation;
+      this.index      = index;
+    }
+  }
+
+  /**
+   * The folders of one content uri. Only modified while it is being built, it is shared once cached.
+   */
   private static class FolderResult {
-    private final String                  cameraBucketId;
-    private final Uri                     thumbnail;
-    private final long                    thumbnailTimestamp;
     private final Map<String, FolderData> folderData;
 
-    private FolderResult(@Nullable String cameraBucketId,
-                         @Nullable Uri thumbnail,
-                         long thumbnailTimestamp,
-                         @NonNull Map<String, FolderData> folderData)
-    {
-      this.cameraBucketId     = cameraBucketId;
-      this.thumbnail          = thumbnail;
-      this.thumbnailTimestamp = thumbnailTimestamp;
-      this.folderData         = folderData;
+    private String cameraBucketId;
+    private Uri    thumbnail;
+    private long   thumbnailTimestamp;
+    private int    totalCount;
+
+    private FolderResult() {
+      this.folderData = new HashMap<>();
+    }
+
+    private FolderResult(@NonNull FolderResult other) {
+      this.folderData         = new HashMap<>(other.folderData);
+      this.cameraBucketId     = other.cameraBucketId;
+      this.thumbnail          = other.thumbnail;
+      this.thumbnailTimestamp = other.thumbnailTimestamp;
+      this.totalCount         = other.totalCount;
+    }
+
+    @NonNull FolderResult copy() {
+      return new FolderResult(this);
+    }
+
+    /**
+     * Adds a row read with {@link #FOLDER_PROJECTION}.
+     */
+    void add(@NonNull Context context, @NonNull Uri contentUri, @NonNull Cursor cursor) {
+      long       rowId     = cursor.getLong(cursor.getColumnIndexOrThrow(FOLDER_PROJECTION[0]));
+      Uri        uri       = ContentUris.withAppendedId(contentUri, rowId);
+      String     bucketId  = cursor.getString(cursor.getColumnIndexOrThrow(FOLDER_PROJECTION[1]));
+      String     title     = cursor.getString(cursor.getColumnIndexOrThrow(FOLDER_PROJECTION[2]));
+      long       timestamp = cursor.getLong(cursor.getColumnIndexOrThrow(FOLDER_PROJECTION[3]));
+      FolderData folder    = folderData.get(bucketId);
+
+      if (folder == null) {
+        folder = new FolderData(uri, timestamp, localizeTitle(context, title), bucketId, 0);
+      } else if (timestamp > folder.getThumbnailTimestamp()) {
+        folder = folder.withThumbnail(uri, timestamp);
+      }
+
+      folderData.put(bucketId, folder.withAdditionalCount(1));
+      totalCount++;
+
+      if (cameraBucketId == null && CAMERA.equals(title)) {
+        cameraBucketId = bucketId;
+      }
+
+      if (timestamp > thumbnailTimestamp) {
+        thumbnail          = uri;
+        thumbnailTimestamp = timestamp;
+      }
     }
 
     @Nullable String getCameraBucketId() {
@@ -445,28 +722,41 @@ public class MediaRepository {
       return thumbnailTimestamp;
     }
 
+    int getTotalCount() {
+      return totalCount;
+    }
+
     @NonNull Map<String, FolderData> getFolderData() {
       return folderData;
     }
   }
 
+  /**
+   * Immutable, so that cached folders can be shared.
+   */
   private static class FolderData {
     private final Uri    thumbnail;
+    private final long   thumbnailTimestamp;
     private final String title;
     private final String bucketId;
+    private final int    count;
 
-    private int count;
-
-    private FolderData(Uri thumbnail, String title, String bucketId) {
-      this.thumbnail = thumbnail;
-      this.title     = title;
-      this.bucketId  = bucketId;
+    private FolderData(Uri thumbnail, long thumbnailTimestamp, String title, String bucketId, int count) {
+      this.thumbnail          = thumbnail;
+      this.thumbnailTimestamp = thumbnailTimestamp;
+      this.title              = title;
+      this.bucketId           = bucketId;
+      this.count              = count;
     }
 
     Uri getThumbnail() {
       return thumbnail;
     }
 
+    long getThumbnailTimestamp() {
+      return thumbnailTimestamp;
+    }
+
     String getTitle() {
       return title;
     }
@@ -479,12 +769,12 @@ public class MediaRepository {
       return count;
     }
 
-    void incrementCount() {
-      incrementCount(1);
+    @NonNull FolderData withThumbnail(Uri thumbnail, long thumbnailTimestamp) {
+      return new FolderData(thumbnail, thumbnailTimestamp, title, bucketId, count);
     }
 
-    void incrementCount(int amount) {
-      count += amount;
+    @NonNull FolderData withAdditionalCount(int amount) {
+      return new FolderData(thumbnail, thumbnailTimestamp, title, bucketId, count + amount);
     }
   }
 
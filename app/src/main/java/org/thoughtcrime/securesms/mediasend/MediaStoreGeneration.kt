@@ -0,0 +1,124 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.mediasend
+
+import android.annotation.SuppressLint
+import android.content.Context
+import android.database.Cursor
+import android.net.Uri
+import android.os.Build
+import android.provider.MediaStore
+import androidx.annotation.WorkerThread
+import org.signal.core.util.logging.Log
+import org.thoughtcrime.securesms.util.StorageUtil
+
+/**
+ * A point in MediaStore's history, so that cached gallery data can be brought up to date by reading only the rows
+ * added since, rather than rescanning every image and video.
+ *
+ * Generations only tell us about rows that were added or modified, so the caller still has to check that the number
+ * of rows matches to rule out deletions. If any row that existed before was modified, the cache has to be rebuilt.
+ */
+class MediaStoreGeneration private constructor(
+  private val version: String,
+  private val generations: Map<String, Long>
+) {
+
+  /**
+   * Whether the changes between this and [newer] can be read with [readAdded].
+   */
+  fun canUpdateTo(newer: MediaStoreGeneration): Boolean {
+    return version == newer.version && generations.keys == newer.generations.keys && generations.all { (volume, generation) -> newer.generations.getValue(volume) >= generation }
+  }
+
+  fun isUnchangedIn(newer: MediaStoreGeneration): Boolean {
+    return version == newer.version && generations == newer.generations
+  }
+
+  /**
+   * Calls [onRow] for each row of [contentUri] that matches the selection and was added since this generation.
+   *
+   * @return The number of rows read, or -1 if a row that existed before was modified. No rows are read in that case.
+   */
+  @SuppressLint("InlinedApi") // Only ever created on API 30+
+  @WorkerThread
+  fun readAdded(context: Context, contentUri: Uri, projection: Array<String>, selection: String, selectionArgs: Array<String>, onRow: (Cursor) -> Unit): Int {
+    val modified = buildGenerationSelection(MediaStore.MediaColumns.GENERATION_MODIFIED, ">", MediaStore.MediaColumns.GENERATION_ADDED, "<=")
+
+    context.contentResolver.query(contentUri, arrayOf(MediaStore.MediaColumns._ID), modified.first, modified.second, null).use { cursor ->
+      if (cursor == null || cursor.count > 0) {
+        Log.i(TAG, "Existing rows were modified in $contentUri")
+        return -1
+      }
+    }
+
+    val added = buildGenerationSelection(MediaStore.MediaColumns.GENERATION_ADDED, ">", null, null)
+    var count = 0
+
+    context.contentResolver.query(contentUri, projection, "($selection) AND (${added.first})", selectionArgs + added.second, null).use { cursor ->
+      while (cursor != null && cursor.moveToNext()) {
+        onRow(cursor)
+        count++
+      }
+    }
+
+    return count
+  }
+
+  @SuppressLint("InlinedApi")
+  private fun buildGenerationSelection(column: String, operator: String, otherColumn: String?, otherOperator: String?): Pair<String, Array<String>> {
+    val clauses = ArrayList<String>(generations.size)
+    val args = ArrayList<String>(generations.size * 3)
+
+    for ((volume, generation) in generations) {
+      if (otherColumn != null) {
+        clauses += "(${MediaStore.MediaColumns.VOLUME_NAME} = ? AND $column $operator ? AND $otherColumn $otherOperator ?)"
+        args += listOf(volume, generation.toString(), generation.toString())
+      } else {
+        clauses += "(${MediaStore.MediaColumns.VOLUME_NAME} = ? AND $column $operator ?)"
+        args += listOf(volume, generation.toString())
+      }
+    }
+
+    return clauses.joinToString(" OR ").ifEmpty { "0" } to args.toTypedArray()
+  }
+
+  companion object {
+    private val TAG = Log.tag(MediaStoreGeneration::class.java)
+
+    /**
+     * The current generation, or null if changes can't be tracked, either because the device is too old to report them
+     * or because we can only see some of the user's media.
+     */
+    @JvmStatic
+    @WorkerThread
+    fun current(context: Context): MediaStoreGeneration? {
+      if (Build.VERSION.SDK_INT < 30 || !StorageUtil.canReadAllFromMediaStore() || StorageUtil.canOnlyReadSelectedMediaStore()) {
+        return null
+      }
+
+      return try {
+        val volumes = MediaStore.getExternalVolumeNames(context)
+        MediaStoreGeneration(
+          version = MediaStore.getVersion(context),
+          generations = volumes.associateWith { MediaStore.getGeneration(context, it) }
+        )
+      } catch (e: Exception) {
+        Log.w(TAG, "Unable to read MediaStore generation", e)
+        null
+      }
+    }
+
+    /**
+     * The number of rows of [contentUri] that match the selection.
+     */
+    @JvmStatic
+    @WorkerThread
+    fun count(context: Context, contentUri: Uri, selection: String, selectionArgs: Array<String>): Int {
+      return context.contentResolver.query(contentUri, arrayOf(MediaStore.MediaColumns._ID), selection, selectionArgs, null).use { it?.count ?: 0 }
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package org.thoughtcrime.securesms.mediasend.v2.gallery
 
 import android.Manifest
+import android.net.Uri
 import android.os.Bundle
 import android.view.View
 import android.view.ViewGroup
@@ -30,6 +31,7 @@ import org.thoughtcrime.securesms.util.StorageUtil
 import org.thoughtcrime.securesms.util.SystemWindowInsetsSetter
 import org.thoughtcrime.securesms.util.ViewUtil
 import org.thoughtcrime.securesms.util.adapter.mapping.MappingAdapter
+import org.thoughtcrime.securesms.util.adapter.mapping.PagingMappingAdapter
 import org.thoughtcrime.securesms.util.fragments.requireListener
 import org.thoughtcrime.securesms.util.livedata.LiveDataUtil
 import org.thoughtcrime.securesms.util.visible
@@ -49,7 +51,7 @@ class MediaGalleryFragment : Fragment(R.layout.v2_media_gallery_fragment) {
   private var selectedMediaTouchHelper: ItemTouchHelper? = null
   private var shouldEnableScrolling: Boolean = true
 
-  private val galleryAdapter = MappingAdapter()
+  private val galleryAdapter = PagingMappingAdapter<Uri>()
   private val selectedAdapter = MappingAdapter()
 
   private val viewStateLiveData = MutableLiveData(ViewState())
@@ -146,6 +148,7 @@ class MediaGalleryFragment : Fragment(R.layout.v2_media_gallery_fragment) {
       callbacks.isMultiselectEnabled()
     )
 
+    galleryAdapter.setPagingController(viewModel.pagingController)
     binding.mediaGalleryGrid.adapter = galleryAdapter
     binding.mediaGalleryGrid.addItemDecoration(GridDividerDecoration(4, ViewUtil.dpToPx(2)))
 
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.mediasend.v2.gallery
+
+import android.content.Context
+import android.net.Uri
+import org.signal.core.util.Stopwatch
+import org.signal.core.util.logging.Log
+import org.signal.paging.PagedDataSource
+import org.thoughtcrime.securesms.mediasend.Media
+import org.thoughtcrime.securesms.mediasend.MediaIndex
+import org.thoughtcrime.securesms.mediasend.MediaRepository
+
+/**
+ * Pages the media of a bucket, newest first. Only the bucket's [MediaIndex] is read up front, the media itself is
+ * queried a page at a time as it scrolls into view.
+ *
+ * If media is removed after the index was read, the page can't be filled in place, so [onIndexOutOfDate] is called to
+ * invalidate the data and count it again.
+ */
+class MediaGalleryPagedDataSource(
+  context: Context,
+  private val bucketId: String,
+  private val mediaRepository: MediaRepository,
+  private val onIndexOutOfDate: () -> Unit
+) : PagedDataSource<Uri, Media> {
+
+  companion object {
+    private val TAG = Log.tag(MediaGalleryPagedDataSource::class.java)
+  }
+
+  private val context: Context = context.applicationContext
+
+  @Volatile
+  private var index: MediaIndex = MediaIndex.EMPTY
+
+  override fun size(): Int {
+    index = mediaRepository.getMediaIndex(context, bucketId)
+    return index.size
+  }
+
+  override fun load(start: Int, length: Int, totalSize: Int, cancellationSignal: PagedDataSource.CancellationSignal): List<Media> {
+    val stopwatch = Stopwatch("load($start, $length)")
+    val media = mediaRepository.getMedia(context, bucketId, index, start, length)
+    stopwatch.stop(TAG)
+
+    if (media == null) {
+      Log.i(TAG, "Media was removed, invalidating.")
+      onIndexOutOfDate()
+      return emptyList()
+    }
+
+    return media
+  }
+
+  override fun load(key: Uri?): Media? {
+    throw UnsupportedOperationException()
+  }
+
+  override fun getKey(data: Media): Uri = data.uri
+}
@@ -1,6 +1,10 @@
 package org.thoughtcrime.securesms.mediasend.v2.gallery
 
 import android.content.Context
+import android.net.Uri
+import org.signal.paging.ObservablePagedData
+import org.signal.paging.PagedData
+import org.signal.paging.PagingConfig
 import org.thoughtcrime.securesms.mediasend.Media
 import org.thoughtcrime.securesms.mediasend.MediaFolder
 import org.thoughtcrime.securesms.mediasend.MediaRepository
@@ -12,7 +16,20 @@ class MediaGalleryRepository(context: Context, private val mediaRepository: Medi
     mediaRepository.getFolders(context) { onFoldersRetrieved(it) }
   }
 
-  fun getMedia(bucketId: String, onMediaRetrieved: (List<Media>) -> Unit) {
-    mediaRepository.getMediaInBucket(context, bucketId) { onMediaRetrieved(it) }
+  fun getMedia(bucketId: String): ObservablePagedData<Uri, Media> {
+    val config = PagingConfig.Builder()
+      .setPageSize(PAGE_SIZE)
+      .setBufferPages(2)
+      .build()
+
+    lateinit var pagedData: ObservablePagedData<Uri, Media>
+    pagedData = PagedData.createForObservable(MediaGalleryPagedDataSource(context, bucketId, mediaRepository) { pagedData.controller.onDataInvalidated() }, config)
+
+    return pagedData
+  }
+
+  companion object {
+    /** A few screens of the 4 column grid. */
+    private const val PAGE_SIZE = 96
   }
 }
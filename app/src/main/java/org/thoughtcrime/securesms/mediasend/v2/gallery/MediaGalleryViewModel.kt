@@ -1,8 +1,12 @@
 package org.thoughtcrime.securesms.mediasend.v2.gallery
 
+import android.net.Uri
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
+import io.reactivex.rxjava3.disposables.Disposable
+import org.signal.paging.PagingController
+import org.signal.paging.ProxyPagingController
 import org.thoughtcrime.securesms.mediasend.MediaFolder
 import org.thoughtcrime.securesms.util.livedata.Store
 
@@ -12,6 +16,11 @@ class MediaGalleryViewModel(bucketId: String?, bucketTitle: String?, private val
 
   val state: LiveData<MediaGalleryState> = store.stateLiveData
 
+  private val mediaPagingController = ProxyPagingController<Uri>()
+  private var mediaDisposable: Disposable = Disposable.disposed()
+
+  val pagingController: PagingController<Uri> = mediaPagingController
+
   init {
     loadItemsForBucket(bucketId, bucketTitle)
   }
@@ -33,7 +42,14 @@ class MediaGalleryViewModel(bucketId: String?, bucketTitle: String?, private val
     loadItemsForBucket(null, null)
   }
 
+  override fun onCleared() {
+    mediaDisposable.dispose()
+  }
+
   private fun loadItemsForBucket(bucketId: String?, bucketTitle: String?) {
+    mediaDisposable.dispose()
+    mediaPagingController.set(null)
+
     if (bucketId == null) {
       repository.getFolders { folders ->
         store.update { state ->
@@ -47,13 +63,16 @@ class MediaGalleryViewModel(bucketId: String?, bucketTitle: String?, private val
         }
       }
     } else {
-      repository.getMedia(bucketId) { media ->
+      val pagedData = repository.getMedia(bucketId)
+
+      mediaPagingController.set(pagedData.controller)
+      mediaDisposable = pagedData.data.subscribe { media ->
         store.update { state ->
           state.copy(
             bucketId = bucketId,
             bucketTitle = bucketTitle,
             items = media.map {
-              MediaGallerySelectableItem.FileModel(it, false, 0)
+              if (it != null) MediaGallerySelectableItem.FileModel(it, false, 0) else MediaGallerySelectableItem.PlaceholderModel()
             }
           )
         }
@@ -8,7 +8,10 @@ import android.graphics.drawable.Drawable;
 import androidx.annotation.NonNull;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
 import com.bumptech.glide.Registry;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
 import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.load.model.UnitModelLoader;
 import com.bumptech.glide.load.resource.bitmap.BitmapDrawableEncoder;
@@ -40,6 +43,9 @@ import org.thoughtcrime.securesms.glide.cache.EncryptedBitmapResourceEncoder;
 import org.thoughtcrime.securesms.glide.cache.EncryptedCacheDecoder;
 import org.thoughtcrime.securesms.glide.cache.EncryptedCacheEncoder;
 import org.thoughtcrime.securesms.glide.cache.EncryptedGifDrawableResourceEncoder;
+import org.thoughtcrime.securesms.glide.cache.InstrumentedDiskCache;
+import org.thoughtcrime.securesms.glide.cache.InstrumentedMemoryCache;
+import org.thoughtcrime.securesms.glide.cache.TimedSourceDecoder;
 import org.thoughtcrime.securesms.glide.cache.WebpSanDecoder;
 import org.thoughtcrime.securesms.mms.AttachmentStreamUriLoader.AttachmentModel;
 import org.thoughtcrime.securesms.mms.DecryptableStreamUriLoader.DecryptableUri;
@@ -47,6 +53,7 @@ import org.thoughtcrime.securesms.stickers.StickerRemoteUri;
 import org.thoughtcrime.securesms.stickers.StickerRemoteUriLoader;
 import org.thoughtcrime.securesms.stories.StoryTextPostModel;
 import org.thoughtcrime.securesms.util.ConversationShortcutPhoto;
+import org.thoughtcrime.securesms.util.DeviceProperties;
 
 import java.io.File;
 import java.io.InputStream;
@@ -58,6 +65,27 @@ import java.nio.ByteBuffer;
  */
 public class SignalGlideComponents implements RegisterGlideComponents {
 
+  /**
+   * Glide keeps two screens' worth of decoded images in memory by default, which doesn't go far when scrolling back through a
+   * conversation full of media. Glide still caps the total at a fraction of the app's memory class.
+   */
+  private static final float MEMORY_CACHE_SCREENS = 4;
+
+  @Override
+  public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+    MemorySizeCalculator.Builder calculatorBuilder = new MemorySizeCalculator.Builder(context);
+
+    if (!DeviceProperties.isLowMemoryDevice(context)) {
+      calculatorBuilder.setMemoryCacheScreens(MEMORY_CACHE_SCREENS);
+    }
+
+    MemorySizeCalculator calculator = calculatorBuilder.build();
+
+    builder.setMemorySizeCalculator(calculator);
+    builder.setMemoryCache(new InstrumentedMemoryCache(calculator.getMemoryCacheSize()));
+    builder.setDiskCache(new InstrumentedDiskCache.Factory(new InternalCacheDiskCacheFactory(context)));
+  }
+
   @Override
   public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
     AttachmentSecret attachmentSecret = AttachmentSecretProvider.getInstance(context).getOrCreateAttachmentSecret();
@@ -65,11 +93,14 @@ public class SignalGlideComponents implements RegisterGlideComponents {
 
     registry.prepend(File.class, File.class, UnitModelLoader.Factory.getInstance());
 
+    Downsampler downsampler = new Downsampler(registry.getImageHeaderParsers(), context.getResources().getDisplayMetrics(), glide.getBitmapPool(), glide.getArrayPool());
+
+    registry.prepend(InputStream.class, Bitmap.class, new TimedSourceDecoder<>(new StreamBitmapDecoder(downsampler, glide.getArrayPool())));
     registry.prepend(InputStream.class, Bitmap.class, new WebpSanDecoder());
 
     registry.prepend(InputStream.class, new EncryptedCacheEncoder(secret, glide.getArrayPool()));
 
-    registry.prepend(File.class, Bitmap.class, new EncryptedCacheDecoder<>(secret, new StreamBitmapDecoder(new Downsampler(registry.getImageHeaderParsers(), context.getResources().getDisplayMetrics(), glide.getBitmapPool(), glide.getArrayPool()), glide.getArrayPool())));
+    registry.prepend(File.class, Bitmap.class, new EncryptedCacheDecoder<>(secret, new StreamBitmapDecoder(downsampler, glide.getArrayPool())));
 
     StreamGifDecoder streamGifDecoder = new StreamGifDecoder(registry.getImageHeaderParsers(), new ByteBufferGifDecoder(context, registry.getImageHeaderParsers(), glide.getBitmapPool(), glide.getArrayPool()), glide.getArrayPool());
     registry.prepend(InputStream.class, GifDrawable.class, streamGifDecoder);
@@ -209,6 +209,15 @@ public final class LiveRecipient {
     this.subject.onNext(recipient);
   }
 
+  /**
+   * Publishes a recipient that was resolved elsewhere, unless this one has been resolved in the meantime.
+   */
+  synchronized void setIfResolving(@NonNull Recipient recipient) {
+    if (this.recipient.get().isResolving()) {
+      set(recipient);
+    }
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
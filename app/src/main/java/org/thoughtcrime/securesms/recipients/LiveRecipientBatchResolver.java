@@ -0,0 +1,172 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.recipients;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import org.signal.core.util.ThreadUtil;
+import org.signal.core.util.logging.Log;
+import org.thoughtcrime.securesms.database.RecipientTable.MissingRecipientException;
+import org.thoughtcrime.securesms.database.SignalDatabase;
+import org.thoughtcrime.securesms.database.model.RecipientRecord;
+import org.thoughtcrime.securesms.util.SignalLocalMetrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Resolves the {@link LiveRecipient}s created for cache misses in batches, so that binding a screen full of recipients
+ * we haven't loaded yet costs a couple of queries rather than one or two per recipient.
+ * <p>
+ * Misses on the main thread come in bursts as lists bind, so they're collected for a frame before being resolved.
+ * Misses on other threads are resolved as soon as the executor gets to them, along with whatever else is pending.
+ */
+final class LiveRecipientBatchResolver {
+
+  private static final String TAG = Log.tag(LiveRecipientBatchResolver.class);
+
+  private static final long BATCH_WINDOW_MS = 16;
+  private static final int  MAX_BATCH_SIZE  = 250;
+
+  private final Executor       executor;
+  private final Loader         loader;
+  private final Queue<Pending> pending;
+
+  private boolean windowScheduled;
+
+  LiveRecipientBatchResolver(@NonNull Context context, @NonNull Executor executor) {
+    this(executor, ids -> load(context.getApplicationContext(), ids));
+  }
+
+  @VisibleForTesting
+  LiveRecipientBatchResolver(@NonNull Executor executor, @NonNull Loader loader) {
+    this.executor = executor;
+    this.loader   = loader;
+    this.pending  = new ArrayDeque<>();
+  }
+
+  @AnyThread
+  void enqueue(@NonNull LiveRecipient live) {
+    boolean onMain = ThreadUtil.isMainThread();
+    boolean scheduleWindow;
+
+    synchronized (pending) {
+      pending.add(new Pending(live, SystemClock.elapsedRealtime()));
+
+      scheduleWindow  = onMain && !windowScheduled;
+      windowScheduled = windowScheduled || onMain;
+    }
+
+    if (!onMain) {
+      executor.execute(this::drain);
+    } else if (scheduleWindow) {
+      ThreadUtil.runOnMainDelayed(() -> {
+        synchronized (pending) {
+          windowScheduled = false;
+        }
+        executor.execute(this::drain);
+      }, BATCH_WINDOW_MS);
+    }
+  }
+
+  private void drain() {
+    while (true) {
+      List<Pending> batch = new ArrayList<>();
+
+      synchronized (pending) {
+        while (!pending.isEmpty() && batch.size() < MAX_BATCH_SIZE) {
+          batch.add(pending.remove());
+        }
+      }
+
+      if (batch.isEmpty()) {
+        return;
+      }
+
+      resolve(batch);
+    }
+  }
+
+  private void resolve(@NonNull List<Pending> batch) {
+    long                startTime = SystemClock.elapsedRealtime();
+    List<LiveRecipient> unresolved = new ArrayList<>(batch.size());
+    List<RecipientId>   ids        = new ArrayList<>(batch.size());
+
+    for (Pending item : batch) {
+      if (item.live.get().isResolving()) {
+        unresolved.add(item.live);
+        ids.add(item.live.getId());
+      }
+    }
+
+    if (unresolved.isEmpty()) {
+      return;
+    }
+
+    Map<RecipientId, Recipient> resolved;
+    try {
+      resolved = loader.load(ids);
+    } catch (MissingRecipientException e) {
+      Log.w(TAG, "A recipient in a batch of " + ids.size() + " is missing. Resolving them individually.");
+      resolved = Collections.emptyMap();
+    }
+
+    for (LiveRecipient live : unresolved) {
+      Recipient recipient = resolved.get(live.getId());
+
+      if (recipient != null) {
+        live.setIfResolving(recipient);
+      } else {
+        live.resolve();
+      }
+    }
+
+    SignalLocalMetrics.RecipientBatchResolve.onBatchResolved(unresolved.size(), startTime - batch.get(0).enqueuedAt, SystemClock.elapsedRealtime() - startTime);
+  }
+
+  @WorkerThread
+  private static @NonNull Map<RecipientId, Recipient> load(@NonNull Context context, @NonNull Collection<RecipientId> ids) {
+    Map<RecipientId, RecipientRecord> records    = SignalDatabase.recipients().getRecords(ids);
+    Map<RecipientId, Recipient>       recipients = RecipientCreator.forRecords(context, records.values());
+
+    for (Recipient recipient : recipients.values()) {
+      RecipientIdCache.INSTANCE.put(recipient);
+    }
+
+    return recipients;
+  }
+
+  @VisibleForTesting
+  interface Loader {
+    /**
+     * @return The resolved recipients, keyed by id. Ids that are missing from the result are resolved individually.
+     */
+    @WorkerThread
+    @NonNull Map<RecipientId, Recipient> load(@NonNull Collection<RecipientId> ids) throws MissingRecipientException;
+  }
+
+  private static final class Pending {
+    private final LiveRecipient live;
+    private final long          enqueuedAt;
+
+    private Pending(@NonNull LiveRecipient live, long enqueuedAt) {
+      this.live       = live;
+      this.enqueuedAt = enqueuedAt;
+    }
+  }
+}
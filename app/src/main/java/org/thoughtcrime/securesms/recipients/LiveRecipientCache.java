@@ -18,7 +18,9 @@ import org.thoughtcrime.securesms.database.ThreadTable;
 import org.thoughtcrime.securesms.database.model.ThreadRecord;
 import org.thoughtcrime.securesms.keyvalue.SignalStore;
 import org.signal.core.util.CursorUtil;
-import org.thoughtcrime.securesms.util.LRUCache;
+import org.thoughtcrime.securesms.util.DeviceProperties;
+import org.thoughtcrime.securesms.util.SegmentedLruCache;
+import org.thoughtcrime.securesms.util.Util;
 import org.signal.core.util.Stopwatch;
 import org.thoughtcrime.securesms.util.concurrent.FilteredExecutor;
 import org.whispersystems.signalservice.api.push.ServiceId.ACI;
@@ -26,7 +28,6 @@ import org.whispersystems.signalservice.api.push.ServiceId.ACI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -35,15 +36,19 @@ public final class LiveRecipientCache {
 
   private static final String TAG = Log.tag(LiveRecipientCache.class);
 
-  private static final int CACHE_MAX              = 1000;
+  private static final int CACHE_MIN              = 500;
+  private static final int CACHE_MAX              = 2000;
+  private static final int CACHE_ENTRIES_PER_MB   = 4;
+  private static final int CACHE_STRIPES          = 16;
   private static final int THREAD_CACHE_WARM_MAX  = 500;
   private static final int CONTACT_CACHE_WARM_MAX = 50;
 
-  private final Context                         context;
-  private final RecipientTable                  recipientTable;
-  private final Map<RecipientId, LiveRecipient> recipients;
-  private final LiveRecipient                   unknown;
-  private final Executor                        resolveExecutor;
+  private final Context                                       context;
+  private final RecipientTable                                recipientTable;
+  private final SegmentedLruCache<RecipientId, LiveRecipient> recipients;
+  private final LiveRecipient                                 unknown;
+  private final Executor                                      resolveExecutor;
+  private final LiveRecipientBatchResolver                    batchResolver;
 
   private final AtomicReference<RecipientId> localRecipientId;
   private final AtomicBoolean                warmedUp;
@@ -56,36 +61,32 @@ public final class LiveRecipientCache {
   public LiveRecipientCache(@NonNull Context context, @NonNull Executor executor) {
     this.context        = context.getApplicationContext();
     this.recipientTable = SignalDatabase.recipients();
-    this.recipients     = new LRUCache<>(CACHE_MAX);
+    this.recipients     = new SegmentedLruCache<>(getCacheSize(context), CACHE_STRIPES);
     this.warmedUp          = new AtomicBoolean(false);
     this.localRecipientId  = new AtomicReference<>(null);
     this.unknown           = new LiveRecipient(context, Recipient.UNKNOWN);
     this.resolveExecutor   = executor;
+    this.batchResolver     = new LiveRecipientBatchResolver(context, executor);
   }
 
   @AnyThread
   @NonNull LiveRecipient getLive(@NonNull RecipientId id) {
     if (id.isUnknown()) return unknown;
 
-    LiveRecipient live;
-    boolean       needsResolve;
+    LiveRecipient live = recipients.get(id);
 
-    synchronized (recipients) {
-      live = recipients.get(id);
+    if (live == null) {
+      LiveRecipient created  = new LiveRecipient(context, RecipientCreator.forId(id));
+      LiveRecipient existing = recipients.putIfAbsent(id, created);
 
-      if (live == null) {
-        live = new LiveRecipient(context, RecipientCreator.forId(id));
-        recipients.put(id, live);
-        needsResolve = true;
+      if (existing != null) {
+        live = existing;
       } else {
-        needsResolve = false;
+        live = created;
+        batchResolver.enqueue(live);
       }
     }
 
-    if (needsResolve) {
-      resolveExecutor.execute(live::resolve);
-    }
-
     return live;
   }
 
@@ -93,12 +94,12 @@ public final class LiveRecipientCache {
    * Handles remapping cache entries when recipients are merged.
    */
   public void remap(@NonNull RecipientId oldId, @NonNull RecipientId newId) {
-    synchronized (recipients) {
-      if (recipients.containsKey(newId)) {
-        recipients.put(oldId, recipients.get(newId));
-      } else {
-        recipients.remove(oldId);
-      }
+    LiveRecipient live = recipients.get(newId);
+
+    if (live != null) {
+      recipients.put(oldId, live);
+    } else {
+      recipients.remove(oldId);
     }
   }
 
@@ -111,22 +112,23 @@ public final class LiveRecipientCache {
   @AnyThread
   public void addToCache(@NonNull Collection<Recipient> newRecipients) {
     newRecipients.stream().filter(this::isValidForCache).forEach(recipient -> {
-      LiveRecipient live;
+      LiveRecipient live    = recipients.get(recipient.getId());
+      LiveRecipient created = null;
       boolean       needsResolve;
 
-      synchronized (recipients) {
-        live = recipients.get(recipient.getId());
-
-        if (live == null) {
-          live = new LiveRecipient(context, recipient);
-          recipients.put(recipient.getId(), live);
-          needsResolve = recipient.isResolving();
-        } else if (live.get().isResolving() || !recipient.isResolving()) {
-          live.set(recipient);
-          needsResolve = recipient.isResolving();
-        } else {
-          needsResolve = false;
-        }
+      if (live == null) {
+        created = new LiveRecipient(context, recipient);
+        live    = recipients.putIfAbsent(recipient.getId(), created);
+      }
+
+      if (live == null) {
+        live         = created;
+        needsResolve = recipient.isResolving();
+      } else if (live.get().isResolving() || !recipient.isResolving()) {
+        live.set(recipient);
+        needsResolve = recipient.isResolving();
+      } else {
+        needsResolve = false;
       }
 
       if (needsResolve) {
@@ -260,9 +262,20 @@ public final class LiveRecipientCache {
 
   @AnyThread
   public void clear() {
-    synchronized (recipients) {
-      recipients.clear();
+    recipients.clear();
+  }
+
+  @AnyThread
+  public @NonNull SegmentedLruCache.Stats getStats() {
+    return recipients.getStats();
+  }
+
+  private static int getCacheSize(@NonNull Context context) {
+    if (DeviceProperties.isLowMemoryDevice(context)) {
+      return CACHE_MIN;
     }
+
+    return Util.clamp(DeviceProperties.getMemoryClass(context) * CACHE_ENTRIES_PER_MB, CACHE_MIN, CACHE_MAX);
   }
 
   private boolean isValidForCache(@NonNull Recipient recipient) {
@@ -119,6 +119,27 @@ object RecipientCreator {
     return recipient
   }
 
+  /**
+   * Bulk version of [forRecord] that looks up the group records of the given recipients with a single query.
+   * The result is keyed by record id.
+   */
+  @JvmStatic
+  @WorkerThread
+  fun forRecords(context: Context, records: Collection<RecipientRecord>): Map<RecipientId, Recipient> {
+    val groupIds = records.filter { it.groupId != null }.map { it.id }
+    val groups = if (groupIds.isNotEmpty()) SignalDatabase.groups.getGroups(groupIds) else emptyMap()
+
+    return records.associate { record ->
+      val recipient = if (record.groupId != null) {
+        groups[record.id]?.let { forGroup(it, record) } ?: forUnknownGroup(record.id, record.groupId)
+      } else {
+        forRecord(context, record)
+      }
+
+      record.id to recipient
+    }
+  }
+
   @JvmStatic
   fun forUnknownGroup(id: RecipientId, groupId: GroupId?): Recipient {
     return Recipient(
@@ -214,6 +214,12 @@ public final class ImageEditorFragment extends Fragment implements ImageEditorHu
     imageMaxHeight = mediaConstraints.getImageMaxHeight(requireContext());
   }
 
+  @Override
+  public void onPause() {
+    super.onPause();
+    imageEditorView.releaseLayerCache();
+  }
+
   @Nullable
   @Override
   public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
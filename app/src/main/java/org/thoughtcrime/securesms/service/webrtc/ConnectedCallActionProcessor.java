@@ -92,11 +92,10 @@ public class ConnectedCallActionProcessor extends DeviceAwareActionProcessor {
                                                                 .stream()
                                                                 .findFirst();
 
-    return ephemeralState.copy(
+    return ephemeralState.withAudioLevels(
         CallParticipant.AudioLevel.fromRawAudioLevel(localLevel),
         callParticipantId.map(participantId -> Collections.singletonMap(participantId, CallParticipant.AudioLevel.fromRawAudioLevel(remoteLevel)))
-                         .orElse(Collections.emptyMap()),
-        ephemeralState.getUnexpiredReactions()
+                         .orElse(Collections.emptyMap())
     );
   }
 
@@ -128,9 +128,7 @@ public class GroupConnectedActionProcessor extends GroupActionProcessor {
     CallParticipant.AudioLevel localAudioLevel = CallParticipant.AudioLevel.fromRawAudioLevel(groupCall.getLocalDeviceState().getAudioLevel());
 
     HashMap<CallParticipantId, CallParticipant.AudioLevel> remoteAudioLevels = new HashMap<>();
-    for (CallParticipant participant : currentState.getCallInfoState().getRemoteCallParticipants()) {
-      CallParticipantId callParticipantId = participant.getCallParticipantId();
-
+    for (CallParticipantId callParticipantId : currentState.getCallInfoState().getRemoteCallParticipantsMap().keySet()) {
       if (remoteDeviceStates != null) {
         GroupCall.RemoteDeviceState state = remoteDeviceStates.get(callParticipantId.getDemuxId());
         if (state != null) {
@@ -139,7 +137,7 @@ public class GroupConnectedActionProcessor extends GroupActionProcessor {
       }
     }
 
-    return ephemeralState.copy(localAudioLevel, remoteAudioLevels, ephemeralState.getUnexpiredReactions());
+    return ephemeralState.withAudioLevels(localAudioLevel, remoteAudioLevels);
   }
 
   @Override
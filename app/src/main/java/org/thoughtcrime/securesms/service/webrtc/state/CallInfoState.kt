@@ -16,18 +16,22 @@ import org.thoughtcrime.securesms.service.webrtc.PendingParticipantCollection
 /**
  * General state of ongoing calls.
  *
+ * The participant, peer, and identity collections are never changed in place, only replaced by [WebRtcServiceStateBuilder], so they
+ * can be shared between states. In a large group call most events don't touch the participants at all, and this saves copying them
+ * for every one of those events.
+ *
  * @param pendingParticipants A list of pending users wishing to join a given call link.
  */
 data class CallInfoState(
   var callState: WebRtcViewModel.State = WebRtcViewModel.State.IDLE,
   var callRecipient: Recipient = Recipient.UNKNOWN,
   var callConnectedTime: Long = -1,
-  @get:JvmName("getRemoteCallParticipantsMap") var remoteParticipants: MutableMap<CallParticipantId, CallParticipant> = mutableMapOf(),
-  var peerMap: MutableMap<Int, RemotePeer> = mutableMapOf(),
+  @get:JvmName("getRemoteCallParticipantsMap") var remoteParticipants: Map<CallParticipantId, CallParticipant> = emptyMap(),
+  var peerMap: Map<Int, RemotePeer> = emptyMap(),
   var activePeer: RemotePeer? = null,
   var groupCall: GroupCall? = null,
   @get:JvmName("getGroupCallState") var groupState: WebRtcViewModel.GroupCallState = WebRtcViewModel.GroupCallState.IDLE,
-  var identityChangedRecipients: MutableSet<RecipientId> = mutableSetOf(),
+  var identityChangedRecipients: Set<RecipientId> = emptySet(),
   var remoteDevicesCount: OptionalLong = OptionalLong.empty(),
   var participantLimit: Long? = null,
   var pendingParticipants: PendingParticipantCollection = PendingParticipantCollection(),
@@ -62,9 +66,5 @@ data class CallInfoState(
     return groupCall!!
   }
 
-  fun duplicate(): CallInfoState = copy(
-    remoteParticipants = remoteParticipants.toMutableMap(),
-    peerMap = peerMap.toMutableMap(),
-    identityChangedRecipients = identityChangedRecipients.toMutableSet()
-  )
+  fun duplicate(): CallInfoState = copy()
 }
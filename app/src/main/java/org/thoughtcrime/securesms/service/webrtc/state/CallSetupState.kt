@@ -21,7 +21,7 @@ data class CallSetupState(
 ) {
 
   fun duplicate(): CallSetupState {
-    return copy()
+    return copy(iceServers = iceServers.toMutableList())
   }
 
   companion object {
@@ -16,4 +16,18 @@ data class WebRtcEphemeralState(
   fun getUnexpiredReactions(): List<GroupCallReactionEvent> {
     return reactions.filter { System.currentTimeMillis() < it.getExpirationTimestamp() }
   }
+
+  /**
+   * Audio levels are reported several times a second, and are usually the same as last time for most of a call. This returns the
+   * same state when nothing has changed, so observers don't have to compare a new one to find that out.
+   */
+  fun withAudioLevels(localAudioLevel: CallParticipant.AudioLevel, remoteAudioLevels: Map<CallParticipantId, CallParticipant.AudioLevel>): WebRtcEphemeralState {
+    val unexpiredReactions = getUnexpiredReactions()
+
+    return if (localAudioLevel == this.localAudioLevel && remoteAudioLevels == this.remoteAudioLevels && unexpiredReactions.size == reactions.size) {
+      this
+    } else {
+      copy(localAudioLevel = localAudioLevel, remoteAudioLevels = remoteAudioLevels, reactions = unexpiredReactions)
+    }
+  }
 }
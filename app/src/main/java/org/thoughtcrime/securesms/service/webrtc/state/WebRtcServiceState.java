@@ -29,16 +29,16 @@ public final class WebRtcServiceState {
     this.videoState       = new VideoState();
   }
 
+  /**
+   * Copies the given state, sharing its sub-states. {@link WebRtcServiceStateBuilder} never changes a sub-state in place, it makes
+   * its own copy the first time one is changed, so only the parts an event actually touches are copied.
+   */
   public WebRtcServiceState(@NonNull WebRtcServiceState toCopy) {
     this.actionProcessor  = toCopy.actionProcessor;
-    this.callInfoState    = toCopy.callInfoState.duplicate();
-    this.localDeviceState = toCopy.localDeviceState.duplicate();
-    this.videoState       = new VideoState(toCopy.videoState);
-    this.callSetupStates  = new HashMap<>();
-
-    for (Map.Entry<CallId, CallSetupState> entry : toCopy.callSetupStates.entrySet()) {
-      this.callSetupStates.put(entry.getKey(), entry.getValue().duplicate());
-    }
+    this.callInfoState    = toCopy.callInfoState;
+    this.localDeviceState = toCopy.localDeviceState;
+    this.videoState       = toCopy.videoState;
+    this.callSetupStates  = new HashMap<>(toCopy.callSetupStates);
   }
 
   public @NonNull WebRtcActionProcessor getActionProcessor() {
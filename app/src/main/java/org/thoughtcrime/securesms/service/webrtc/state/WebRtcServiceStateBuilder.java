@@ -24,7 +24,11 @@ import org.thoughtcrime.securesms.webrtc.audio.SignalAudioManager;
 import org.webrtc.PeerConnection;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -68,7 +72,7 @@ public class WebRtcServiceStateBuilder {
     toBuild.videoState       = new VideoState();
 
     CallInfoState newCallInfoState = new CallInfoState();
-    newCallInfoState.getPeerMap().putAll(toBuild.callInfoState.getPeerMap());
+    newCallInfoState.setPeerMap(toBuild.callInfoState.getPeerMap());
     toBuild.callInfoState = newCallInfoState;
 
     toBuild.callSetupStates.remove(callId);
@@ -253,13 +257,45 @@ public class WebRtcServiceStateBuilder {
     }
   }
 
+  /**
+   * The collections in {@link CallInfoState} are shared with the state it was copied from, so they're only copied the first time
+   * they're changed here, and are handed to the new state as read-only views.
+   */
   public class CallInfoStateBuilder {
     private CallInfoState toBuild;
 
+    private Map<CallParticipantId, CallParticipant> remoteParticipants;
+    private Map<Integer, RemotePeer>                peerMap;
+    private Set<RecipientId>                        identityChangedRecipients;
+
     public CallInfoStateBuilder() {
       toBuild = WebRtcServiceStateBuilder.this.toBuild.callInfoState.duplicate();
     }
 
+    private @NonNull Map<CallParticipantId, CallParticipant> remoteParticipants(boolean copy) {
+      if (remoteParticipants == null) {
+        remoteParticipants = copy ? new LinkedHashMap<>(toBuild.getRemoteCallParticipantsMap()) : new LinkedHashMap<>();
+        toBuild.setRemoteParticipants(Collections.unmodifiableMap(remoteParticipants));
+      }
+      return remoteParticipants;
+    }
+
+    private @NonNull Map<Integer, RemotePeer> peerMap(boolean copy) {
+      if (peerMap == null) {
+        peerMap = copy ? new LinkedHashMap<>(toBuild.getPeerMap()) : new LinkedHashMap<>();
+        toBuild.setPeerMap(Collections.unmodifiableMap(peerMap));
+      }
+      return peerMap;
+    }
+
+    private @NonNull Set<RecipientId> identityChangedRecipients() {
+      if (identityChangedRecipients == null) {
+        identityChangedRecipients = new LinkedHashSet<>(toBuild.getIdentityChangedRecipients());
+        toBuild.setIdentityChangedRecipients(Collections.unmodifiableSet(identityChangedRecipients));
+      }
+      return identityChangedRecipients;
+    }
+
     public @NonNull WebRtcServiceStateBuilder commit() {
       WebRtcServiceStateBuilder.this.toBuild.callInfoState = toBuild;
       return WebRtcServiceStateBuilder.this;
@@ -286,32 +322,32 @@ public class WebRtcServiceStateBuilder {
     }
 
     public @NonNull CallInfoStateBuilder putParticipant(@NonNull CallParticipantId callParticipantId, @NonNull CallParticipant callParticipant) {
-      toBuild.getRemoteCallParticipantsMap().put(callParticipantId, callParticipant);
+      remoteParticipants(true).put(callParticipantId, callParticipant);
       return this;
     }
 
     public @NonNull CallInfoStateBuilder putParticipant(@NonNull Recipient recipient, @NonNull CallParticipant callParticipant) {
-      toBuild.getRemoteCallParticipantsMap().put(new CallParticipantId(recipient), callParticipant);
+      remoteParticipants(true).put(new CallParticipantId(recipient), callParticipant);
       return this;
     }
 
     public @NonNull CallInfoStateBuilder clearParticipantMap() {
-      toBuild.getRemoteCallParticipantsMap().clear();
+      remoteParticipants(false).clear();
       return this;
     }
 
     public @NonNull CallInfoStateBuilder putRemotePeer(@NonNull RemotePeer remotePeer) {
-      toBuild.getPeerMap().put(remotePeer.hashCode(), remotePeer);
+      peerMap(true).put(remotePeer.hashCode(), remotePeer);
       return this;
     }
 
     public @NonNull CallInfoStateBuilder clearPeerMap() {
-      toBuild.getPeerMap().clear();
+      peerMap(false).clear();
       return this;
     }
 
     public @NonNull CallInfoStateBuilder removeRemotePeer(@NonNull RemotePeer remotePeer) {
-      toBuild.getPeerMap().remove(remotePeer.hashCode());
+      peerMap(true).remove(remotePeer.hashCode());
       return this;
     }
 
@@ -331,12 +367,12 @@ public class WebRtcServiceStateBuilder {
     }
 
     public @NonNull CallInfoStateBuilder addIdentityChangedRecipients(@NonNull Collection<RecipientId> id) {
-      toBuild.getIdentityChangedRecipients().addAll(id);
+      identityChangedRecipients().addAll(id);
       return this;
     }
 
     public @NonNull CallInfoStateBuilder removeIdentityChangedRecipients(@NonNull Collection<RecipientId> ids) {
-      toBuild.getIdentityChangedRecipients().removeAll(ids);
+      identityChangedRecipients().removeAll(ids);
       return this;
     }
 
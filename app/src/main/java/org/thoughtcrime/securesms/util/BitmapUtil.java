@@ -43,11 +43,9 @@ public class BitmapUtil {
 
   private static final String TAG = Log.tag(BitmapUtil.class);
 
-  private static final int MAX_COMPRESSION_QUALITY          = 90;
-  private static final int MIN_COMPRESSION_QUALITY          = 45;
-  private static final int MAX_COMPRESSION_ATTEMPTS         = 5;
-  private static final int MIN_COMPRESSION_QUALITY_DECREASE = 5;
-  private static final int MAX_IMAGE_HALF_SCALES            = 3;
+  private static final int MAX_COMPRESSION_QUALITY = 90;
+  private static final int MIN_COMPRESSION_QUALITY = 45;
+  private static final int MAX_IMAGE_HALF_SCALES   = 3;
 
   /**
    * @deprecated You probably want to use {@link ImageCompressionUtil} instead, which has a clearer
@@ -109,8 +107,7 @@ public class BitmapUtil {
       throws BitmapDecodingException
   {
     try {
-      int    quality  = MAX_COMPRESSION_QUALITY;
-      int    attempts = 0;
+      int    quality;
       byte[] bytes;
 
       Bitmap scaledBitmap = Glide.with(context.getApplicationContext())
@@ -130,22 +127,11 @@ public class BitmapUtil {
       Log.i(TAG, String.format(Locale.US, "Max dimensions %d x %d, %d bytes", maxImageWidth, maxImageHeight, maxImageSize));
 
       try {
-        do {
-          totalAttempts++;
-          ByteArrayOutputStream baos = new ByteArrayOutputStream();
-          scaledBitmap.compress(format, quality, baos);
-          bytes = baos.toByteArray();
-
-          Log.d(TAG, "iteration with quality " + quality + " size " + bytes.length + " bytes.");
-          if (quality == MIN_COMPRESSION_QUALITY) break;
-
-          int nextQuality = (int)Math.floor(quality * Math.sqrt((double)maxImageSize / bytes.length));
-          if (quality - nextQuality < MIN_COMPRESSION_QUALITY_DECREASE) {
-            nextQuality = quality - MIN_COMPRESSION_QUALITY_DECREASE;
-          }
-          quality = Math.max(nextQuality, MIN_COMPRESSION_QUALITY);
-        }
-        while (bytes.length > maxImageSize && attempts++ < MAX_COMPRESSION_ATTEMPTS);
+        ImageCompressionPlanner.Result result = ImageCompressionPlanner.compress(scaledBitmap, format, maxImageSize, MIN_COMPRESSION_QUALITY, MAX_COMPRESSION_QUALITY);
+
+        bytes          = result.getData();
+        quality        = result.getQuality();
+        totalAttempts += result.getFullEncodes();
 
         if (bytes.length > maxImageSize) {
           if (sizeAttempt <= MAX_IMAGE_HALF_SCALES) {
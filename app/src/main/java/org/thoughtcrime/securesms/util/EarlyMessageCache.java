@@ -1,43 +1,123 @@
 package org.thoughtcrime.securesms.util;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
+import org.signal.core.util.logging.Log;
 import org.thoughtcrime.securesms.database.model.ServiceMessageId;
 import org.thoughtcrime.securesms.recipients.RecipientId;
+import org.whispersystems.signalservice.internal.push.Content;
+import org.whispersystems.signalservice.internal.push.Envelope;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 /**
  * Sometimes a message that is referencing another message can arrive out of order. In these cases,
  * we want to temporarily hold on (i.e. keep a memory cache) to these messages and apply them after
  * we receive the referenced message.
+ * <p>
+ * The memory cache is bounded by the total size of the entries rather than the number of referenced
+ * messages, so a burst of small reactions and receipts doesn't push anything out. When it's full, the
+ * oldest entries are spilled to a small {@link SpillStore} instead of being dropped. Entries that are
+ * older than {@link #MAX_AGE_MS} in either place are expired, since their target is unlikely to show up.
+ * <p>
+ * The lock only guards the in-memory state. Anything that touches the spill store happens in one of its
+ * transactions, with the lock released, so callers already in a database transaction can't deadlock
+ * with a thread waiting on the spill store.
  */
 public final class EarlyMessageCache {
 
-  private final LRUCache<ServiceMessageId, List<EarlyMessageCacheEntry>> cache = new LRUCache<>(100);
+  private static final String TAG = Log.tag(EarlyMessageCache.class);
+
+  private static final long MAX_MEMORY_BYTES    = 1024 * 1024;
+  private static final int  MAX_SPILLED_ENTRIES = 2000;
+  private static final long MAX_AGE_MS          = TimeUnit.DAYS.toMillis(1);
+
+  /** A rough allowance for the objects around the protos themselves. */
+  private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+  /** Ordered by when the first entry for a message was stored, so the oldest can be expired and spilled first. */
+  private final LinkedHashMap<ServiceMessageId, Bucket> memory = new LinkedHashMap<>();
+
+  private final SpillStore   spillStore;
+  private final long         maxMemoryBytes;
+  private final int          maxSpilledEntries;
+  private final LongSupplier clock;
+
+  /**
+   * The ids that have entries in the spill store. Loaded lazily, so the store is only touched for messages known to be in it. Only
+   * changed inside a spill store transaction.
+   */
+  private @Nullable Set<ServiceMessageId> spilledIds;
+
+  /** When the oldest spilled entry expires, so the spill store is only expired once something in it actually has. */
+  private long spillExpiresAt = Long.MAX_VALUE;
+
+  private long memoryBytes;
+  private long matched;
+  private long expired;
+  private long spilled;
+  private long evicted;
+
+  public EarlyMessageCache(@NonNull SpillStore spillStore) {
+    this(spillStore, MAX_MEMORY_BYTES, MAX_SPILLED_ENTRIES, System::currentTimeMillis);
+  }
+
+  @VisibleForTesting
+  EarlyMessageCache(@NonNull SpillStore spillStore, long maxMemoryBytes, int maxSpilledEntries, @NonNull LongSupplier clock) {
+    this.spillStore        = spillStore;
+    this.maxMemoryBytes    = maxMemoryBytes;
+    this.maxSpilledEntries = maxSpilledEntries;
+    this.clock             = clock;
+  }
 
   /**
    * @param targetSender        The sender of the message this message depends on.
    * @param targetSentTimestamp The sent timestamp of the message this message depends on.
    */
-  public synchronized void store(@NonNull RecipientId targetSender,
-                                 long targetSentTimestamp,
-                                 @NonNull EarlyMessageCacheEntry cacheEntry)
+  public void store(@NonNull RecipientId targetSender,
+                    long targetSentTimestamp,
+                    @NonNull EarlyMessageCacheEntry cacheEntry)
   {
-    ServiceMessageId             messageId    = new ServiceMessageId(targetSender, targetSentTimestamp);
-    List<EarlyMessageCacheEntry> envelopeList = cache.get(messageId);
+    long    now = clock.getAsLong();
+    boolean overBudget;
 
-    if (envelopeList == null) {
-      envelopeList = new LinkedList<>();
-    }
+    synchronized (this) {
+      expireMemory(now);
+
+      ServiceMessageId messageId = new ServiceMessageId(targetSender, targetSentTimestamp);
+      Bucket           bucket    = memory.get(messageId);
+
+      if (bucket == null) {
+        bucket = new Bucket(now);
+        memory.put(messageId, bucket);
+      }
 
-    envelopeList.add(cacheEntry);
+      long size = sizeOf(cacheEntry);
 
-    cache.put(messageId, envelopeList);
+      bucket.entries.add(cacheEntry);
+      bucket.bytes += size;
+      memoryBytes  += size;
+
+      overBudget = memoryBytes > maxMemoryBytes;
+    }
+
+    if (overBudget) {
+      spillStore.runInTransaction(() -> spill(now));
+    }
   }
 
   /**
@@ -46,15 +126,298 @@ public final class EarlyMessageCache {
    * @param sender        The sender of the message in question.
    * @param sentTimestamp The sent timestamp of the message in question.
    */
-  public synchronized Optional<List<EarlyMessageCacheEntry>> retrieve(@NonNull RecipientId sender, long sentTimestamp) {
-    return Optional.ofNullable(cache.remove(new ServiceMessageId(sender, sentTimestamp)));
+  public Optional<List<EarlyMessageCacheEntry>> retrieve(@NonNull RecipientId sender, long sentTimestamp) {
+    long                         now       = clock.getAsLong();
+    ServiceMessageId             messageId = new ServiceMessageId(sender, sentTimestamp);
+    List<EarlyMessageCacheEntry> entries   = new ArrayList<>();
+    boolean                      maybeSpilled;
+
+    synchronized (this) {
+      expireMemory(now);
+
+      Bucket bucket = memory.remove(messageId);
+      if (bucket != null) {
+        memoryBytes -= bucket.bytes;
+        entries.addAll(bucket.entries);
+      }
+
+      maybeSpilled = spilledIds == null || spilledIds.contains(messageId) || now >= spillExpiresAt;
+    }
+
+    if (maybeSpilled) {
+      List<EarlyMessageCacheEntry> spilledEntries = new ArrayList<>();
+      spillStore.runInTransaction(() -> spilledEntries.addAll(removeSpilled(messageId, now)));
+      entries.addAll(0, spilledEntries);
+    }
+
+    if (entries.isEmpty()) {
+      return Optional.empty();
+    }
+
+    synchronized (this) {
+      matched += entries.size();
+    }
+
+    return Optional.of(entries);
   }
 
   /**
    * Returns a collection of all of the {@link ServiceMessageId}s referenced in the cache at the moment of inquiry.
    * Caution: There is no guarantee that this list will be relevant for any amount of time afterwards.
    */
-  public synchronized @NonNull Collection<ServiceMessageId> getAllReferencedIds() {
-    return new HashSet<>(cache.keySet());
+  public @NonNull Collection<ServiceMessageId> getAllReferencedIds() {
+    long now = clock.getAsLong();
+
+    synchronized (this) {
+      expireMemory(now);
+
+      if (spilledIds != null && now < spillExpiresAt) {
+        return getReferencedIds();
+      }
+    }
+
+    spillStore.runInTransaction(() -> expireSpilled(now));
+
+    synchronized (this) {
+      return getReferencedIds();
+    }
+  }
+
+  public synchronized @NonNull Stats getStats() {
+    int memoryEntries = 0;
+    for (Bucket bucket : memory.values()) {
+      memoryEntries += bucket.entries.size();
+    }
+
+    return new Stats(matched, expired, spilled, evicted, memoryEntries, memoryBytes, maxMemoryBytes, spilledIds != null ? spilledIds.size() : 0);
+  }
+
+  private @NonNull Set<ServiceMessageId> getReferencedIds() {
+    Set<ServiceMessageId> ids = new HashSet<>(memory.keySet());
+    if (spilledIds != null) {
+      ids.addAll(spilledIds);
+    }
+    return ids;
+  }
+
+  private void expireMemory(long now) {
+    Iterator<Bucket> iterator = memory.values().iterator();
+
+    while (iterator.hasNext()) {
+      Bucket bucket = iterator.next();
+
+      if (now - bucket.storedAt < MAX_AGE_MS) {
+        break;
+      }
+
+      iterator.remove();
+      memoryBytes -= bucket.bytes;
+      expired     += bucket.entries.size();
+    }
+  }
+
+  /**
+   * Moves the oldest messages out of memory until it's back to half of its budget, so that a burst doesn't spill on every store.
+   * Runs in a spill store transaction. The messages are taken out of memory and marked as spilled in one step, so a retrieve that
+   * misses them in memory waits on the transaction and finds them in the store.
+   */
+  private void spill(long now) {
+    expireSpilled(now);
+
+    Map<ServiceMessageId, Bucket> toSpill = new LinkedHashMap<>();
+
+    synchronized (this) {
+      Iterator<Map.Entry<ServiceMessageId, Bucket>> iterator = memory.entrySet().iterator();
+
+      while (memoryBytes > maxMemoryBytes / 2 && iterator.hasNext()) {
+        Map.Entry<ServiceMessageId, Bucket> entry = iterator.next();
+
+        iterator.remove();
+        memoryBytes -= entry.getValue().bytes;
+        toSpill.put(entry.getKey(), entry.getValue());
+
+        spilledIds.add(entry.getKey());
+        spillExpiresAt = Math.min(spillExpiresAt, entry.getValue().storedAt + MAX_AGE_MS);
+        spilled       += entry.getValue().entries.size();
+      }
+    }
+
+    if (toSpill.isEmpty()) {
+      return;
+    }
+
+    for (Map.Entry<ServiceMessageId, Bucket> entry : toSpill.entrySet()) {
+      spillStore.insert(entry.getKey(), entry.getValue().storedAt, entry.getValue().entries);
+    }
+
+    int evictedCount = spillStore.trimToSize(maxSpilledEntries);
+    if (evictedCount > 0) {
+      loadSpilledIds(0, evictedCount);
+    }
+
+    Log.i(TAG, "Spilled " + toSpill.size() + " message(s) to disk. Evicted: " + evictedCount);
+  }
+
+  /**
+   * Runs in a spill store transaction.
+   */
+  private @NonNull List<EarlyMessageCacheEntry> removeSpilled(@NonNull ServiceMessageId messageId, long now) {
+    expireSpilled(now);
+
+    boolean isSpilled;
+    synchronized (this) {
+      isSpilled = spilledIds.remove(messageId);
+    }
+
+    return isSpilled ? spillStore.remove(messageId) : Collections.emptyList();
+  }
+
+  /**
+   * Loads the spilled ids if they haven't been yet, deleting expired entries first if any are due. Runs in a spill store transaction.
+   */
+  private void expireSpilled(long now) {
+    boolean shouldLoad;
+    synchronized (this) {
+      shouldLoad = spilledIds == null || now >= spillExpiresAt;
+    }
+
+    if (shouldLoad) {
+      loadSpilledIds(deleteExpiredSpilled(now), 0);
+    }
+  }
+
+  /**
+   * Deletes spilled entries that are at least {@link #MAX_AGE_MS} old, the same age they'd be expired at in memory.
+   */
+  private int deleteExpiredSpilled(long now) {
+    return spillStore.deleteStoredBefore(now - MAX_AGE_MS + 1);
+  }
+
+  /**
+   * Runs in a spill store transaction.
+   */
+  private void loadSpilledIds(int expiredCount, int evictedCount) {
+    Long                  oldestStoredAt = spillStore.getOldestStoredAt();
+    Set<ServiceMessageId> ids            = new HashSet<>(spillStore.getAllIds());
+
+    synchronized (this) {
+      spilledIds     = ids;
+      spillExpiresAt = oldestStoredAt != null ? oldestStoredAt + MAX_AGE_MS : Long.MAX_VALUE;
+      expired       += expiredCount;
+      evicted       += evictedCount;
+    }
+  }
+
+  private static long sizeOf(@NonNull EarlyMessageCacheEntry entry) {
+    return Envelope.ADAPTER.encodedSize(entry.getEnvelope()) + Content.ADAPTER.encodedSize(entry.getContent()) + ENTRY_OVERHEAD_BYTES;
+  }
+
+  private static final class Bucket {
+    private final long                         storedAt;
+    private final List<EarlyMessageCacheEntry> entries = new ArrayList<>(1);
+
+    private long bytes;
+
+    private Bucket(long storedAt) {
+      this.storedAt = storedAt;
+    }
+  }
+
+  /**
+   * Somewhere to put early messages when there are too many to hold in memory.
+   * <p>
+   * The cache only calls into the store from inside {@link #runInTransaction(Runnable)}, and never while holding its own lock, so
+   * it's safe to use from a thread that is already in a transaction with the store.
+   */
+  public interface SpillStore {
+    /**
+     * Runs the block exclusively of any other transaction with the store.
+     */
+    void runInTransaction(@NonNull Runnable block);
+
+    void insert(@NonNull ServiceMessageId messageId, long storedAt, @NonNull List<EarlyMessageCacheEntry> entries);
+
+    /**
+     * Removes and returns the entries for a message, in the order they were inserted.
+     */
+    @NonNull List<EarlyMessageCacheEntry> remove(@NonNull ServiceMessageId messageId);
+
+    @NonNull Collection<ServiceMessageId> getAllIds();
+
+    /**
+     * @return When the oldest entry was stored, or null if there are none.
+     */
+    @Nullable Long getOldestStoredAt();
+
+    /**
+     * @return The number of entries deleted.
+     */
+    int deleteStoredBefore(long timestamp);
+
+    /**
+     * Deletes the oldest entries until there are at most the given number left.
+     *
+     * @return The number of entries deleted.
+     */
+    int trimToSize(int maxEntries);
+  }
+
+  public static final class Stats {
+    private final long matched;
+    private final long expired;
+    private final long spilled;
+    private final long evicted;
+    private final int  memoryEntries;
+    private final long memoryBytes;
+    private final long maxMemoryBytes;
+    private final int  spilledMessages;
+
+    private Stats(long matched, long expired, long spilled, long evicted, int memoryEntries, long memoryBytes, long maxMemoryBytes, int spilledMessages) {
+      this.matched         = matched;
+      this.expired         = expired;
+      this.spilled         = spilled;
+      this.evicted         = evicted;
+      this.memoryEntries   = memoryEntries;
+      this.memoryBytes     = memoryBytes;
+      this.maxMemoryBytes  = maxMemoryBytes;
+      this.spilledMessages = spilledMessages;
+    }
+
+    /** Entries that were handed back because the message they depend on arrived. */
+    public long getMatched() {
+      return matched;
+    }
+
+    /** Entries that were dropped for being too old. */
+    public long getExpired() {
+      return expired;
+    }
+
+    /** Entries that were moved out of memory into the spill store. */
+    public long getSpilled() {
+      return spilled;
+    }
+
+    /** Entries that were dropped because the spill store was full. */
+    public long getEvicted() {
+      return evicted;
+    }
+
+    public int getMemoryEntries() {
+      return memoryEntries;
+    }
+
+    public long getMemoryBytes() {
+      return memoryBytes;
+    }
+
+    public int getSpilledMessages() {
+      return spilledMessages;
+    }
+
+    @Override
+    public @NonNull String toString() {
+      return String.format(Locale.US, "memory: %d entries, %d/%d bytes, spilled messages: %d, matched: %d, expired: %d, spilled: %d, evicted: %d", memoryEntries, memoryBytes, maxMemoryBytes, spilledMessages, matched, expired, spilled, evicted);
+    }
   }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.util
+
+import android.graphics.Bitmap
+import androidx.annotation.WorkerThread
+import org.signal.core.util.logging.Log
+import java.io.ByteArrayOutputStream
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.sqrt
+
+/**
+ * Picks the highest quality that fits an image under a byte limit without repeatedly encoding the full image.
+ *
+ * Encoded size scales roughly with pixel count, so the sizes of a small downsampled probe at different qualities,
+ * scaled up by the area ratio, predict the size of the full image. The quality is binary searched against the cheap
+ * probe encodes, and each full encode is then used to correct the prediction for the image's actual detail.
+ * Most images need two full encodes, and never more than three unless even the first guess was too large.
+ */
+class ImageCompressionPlanner(private val minQuality: Int, private val maxQuality: Int) {
+
+  init {
+    require(minQuality in 0..maxQuality && maxQuality <= 100)
+  }
+
+  /**
+   * @param full Encodes the image at the target dimensions.
+   * @param probe Encodes a downsampled copy of the image, or is [full] itself for small images.
+   * @param areaRatio The pixel count of the full image divided by that of the probe.
+   */
+  fun compress(full: Encoder, probe: Encoder, areaRatio: Double, maxBytes: Int): Result {
+    // When the image is small enough to be its own probe, the search encodes are reused
+    val probeIsFull = probe === full
+    val probeData = HashMap<Int, ByteArray>()
+    val probeSizes = HashMap<Int, Int>()
+    val probeSize = { quality: Int ->
+      probeSizes.getOrPut(quality) {
+        probe.encode(quality).also { if (probeIsFull) probeData[quality] = it }.size
+      }
+    }
+
+    var fullEncodes = 0
+    val encode = { quality: Int ->
+      probeData[quality] ?: full.encode(quality).also {
+        fullEncodes++
+        if (probeIsFull) probeSizes[quality] = it.size
+      }
+    }
+
+    var quality = predictQuality(probeSize, areaRatio, maxBytes)
+    var data = encode(quality)
+
+    // The probe's bytes per pixel differ from the full image's, each full encode corrects the scale for the next guess
+    var scale = data.size.toDouble() / max(1, probeSize(quality))
+
+    if (data.size <= maxBytes) {
+      var ceiling = maxQuality + 1
+
+      while (fullEncodes < MAX_REFINE_ENCODES) {
+        val refined = min(predictQuality(probeSize, scale, maxBytes), ceiling - 1)
+        if (refined - quality < MIN_QUALITY_STEP) break
+
+        val attempt = encode(refined)
+        scale = attempt.size.toDouble() / max(1, probeSize(refined))
+
+        if (attempt.size <= maxBytes) {
+          quality = refined
+          data = attempt
+        } else {
+          ceiling = refined
+        }
+      }
+
+      return Result(data, quality, fullEncodes, probeSizes.size, true)
+    }
+
+    while (quality > minQuality && fullEncodes < MAX_FULL_ENCODES) {
+      quality = max(min(predictQuality(probeSize, scale, maxBytes), quality - MIN_QUALITY_STEP), minQuality)
+      data = encode(quality)
+
+      if (data.size <= maxBytes) {
+        return Result(data, quality, fullEncodes, probeSizes.size, true)
+      }
+
+      scale = data.size.toDouble() / max(1, probeSize(quality))
+    }
+
+    return Result(data, quality, fullEncodes, probeSizes.size, false)
+  }
+
+  /**
+   * The highest quality whose predicted size is within [maxBytes], with some headroom for prediction error.
+   */
+  private fun predictQuality(probeSize: (Int) -> Int, scale: Double, maxBytes: Int): Int {
+    val target = maxBytes * TARGET_RATIO
+    val fits = { quality: Int -> probeSize(quality) * scale <= target }
+
+    if (fits(maxQuality)) return maxQuality
+    if (!fits(minQuality)) return minQuality
+
+    var low = minQuality
+    var high = maxQuality
+    while (high - low > 1) {
+      val mid = (low + high) ushr 1
+      if (fits(mid)) {
+        low = mid
+      } else {
+        high = mid
+      }
+    }
+
+    return low
+  }
+
+  fun interface Encoder {
+    fun encode(quality: Int): ByteArray
+  }
+
+  class Result(
+    val data: ByteArray,
+    val quality: Int,
+    val fullEncodes: Int,
+    val probeEncodes: Int,
+    val fits: Boolean
+  )
+
+  companion object {
+    private val TAG = Log.tag(ImageCompressionPlanner::class.java)
+
+    /** Encodes at or below this many pixels are cheap enough to search directly. */
+    private const val PROBE_MAX_PIXELS = 512 * 512
+
+    private const val TARGET_RATIO = 0.95
+    private const val MIN_QUALITY_STEP = 3
+    private const val MAX_REFINE_ENCODES = 3
+    private const val MAX_FULL_ENCODES = 5
+
+    /**
+     * Compresses [bitmap] to at most [maxBytes] at the highest quality in range that fits. Formats without a quality
+     * setting are encoded once.
+     */
+    @JvmStatic
+    @WorkerThread
+    fun compress(bitmap: Bitmap, format: Bitmap.CompressFormat, maxBytes: Int, minQuality: Int, maxQuality: Int): Result {
+      val full = bitmapEncoder(bitmap, format)
+
+      if (format == Bitmap.CompressFormat.PNG) {
+        val data = full.encode(100)
+        return Result(data, 100, 1, 0, data.size <= maxBytes)
+      }
+
+      val pixels = bitmap.width.toLong() * bitmap.height
+      val planner = ImageCompressionPlanner(minQuality, maxQuality)
+
+      if (pixels <= PROBE_MAX_PIXELS * 4L) {
+        return planner.compress(full, full, 1.0, maxBytes)
+      }
+
+      val factor = sqrt(pixels.toDouble() / PROBE_MAX_PIXELS)
+      val probeBitmap = Bitmap.createScaledBitmap(bitmap, max(1, (bitmap.width / factor).toInt()), max(1, (bitmap.height / factor).toInt()), true)
+
+      try {
+        val areaRatio = pixels.toDouble() / (probeBitmap.width.toLong() * probeBitmap.height)
+        val result = planner.compress(full, bitmapEncoder(probeBitmap, format), areaRatio, maxBytes)
+
+        Log.d(TAG, "Quality ${result.quality}, ${result.data.size} bytes after ${result.fullEncodes} full and ${result.probeEncodes} probe encode(s).")
+        return result
+      } finally {
+        if (probeBitmap != bitmap) {
+          probeBitmap.recycle()
+        }
+      }
+    }
+
+    private fun bitmapEncoder(bitmap: Bitmap, format: Bitmap.CompressFormat): Encoder {
+      return Encoder { quality ->
+        val output = ByteArrayOutputStream()
+        bitmap.compress(format, quality, output)
+        output.toByteArray()
+      }
+    }
+  }
+}
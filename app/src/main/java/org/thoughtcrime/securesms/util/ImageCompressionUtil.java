@@ -68,6 +68,59 @@ public final class ImageCompressionUtil {
     }
   }
 
+  /**
+   * The result at the first of the dimension targets that fits within maxBytes, or null if none do.
+   * <p>
+   * The image is only decoded once, at the first target, and scaled down in memory for the rest. A target is
+   * skipped without encoding if the size of the previous attempt, scaled by pixel count, is already too large.
+   * Smaller images take more bytes per pixel, so this never skips a target that could have fit.
+   */
+  @WorkerThread
+  public static @Nullable Result compressWithinConstraints(@NonNull Context context,
+                                                           @NonNull String mimeType,
+                                                           @NonNull Object glideModel,
+                                                           @NonNull int[] dimensionTargets,
+                                                           int maxBytes,
+                                                           @IntRange(from = 0, to = 100) int quality)
+      throws BitmapDecodingException
+  {
+    Bitmap                decoded    = decode(context, glideModel, dimensionTargets[0]);
+    Bitmap.CompressFormat format     = mimeTypeToCompressFormat(mimeType);
+    long                  lastPixels = 0;
+    int                   lastSize   = 0;
+    int                   encodes    = 0;
+
+    for (int target : dimensionTargets) {
+      Bitmap scaled = BitmapUtil.createScaledBitmap(decoded, target, target);
+
+      try {
+        long pixels = (long) scaled.getWidth() * scaled.getHeight();
+
+        if (lastSize > 0 && (double) lastSize * pixels / lastPixels > maxBytes) {
+          Log.d(TAG, "Skipping maxDimension " + target + ", predicted to exceed " + maxBytes + " bytes.");
+          continue;
+        }
+
+        byte[] data = encode(scaled, format, quality);
+        encodes++;
+
+        if (data.length <= maxBytes) {
+          Log.d(TAG, "[Input] mimeType: " + mimeType + " [Output] format: " + format + ", maxDimension: " + target + ", quality: " + quality + ", size(KiB): " + new ByteSize(data.length).getInWholeKibiBytes() + ", encodes: " + encodes);
+          return new Result(data, compressFormatToMimeType(format), scaled.getWidth(), scaled.getHeight());
+        }
+
+        lastSize   = data.length;
+        lastPixels = pixels;
+      } finally {
+        if (scaled != decoded) {
+          scaled.recycle();
+        }
+      }
+    }
+
+    return null;
+  }
+
   /**
    * Compresses the image to match the requested parameters.
    */
@@ -78,6 +131,17 @@ public final class ImageCompressionUtil {
                                          int maxDimension,
                                          @IntRange(from = 0, to = 100) int quality)
       throws BitmapDecodingException
+  {
+    Bitmap                scaledBitmap = decode(context, glideModel, maxDimension);
+    Bitmap.CompressFormat format       = mimeTypeToCompressFormat(contentType);
+    byte[]                data         = encode(scaledBitmap, format, quality);
+
+    Log.d(TAG, "[Input] mimeType: " + contentType + " [Output] format: " + format + ", maxDimension: " + maxDimension + ", quality: " + quality + ", size(KiB): " + new ByteSize(data.length).getInWholeKibiBytes());
+    return new Result(data, compressFormatToMimeType(format), scaledBitmap.getWidth(), scaledBitmap.getHeight());
+  }
+
+  private static @NonNull Bitmap decode(@NonNull Context context, @NonNull Object glideModel, int maxDimension)
+      throws BitmapDecodingException
   {
     Bitmap scaledBitmap;
 
@@ -120,14 +184,13 @@ public final class ImageCompressionUtil {
       throw new BitmapDecodingException("Unable to decode image");
     }
 
-    ByteArrayOutputStream output = new ByteArrayOutputStream();
-    Bitmap.CompressFormat format = mimeTypeToCompressFormat(contentType);
-    scaledBitmap.compress(format, quality, output);
-
-    byte[] data = output.toByteArray();
+    return scaledBitmap;
+  }
 
-    Log.d(TAG, "[Input] mimeType: " + contentType + " [Output] format: " + format + ", maxDimension: " + maxDimension + ", quality: " + quality + ", size(KiB): " + new ByteSize(data.length).getInWholeKibiBytes());
-    return new Result(data, compressFormatToMimeType(format), scaledBitmap.getWidth(), scaledBitmap.getHeight());
+  private static @NonNull byte[] encode(@NonNull Bitmap bitmap, @NonNull Bitmap.CompressFormat format, int quality) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    bitmap.compress(format, quality, output);
+    return output.toByteArray();
   }
 
   private static @NonNull Bitmap.CompressFormat mimeTypeToCompressFormat(@Nullable String mimeType) {
@@ -976,6 +976,24 @@ object RemoteConfig {
     hotSwappable = false
   )
 
+  /** Convert audio and video on separate threads when transcoding video attachments. */
+  @JvmStatic
+  @get:JvmName("pipelinedVideoTranscoding")
+  val pipelinedVideoTranscoding: Boolean by remoteBoolean(
+    key = "android.media.pipelinedTranscode",
+    defaultValue = false,
+    hotSwappable = true
+  )
+
+  /** Split long video attachments at key frames and transcode the parts on several codec instances at once. */
+  @JvmStatic
+  @get:JvmName("segmentedVideoTranscoding")
+  val segmentedVideoTranscoding: Boolean by remoteBoolean(
+    key = "android.media.segmentedTranscode",
+    defaultValue = false,
+    hotSwappable = true
+  )
+
   /** Get the default video zoom, expressed as 10x the actual Float value due to the service limiting us to whole numbers.  */
   @JvmStatic
   @get:JvmName("startVideoRecordAt1x")
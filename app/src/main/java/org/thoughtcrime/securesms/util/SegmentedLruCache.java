@@ -0,0 +1,257 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A thread safe, size bounded cache that is split into stripes by key, each with its own lock, so that lookups from
+ * different threads rarely wait on each other.
+ * <p>
+ * Each stripe is a segmented LRU. New entries start out in a probationary segment and are promoted to the protected
+ * segment when they're read again. Entries are evicted from the probationary segment first, so a burst of entries that
+ * are only used once can't push out the ones in regular use.
+ */
+public final class SegmentedLruCache<K, V> {
+
+  private static final float PROTECTED_RATIO = 0.8f;
+
+  private final Stripe<K, V>[] stripes;
+  private final int            stripeMask;
+
+  /**
+   * @param maxSize     The total number of entries to keep, shared evenly between the stripes.
+   * @param stripeCount The number of stripes. Must be a power of two.
+   */
+  @SuppressWarnings("unchecked")
+  public SegmentedLruCache(int maxSize, int stripeCount) {
+    if (stripeCount <= 0 || Integer.bitCount(stripeCount) != 1) {
+      throw new IllegalArgumentException("Stripe count must be a power of two: " + stripeCount);
+    }
+
+    int stripeSize = Math.max(1, (maxSize + stripeCount - 1) / stripeCount);
+
+    this.stripes    = new Stripe[stripeCount];
+    this.stripeMask = stripeCount - 1;
+
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new Stripe<>(stripeSize);
+    }
+  }
+
+  /**
+   * Returns the cached value, counting the lookup as a hit or a miss.
+   */
+  public @Nullable V get(@NonNull K key) {
+    return stripeFor(key).get(key);
+  }
+
+  public void put(@NonNull K key, @NonNull V value) {
+    stripeFor(key).put(key, value);
+  }
+
+  /**
+   * Adds the value if there isn't one cached for the key already.
+   *
+   * @return The value that was already cached, or null if the given value was added.
+   */
+  public @Nullable V putIfAbsent(@NonNull K key, @NonNull V value) {
+    return stripeFor(key).putIfAbsent(key, value);
+  }
+
+  public @Nullable V remove(@NonNull K key) {
+    return stripeFor(key).remove(key);
+  }
+
+  public boolean containsKey(@NonNull K key) {
+    return stripeFor(key).containsKey(key);
+  }
+
+  public void clear() {
+    for (Stripe<K, V> stripe : stripes) {
+      stripe.clear();
+    }
+  }
+
+  public @NonNull Stats getStats() {
+    long hits      = 0;
+    long misses    = 0;
+    long evictions = 0;
+    int  size      = 0;
+    int  maxSize   = 0;
+
+    for (Stripe<K, V> stripe : stripes) {
+      synchronized (stripe) {
+        hits      += stripe.hits;
+        misses    += stripe.misses;
+        evictions += stripe.evictions;
+        size      += stripe.size();
+        maxSize   += stripe.maxSize;
+      }
+    }
+
+    return new Stats(hits, misses, evictions, size, maxSize);
+  }
+
+  private @NonNull Stripe<K, V> stripeFor(@NonNull K key) {
+    int hash = key.hashCode();
+    return stripes[(hash ^ (hash >>> 16)) & stripeMask];
+  }
+
+  public static final class Stats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int  size;
+    private final int  maxSize;
+
+    private Stats(long hits, long misses, long evictions, int size, int maxSize) {
+      this.hits      = hits;
+      this.misses    = misses;
+      this.evictions = evictions;
+      this.size      = size;
+      this.maxSize   = maxSize;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    public long getEvictions() {
+      return evictions;
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    public int getMaxSize() {
+      return maxSize;
+    }
+
+    public float getHitRate() {
+      long lookups = hits + misses;
+      return lookups > 0 ? (float) hits / lookups : 0f;
+    }
+
+    @Override
+    public @NonNull String toString() {
+      return String.format(Locale.US, "size: %d/%d, hits: %d, misses: %d (%.1f%% hit rate), evictions: %d", size, maxSize, hits, misses, getHitRate() * 100, evictions);
+    }
+  }
+
+  private static final class Stripe<K, V> {
+    private final LinkedHashMap<K, V> probation     = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> protectedData = new LinkedHashMap<>(16, 0.75f, true);
+    private final int                 maxSize;
+    private final int                 maxProtected;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private Stripe(int maxSize) {
+      this.maxSize      = maxSize;
+      this.maxProtected = Math.max(1, (int) (maxSize * PROTECTED_RATIO));
+    }
+
+    synchronized @Nullable V get(@NonNull K key) {
+      V value = protectedData.get(key);
+      if (value != null) {
+        hits++;
+        return value;
+      }
+
+      value = probation.remove(key);
+      if (value != null) {
+        hits++;
+        promote(key, value);
+        return value;
+      }
+
+      misses++;
+      return null;
+    }
+
+    synchronized void put(@NonNull K key, @NonNull V value) {
+      if (protectedData.containsKey(key)) {
+        protectedData.put(key, value);
+      } else {
+        probation.put(key, value);
+        trim();
+      }
+    }
+
+    synchronized @Nullable V putIfAbsent(@NonNull K key, @NonNull V value) {
+      V existing = protectedData.get(key);
+      if (existing == null) {
+        existing = probation.get(key);
+      }
+
+      if (existing == null) {
+        probation.put(key, value);
+        trim();
+      }
+
+      return existing;
+    }
+
+    synchronized @Nullable V remove(@NonNull K key) {
+      V value = protectedData.remove(key);
+      return value != null ? value : probation.remove(key);
+    }
+
+    synchronized boolean containsKey(@NonNull K key) {
+      return protectedData.containsKey(key) || probation.containsKey(key);
+    }
+
+    synchronized void clear() {
+      probation.clear();
+      protectedData.clear();
+    }
+
+    int size() {
+      return probation.size() + protectedData.size();
+    }
+
+    /**
+     * Moves an entry into the protected segment, demoting the least recently used protected entry back to probation
+     * if that segment is full. The total size doesn't change.
+     */
+    private void promote(@NonNull K key, @NonNull V value) {
+      protectedData.put(key, value);
+
+      if (protectedData.size() > maxProtected) {
+        Iterator<Map.Entry<K, V>> iterator = protectedData.entrySet().iterator();
+        Map.Entry<K, V>           eldest   = iterator.next();
+
+        iterator.remove();
+        probation.put(eldest.getKey(), eldest.getValue());
+      }
+    }
+
+    private void trim() {
+      while (size() > maxSize) {
+        Map<K, V>                 segment  = probation.isEmpty() ? protectedData : probation;
+        Iterator<Map.Entry<K, V>> iterator = segment.entrySet().iterator();
+
+        iterator.next();
+        iterator.remove();
+        evictions++;
+      }
+    }
+  }
+}
@@ -259,6 +259,29 @@ public final class SignalLocalMetrics {
     }
 
   }
+
+  public static final class RecipientBatchResolve {
+    public static final String NAME = "recipient-batch-resolve";
+
+    private static final String SPLIT_BATCH_SIZE = "batch-size";
+    private static final String SPLIT_WAIT       = "wait";
+    private static final String SPLIT_RESOLVE    = "resolve";
+
+    /**
+     * @param batchSize The number of recipients resolved together, recorded as a duration.
+     * @param waitMs    How long the oldest recipient in the batch waited before it was read.
+     * @param resolveMs How long it took to read the batch.
+     */
+    public static void onBatchResolved(int batchSize, long waitMs, long resolveMs) {
+      String id = NAME + System.currentTimeMillis();
+      LocalMetrics.getInstance().start(id, NAME);
+      LocalMetrics.getInstance().splitWithDuration(id, SPLIT_BATCH_SIZE, batchSize);
+      LocalMetrics.getInstance().splitWithDuration(id, SPLIT_WAIT, waitMs);
+      LocalMetrics.getInstance().splitWithDuration(id, SPLIT_RESOLVE, resolveMs);
+      LocalMetrics.getInstance().end(id);
+    }
+  }
+
   public static final class PushWebsocketFetch {
     public static final String SUCCESS_EVENT = "push-websocket-fetch";
     public static final String TIMEOUT_EVENT = "timed-out-fetch";
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.video
+
+import android.content.Context
+import androidx.annotation.WorkerThread
+import org.signal.core.util.logging.Log
+import org.thoughtcrime.securesms.crypto.AttachmentSecret
+import org.thoughtcrime.securesms.crypto.ModernDecryptingPartInputStream
+import org.thoughtcrime.securesms.crypto.ModernEncryptingPartOutputStream
+import org.thoughtcrime.securesms.video.videoconverter.segmented.SegmentStorage
+import java.io.Closeable
+import java.io.File
+import java.io.InputStream
+import java.io.OutputStream
+
+/**
+ * Keeps the segments of a video being transcoded in encrypted temp files, the same way the transcoded video itself is
+ * kept. They live in a directory of their own so that any left behind by a process that died mid-transcode can be
+ * found and removed with [deleteAbandonedSegments].
+ */
+class EncryptedSegmentStorage(
+  private val context: Context,
+  private val attachmentSecret: AttachmentSecret
+) : SegmentStorage, Closeable {
+
+  private val files: MutableMap<String, File> = mutableMapOf()
+
+  @Synchronized
+  override fun createOutputStream(name: String): OutputStream {
+    delete(name)
+    val file = newSegmentFile(context)
+    files[name] = file
+    return ModernEncryptingPartOutputStream.createFor(attachmentSecret, file, true).second
+  }
+
+  @Synchronized
+  override fun createInputStream(name: String): InputStream {
+    val file = files[name] ?: throw IllegalStateException("No segment named $name")
+    return ModernDecryptingPartInputStream.createFor(attachmentSecret, file, 0)
+  }
+
+  @Synchronized
+  override fun delete(name: String) {
+    val file = files.remove(name)
+    if (file != null) {
+      deleteSegmentFile(file)
+    }
+  }
+
+  /**
+   * Deletes any segments still held, such as those left behind by a transcode that failed.
+   */
+  @Synchronized
+  override fun close() {
+    files.keys.toList().forEach { delete(it) }
+  }
+
+  companion object {
+    private val TAG = Log.tag(EncryptedSegmentStorage::class.java)
+
+    private const val DIRECTORY = "video_segments"
+
+    /** Segment files owned by an open storage in this process, which [deleteAbandonedSegments] must leave alone. */
+    private val liveFiles: MutableSet<File> = HashSet()
+
+    /**
+     * Deletes segment files that no open storage owns. These can only have been left behind by a process that died
+     * while transcoding.
+     *
+     * @return The number of files deleted.
+     */
+    @JvmStatic
+    @WorkerThread
+    fun deleteAbandonedSegments(context: Context): Int {
+      synchronized(liveFiles) {
+        val abandoned = getDirectory(context).listFiles()?.filterNot { liveFiles.contains(it) } ?: return 0
+        return abandoned.count { it.delete() }
+      }
+    }
+
+    private fun newSegmentFile(context: Context): File {
+      synchronized(liveFiles) {
+        return File.createTempFile("segment", ".mms", getDirectory(context)).also { liveFiles += it }
+      }
+    }
+
+    private fun deleteSegmentFile(file: File) {
+      synchronized(liveFiles) {
+        liveFiles -= file
+      }
+
+      if (!file.delete() && file.exists()) {
+        Log.w(TAG, "Failed to delete segment file")
+      }
+    }
+
+    private fun getDirectory(context: Context): File {
+      return context.getDir(DIRECTORY, Context.MODE_PRIVATE)
+    }
+  }
+}
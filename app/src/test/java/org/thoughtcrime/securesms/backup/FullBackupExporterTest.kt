@@ -138,4 +138,14 @@ class FullBackupExporterTest {
 
     assertEquals(listOf("A", "B", "C", "D", "E"), order)
   }
+
+  @Test
+  fun `buildInsertTemplate - single column`() {
+    assertEquals("INSERT INTO table VALUES (?)", FullBackupExporter.buildInsertTemplate("table", 1))
+  }
+
+  @Test
+  fun `buildInsertTemplate - multiple columns`() {
+    assertEquals("INSERT INTO table VALUES (?,?,?)", FullBackupExporter.buildInsertTemplate("table", 3))
+  }
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.backup
+
+import assertk.assertThat
+import assertk.assertions.isEqualTo
+import assertk.assertions.isFailure
+import assertk.assertions.isInstanceOf
+import assertk.assertions.isLessThanOrEqualTo
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.FileNotFoundException
+import java.io.FilterInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.net.Socket
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.random.Random
+
+class PrefetchingStreamWriterTest {
+
+  @Test
+  fun `streams arrive over a loopback socket in enqueue order with their contents intact`() {
+    val payloads: List<ByteArray> = (0 until 20).map { Random(it).nextBytes(Random(it).nextInt(0, 300_000)) }
+
+    val received = LoopbackSocket().use { socket ->
+      socket.newPrefetcher().use { prefetcher ->
+        payloads.forEachIndexed { index, payload ->
+          prefetcher.enqueue(index.toLong(), payload.size.toLong()) { ByteArrayInputStream(payload) }
+        }
+        prefetcher.flush()
+      }
+      socket.finish()
+    }
+
+    assertThat(received.keys.toList()).isEqualTo(payloads.indices.map { it.toLong() })
+    payloads.forEachIndexed { index, payload ->
+      assertThat(received[index.toLong()]!!.contentEquals(payload)).isEqualTo(true)
+    }
+  }
+
+  @Test
+  fun `missing streams are skipped`() {
+    val received = LoopbackSocket().use { socket ->
+      socket.newPrefetcher().use { prefetcher ->
+        prefetcher.enqueue(1, 3) { ByteArrayInputStream(byteArrayOf(1, 2, 3)) }
+        prefetcher.enqueue(2, 3) { throw FileNotFoundException() }
+        prefetcher.enqueue(3, 3) { ByteArrayInputStream(byteArrayOf(4, 5, 6)) }
+        prefetcher.flush()
+      }
+      socket.finish()
+    }
+
+    assertThat(received.keys.toList()).isEqualTo(listOf(1L, 3L))
+  }
+
+  @Test
+  fun `read failures on a worker are rethrown to the writer`() {
+    LoopbackSocket().use { socket ->
+      socket.newPrefetcher().use { prefetcher ->
+        prefetcher.enqueue(1, 1000) {
+          object : InputStream() {
+            override fun read(): Int = throw IOException("Disk went away")
+          }
+        }
+
+        assertThat(runCatching { prefetcher.flush() }).isFailure().isInstanceOf(IOException::class)
+      }
+    }
+  }
+
+  @Test
+  fun `workers stop reading ahead once their buffers are full`() {
+    val bytesRead = AtomicLong()
+    val size = 10L * 1024 * 1024
+
+    PrefetchingStreamWriter<Long>(Executors.newSingleThreadExecutor(), { _, _, _ -> }, 4, CHUNK_SIZE, BUFFERED_CHUNKS).use { prefetcher ->
+      prefetcher.enqueue(1, size) { CountingInputStream(ZeroInputStream(size), bytesRead) }
+
+      var previous = -1L
+      while (previous != bytesRead.get()) {
+        previous = bytesRead.get()
+        Thread.sleep(50)
+      }
+    }
+
+    assertThat(bytesRead.get()).isLessThanOrEqualTo(CHUNK_SIZE.toLong() * BUFFERED_CHUNKS)
+  }
+
+  @Test
+  fun `each stream is opened and read ahead while the one before it is being written`() {
+    val count = 8
+    val size = CHUNK_SIZE * 4L
+    val readAhead = List(count) { CountDownLatch(1) }
+    val overlapped = BooleanArray(count)
+
+    val writer = PrefetchingStreamWriter.StreamWriter<Long> { id, inputStream, _ ->
+      val next = id.toInt() + 1
+      if (next < count) {
+        overlapped[id.toInt()] = readAhead[next].await(5, TimeUnit.SECONDS)
+      }
+      inputStream.readBytes()
+    }
+
+    PrefetchingStreamWriter(Executors.newFixedThreadPool(4), writer, 4, CHUNK_SIZE, BUFFERED_CHUNKS).use { prefetcher ->
+      for (i in 0 until count) {
+        prefetcher.enqueue(i.toLong(), size) { ReadAheadInputStream(ZeroInputStream(size), readAhead[i]) }
+      }
+      prefetcher.flush()
+    }
+
+    assertThat(overlapped.toList()).isEqualTo(List(count) { it < count - 1 })
+  }
+
+  /**
+   * A connected pair of loopback sockets. Writes are framed as (id, length, bytes) and read back on a background thread.
+   */
+  private class LoopbackSocket : AutoCloseable {
+    private val server = ServerSocket(0, 1, InetAddress.getLoopbackAddress())
+    private val client = Socket(InetAddress.getLoopbackAddress(), server.localPort)
+    private val accepted = server.accept()
+    private val output = DataOutputStream(client.getOutputStream().buffered())
+    private val readerExecutor = Executors.newSingleThreadExecutor()
+
+    private val reader: Future<LinkedHashMap<Long, ByteArray>> = readerExecutor.submit<LinkedHashMap<Long, ByteArray>> {
+      val input = DataInputStream(accepted.getInputStream().buffered())
+      val result = LinkedHashMap<Long, ByteArray>()
+
+      while (true) {
+        val id = try {
+          input.readLong()
+        } catch (e: EOFException) {
+          break
+        }
+        val bytes = ByteArray(input.readLong().toInt())
+        input.readFully(bytes)
+        result[id] = bytes
+      }
+
+      result
+    }
+
+    fun newPrefetcher(): PrefetchingStreamWriter<Long> {
+      return PrefetchingStreamWriter(Executors.newFixedThreadPool(4), this::write, 4, CHUNK_SIZE, BUFFERED_CHUNKS)
+    }
+
+    fun write(id: Long, inputStream: InputStream, size: Long) {
+      output.writeLong(id)
+      output.writeLong(size)
+
+      val buffer = ByteArray(CHUNK_SIZE)
+      var total = 0L
+      while (true) {
+        val read = inputStream.read(buffer)
+        if (read == -1) {
+          break
+        }
+        output.write(buffer, 0, read)
+        total += read
+      }
+
+      if (total != size) {
+        throw IOException("Size mismatch!")
+      }
+    }
+
+    fun finish(): Map<Long, ByteArray> {
+      output.flush()
+      client.shutdownOutput()
+      return reader.get()
+    }
+
+    override fun close() {
+      client.close()
+      accepted.close()
+      server.close()
+      readerExecutor.shutdownNow()
+    }
+  }
+
+  private class ZeroInputStream(private var remaining: Long) : InputStream() {
+    override fun read(): Int = if (remaining-- > 0) 0 else -1
+
+    override fun read(b: ByteArray, off: Int, len: Int): Int {
+      if (remaining <= 0) {
+        return -1
+      }
+      val read = minOf(len.toLong(), remaining).toInt()
+      b.fill(0, off, off + read)
+      remaining -= read
+      return read
+    }
+  }
+
+  private class CountingInputStream(inputStream: InputStream, private val counter: AtomicLong) : FilterInputStream(inputStream) {
+    override fun read(b: ByteArray, off: Int, len: Int): Int {
+      return super.read(b, off, len).also { if (it > 0) counter.addAndGet(it.toLong()) }
+    }
+  }
+
+  /** Counts down [readAhead] once the first bytes have been read from it, which only a worker will do ahead of the writer. */
+  private class ReadAheadInputStream(inputStream: InputStream, private val readAhead: CountDownLatch) : FilterInputStream(inputStream) {
+    override fun read(b: ByteArray, off: Int, len: Int): Int {
+      return super.read(b, off, len).also { if (it > 0) readAhead.countDown() }
+    }
+  }
+
+  companion object {
+    private const val CHUNK_SIZE = 64 * 1024
+    private const val BUFFERED_CHUNKS = 4
+  }
+}
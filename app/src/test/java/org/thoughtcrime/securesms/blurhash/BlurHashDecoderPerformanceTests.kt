@@ -0,0 +1,43 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.blurhash
+
+import org.junit.Ignore
+import org.junit.Test
+import org.thoughtcrime.securesms.blurhash.BlurHashDecoderTest.Companion.HASHES
+import org.thoughtcrime.securesms.blurhash.BlurHashDecoderTest.Companion.referenceDecode
+import kotlin.time.Duration.Companion.nanoseconds
+
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+class BlurHashDecoderPerformanceTests {
+
+  companion object {
+    private const val WARMUP_ITERATIONS = 200
+    private const val ITERATIONS = 2_000
+  }
+
+  @Test
+  fun testPerformance_decode32x32() {
+    repeat(WARMUP_ITERATIONS) { i -> BlurHashDecoder.decodePixels(HASHES[i % HASHES.size], 32, 32, 1.0) }
+
+    val start = System.nanoTime()
+    repeat(ITERATIONS) { i -> BlurHashDecoder.decodePixels(HASHES[i % HASHES.size], 32, 32, 1.0) }
+    val duration = (System.nanoTime() - start).nanoseconds
+
+    println("[decode32x32] $ITERATIONS decodes in $duration (${duration / ITERATIONS} per decode)")
+  }
+
+  @Test
+  fun testPerformance_referenceDecode32x32() {
+    repeat(WARMUP_ITERATIONS) { i -> referenceDecode(HASHES[i % HASHES.size], 32, 32) }
+
+    val start = System.nanoTime()
+    repeat(ITERATIONS) { i -> referenceDecode(HASHES[i % HASHES.size], 32, 32) }
+    val duration = (System.nanoTime() - start).nanoseconds
+
+    println("[referenceDecode32x32] $ITERATIONS decodes in $duration (${duration / ITERATIONS} per decode)")
+  }
+}
@@ -0,0 +1,110 @@
+package org.thoughtcrime.securesms.blurhash
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.math.PI
+import kotlin.math.abs
+import kotlin.math.cos
+
+class BlurHashDecoderTest {
+
+  @Test
+  fun `decodePixels returns null for invalid input`() {
+    assertNull(BlurHashDecoder.decodePixels(null, 32, 32, 1.0))
+    assertNull(BlurHashDecoder.decodePixels("LEH", 32, 32, 1.0))
+    assertNull(BlurHashDecoder.decodePixels(HASH.dropLast(2), 32, 32, 1.0))
+    assertNull(BlurHashDecoder.decodePixels(HASH, 0, 32, 1.0))
+    assertNull(BlurHashDecoder.decodePixels(HASH, 32, 0, 1.0))
+  }
+
+  @Test
+  fun `decodePixels matches reference implementation`() {
+    for ((width, height) in listOf(32 to 32, 20 to 13, 1 to 1, 7 to 20)) {
+      for (hash in HASHES) {
+        val expected = referenceDecode(hash, width, height)
+        val actual = BlurHashDecoder.decodePixels(hash, width, height, 1.0)
+
+        assertNotNull(actual)
+        assertEquals(expected.size, actual!!.size)
+
+        for (i in expected.indices) {
+          assertChannelsClose(expected[i], actual[i])
+        }
+      }
+    }
+  }
+
+  private fun assertChannelsClose(expected: Int, actual: Int) {
+    assertEquals(0xFF, actual ushr 24)
+    for (shift in listOf(16, 8, 0)) {
+      val e = (expected shr shift) and 0xFF
+      val a = (actual shr shift) and 0xFF
+      assertTrue("Expected channel $e but got $a", abs(e - a) <= 1)
+    }
+  }
+
+  companion object {
+    private const val HASH = "LEHV6nWB2yk8pyo0adR*.7kCMdnj"
+
+    internal val HASHES = listOf(
+      HASH,
+      "LGF5]+Yk^6#M@-5c,1J5@[or[Q6.",
+      "L6PZfSi_.AyE_3t7t7R**0o#DgR4",
+      "LKO2?U%2Tw=w]~RBVZRi};RPxuwH"
+    )
+
+    /**
+     * A straight port of the original per-pixel decoder, which evaluates the cosine basis in the inner loop.
+     */
+    internal fun referenceDecode(hash: String, width: Int, height: Int): IntArray {
+      val numCompEnc = Base83.decode(hash, 0, 1)
+      val numCompX = (numCompEnc % 9) + 1
+      val numCompY = (numCompEnc / 9) + 1
+      val maxAc = (Base83.decode(hash, 1, 2) + 1) / 166.0
+
+      val colors = Array(numCompX * numCompY) { i ->
+        if (i == 0) {
+          val value = Base83.decode(hash, 2, 6)
+          doubleArrayOf(
+            BlurHashUtil.sRGBToLinear((value shr 16).toLong()),
+            BlurHashUtil.sRGBToLinear(((value shr 8) and 255).toLong()),
+            BlurHashUtil.sRGBToLinear((value and 255).toLong())
+          )
+        } else {
+          val value = Base83.decode(hash, 4 + i * 2, 6 + i * 2)
+          doubleArrayOf(
+            BlurHashUtil.signPow(((value / (19 * 19)) - 9) / 9.0, 2.0) * maxAc,
+            BlurHashUtil.signPow((((value / 19) % 19) - 9) / 9.0, 2.0) * maxAc,
+            BlurHashUtil.signPow(((value % 19) - 9) / 9.0, 2.0) * maxAc
+          )
+        }
+      }
+
+      return IntArray(width * height) { index ->
+        val x = index % width
+        val y = index / width
+        var r = 0.0
+        var g = 0.0
+        var b = 0.0
+
+        for (j in 0 until numCompY) {
+          for (i in 0 until numCompX) {
+            val basis = cos(PI * x * i / width) * cos(PI * y * j / height)
+            val color = colors[j * numCompX + i]
+            r += color[0] * basis
+            g += color[1] * basis
+            b += color[2] * basis
+          }
+        }
+
+        (0xFF shl 24) or
+          (BlurHashUtil.linearTosRGB(r).toInt() shl 16) or
+          (BlurHashUtil.linearTosRGB(g).toInt() shl 8) or
+          BlurHashUtil.linearTosRGB(b).toInt()
+      }
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.contacts.sync
+
+import org.junit.Ignore
+import org.junit.Test
+import kotlin.time.Duration.Companion.nanoseconds
+
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+class SystemE164CachePerformanceTests {
+
+  companion object {
+    private const val CONTACT_COUNT = 10_000
+    private const val CHANGED_PER_REFRESH = 10
+    private const val ITERATIONS = 200
+  }
+
+  private val formatter = Any()
+
+  private val format: (String) -> String? = { raw ->
+    raw.filter { it.isDigit() }.takeIf { it.length > 6 }?.let { "+1$it" }
+  }
+
+  @Test
+  fun testPerformance_routineRefresh() {
+    val cache = SystemE164Cache()
+    val numbers: Set<String> = (0 until CONTACT_COUNT).map { "(555) ${1_000_000 + it}" }.toSet()
+    cache.toE164s(formatter, numbers, format)
+
+    repeat(ITERATIONS) { i ->
+      val changed = numbers.toMutableSet()
+      for (j in 0 until CHANGED_PER_REFRESH) {
+        changed += "(777) ${i * CHANGED_PER_REFRESH + j + 1_000_000}"
+      }
+
+      val start = System.nanoTime()
+      cache.toE164s(formatter, changed, format)
+      val duration = (System.nanoTime() - start).nanoseconds
+
+      println("[routineRefresh] $CHANGED_PER_REFRESH changed of $CONTACT_COUNT in $duration")
+    }
+  }
+}
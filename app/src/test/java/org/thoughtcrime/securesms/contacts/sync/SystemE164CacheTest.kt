@@ -0,0 +1,77 @@
+package org.thoughtcrime.securesms.contacts.sync
+
+import assertk.assertThat
+import assertk.assertions.containsExactlyInAnyOrder
+import assertk.assertions.isEqualTo
+import assertk.assertions.isSameInstanceAs
+import org.junit.Test
+
+class SystemE164CacheTest {
+
+  private val formatter = Any()
+  private var formatCount = 0
+
+  private val format: (String) -> String? = { raw ->
+    formatCount++
+    raw.filter { it.isDigit() }.takeIf { it.length > 6 }?.let { "+1$it" }
+  }
+
+  @Test
+  fun `first call formats every number`() {
+    val cache = SystemE164Cache()
+
+    val result = cache.toE164s(formatter, setOf("(555) 123-4567", "555.987.6543", "123"), format)
+
+    assertThat(result).containsExactlyInAnyOrder("+15551234567", "+15559876543")
+    assertThat(formatCount).isEqualTo(3)
+    assertThat(cache.lastMissCount).isEqualTo(3)
+  }
+
+  @Test
+  fun `unchanged numbers return previous result without formatting`() {
+    val cache = SystemE164Cache()
+    val numbers = setOf("(555) 123-4567", "555.987.6543")
+
+    val first = cache.toE164s(formatter, numbers, format)
+    val second = cache.toE164s(formatter, numbers.toSet(), format)
+
+    assertThat(second).isSameInstanceAs(first)
+    assertThat(formatCount).isEqualTo(2)
+    assertThat(cache.lastMissCount).isEqualTo(0)
+  }
+
+  @Test
+  fun `only added numbers are formatted`() {
+    val cache = SystemE164Cache()
+
+    cache.toE164s(formatter, setOf("(555) 123-4567", "555.987.6543"), format)
+    val result = cache.toE164s(formatter, setOf("(555) 123-4567", "555.987.6543", "555 000 1111"), format)
+
+    assertThat(result).containsExactlyInAnyOrder("+15551234567", "+15559876543", "+15550001111")
+    assertThat(formatCount).isEqualTo(3)
+    assertThat(cache.lastMissCount).isEqualTo(1)
+  }
+
+  @Test
+  fun `removed numbers are dropped from result`() {
+    val cache = SystemE164Cache()
+
+    cache.toE164s(formatter, setOf("(555) 123-4567", "555.987.6543"), format)
+    val result = cache.toE164s(formatter, setOf("555.987.6543"), format)
+
+    assertThat(result).containsExactlyInAnyOrder("+15559876543")
+    assertThat(cache.lastMissCount).isEqualTo(0)
+  }
+
+  @Test
+  fun `new formatter invalidates cache`() {
+    val cache = SystemE164Cache()
+    val numbers = setOf("(555) 123-4567", "555.987.6543")
+
+    cache.toE164s(formatter, numbers, format)
+    cache.toE164s(Any(), numbers, format)
+
+    assertThat(formatCount).isEqualTo(4)
+    assertThat(cache.lastMissCount).isEqualTo(2)
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.emoji
+
+import org.junit.Before
+import org.junit.Ignore
+import org.junit.Test
+import org.thoughtcrime.securesms.emoji.EmojiSearchIndex.Entry
+import kotlin.random.Random
+import kotlin.time.Duration.Companion.nanoseconds
+
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+class EmojiSearchIndexPerformanceTests {
+
+  companion object {
+    /** Roughly the size of the English search index. */
+    private const val EMOJI_COUNT = 3700
+    private const val TAGS_PER_EMOJI = 6
+    private const val ITERATIONS = 20
+    private const val LIMIT = 50
+
+    private val SEARCHES = listOf("smile", "heart", "thumbs", "cat", "fire", "party", "xyzzy")
+  }
+
+  private lateinit var entries: List<Entry>
+
+  @Before
+  fun setup() {
+    val random = Random(46)
+    val words = (0 until 2000).map { (0 until 3 + random.nextInt(7)).map { 'a' + random.nextInt(26) }.joinToString("") } + SEARCHES.dropLast(1)
+
+    entries = (0 until EMOJI_COUNT).flatMap { i ->
+      val rank = if (i % 4 == 0) EmojiSearchIndex.UNRANKED else 1 + i
+      (0 until TAGS_PER_EMOJI).map {
+        Entry((0 until 1 + random.nextInt(3)).joinToString(" ") { words.random(random) }, "emoji$i", rank)
+      }
+    }
+  }
+
+  @Test
+  fun testPerformance_build() {
+    repeat(ITERATIONS) {
+      val start = System.nanoTime()
+      EmojiSearchIndex(entries)
+      val duration = (System.nanoTime() - start).nanoseconds
+
+      println("[build] Indexed ${entries.size} labels in $duration")
+    }
+  }
+
+  /**
+   * Every prefix of each search, as if it were typed one letter at a time.
+   */
+  @Test
+  fun testPerformance_typing() {
+    val index = EmojiSearchIndex(entries)
+    val keystrokes = SEARCHES.flatMap { search -> (1..search.length).map { search.substring(0, it) } }
+
+    repeat(ITERATIONS) {
+      val start = System.nanoTime()
+      for (query in keystrokes) {
+        index.query(query, LIMIT)
+      }
+      val duration = (System.nanoTime() - start).nanoseconds
+
+      println("[typing] ${keystrokes.size} keystrokes over ${entries.size} labels in $duration (${duration / keystrokes.size} per keystroke)")
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.emoji
+
+import assertk.assertThat
+import assertk.assertions.containsExactly
+import assertk.assertions.isEmpty
+import assertk.assertions.isEqualTo
+import org.junit.Test
+import org.thoughtcrime.securesms.emoji.EmojiSearchIndex.Entry
+import kotlin.random.Random
+
+class EmojiSearchIndexTest {
+
+  @Test
+  fun `blank query returns nothing`() {
+    val index = EmojiSearchIndex(listOf(Entry("smile", "😄", 1)))
+
+    assertThat(index.query("  ", 10)).isEmpty()
+  }
+
+  @Test
+  fun `exact label match beats prefix match beats infix match`() {
+    val index = EmojiSearchIndex(
+      listOf(
+        Entry("grinning cat", "😺", 1),
+        Entry("cats", "🐈", 2),
+        Entry("cat", "🐱", 3)
+      )
+    )
+
+    assertThat(index.query("cat", 10)).containsExactly("🐱", "🐈", "😺")
+  }
+
+  @Test
+  fun `query is case insensitive and trimmed`() {
+    val index = EmojiSearchIndex(listOf(Entry("thumbs up", "👍", 1)))
+
+    assertThat(index.query(" Thumbs ", 10)).containsExactly("👍")
+  }
+
+  @Test
+  fun `emoji can be searched for directly`() {
+    val index = EmojiSearchIndex(listOf(Entry("heart", "❤️", 1), Entry("red", "❤️", 1), Entry("broken heart", "💔", 2)))
+
+    assertThat(index.query("❤️", 10)).containsExactly("❤️")
+  }
+
+  @Test
+  fun `each emoji is returned once, for its best matching label`() {
+    val index = EmojiSearchIndex(
+      listOf(
+        Entry("face with tears of joy", "😂", 1),
+        Entry("joy", "😂", 1),
+        Entry("joystick", "🕹️", EmojiSearchIndex.UNRANKED)
+      )
+    )
+
+    assertThat(index.query("joy", 10)).containsExactly("😂", "🕹️")
+  }
+
+  @Test
+  fun `long queries only match labels containing the whole query`() {
+    val index = EmojiSearchIndex(listOf(Entry("sparkling heart", "💖", 1), Entry("heartbeat", "💓", 2), Entry("spark", "✨", 3)))
+
+    assertThat(index.query("sparkling", 10)).containsExactly("💖")
+    assertThat(index.query("sparkly", 10)).isEmpty()
+  }
+
+  @Test
+  fun `results are limited`() {
+    val index = EmojiSearchIndex((1..20).map { Entry("face $it", "e$it", it) })
+
+    assertThat(index.query("face", 5)).containsExactly("e1", "e2", "e3", "e4", "e5")
+  }
+
+  @Test
+  fun `random queries match a full scan`() {
+    val random = Random(46)
+    val alphabet = "abcdefgh "
+
+    repeat(20) {
+      val entries = (0 until 500).map { i ->
+        Entry(
+          label = (0 until 1 + random.nextInt(12)).map { alphabet[random.nextInt(alphabet.length)] }.joinToString(""),
+          emoji = "e${i / 3}",
+          rank = if (random.nextInt(4) == 0) EmojiSearchIndex.UNRANKED else 1 + random.nextInt(100)
+        )
+      }
+      val index = EmojiSearchIndex(entries)
+
+      repeat(50) {
+        val query = (0 until 1 + random.nextInt(5)).map { alphabet[random.nextInt(alphabet.length)] }.joinToString("")
+        val limit = 1 + random.nextInt(60)
+
+        assertThat(index.query(query, limit)).isEqualTo(fullScan(entries, query, limit))
+      }
+    }
+  }
+
+  /**
+   * How the search worked when it was done against the database.
+   */
+  private fun fullScan(entries: List<Entry>, originalQuery: String, limit: Int): List<String> {
+    val query = originalQuery.trim()
+    if (query.isEmpty()) {
+      return emptyList()
+    }
+
+    val searchTerm = query.lowercase()
+    val maxRank = entries.filter { it.rank != EmojiSearchIndex.UNRANKED }.maxOfOrNull { it.rank } ?: 0
+
+    fun scaledRank(entry: Entry): Float {
+      return if (entry.rank == EmojiSearchIndex.UNRANKED) 2f else entry.rank * (2f / maxRank)
+    }
+
+    fun score(entry: Entry): Float {
+      val label = entry.label.lowercase()
+      if (query == entry.emoji || searchTerm == label) {
+        return scaledRank(entry)
+      }
+
+      val startIndex = label.indexOf(searchTerm)
+      return 2f + (startIndex * 1.75f) + ((label.length - startIndex - searchTerm.length) * 0.75f) + scaledRank(entry)
+    }
+
+    return entries
+      .sortedBy { it.rank }
+      .filter { it.label.lowercase().contains(searchTerm) || it.emoji == query }
+      .take(maxOf(limit, 200))
+      .sortedBy { score(it) }
+      .distinctBy { it.emoji }
+      .take(limit)
+      .map { it.emoji }
+  }
+}
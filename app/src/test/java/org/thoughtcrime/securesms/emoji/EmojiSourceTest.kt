@@ -1,6 +1,7 @@
 package org.thoughtcrime.securesms.emoji
 
 import android.net.Uri
+import io.mockk.mockk
 import org.junit.Assert
 import org.junit.Test
 import org.thoughtcrime.securesms.components.emoji.Emoji
@@ -16,6 +17,17 @@ class EmojiSourceTest {
     Assert.assertEquals(6, testSubject.maxEmojiLength)
   }
 
+  @Test
+  fun `Given pages across categories, when I get the pages around a category, then I expect its pages and then their neighbors`() {
+    val pages = listOf("People", "People", "Nature", "Foods", "Foods", "Activity").map { SpritePageModelFake(it, mockk()) }
+    val emojiDataFake = ParsedEmojiData(EmojiMetrics(-1, -1, -1), listOf(), "png", listOf(), dataPages = pages, emptyMap(), listOf())
+    val testSubject = EmojiSource(0f, emojiDataFake) { uri -> EmojiPage.Disk(uri) }
+
+    Assert.assertEquals(listOf(0, 1, 2).map { EmojiPage.Disk(pages[it].spriteUri) }, testSubject.getPagesAround("People"))
+    Assert.assertEquals(listOf(3, 4, 5, 2).map { EmojiPage.Disk(pages[it].spriteUri) }, testSubject.getPagesAround("Foods"))
+    Assert.assertEquals(emptyList<EmojiPage>(), testSubject.getPagesAround("Flags"))
+  }
+
   private fun generatePages() = (1..10).map { EmojiPageModelFake((1..100).shuffled().map { Emoji("$it$it") }) }
 
   private class EmojiPageModelFake(private val displayE: List<Emoji>) : EmojiPageModel {
@@ -32,4 +44,19 @@ class EmojiSourceTest {
 
     override fun isDynamic(): Boolean = TODO("Not yet implemented")
   }
+
+  private class SpritePageModelFake(private val key: String, private val sprite: Uri) : EmojiPageModel {
+
+    override fun getKey(): String = key
+
+    override fun getEmoji(): List<String> = emptyList()
+
+    override fun getDisplayEmoji(): List<Emoji> = emptyList()
+
+    override fun getIconAttr(): Int = TODO("Not yet implemented")
+
+    override fun getSpriteUri(): Uri = sprite
+
+    override fun isDynamic(): Boolean = false
+  }
 }
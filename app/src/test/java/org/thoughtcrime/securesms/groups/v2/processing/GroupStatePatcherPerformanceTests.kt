@@ -0,0 +1,113 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.groups.v2.processing
+
+import assertk.assertThat
+import assertk.assertions.isEqualTo
+import okio.ByteString.Companion.toByteString
+import org.junit.Before
+import org.junit.Ignore
+import org.junit.Test
+import org.signal.core.util.logging.Log
+import org.signal.storageservice.protos.groups.Member
+import org.signal.storageservice.protos.groups.local.DecryptedGroup
+import org.signal.storageservice.protos.groups.local.DecryptedGroupChange
+import org.signal.storageservice.protos.groups.local.DecryptedMember
+import org.signal.storageservice.protos.groups.local.DecryptedModifyMemberRole
+import org.signal.storageservice.protos.groups.local.DecryptedString
+import org.thoughtcrime.securesms.testutil.LogRecorder
+import org.whispersystems.signalservice.api.groupsv2.DecryptedGroupChangeLog
+import org.whispersystems.signalservice.api.groupsv2.DecryptedGroupUtil
+import org.whispersystems.signalservice.api.groupsv2.GroupChangeUtil
+import org.whispersystems.signalservice.api.util.UuidUtil
+import java.util.UUID
+import kotlin.random.Random
+import kotlin.time.Duration.Companion.nanoseconds
+
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+class GroupStatePatcherPerformanceTests {
+
+  companion object {
+    private const val MEMBER_COUNT = 1000
+    private const val CHANGE_COUNT = 500
+    private const val ITERATIONS = 5
+  }
+
+  private lateinit var initialState: DecryptedGroup
+  private lateinit var history: List<DecryptedGroupChangeLog>
+
+  @Before
+  fun setup() {
+    Log.initialize(LogRecorder())
+
+    val random = Random(45)
+    val members = (0 until MEMBER_COUNT).map { member() }.toMutableList()
+
+    initialState = DecryptedGroup.Builder()
+      .revision(0)
+      .title("Title")
+      .members(members)
+      .build()
+
+    history = (1..CHANGE_COUNT).map { revision ->
+      val change = DecryptedGroupChange.Builder()
+        .revision(revision)
+        .editorServiceIdBytes(members[0].aciBytes)
+
+      // Roughly what a busy group sees: mostly profile key updates, with some joins, leaves, role and title changes
+      when (random.nextInt(10)) {
+        0 -> member().also { members += it; change.newMembers(listOf(it)) }
+        1 -> members.removeAt(1 + random.nextInt(members.size - 1)).also { change.deleteMembers(listOf(it.aciBytes)) }
+        2 -> change.modifyMemberRoles(listOf(DecryptedModifyMemberRole.Builder().aciBytes(members.random(random).aciBytes).role(Member.Role.ADMINISTRATOR).build()))
+        3 -> change.newTitle(DecryptedString.Builder().value_("Title $revision").build())
+        else -> change.modifiedProfileKeys(listOf(members.random(random).newBuilder().profileKey(random.nextBytes(32).toByteString()).build()))
+      }
+
+      DecryptedGroupChangeLog(null, change.build())
+    }
+  }
+
+  @Test
+  fun testPerformance_applyGroupStateDiff() {
+    repeat(ITERATIONS) {
+      val start = System.nanoTime()
+      val result = GroupStatePatcher.applyGroupStateDiff(GroupStateDiff(initialState, history, null), GroupStatePatcher.LATEST)
+      val duration = (System.nanoTime() - start).nanoseconds
+
+      println("[applyGroupStateDiff] Applied $CHANGE_COUNT changes to a $MEMBER_COUNT member group in $duration")
+      assertThat(result.processedLogEntries.size).isEqualTo(CHANGE_COUNT)
+    }
+  }
+
+  /**
+   * Applies and resolves each change against a whole group state, as the patcher does when the history contains server states.
+   */
+  @Test
+  fun testPerformance_applyOneAtATime() {
+    repeat(ITERATIONS) {
+      val start = System.nanoTime()
+      var state = initialState
+      val applied = history.map { entry ->
+        val change = entry.change!!
+        val resolved = GroupChangeUtil.resolveConflict(state, change).build()
+        state = DecryptedGroupUtil.applyWithoutRevisionCheck(state, change)
+        AppliedGroupChangeLog(state, resolved)
+      }
+      val duration = (System.nanoTime() - start).nanoseconds
+
+      println("[applyOneAtATime] Applied $CHANGE_COUNT changes to a $MEMBER_COUNT member group in $duration")
+      assertThat(applied.size).isEqualTo(CHANGE_COUNT)
+    }
+  }
+
+  private fun member(): DecryptedMember {
+    return DecryptedMember.Builder()
+      .aciBytes(UuidUtil.toByteString(UUID.randomUUID()))
+      .role(Member.Role.DEFAULT)
+      .profileKey(Random.nextBytes(32).toByteString())
+      .build()
+  }
+}
@@ -10,9 +10,11 @@ import assertk.assertions.isSameInstanceAs
 import org.junit.Before
 import org.junit.Test
 import org.signal.core.util.logging.Log
+import org.signal.storageservice.protos.groups.Member
 import org.signal.storageservice.protos.groups.local.DecryptedGroup
 import org.signal.storageservice.protos.groups.local.DecryptedGroupChange
 import org.signal.storageservice.protos.groups.local.DecryptedMember
+import org.signal.storageservice.protos.groups.local.DecryptedModifyMemberRole
 import org.signal.storageservice.protos.groups.local.DecryptedString
 import org.thoughtcrime.securesms.testutil.LogRecorder
 import org.whispersystems.signalservice.api.groupsv2.DecryptedGroupChangeLog
@@ -771,6 +773,53 @@ class GroupStatePatcherTest {
     assertThat(advanceGroupStateResult.updatedGroupState).isEqualTo(log2.group)
   }
 
+  @Test
+  fun known_group_changes_without_states_are_applied_and_resolved() {
+    val existingMember = DecryptedMember.Builder().aciBytes(UuidUtil.toByteString(UUID.randomUUID())).role(Member.Role.DEFAULT).build()
+    val newMember = DecryptedMember.Builder().aciBytes(UuidUtil.toByteString(UUID.randomUUID())).role(Member.Role.DEFAULT).build()
+    val currentState = state(0).newBuilder().members(listOf(existingMember)).build()
+    val log1 = logEntryMissingState(1)
+    val log2 = DecryptedGroupChangeLog(
+      null,
+      DecryptedGroupChange.Builder()
+        .revision(2)
+        .editorServiceIdBytes(UuidUtil.toByteString(KNOWN_EDITOR))
+        .newMembers(listOf(existingMember, newMember))
+        .build()
+    )
+    val log3 = DecryptedGroupChangeLog(
+      null,
+      DecryptedGroupChange.Builder()
+        .revision(3)
+        .modifyMemberRoles(listOf(DecryptedModifyMemberRole.Builder().aciBytes(UuidUtil.toByteString(UUID.randomUUID())).role(Member.Role.ADMINISTRATOR).build()))
+        .build()
+    )
+    val log4 = logEntryMissingState(4)
+
+    val advanceGroupStateResult = GroupStatePatcher.applyGroupStateDiff(
+      /* inputState = */
+      GroupStateDiff(
+        previousGroupState = currentState,
+        serverHistory = listOf(log1, log2, log3, log4),
+        groupSendEndorsementsResponse = null
+      ),
+      /* maximumRevisionToApply = */
+      GroupStatePatcher.LATEST
+    )
+
+    val state1 = currentState.newBuilder().revision(1).title("Group Revision 1").build()
+    val state2 = state1.newBuilder().revision(2).members(listOf(existingMember, newMember)).build()
+    val state4 = state2.newBuilder().revision(4).title("Group Revision 4").build()
+
+    assertThat(advanceGroupStateResult.processedLogEntries).containsOnly(
+      AppliedGroupChangeLog(state1, log1.change),
+      AppliedGroupChangeLog(state2, log2.change!!.newBuilder().newMembers(listOf(newMember)).build()),
+      AppliedGroupChangeLog(state4, log4.change)
+    )
+    assertThat(advanceGroupStateResult.remainingRemoteGroupChanges).isEmpty()
+    assertThat(advanceGroupStateResult.updatedGroupState).isEqualTo(state4)
+  }
+
   companion object {
     private val KNOWN_EDITOR = UUID.randomUUID()
 
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.mediasend
+
+import org.junit.Before
+import org.junit.Ignore
+import org.junit.Test
+import kotlin.random.Random
+import kotlin.time.Duration.Companion.nanoseconds
+
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+class MediaIndexPerformanceTests {
+
+  companion object {
+    private const val INDEX_SIZE = 50_000
+    private const val BUILD_ITERATIONS = 20
+    private const val ADD_ITERATIONS = 200
+    private const val ADDED_PER_ITERATION = 10
+  }
+
+  private lateinit var index: MediaIndex
+
+  @Before
+  fun setUp() {
+    val random = Random(7)
+    val builder = MediaIndex.Builder()
+    for (id in 0L until INDEX_SIZE) {
+      builder.add(id, 1_600_000_000L - id * 60, random.nextInt(5) == 0)
+    }
+    index = builder.build()
+  }
+
+  @Test
+  fun testPerformance_build() {
+    repeat(BUILD_ITERATIONS) {
+      val start = System.nanoTime()
+      val rebuild = MediaIndex.Builder(index.size)
+      for (i in 0 until index.size) {
+        rebuild.add(index.getId(i), index.getDate(i), index.isVideo(i))
+      }
+      rebuild.build()
+      val duration = (System.nanoTime() - start).nanoseconds
+
+      println("[build] $INDEX_SIZE items in $duration")
+    }
+  }
+
+  @Test
+  fun testPerformance_addToExisting() {
+    val start = System.nanoTime()
+    for (i in 0 until ADD_ITERATIONS) {
+      val added = MediaIndex.Builder()
+      for (n in 0 until ADDED_PER_ITERATION) {
+        added.add(100_000L + i * ADDED_PER_ITERATION + n, 1_700_000_000L + n, false)
+      }
+      index + added.build()
+    }
+    val duration = (System.nanoTime() - start).nanoseconds
+
+    println("[addToExisting] $ADD_ITERATIONS merges of $ADDED_PER_ITERATION items into $INDEX_SIZE in $duration (${duration / ADD_ITERATIONS} per merge)")
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.mediasend
+
+import assertk.assertThat
+import assertk.assertions.isEqualTo
+import assertk.assertions.isSameInstanceAs
+import org.junit.Test
+import kotlin.random.Random
+
+class MediaIndexTest {
+
+  @Test
+  fun `given unsorted items, when I build, then newest first with images before videos on equal dates`() {
+    val index = MediaIndex.Builder()
+      .add(id = 1, date = 100, isVideo = false)
+      .add(id = 2, date = 300, isVideo = true)
+      .add(id = 3, date = 200, isVideo = false)
+      .add(id = 4, date = 300, isVideo = false)
+      .add(id = 5, date = 200, isVideo = false)
+      .build()
+
+    assertThat(index.ids()).isEqualTo(listOf(4L, 2L, 5L, 3L, 1L))
+    assertThat(index.imageCount).isEqualTo(4)
+    assertThat(index.videoCount).isEqualTo(1)
+  }
+
+  @Test
+  fun `given images and videos, when I merge, then same order as building them together`() {
+    val random = Random(42)
+    val images = MediaIndex.Builder()
+    val videos = MediaIndex.Builder()
+    val all = MediaIndex.Builder()
+
+    for (id in 0L until 500L) {
+      val date = random.nextLong(50)
+      val isVideo = random.nextInt(4) == 0
+
+      (if (isVideo) videos else images).add(id, date, isVideo)
+      all.add(id, date, isVideo)
+    }
+
+    val merged = images.build() + videos.build()
+
+    assertThat(merged.ids()).isEqualTo(all.build().ids())
+  }
+
+  @Test
+  fun `given an existing index, when I add newer media, then it is placed first`() {
+    val existing = MediaIndex.Builder()
+      .add(id = 1, date = 100, isVideo = false)
+      .add(id = 2, date = 200, isVideo = true)
+      .build()
+
+    val added = MediaIndex.Builder()
+      .add(id = 3, date = 300, isVideo = false)
+      .build()
+
+    val updated = existing + added
+
+    assertThat(updated.ids()).isEqualTo(listOf(3L, 2L, 1L))
+    assertThat(updated.isVideo(1)).isEqualTo(true)
+    assertThat(updated.getDate(0)).isEqualTo(300L)
+  }
+
+  @Test
+  fun `given nothing added, when I merge, then the existing index is reused`() {
+    val existing = MediaIndex.Builder().add(id = 1, date = 100, isVideo = false).build()
+
+    assertThat(existing + MediaIndex.EMPTY).isSameInstanceAs(existing)
+    assertThat(MediaIndex.EMPTY + existing).isSameInstanceAs(existing)
+  }
+
+  private fun MediaIndex.ids(): List<Long> = (0 until size).map { getId(it) }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.recipients
+
+import android.app.Application
+import android.os.Looper
+import assertk.assertThat
+import assertk.assertions.containsExactly
+import assertk.assertions.isEmpty
+import assertk.assertions.isEqualTo
+import io.mockk.every
+import io.mockk.justRun
+import io.mockk.mockk
+import io.mockk.mockkStatic
+import io.mockk.unmockkStatic
+import io.mockk.verify
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.annotation.Config
+import org.thoughtcrime.securesms.database.RecipientTable.MissingRecipientException
+import org.thoughtcrime.securesms.util.SignalLocalMetrics
+import java.time.Duration
+import java.util.concurrent.Executor
+
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE, application = Application::class)
+class LiveRecipientBatchResolverTest {
+
+  private val tasks = ArrayDeque<Runnable>()
+  private val loads = mutableListOf<List<RecipientId>>()
+  private val executor = Executor { tasks.add(it) }
+
+  @Before
+  fun setUp() {
+    mockkStatic(SignalLocalMetrics.RecipientBatchResolve::class)
+    justRun { SignalLocalMetrics.RecipientBatchResolve.onBatchResolved(any(), any(), any()) }
+  }
+
+  @After
+  fun tearDown() {
+    unmockkStatic(SignalLocalMetrics.RecipientBatchResolve::class)
+  }
+
+  @Test
+  fun `given misses on the main thread within a frame, when the frame passes, then they are loaded together`() {
+    val resolver = LiveRecipientBatchResolver(executor) { ids -> loadResolved(ids) }
+    val lives = (1L..3L).map { unresolvedLive(it) }
+
+    lives.forEach { resolver.enqueue(it) }
+    assertThat(tasks).isEmpty()
+
+    shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(16))
+    runTasks()
+
+    assertThat(loads).containsExactly(lives.map { it.id })
+    lives.forEach { live -> verify { live.setIfResolving(match { it.id == live.id && !it.isResolving }) } }
+  }
+
+  @Test
+  fun `given a recipient resolved before the batch runs, when the batch runs, then it is not loaded again`() {
+    val resolver = LiveRecipientBatchResolver(executor) { ids -> loadResolved(ids) }
+    val resolved = unresolvedLive(1)
+    val unresolved = unresolvedLive(2)
+
+    resolver.enqueue(resolved)
+    resolver.enqueue(unresolved)
+    every { resolved.get() } returns RecipientCreator.forId(resolved.id, resolved = true)
+
+    shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(16))
+    runTasks()
+
+    assertThat(loads).containsExactly(listOf(unresolved.id))
+    verify(exactly = 0) { resolved.setIfResolving(any()) }
+  }
+
+  @Test
+  fun `given a missing recipient, when the batch runs, then each recipient is resolved individually`() {
+    val resolver = LiveRecipientBatchResolver(executor) { ids -> throw MissingRecipientException(ids.first()) }
+    val lives = (1L..2L).map { unresolvedLive(it) }
+
+    lives.forEach { resolver.enqueue(it) }
+    shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(16))
+    runTasks()
+
+    lives.forEach { verify(exactly = 1) { it.resolve() } }
+  }
+
+  @Test
+  fun `given a recipient missing from the result, when the batch runs, then only it is resolved individually`() {
+    val resolver = LiveRecipientBatchResolver(executor) { ids -> loadResolved(ids.drop(1)) }
+    val remapped = unresolvedLive(1)
+    val found = unresolvedLive(2)
+
+    resolver.enqueue(remapped)
+    resolver.enqueue(found)
+    shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(16))
+    runTasks()
+
+    verify(exactly = 1) { remapped.resolve() }
+    verify(exactly = 0) { found.resolve() }
+    verify(exactly = 1) { found.setIfResolving(any()) }
+  }
+
+  @Test
+  fun `given a miss off the main thread, when it is enqueued, then it is resolved without waiting for a frame`() {
+    val resolver = LiveRecipientBatchResolver(executor) { ids -> loadResolved(ids) }
+    val live = unresolvedLive(1)
+
+    Thread { resolver.enqueue(live) }.apply { start() }.join()
+    assertThat(tasks.size).isEqualTo(1)
+
+    runTasks()
+
+    assertThat(loads).containsExactly(listOf(live.id))
+  }
+
+  private fun loadResolved(ids: Collection<RecipientId>): Map<RecipientId, Recipient> {
+    loads += ids.toList()
+    return ids.associateWith { RecipientCreator.forId(it, resolved = true) }
+  }
+
+  private fun runTasks() {
+    while (tasks.isNotEmpty()) {
+      tasks.removeFirst().run()
+    }
+  }
+
+  private fun unresolvedLive(id: Long): LiveRecipient {
+    val recipientId = RecipientId.from(id)
+    return mockk(relaxed = true) {
+      every { this@mockk.id } returns recipientId
+      every { get() } returns RecipientCreator.forId(recipientId)
+    }
+  }
+}
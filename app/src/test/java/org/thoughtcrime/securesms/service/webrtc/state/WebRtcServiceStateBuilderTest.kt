@@ -0,0 +1,160 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.service.webrtc.state
+
+import assertk.assertThat
+import assertk.assertions.containsExactly
+import assertk.assertions.isEmpty
+import assertk.assertions.isEqualTo
+import assertk.assertions.isFalse
+import assertk.assertions.isNotSameInstanceAs
+import assertk.assertions.isSameInstanceAs
+import assertk.assertions.isTrue
+import io.mockk.mockk
+import org.junit.Before
+import org.junit.Test
+import org.signal.core.util.logging.Log
+import org.signal.ringrtc.CallId
+import org.thoughtcrime.securesms.components.webrtc.BroadcastVideoSink
+import org.thoughtcrime.securesms.events.CallParticipant
+import org.thoughtcrime.securesms.events.CallParticipantId
+import org.thoughtcrime.securesms.events.WebRtcViewModel
+import org.thoughtcrime.securesms.recipients.Recipient
+import org.thoughtcrime.securesms.recipients.RecipientId
+import org.thoughtcrime.securesms.ringrtc.RemotePeer
+import org.thoughtcrime.securesms.service.webrtc.WebRtcActionProcessor
+import org.thoughtcrime.securesms.testutil.LogRecorder
+import org.webrtc.PeerConnection
+
+class WebRtcServiceStateBuilderTest {
+
+  private lateinit var initial: WebRtcServiceState
+
+  @Before
+  fun setUp() {
+    Log.initialize(LogRecorder())
+
+    val builder = WebRtcServiceState(mockk<WebRtcActionProcessor>()).builder().changeCallInfoState()
+    (1L..5L).forEach { builder.putParticipant(participantId(it), participant(it)) }
+    initial = builder.build()
+  }
+
+  @Test
+  fun `unchanged sub-states are shared with the previous state`() {
+    val next = initial.builder()
+      .changeLocalDeviceState()
+      .isMicrophoneEnabled(false)
+      .build()
+
+    assertThat(next.localDeviceState).isNotSameInstanceAs(initial.localDeviceState)
+    assertThat(next.callInfoState).isSameInstanceAs(initial.callInfoState)
+    assertThat(next.videoState).isSameInstanceAs(initial.videoState)
+    assertThat(initial.localDeviceState.isMicrophoneEnabled).isTrue()
+  }
+
+  @Test
+  fun `participants are shared when only other call info changes`() {
+    val next = initial.builder()
+      .changeCallInfoState()
+      .callState(WebRtcViewModel.State.CALL_CONNECTED)
+      .build()
+
+    assertThat(next.callInfoState.remoteParticipants).isSameInstanceAs(initial.callInfoState.remoteParticipants)
+    assertThat(initial.callInfoState.callState).isEqualTo(WebRtcViewModel.State.IDLE)
+  }
+
+  @Test
+  fun `changing a participant leaves the previous state alone`() {
+    val raised = participant(3).withHandRaisedTimestamp(100)
+
+    val next = initial.builder()
+      .changeCallInfoState()
+      .putParticipant(participantId(3), raised)
+      .build()
+
+    assertThat(next.callInfoState.getRemoteCallParticipant(participantId(3))).isEqualTo(raised)
+    assertThat(initial.callInfoState.getRemoteCallParticipant(participantId(3))!!.isHandRaised).isFalse()
+    assertThat(next.callInfoState.remoteCallParticipants.map { it.callParticipantId.demuxId }).containsExactly(1L, 2L, 3L, 4L, 5L)
+  }
+
+  @Test
+  fun `clearing participants leaves the previous state alone`() {
+    val next = initial.builder()
+      .changeCallInfoState()
+      .clearParticipantMap()
+      .putParticipant(participantId(6), participant(6))
+      .build()
+
+    assertThat(next.callInfoState.remoteCallParticipants.map { it.callParticipantId.demuxId }).containsExactly(6L)
+    assertThat(initial.callInfoState.remoteCallParticipants.size).isEqualTo(5)
+  }
+
+  @Test
+  fun `identity changes and peers leave the previous state alone`() {
+    val peer = RemotePeer(RecipientId.from(10), CallId(10L))
+
+    val next = initial.builder()
+      .changeCallInfoState()
+      .addIdentityChangedRecipients(listOf(RecipientId.from(1)))
+      .putRemotePeer(peer)
+      .build()
+
+    assertThat(next.callInfoState.identityChangedRecipients).containsExactly(RecipientId.from(1))
+    assertThat(next.callInfoState.getPeer(peer.hashCode())).isEqualTo(peer)
+    assertThat(initial.callInfoState.identityChangedRecipients).isEmpty()
+    assertThat(initial.callInfoState.peerMap).isEmpty()
+  }
+
+  @Test
+  fun `ice servers leave the previous state alone`() {
+    val callId = CallId(1L)
+    val first = initial.builder()
+      .changeCallSetupState(callId)
+      .iceServers(listOf(PeerConnection.IceServer.builder("turn:one").createIceServer()))
+      .build()
+
+    val second = first.builder()
+      .changeCallSetupState(callId)
+      .iceServers(emptyList())
+      .build()
+
+    assertThat(first.getCallSetupState(callId).iceServers.size).isEqualTo(1)
+    assertThat(second.getCallSetupState(callId).iceServers).isEmpty()
+  }
+
+  @Test
+  fun `terminate keeps the peers`() {
+    val peer = RemotePeer(RecipientId.from(10), CallId(10L))
+    val withPeer = initial.builder().changeCallInfoState().putRemotePeer(peer).build()
+
+    val terminated = withPeer.builder().terminate(peer.callId).build()
+
+    assertThat(terminated.callInfoState.getPeer(peer.hashCode())).isEqualTo(peer)
+    assertThat(terminated.callInfoState.remoteCallParticipants).isEmpty()
+  }
+
+  private fun participantId(id: Long): CallParticipantId {
+    return CallParticipantId(id, RecipientId.from(id))
+  }
+
+  private fun participant(id: Long): CallParticipant {
+    return CallParticipant.createRemote(
+      callParticipantId = participantId(id),
+      recipient = Recipient.UNKNOWN,
+      identityKey = null,
+      renderer = BroadcastVideoSink(),
+      isForwardingVideo = false,
+      audioEnabled = true,
+      videoEnabled = false,
+      handRaisedTimestamp = CallParticipant.HAND_LOWERED,
+      lastSpoke = 0,
+      mediaKeysReceived = true,
+      addedToCallTime = id,
+      isScreenSharing = false,
+      deviceOrdinal = CallParticipant.DeviceOrdinal.PRIMARY
+    )
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.service.webrtc.state
+
+import io.mockk.mockk
+import org.junit.Before
+import org.junit.Ignore
+import org.junit.Test
+import org.signal.core.util.logging.Log
+import org.thoughtcrime.securesms.components.sensors.Orientation
+import org.thoughtcrime.securesms.components.webrtc.BroadcastVideoSink
+import org.thoughtcrime.securesms.events.CallParticipant
+import org.thoughtcrime.securesms.events.CallParticipantId
+import org.thoughtcrime.securesms.recipients.Recipient
+import org.thoughtcrime.securesms.recipients.RecipientId
+import org.thoughtcrime.securesms.ringrtc.RemotePeer
+import org.thoughtcrime.securesms.service.webrtc.WebRtcActionProcessor
+import org.thoughtcrime.securesms.testutil.LogRecorder
+import kotlin.random.Random
+import kotlin.time.Duration.Companion.nanoseconds
+
+/**
+ * Plays back the kind of events a large group call produces, in roughly the proportions they show up in.
+ */
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+class WebRtcServiceStatePerformanceTests {
+
+  companion object {
+    private const val PARTICIPANT_COUNT = 75
+    private const val EVENT_COUNT = 20_000
+    private const val ITERATIONS = 10
+  }
+
+  private lateinit var participants: List<CallParticipant>
+  private lateinit var initial: WebRtcServiceState
+
+  @Before
+  fun setup() {
+    Log.initialize(LogRecorder())
+
+    participants = (1L..PARTICIPANT_COUNT).map { participant(it) }
+
+    val builder = WebRtcServiceState(mockk<WebRtcActionProcessor>()).builder().changeCallInfoState()
+    participants.forEach { builder.putParticipant(it.callParticipantId, it) }
+    initial = builder.build()
+  }
+
+  @Test
+  fun testPerformance_eventStream() {
+    repeat(ITERATIONS) {
+      val random = Random(49)
+      var state = initial
+      var ephemeralState = WebRtcEphemeralState()
+      var stateEvents = 0
+      var ephemeralEvents = 0
+
+      val start = System.nanoTime()
+      repeat(EVENT_COUNT) { i ->
+        when (random.nextInt(100)) {
+          in 0 until 60 -> {
+            ephemeralState = ephemeralState.withAudioLevels(CallParticipant.AudioLevel.LOWEST, audioLevels(random))
+            ephemeralEvents++
+          }
+          in 60 until 85 -> {
+            state = remoteDevicesChanged(state, random)
+            stateEvents++
+          }
+          in 85 until 90 -> {
+            val participant = participants[random.nextInt(PARTICIPANT_COUNT)]
+            state = state.builder()
+              .changeCallInfoState()
+              .putParticipant(participant.callParticipantId, participant.withHandRaisedTimestamp(i.toLong()))
+              .build()
+            stateEvents++
+          }
+          in 90 until 95 -> {
+            state = state.builder()
+              .changeLocalDeviceState()
+              .isMicrophoneEnabled(random.nextBoolean())
+              .setOrientation(Orientation.values().random(random))
+              .build()
+            stateEvents++
+          }
+          else -> {
+            state = state.builder()
+              .changeCallSetupState(RemotePeer.GROUP_CALL_ID)
+              .sentJoinedMessage(true)
+              .commit()
+              .changeCallInfoState()
+              .remoteDevicesCount(PARTICIPANT_COUNT.toLong())
+              .build()
+            stateEvents++
+          }
+        }
+      }
+      val duration = (System.nanoTime() - start).nanoseconds
+
+      println("[eventStream] $stateEvents state and $ephemeralEvents ephemeral events with $PARTICIPANT_COUNT participants in $duration (${duration / EVENT_COUNT} per event)")
+    }
+  }
+
+  /**
+   * Mirrors how remote device state changes rebuild the participant map, which happens whenever someone starts speaking.
+   */
+  private fun remoteDevicesChanged(state: WebRtcServiceState, random: Random): WebRtcServiceState {
+    val builder = state.builder()
+      .changeCallInfoState()
+      .clearParticipantMap()
+
+    val speaker = random.nextInt(PARTICIPANT_COUNT)
+    for ((index, participant) in state.callInfoState.remoteParticipants.values.withIndex()) {
+      builder.putParticipant(participant.callParticipantId, if (index == speaker) participant.copy(lastSpoke = System.currentTimeMillis()) else participant)
+    }
+
+    return builder.remoteDevicesCount(PARTICIPANT_COUNT.toLong()).build()
+  }
+
+  private fun audioLevels(random: Random): Map<CallParticipantId, CallParticipant.AudioLevel> {
+    val speaker = random.nextInt(PARTICIPANT_COUNT)
+    return participants.withIndex().associate { (index, participant) ->
+      participant.callParticipantId to if (index == speaker) CallParticipant.AudioLevel.HIGH else CallParticipant.AudioLevel.LOWEST
+    }
+  }
+
+  private fun participant(id: Long): CallParticipant {
+    return CallParticipant.createRemote(
+      callParticipantId = CallParticipantId(id, RecipientId.from(id)),
+      recipient = Recipient.UNKNOWN,
+      identityKey = null,
+      renderer = BroadcastVideoSink(),
+      isForwardingVideo = true,
+      audioEnabled = true,
+      videoEnabled = true,
+      handRaisedTimestamp = CallParticipant.HAND_LOWERED,
+      lastSpoke = 0,
+      mediaKeysReceived = true,
+      addedToCallTime = id,
+      isScreenSharing = false,
+      deviceOrdinal = CallParticipant.DeviceOrdinal.PRIMARY
+    )
+  }
+}
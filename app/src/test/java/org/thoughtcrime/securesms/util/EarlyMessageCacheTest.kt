@@ -0,0 +1,257 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.util
+
+import assertk.assertThat
+import assertk.assertions.containsExactly
+import assertk.assertions.containsExactlyInAnyOrder
+import assertk.assertions.isEmpty
+import assertk.assertions.isEqualTo
+import assertk.assertions.isFalse
+import assertk.assertions.isTrue
+import okio.ByteString.Companion.toByteString
+import org.junit.Before
+import org.junit.Test
+import org.signal.core.util.logging.Log
+import org.thoughtcrime.securesms.database.model.ServiceMessageId
+import org.thoughtcrime.securesms.recipients.RecipientId
+import org.thoughtcrime.securesms.testutil.LogRecorder
+import org.whispersystems.signalservice.api.crypto.EnvelopeMetadata
+import org.whispersystems.signalservice.api.push.ServiceId.ACI
+import org.whispersystems.signalservice.internal.push.Content
+import org.whispersystems.signalservice.internal.push.Envelope
+import java.util.UUID
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.thread
+import kotlin.concurrent.withLock
+
+class EarlyMessageCacheTest {
+
+  private val sender = RecipientId.from(1)
+  private val spillStore = FakeSpillStore()
+
+  private var now = 1_000_000L
+
+  @Before
+  fun setUp() {
+    Log.initialize(LogRecorder())
+  }
+
+  @Test
+  fun `stored entries are retrieved once, in order`() {
+    val cache = cache()
+    val first = entry(1)
+    val second = entry(2)
+
+    cache.store(sender, 100, first)
+    cache.store(sender, 100, second)
+
+    assertThat(cache.retrieve(sender, 100).get()).containsExactly(first, second)
+    assertThat(cache.retrieve(sender, 100).isPresent).isFalse()
+    assertThat(cache.stats.matched).isEqualTo(2L)
+  }
+
+  @Test
+  fun `a burst of targets doesn't evict anything`() {
+    val cache = cache()
+    val entries = (1..500L).associateWith { entry(it) }
+
+    entries.forEach { (timestamp, entry) -> cache.store(sender, timestamp, entry) }
+
+    assertThat(cache.allReferencedIds.size).isEqualTo(500)
+    entries.forEach { (timestamp, entry) -> assertThat(cache.retrieve(sender, timestamp).get()).containsExactly(entry) }
+    assertThat(cache.stats.evicted).isEqualTo(0L)
+  }
+
+  @Test
+  fun `oldest messages are spilled when memory is full, and still retrieved`() {
+    val cache = cache(maxMemoryBytes = 4 * ENTRY_SIZE)
+    val entries = (1..5L).associateWith { entry(it) }
+
+    entries.forEach { (timestamp, entry) ->
+      now += 1
+      cache.store(sender, timestamp, entry)
+    }
+
+    assertThat(spillStore.storedIds.contains(ServiceMessageId(sender, 1))).isTrue()
+    assertThat(spillStore.storedIds.contains(ServiceMessageId(sender, 5))).isFalse()
+    assertThat(cache.allReferencedIds).containsExactlyInAnyOrder(*entries.keys.map { ServiceMessageId(sender, it) }.toTypedArray())
+
+    entries.forEach { (timestamp, entry) -> assertThat(cache.retrieve(sender, timestamp).get()).containsExactly(entry) }
+    assertThat(spillStore.storedIds).isEmpty()
+    assertThat(cache.stats.matched).isEqualTo(5L)
+  }
+
+  @Test
+  fun `spilled entries come before newer entries for the same message`() {
+    val cache = cache(maxMemoryBytes = 2 * ENTRY_SIZE)
+    val first = entry(1)
+    val second = entry(2)
+
+    cache.store(sender, 100, first)
+    cache.store(sender, 200, entry(3))
+    cache.store(sender, 300, entry(4))
+    cache.store(sender, 100, second)
+
+    assertThat(cache.retrieve(sender, 100).get()).containsExactly(first, second)
+  }
+
+  @Test
+  fun `old entries expire`() {
+    val cache = cache()
+
+    cache.store(sender, 100, entry(1))
+    now += TimeUnit.DAYS.toMillis(1)
+
+    assertThat(cache.retrieve(sender, 100).isPresent).isFalse()
+    assertThat(cache.allReferencedIds).isEmpty()
+    assertThat(cache.stats.expired).isEqualTo(1L)
+  }
+
+  @Test
+  fun `old spilled entries expire`() {
+    val cache = cache(maxMemoryBytes = 2 * ENTRY_SIZE)
+
+    cache.store(sender, 100, entry(1))
+    cache.store(sender, 200, entry(2))
+    cache.store(sender, 300, entry(3))
+    assertThat(spillStore.storedIds.contains(ServiceMessageId(sender, 100))).isTrue()
+
+    now += TimeUnit.DAYS.toMillis(1)
+    val fresh = entry(4)
+    cache.store(sender, 400, fresh)
+
+    assertThat(cache.allReferencedIds).containsExactly(ServiceMessageId(sender, 400))
+    assertThat(cache.retrieve(sender, 100).isPresent).isFalse()
+    assertThat(cache.retrieve(sender, 400).get()).containsExactly(fresh)
+    assertThat(spillStore.storedIds).isEmpty()
+    assertThat(cache.stats.expired).isEqualTo(3L)
+  }
+
+  @Test
+  fun `spilled entries past the spill limit are evicted`() {
+    val cache = cache(maxMemoryBytes = 2 * ENTRY_SIZE, maxSpilledEntries = 2)
+
+    (1..10L).forEach {
+      now += 1
+      cache.store(sender, it, entry(it))
+    }
+
+    assertThat(spillStore.storedIds.size).isEqualTo(2)
+    assertThat(cache.stats.evicted).isEqualTo(cache.stats.spilled - 2)
+    assertThat(cache.retrieve(sender, 1).isPresent).isFalse()
+  }
+
+  @Test
+  fun `storing from inside a spill store transaction doesn't deadlock with a retrieve waiting on it`() {
+    val cache = cache(maxMemoryBytes = 2 * ENTRY_SIZE)
+    val spilledEntry = entry(1)
+
+    cache.store(sender, 100, spilledEntry)
+    cache.store(sender, 200, entry(2))
+    cache.store(sender, 300, entry(3))
+    assertThat(spillStore.storedIds.contains(ServiceMessageId(sender, 100))).isTrue()
+
+    var retrieved: List<EarlyMessageCacheEntry>? = null
+    val retriever = thread(start = false) { retrieved = cache.retrieve(sender, 100).get() }
+
+    spillStore.runInTransaction {
+      retriever.start()
+      while (!spillStore.hasQueuedTransactions()) {
+        Thread.yield()
+      }
+
+      cache.store(sender, 400, entry(4))
+      cache.store(sender, 500, entry(5))
+    }
+
+    retriever.join(TimeUnit.SECONDS.toMillis(5))
+    assertThat(retriever.isAlive).isFalse()
+    assertThat(retrieved!!).containsExactly(spilledEntry)
+  }
+
+  private fun cache(maxMemoryBytes: Long = 1024 * 1024, maxSpilledEntries: Int = 100): EarlyMessageCache {
+    return EarlyMessageCache(spillStore, maxMemoryBytes, maxSpilledEntries) { now }.also { spillStore.cache = it }
+  }
+
+  private fun entry(timestamp: Long): EarlyMessageCacheEntry {
+    return EarlyMessageCacheEntry(
+      envelope = Envelope(timestamp = timestamp, content = ByteArray(16).toByteString()),
+      content = Content(),
+      metadata = EnvelopeMetadata(ACI.from(UUID.randomUUID()), null, 1, false, null, ACI.from(UUID.randomUUID())),
+      serverDeliveredTimestamp = timestamp
+    )
+  }
+
+  /**
+   * Checks that the cache only uses the store inside a transaction, and never while holding its own lock.
+   */
+  private class FakeSpillStore : EarlyMessageCache.SpillStore {
+    private data class Row(val messageId: ServiceMessageId, val storedAt: Long, val entry: EarlyMessageCacheEntry)
+
+    private val rows = mutableListOf<Row>()
+    private val transactionLock = ReentrantLock()
+
+    lateinit var cache: EarlyMessageCache
+
+    val storedIds: Set<ServiceMessageId>
+      get() = transactionLock.withLock { rows.map { it.messageId }.toSet() }
+
+    fun hasQueuedTransactions(): Boolean = transactionLock.hasQueuedThreads()
+
+    override fun runInTransaction(block: Runnable) {
+      assertThat(Thread.holdsLock(cache)).isFalse()
+      transactionLock.withLock { block.run() }
+    }
+
+    override fun insert(messageId: ServiceMessageId, storedAt: Long, entries: List<EarlyMessageCacheEntry>) {
+      checkAccess()
+      rows += entries.map { Row(messageId, storedAt, it) }
+    }
+
+    override fun remove(messageId: ServiceMessageId): List<EarlyMessageCacheEntry> {
+      checkAccess()
+      val removed = rows.filter { it.messageId == messageId }
+      rows.removeAll(removed)
+      return removed.map { it.entry }
+    }
+
+    override fun getAllIds(): Set<ServiceMessageId> {
+      checkAccess()
+      return rows.map { it.messageId }.toSet()
+    }
+
+    override fun getOldestStoredAt(): Long? {
+      checkAccess()
+      return rows.minOfOrNull { it.storedAt }
+    }
+
+    override fun deleteStoredBefore(timestamp: Long): Int {
+      checkAccess()
+      val deleted = rows.filter { it.storedAt < timestamp }
+      rows.removeAll(deleted)
+      return deleted.size
+    }
+
+    override fun trimToSize(maxEntries: Int): Int {
+      checkAccess()
+      val deleted = rows.sortedBy { it.storedAt }.take(maxOf(0, rows.size - maxEntries))
+      rows.removeAll(deleted)
+      return deleted.size
+    }
+
+    private fun checkAccess() {
+      assertThat(transactionLock.isHeldByCurrentThread).isTrue()
+      assertThat(Thread.holdsLock(cache)).isFalse()
+    }
+  }
+
+  companion object {
+    /** Roughly what each test entry counts for against the memory budget. */
+    private const val ENTRY_SIZE = 280L
+  }
+}
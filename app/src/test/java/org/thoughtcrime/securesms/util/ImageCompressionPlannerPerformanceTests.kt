@@ -0,0 +1,86 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.util
+
+import org.junit.Ignore
+import org.junit.Test
+import org.thoughtcrime.securesms.util.ImageCompressionPlannerTest.Companion.MAX_QUALITY
+import org.thoughtcrime.securesms.util.ImageCompressionPlannerTest.Companion.MIN_QUALITY
+import org.thoughtcrime.securesms.util.ImageCompressionPlannerTest.Companion.jpeg
+import org.thoughtcrime.securesms.util.ImageCompressionPlannerTest.Companion.photo
+import org.thoughtcrime.securesms.util.ImageCompressionPlannerTest.Companion.scale
+import java.awt.image.BufferedImage
+import kotlin.math.floor
+import kotlin.math.max
+import kotlin.math.sqrt
+import kotlin.time.Duration.Companion.nanoseconds
+
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+class ImageCompressionPlannerPerformanceTests {
+
+  companion object {
+    private const val ITERATIONS = 6
+  }
+
+  private val planner = ImageCompressionPlanner(MIN_QUALITY, MAX_QUALITY)
+
+  @Test
+  fun testPerformance_plannerAgainstLegacyQualityLoop() {
+    val images = listOf(8, 24, 48).map { photo(2048, 1536, it) }
+    val limits = images.map { jpeg(it, 60).size }
+
+    compress(images[0], limits[0])
+    legacyCompress(images[0], limits[0])
+
+    var plannerEncodes = 0
+    var start = System.nanoTime()
+    repeat(ITERATIONS) { i ->
+      plannerEncodes += compress(images[i % images.size], limits[i % images.size]).fullEncodes
+    }
+    val plannerDuration = (System.nanoTime() - start).nanoseconds
+
+    var legacyEncodes = 0
+    start = System.nanoTime()
+    repeat(ITERATIONS) { i ->
+      legacyEncodes += legacyCompress(images[i % images.size], limits[i % images.size]).second
+    }
+    val legacyDuration = (System.nanoTime() - start).nanoseconds
+
+    println("[planner] $ITERATIONS 2048x1536 images in $plannerDuration with ${plannerEncodes.toDouble() / ITERATIONS} full encodes per image")
+    println("[legacy] $ITERATIONS 2048x1536 images in $legacyDuration with ${legacyEncodes.toDouble() / ITERATIONS} full encodes per image")
+  }
+
+  private fun compress(image: BufferedImage, maxBytes: Int): ImageCompressionPlanner.Result {
+    val probe = scale(image, sqrt(image.width.toDouble() * image.height / (512 * 512)))
+    val areaRatio = image.width.toDouble() * image.height / (probe.width * probe.height)
+
+    return planner.compress({ jpeg(image, it) }, { jpeg(probe, it) }, areaRatio, maxBytes)
+  }
+
+  /**
+   * The quality loop [BitmapUtil] used before the planner.
+   */
+  private fun legacyCompress(image: BufferedImage, maxBytes: Int): Pair<ByteArray, Int> {
+    var quality = MAX_QUALITY
+    var attempts = 0
+    var encodes = 0
+    var bytes: ByteArray
+
+    do {
+      encodes++
+      bytes = jpeg(image, quality)
+      if (quality == MIN_QUALITY) break
+
+      var nextQuality = floor(quality * sqrt(maxBytes.toDouble() / bytes.size)).toInt()
+      if (quality - nextQuality < 5) {
+        nextQuality = quality - 5
+      }
+      quality = max(nextQuality, MIN_QUALITY)
+    } while (bytes.size > maxBytes && attempts++ < 5)
+
+    return bytes to encodes
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.util
+
+import assertk.assertThat
+import assertk.assertions.isEqualTo
+import assertk.assertions.isFalse
+import assertk.assertions.isGreaterThanOrEqualTo
+import assertk.assertions.isLessThanOrEqualTo
+import assertk.assertions.isTrue
+import org.junit.Test
+import java.awt.RenderingHints
+import java.awt.image.BufferedImage
+import java.io.ByteArrayOutputStream
+import javax.imageio.IIOImage
+import javax.imageio.ImageIO
+import javax.imageio.ImageWriteParam
+import javax.imageio.stream.MemoryCacheImageOutputStream
+import kotlin.math.max
+import kotlin.math.sin
+import kotlin.math.sqrt
+import kotlin.random.Random
+
+class ImageCompressionPlannerTest {
+
+  private val planner = ImageCompressionPlanner(MIN_QUALITY, MAX_QUALITY)
+
+  @Test
+  fun `given an image that fits at max quality, then one full encode at max quality`() {
+    val image = photo(1024, 768, noise = 4)
+    val result = compress(image, maxBytes = 10 * 1024 * 1024)
+
+    assertThat(result.fits).isTrue()
+    assertThat(result.quality).isEqualTo(MAX_QUALITY)
+    assertThat(result.fullEncodes).isEqualTo(1)
+  }
+
+  @Test
+  fun `given photos of varying detail, then each fits close to the best quality within three full encodes`() {
+    for (noise in listOf(8, 24, 48)) {
+      val image = photo(2048, 1536, noise)
+
+      for (bestQuality in listOf(60, 70)) {
+        val maxBytes = jpeg(image, bestQuality).size
+
+        val result = compress(image, maxBytes)
+
+        assertThat(result.fits).isTrue()
+        assertThat(result.data.size).isLessThanOrEqualTo(maxBytes)
+        assertThat(result.quality).isGreaterThanOrEqualTo(bestQuality - 8)
+        assertThat(result.fullEncodes).isLessThanOrEqualTo(3)
+      }
+    }
+  }
+
+  @Test
+  fun `given a small image, then the search encodes are reused`() {
+    val image = photo(640, 480, noise = 16)
+    val maxBytes = jpeg(image, 60).size
+    var encodes = 0
+    val encoder = ImageCompressionPlanner.Encoder { quality -> encodes++; jpeg(image, quality) }
+
+    val result = planner.compress(encoder, encoder, 1.0, maxBytes)
+
+    assertThat(result.fits).isTrue()
+    assertThat(result.fullEncodes).isLessThanOrEqualTo(2)
+    assertThat(encodes).isEqualTo(result.probeEncodes)
+  }
+
+  @Test
+  fun `given an image that cannot fit, then it returns the min quality attempt`() {
+    val image = photo(1024, 768, noise = 48)
+    val result = compress(image, maxBytes = 1024)
+
+    assertThat(result.fits).isFalse()
+    assertThat(result.quality).isEqualTo(MIN_QUALITY)
+  }
+
+  private fun compress(image: BufferedImage, maxBytes: Int): ImageCompressionPlanner.Result {
+    val probe = scale(image, sqrt(image.width.toDouble() * image.height / (512 * 512)))
+    val areaRatio = image.width.toDouble() * image.height / (probe.width * probe.height)
+
+    return planner.compress({ jpeg(image, it) }, { jpeg(probe, it) }, areaRatio, maxBytes)
+  }
+
+  companion object {
+    internal const val MIN_QUALITY = 45
+    internal const val MAX_QUALITY = 90
+
+    /**
+     * A deterministic stand in for a photo, smooth gradients with [noise] controlling the amount of fine detail.
+     */
+    internal fun photo(width: Int, height: Int, noise: Int): BufferedImage {
+      val random = Random(width * 31 + noise)
+      val image = BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+
+      for (y in 0 until height) {
+        for (x in 0 until width) {
+          val r = (128 + 100 * sin(x / 97.0) + random.nextInt(-noise, noise + 1)).toInt().coerceIn(0, 255)
+          val g = (128 + 100 * sin(y / 61.0 + x / 211.0) + random.nextInt(-noise, noise + 1)).toInt().coerceIn(0, 255)
+          val b = (128 + 100 * sin((x + y) / 43.0) + random.nextInt(-noise, noise + 1)).toInt().coerceIn(0, 255)
+          image.setRGB(x, y, (r shl 16) or (g shl 8) or b)
+        }
+      }
+
+      return image
+    }
+
+    internal fun scale(image: BufferedImage, factor: Double): BufferedImage {
+      val width = max(1, (image.width / factor).toInt())
+      val height = max(1, (image.height / factor).toInt())
+      val scaled = BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+      val graphics = scaled.createGraphics()
+
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR)
+      graphics.drawImage(image, 0, 0, width, height, null)
+      graphics.dispose()
+
+      return scaled
+    }
+
+    internal fun jpeg(image: BufferedImage, quality: Int): ByteArray {
+      val writer = ImageIO.getImageWritersByFormatName("jpeg").next()
+      val output = ByteArrayOutputStream()
+
+      try {
+        MemoryCacheImageOutputStream(output).use { stream ->
+          writer.output = stream
+          val param = writer.defaultWriteParam.apply {
+            compressionMode = ImageWriteParam.MODE_EXPLICIT
+            compressionQuality = quality / 100f
+          }
+          writer.write(null, IIOImage(image, null, null), param)
+        }
+      } finally {
+        writer.dispose()
+      }
+
+      return output.toByteArray()
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.util
+
+import assertk.assertThat
+import assertk.assertions.isEqualTo
+import assertk.assertions.isFalse
+import assertk.assertions.isNull
+import assertk.assertions.isTrue
+import org.junit.Test
+
+class SegmentedLruCacheTest {
+
+  @Test
+  fun `given entries that were read again, when a scan of new entries fills the cache, then the read entries remain`() {
+    val cache = SegmentedLruCache<Int, String>(10, 1)
+    (0 until 5).forEach { cache.put(it, "hot-$it") }
+    (0 until 5).forEach { cache.get(it) }
+
+    (100 until 200).forEach { cache.putIfAbsent(it, "scan-$it") }
+
+    (0 until 5).forEach { assertThat(cache.containsKey(it)).isTrue() }
+    assertThat(cache.containsKey(100)).isFalse()
+    assertThat(cache.containsKey(199)).isTrue()
+  }
+
+  @Test
+  fun `given a full cache of unread entries, when I add another, then the oldest is evicted`() {
+    val cache = SegmentedLruCache<Int, String>(3, 1)
+    (0 until 4).forEach { cache.put(it, "$it") }
+
+    assertThat(cache.containsKey(0)).isFalse()
+    (1 until 4).forEach { assertThat(cache.containsKey(it)).isTrue() }
+    assertThat(cache.stats.evictions).isEqualTo(1L)
+  }
+
+  @Test
+  fun `given an existing entry, when I put if absent, then the existing value is kept and returned`() {
+    val cache = SegmentedLruCache<Int, String>(10, 2)
+    cache.put(1, "first")
+
+    assertThat(cache.putIfAbsent(1, "second")).isEqualTo("first")
+    assertThat(cache.putIfAbsent(2, "other")).isNull()
+    assertThat(cache.get(1)).isEqualTo("first")
+  }
+
+  @Test
+  fun `given lookups, when I get stats, then hits and misses are counted`() {
+    val cache = SegmentedLruCache<Int, String>(16, 4)
+    cache.put(1, "one")
+
+    cache.get(1)
+    cache.get(1)
+    cache.get(2)
+
+    val stats = cache.stats
+    assertThat(stats.hits).isEqualTo(2L)
+    assertThat(stats.misses).isEqualTo(1L)
+    assertThat(stats.size).isEqualTo(1)
+    assertThat(stats.maxSize).isEqualTo(16)
+  }
+
+  @Test(expected = IllegalArgumentException::class)
+  fun `given a stripe count that is not a power of two, when I create a cache, then it throws`() {
+    SegmentedLruCache<Int, String>(10, 3)
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.video
+
+import android.app.Application
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import assertk.assertThat
+import assertk.assertions.isEmpty
+import assertk.assertions.isEqualTo
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.thoughtcrime.securesms.crypto.AttachmentSecret
+import java.io.File
+
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE, application = Application::class)
+class EncryptedSegmentStorageTest {
+
+  private val context: Context = ApplicationProvider.getApplicationContext()
+  private val attachmentSecret = AttachmentSecret(ByteArray(32), ByteArray(32), ByteArray(32))
+  private val directory: File = context.getDir("video_segments", Context.MODE_PRIVATE)
+
+  @Test
+  fun `segments are read back and deleted on close`() {
+    val storage = EncryptedSegmentStorage(context, attachmentSecret)
+    storage.createOutputStream("video-0").use { it.write(byteArrayOf(1, 2, 3)) }
+    storage.createOutputStream("audio").use { it.write(byteArrayOf(4, 5)) }
+
+    assertThat(storage.createInputStream("video-0").use { it.readBytes().toList() }).isEqualTo(listOf<Byte>(1, 2, 3))
+    assertThat(directory.list()!!.size).isEqualTo(2)
+
+    storage.close()
+
+    assertThat(directory.list()!!.toList()).isEmpty()
+  }
+
+  @Test
+  fun `abandoned segments are deleted but open ones are kept`() {
+    File(directory, "segment123.mms").writeBytes(byteArrayOf(1))
+    val storage = EncryptedSegmentStorage(context, attachmentSecret)
+    storage.createOutputStream("video-0").use { it.write(byteArrayOf(1, 2, 3)) }
+
+    val deleted = EncryptedSegmentStorage.deleteAbandonedSegments(context)
+
+    assertThat(deleted).isEqualTo(1)
+    assertThat(storage.createInputStream("video-0").use { it.readBytes().toList() }).isEqualTo(listOf<Byte>(1, 2, 3))
+
+    storage.close()
+  }
+}
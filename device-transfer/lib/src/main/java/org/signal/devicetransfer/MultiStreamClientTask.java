@@ -0,0 +1,32 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.devicetransfer;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * A {@link ClientTask} that can also send its data as {@link TransferSegment}s over several parallel, resumable
+ * streams. This is used instead of {@link #run(Context, OutputStream)} when the server is a
+ * {@link MultiStreamServerTask} too, otherwise the transfer falls back to the single stream.
+ */
+public interface MultiStreamClientTask extends ClientTask {
+
+  /**
+   * Segments that have to be received in order, sent one after the other on a single stream.
+   */
+  @NonNull List<TransferSegment> getMetadataSegments(@NonNull Context context) throws IOException;
+
+  /**
+   * Segments that can be received in any order, spread across the remaining streams.
+   */
+  @NonNull List<TransferSegment> getAttachmentSegments(@NonNull Context context) throws IOException;
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.devicetransfer;
+
+/**
+ * Wire constants shared by {@link MultiStreamTransferClient} and {@link MultiStreamTransferServer}.
+ * <p>
+ * Both sides say whether they support multi-stream transfers in the byte they send once the SAS has been verified on
+ * the initial connection ({@link #VERIFIED} or {@link #VERIFIED_MULTI_STREAM}). Older versions never look at that byte,
+ * so unless both sides sent {@link #VERIFIED_MULTI_STREAM} the transfer falls back to the single stream. Otherwise the
+ * initial connection becomes the control connection:
+ * <pre>
+ *   client: sessionId (long)
+ *   server: port (int)
+ *   ... streams are transferred over new connections to port ...
+ *   server: 0x53 once every stream is complete
+ * </pre>
+ * Each stream connection carries one stream of the transfer session:
+ * <pre>
+ *   client: MAGIC, VERSION, sessionId (long), streamCount (int), streamIndex (int)
+ *   server: completedCount (int), completedCount * segmentId (long)
+ *   client: (SEGMENT, segmentId (long), length (long), bytes)* DONE
+ *   server: DONE_ACK
+ * </pre>
+ * Stream 0 carries metadata segments, the remaining streams carry attachment segments. The server checkpoints each
+ * segment as it is fully received, and the completed list it returns lets a reconnecting client skip those segments.
+ * The session id is derived from the segments being sent, so the same transfer keeps its id across control connections
+ * and restarts. If the control connection drops, the server keeps the session's streams running for a while so a new
+ * control connection for the same session can pick it back up. The session id is only ever sent over authenticated TLS
+ * connections, and the server rejects streams for any other session.
+ * <p>
+ * Stream connections time out after {@link #STREAM_READ_TIMEOUT_MS} without data, so a peer that goes silent doesn't
+ * hold on to a connection forever.
+ */
+final class MultiStreamProtocol {
+
+  static final int VERIFIED              = 0x43;
+  static final int VERIFIED_MULTI_STREAM = 0x4d;
+
+  static final int MAGIC   = 0x53544d53;
+  static final int VERSION = 2;
+
+  static final int SEGMENT  = 0x01;
+  static final int DONE     = 0x02;
+  static final int DONE_ACK = 0x53;
+
+  static final int METADATA_STREAM = 0;
+
+  static final int STREAM_READ_TIMEOUT_MS = 30_000;
+
+  private MultiStreamProtocol() {}
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.devicetransfer;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import org.signal.core.util.StreamUtil;
+import org.signal.core.util.logging.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.ServerSocket;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a {@link MultiStreamTransferServer} on its own stream server socket, independently of the control connection
+ * that started it. When the control connection drops, the streams keep going, and a new control connection for the
+ * same session can attach within {@link #RESUME_TIMEOUT_MS} instead of starting the session over.
+ */
+final class MultiStreamServerSession {
+
+  private static final String TAG = Log.tag(MultiStreamServerSession.class);
+
+  private static final long RESUME_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
+
+  private final long                      sessionId;
+  private final ServerSocket              serverSocket;
+  private final MultiStreamTransferServer transfer;
+  private final ScheduledExecutorService  executor;
+
+  private int                attachedControl;
+  private int                lastControl;
+  private boolean            finished;
+  private boolean            success;
+  private ScheduledFuture<?> expiry;
+
+  private MultiStreamServerSession(long sessionId, @NonNull ServerSocket serverSocket, @NonNull MultiStreamTransferServer transfer) {
+    this.sessionId    = sessionId;
+    this.serverSocket = serverSocket;
+    this.transfer     = transfer;
+    this.executor     = Executors.newScheduledThreadPool(3);
+  }
+
+  static @NonNull MultiStreamServerSession start(@NonNull Context context,
+                                                 @NonNull MultiStreamServerTask task,
+                                                 @NonNull SelfSignedIdentity.SelfSignedKeys keys,
+                                                 long sessionId)
+      throws IOException
+  {
+    ServerSocket serverSocket;
+    try {
+      serverSocket = SelfSignedIdentity.getServerSocketFactory(keys).createServerSocket(0);
+    } catch (GeneralSecurityException e) {
+      throw new IOException(e);
+    }
+
+    TransferCheckpointStore   checkpoints = new TransferCheckpointStore(task.getCheckpointFile(context));
+    MultiStreamTransferServer transfer    = new MultiStreamTransferServer(serverSocket,
+                                                                          sessionId,
+                                                                          checkpoints,
+                                                                          (streamIndex, segmentId, segmentStream, length) -> task.receive(context, streamIndex, segmentId, segmentStream, length));
+
+    MultiStreamServerSession session = new MultiStreamServerSession(sessionId, serverSocket, transfer);
+    session.executor.execute(() -> session.run(context, task, checkpoints));
+
+    return session;
+  }
+
+  int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  synchronized boolean canResume(long sessionId) {
+    return this.sessionId == sessionId && !finished;
+  }
+
+  /**
+   * Attaches a control connection and blocks until the transfer completes or the control connection closes.
+   *
+   * @throws IOException if the transfer failed, or the control connection closed before it completed.
+   */
+  void awaitCompletion(@NonNull InputStream control) throws IOException {
+    synchronized (this) {
+      int current = ++lastControl;
+
+      if (!finished) {
+        cancelExpiry();
+        attachedControl = current;
+
+        executor.execute(() -> {
+          try {
+            //noinspection ResultOfMethodCallIgnored
+            control.read();
+          } catch (IOException e) {
+            Log.w(TAG, "Control connection failed", e);
+          }
+          onControlClosed(current);
+        });
+      }
+
+      try {
+        while (!finished && attachedControl == current) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException();
+      }
+
+      if (!finished) {
+        throw new IOException("Control connection closed before the transfer completed");
+      } else if (!success) {
+        throw new IOException("Multi-stream transfer failed");
+      }
+    }
+  }
+
+  void shutdown() {
+    transfer.shutdown();
+  }
+
+  private void run(@NonNull Context context, @NonNull MultiStreamServerTask task, @NonNull TransferCheckpointStore checkpoints) {
+    boolean completed = false;
+
+    try {
+      transfer.run();
+      task.onTransferComplete(context);
+      checkpoints.clear();
+      completed = true;
+    } catch (IOException e) {
+      Log.w(TAG, "Multi-stream session ended before completion", e);
+    } finally {
+      StreamUtil.close(serverSocket);
+
+      synchronized (this) {
+        finished = true;
+        success  = completed;
+        cancelExpiry();
+        notifyAll();
+      }
+
+      executor.shutdownNow();
+    }
+  }
+
+  private synchronized void onControlClosed(int control) {
+    if (finished || attachedControl != control) {
+      return;
+    }
+
+    Log.i(TAG, "Control connection closed, waiting " + RESUME_TIMEOUT_MS + "ms for it to resume");
+    attachedControl = 0;
+    expiry          = executor.schedule(this::expire, RESUME_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    notifyAll();
+  }
+
+  private void expire() {
+    Log.w(TAG, "Control connection did not resume, stopping multi-stream session");
+    shutdown();
+  }
+
+  private void cancelExpiry() {
+    if (expiry != null) {
+      expiry.cancel(false);
+      expiry = null;
+    }
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.devicetransfer;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A {@link ServerTask} that can also receive a {@link MultiStreamClientTask}'s segments over several parallel,
+ * resumable streams. {@link #run(Context, InputStream)} is still used when the client only supports a single stream.
+ */
+public interface MultiStreamServerTask extends ServerTask {
+
+  /**
+   * Where to keep the checkpoints of the transfer, so it can resume after the connection drops or the app restarts.
+   */
+  @NonNull File getCheckpointFile(@NonNull Context context);
+
+  /**
+   * See {@link MultiStreamTransferServer.SegmentReceiver#receive(int, long, InputStream, long)}.
+   */
+  void receive(@NonNull Context context, int streamIndex, long segmentId, @NonNull InputStream inputStream, long length) throws IOException;
+
+  /**
+   * Called once every segment has been received.
+   */
+  void onTransferComplete(@NonNull Context context) throws IOException;
+}
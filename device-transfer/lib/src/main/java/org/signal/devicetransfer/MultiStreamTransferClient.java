@@ -0,0 +1,313 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.devicetransfer;
+
+import androidx.annotation.NonNull;
+
+import org.signal.core.util.StreamUtil;
+import org.signal.core.util.logging.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sending side of the multi-stream transfer protocol (see {@link MultiStreamProtocol}).
+ * <p>
+ * Metadata segments are sent in order on one stream, and attachment segments are spread across
+ * {@code attachmentStreamCount} parallel streams, each on its own connection. When a connection drops, only that
+ * stream reconnects, and the server's checkpoints tell it which of its segments still need to be sent.
+ */
+public final class MultiStreamTransferClient {
+
+  private static final String TAG = Log.tag(MultiStreamTransferClient.class);
+
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+  private final Connector                   connector;
+  private final long                        sessionId;
+  private final List<List<TransferSegment>> streams;
+  private final int                         maxReconnectAttempts;
+  private final long                        reconnectDelayMs;
+  private final Listener                    listener;
+
+  private volatile boolean canceled;
+
+  /**
+   * @param sessionId Identifies the transfer so the server can tell a resume from a new transfer. Reuse it when
+   *                  restarting an interrupted transfer. See {@link #sessionIdFor(List, List, int)}.
+   */
+  public MultiStreamTransferClient(@NonNull Connector connector,
+                                   long sessionId,
+                                   @NonNull List<TransferSegment> metadataSegments,
+                                   @NonNull List<TransferSegment> attachmentSegments,
+                                   int attachmentStreamCount,
+                                   int maxReconnectAttempts,
+                                   long reconnectDelayMs,
+                                   @NonNull Listener listener)
+  {
+    this.connector            = connector;
+    this.sessionId            = sessionId;
+    this.streams              = assignStreams(metadataSegments, attachmentSegments, attachmentStreamCount);
+    this.maxReconnectAttempts = maxReconnectAttempts;
+    this.reconnectDelayMs     = reconnectDelayMs;
+    this.listener             = listener;
+  }
+
+  /**
+   * A session id for sending the given segments, hashed from the stream count and every segment's id and length.
+   * Sending the same data again, e.g. over a new control connection or after either app restarts, gives the same id and
+   * so resumes from the server's checkpoints, while different data never picks up checkpoints of an older transfer.
+   */
+  public static long sessionIdFor(@NonNull List<TransferSegment> metadataSegments,
+                                  @NonNull List<TransferSegment> attachmentSegments,
+                                  int attachmentStreamCount)
+  {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+
+    List<TransferSegment> attachmentsById = new ArrayList<>(attachmentSegments);
+    Collections.sort(attachmentsById, (a, b) -> Long.compare(a.getId(), b.getId()));
+
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    buffer.putInt(attachmentStreamCount).putInt(metadataSegments.size());
+    digest.update(buffer.array(), 0, 8);
+
+    for (TransferSegment segment : metadataSegments) {
+      buffer.clear();
+      digest.update(buffer.putLong(segment.getId()).putLong(segment.getLength()).array());
+    }
+
+    for (TransferSegment segment : attachmentsById) {
+      buffer.clear();
+      digest.update(buffer.putLong(segment.getId()).putLong(segment.getLength()).array());
+    }
+
+    long id = ByteBuffer.wrap(digest.digest()).getLong();
+    return id != 0 ? id : 1;
+  }
+
+  /**
+   * Sends every stream and blocks until the server has acknowledged all of them.
+   *
+   * @throws IOException if a stream could not be completed within the allowed reconnect attempts.
+   */
+  public void run() throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(streams.size());
+
+    try {
+      List<Future<?>> futures = new ArrayList<>(streams.size());
+
+      for (int i = 0; i < streams.size(); i++) {
+        int streamIndex = i;
+        futures.add(executor.submit(() -> {
+          sendStream(streamIndex);
+          return null;
+        }));
+      }
+
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          canceled = true;
+          if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+          }
+          throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+          canceled = true;
+          throw new InterruptedIOException();
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public void cancel() {
+    canceled = true;
+  }
+
+  /**
+   * Sends a stream, reconnecting when it's interrupted. Only consecutive attempts that fail without sending a single
+   * segment count towards {@link #maxReconnectAttempts}.
+   */
+  private void sendStream(int streamIndex) throws IOException {
+    List<TransferSegment> segments = streams.get(streamIndex);
+    AtomicInteger         sent     = new AtomicInteger();
+    int                   attempt  = 0;
+
+    while (true) {
+      Socket socket = null;
+
+      try {
+        socket = connector.connect(streamIndex);
+        sendStream(streamIndex, segments, socket, sent);
+        return;
+      } catch (IOException e) {
+        if (canceled) {
+          throw e;
+        }
+
+        if (sent.getAndSet(0) > 0) {
+          attempt = 0;
+        }
+
+        attempt++;
+        if (attempt > maxReconnectAttempts) {
+          Log.w(TAG, "[" + streamIndex + "] Giving up after " + maxReconnectAttempts + " reconnect attempts", e);
+          throw e;
+        }
+
+        Log.w(TAG, "[" + streamIndex + "] Stream interrupted, reconnecting (attempt " + attempt + ")", e);
+        listener.onReconnecting(streamIndex, attempt);
+
+        try {
+          Thread.sleep(reconnectDelayMs);
+        } catch (InterruptedException interrupted) {
+          throw new InterruptedIOException();
+        }
+      } finally {
+        StreamUtil.close(socket);
+      }
+    }
+  }
+
+  private void sendStream(int streamIndex, @NonNull List<TransferSegment> segments, @NonNull Socket socket, @NonNull AtomicInteger sent) throws IOException {
+    DataInputStream  input  = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), COPY_BUFFER_SIZE));
+
+    output.writeInt(MultiStreamProtocol.MAGIC);
+    output.writeInt(MultiStreamProtocol.VERSION);
+    output.writeLong(sessionId);
+    output.writeInt(streams.size());
+    output.writeInt(streamIndex);
+    output.flush();
+
+    int       completedCount = input.readInt();
+    Set<Long> completed      = new HashSet<>(completedCount);
+    for (int i = 0; i < completedCount; i++) {
+      completed.add(input.readLong());
+    }
+
+    byte[] buffer = new byte[COPY_BUFFER_SIZE];
+
+    for (TransferSegment segment : segments) {
+      if (canceled) {
+        throw new IOException("Canceled");
+      }
+
+      if (completed.contains(segment.getId())) {
+        continue;
+      }
+
+      output.writeByte(MultiStreamProtocol.SEGMENT);
+      output.writeLong(segment.getId());
+      output.writeLong(segment.getLength());
+
+      long written = 0;
+      try (InputStream segmentInput = segment.open()) {
+        int read;
+        while (written < segment.getLength() && (read = segmentInput.read(buffer, 0, (int) Math.min(buffer.length, segment.getLength() - written))) != -1) {
+          output.write(buffer, 0, read);
+          written += read;
+        }
+      }
+
+      if (written != segment.getLength()) {
+        throw new IOException("Segment " + segment.getId() + " was " + written + " bytes, expected " + segment.getLength());
+      }
+
+      sent.incrementAndGet();
+      listener.onSegmentSent(streamIndex, segment.getId());
+    }
+
+    output.writeByte(MultiStreamProtocol.DONE);
+    output.flush();
+
+    if (input.read() != MultiStreamProtocol.DONE_ACK) {
+      throw new IOException("Server did not acknowledge stream completion");
+    }
+
+    listener.onStreamComplete(streamIndex);
+  }
+
+  /**
+   * Stream 0 gets the metadata segments in order. Attachments go to the least loaded attachment stream, largest
+   * first, so the streams finish at roughly the same time.
+   */
+  private static @NonNull List<List<TransferSegment>> assignStreams(@NonNull List<TransferSegment> metadataSegments,
+                                                                    @NonNull List<TransferSegment> attachmentSegments,
+                                                                    int attachmentStreamCount)
+  {
+    if (attachmentStreamCount < 1) {
+      throw new IllegalArgumentException("Need at least one attachment stream");
+    }
+
+    List<List<TransferSegment>> streams = new ArrayList<>(attachmentStreamCount + 1);
+    long[]                      loads   = new long[attachmentStreamCount];
+
+    streams.add(new ArrayList<>(metadataSegments));
+    for (int i = 0; i < attachmentStreamCount; i++) {
+      streams.add(new ArrayList<>());
+    }
+
+    List<TransferSegment> bySize = new ArrayList<>(attachmentSegments);
+    Collections.sort(bySize, (a, b) -> Long.compare(b.getLength(), a.getLength()));
+
+    for (TransferSegment segment : bySize) {
+      int lightest = 0;
+      for (int i = 1; i < loads.length; i++) {
+        if (loads[i] < loads[lightest]) {
+          lightest = i;
+        }
+      }
+
+      streams.get(lightest + 1).add(segment);
+      loads[lightest] += segment.getLength();
+    }
+
+    return streams;
+  }
+
+  public interface Connector {
+    /**
+     * Opens a new, already authenticated, connection to the server for the given stream.
+     */
+    @NonNull Socket connect(int streamIndex) throws IOException;
+  }
+
+  public interface Listener {
+    void onSegmentSent(int streamIndex, long segmentId);
+
+    void onReconnecting(int streamIndex, int attempt);
+
+    void onStreamComplete(int streamIndex);
+  }
+}
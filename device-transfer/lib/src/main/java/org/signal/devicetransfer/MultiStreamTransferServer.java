@@ -0,0 +1,283 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.devicetransfer;
+
+import androidx.annotation.NonNull;
+
+import org.signal.core.util.StreamUtil;
+import org.signal.core.util.logging.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Receiving side of the multi-stream transfer protocol (see {@link MultiStreamProtocol}).
+ * <p>
+ * Accepts one connection per stream and hands each segment to a {@link SegmentReceiver}, checkpointing it in the
+ * {@link TransferCheckpointStore} once it has been fully received. Streams may disconnect and reconnect independently;
+ * a reconnecting stream is told which segments are already complete so it only resends the rest.
+ */
+public final class MultiStreamTransferServer {
+
+  private static final String TAG = Log.tag(MultiStreamTransferServer.class);
+
+  private static final long ANY_SESSION = 0;
+
+  /** Connections handled at once. Anything past this waits for a stream to finish, drop or time out. */
+  private static final int MAX_CONCURRENT_CONNECTIONS = 16;
+
+  private final ServerSocket            serverSocket;
+  private final long                    acceptedSessionId;
+  private final TransferCheckpointStore checkpoints;
+  private final SegmentReceiver         receiver;
+  private final Map<Integer, Socket>    connections = new ConcurrentHashMap<>();
+  private final Set<Integer>            completedStreams = new HashSet<>();
+
+  private long    sessionId;
+  private int     streamCount;
+  private boolean finished;
+
+  /**
+   * Accepts streams for any session, starting over whenever a new one shows up.
+   */
+  public MultiStreamTransferServer(@NonNull ServerSocket serverSocket,
+                                   @NonNull TransferCheckpointStore checkpoints,
+                                   @NonNull SegmentReceiver receiver)
+  {
+    this(serverSocket, ANY_SESSION, checkpoints, receiver);
+  }
+
+  /**
+   * Only accepts streams for the given session, e.g. one agreed on over an already authenticated connection.
+   */
+  public MultiStreamTransferServer(@NonNull ServerSocket serverSocket,
+                                   long sessionId,
+                                   @NonNull TransferCheckpointStore checkpoints,
+                                   @NonNull SegmentReceiver receiver)
+  {
+    this.serverSocket      = serverSocket;
+    this.acceptedSessionId = sessionId;
+    this.checkpoints       = checkpoints;
+    this.receiver          = receiver;
+  }
+
+  /**
+   * Accepts connections until every stream of the session has completed. Blocks the calling thread.
+   *
+   * @throws IOException if the server socket fails or is closed (e.g. via {@link #shutdown()}) before completion.
+   */
+  public void run() throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_CONNECTIONS);
+
+    try {
+      while (!isFinished()) {
+        Socket socket = serverSocket.accept();
+        executor.execute(() -> handleConnection(socket));
+      }
+    } catch (IOException e) {
+      if (!isFinished()) {
+        throw e;
+      }
+    } finally {
+      executor.shutdownNow();
+      checkpoints.close();
+      for (Socket socket : connections.values()) {
+        StreamUtil.close(socket);
+      }
+    }
+  }
+
+  public void shutdown() {
+    StreamUtil.close(serverSocket);
+    for (Socket socket : connections.values()) {
+      StreamUtil.close(socket);
+    }
+  }
+
+  private synchronized boolean isFinished() {
+    return finished;
+  }
+
+  private void handleConnection(@NonNull Socket socket) {
+    int streamIndex = -1;
+
+    try {
+      socket.setSoTimeout(MultiStreamProtocol.STREAM_READ_TIMEOUT_MS);
+
+      DataInputStream  input  = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+      if (input.readInt() != MultiStreamProtocol.MAGIC || input.readInt() != MultiStreamProtocol.VERSION) {
+        throw new IOException("Unsupported protocol");
+      }
+
+      long sessionId   = input.readLong();
+      int  streamCount = input.readInt();
+
+      streamIndex = input.readInt();
+
+      beginStream(sessionId, streamCount, streamIndex, socket);
+
+      long[] completed = checkpoints.getCompleted();
+      output.writeInt(completed.length);
+      for (long id : completed) {
+        output.writeLong(id);
+      }
+      output.flush();
+
+      while (true) {
+        int type = input.readUnsignedByte();
+
+        if (type == MultiStreamProtocol.DONE) {
+          break;
+        } else if (type != MultiStreamProtocol.SEGMENT) {
+          throw new IOException("Unexpected frame type: " + type);
+        }
+
+        long segmentId = input.readLong();
+        long length    = input.readLong();
+
+        SegmentInputStream segmentStream = new SegmentInputStream(input, length);
+
+        if (checkpoints.isComplete(segmentId)) {
+          Log.w(TAG, "[" + streamIndex + "] Segment " + segmentId + " already complete, skipping");
+        } else {
+          receiver.receive(streamIndex, segmentId, segmentStream, length);
+        }
+
+        segmentStream.drain();
+        checkpoints.markComplete(segmentId);
+      }
+
+      output.write(MultiStreamProtocol.DONE_ACK);
+      output.flush();
+
+      completeStream(streamIndex);
+    } catch (IOException e) {
+      Log.w(TAG, "[" + streamIndex + "] Stream disconnected, waiting for it to resume", e);
+    } finally {
+      if (streamIndex >= 0) {
+        connections.remove(streamIndex, socket);
+      }
+      StreamUtil.close(socket);
+    }
+  }
+
+  private synchronized void beginStream(long sessionId, int streamCount, int streamIndex, @NonNull Socket socket) throws IOException {
+    if (acceptedSessionId != ANY_SESSION && sessionId != acceptedSessionId) {
+      throw new IOException("Unknown session");
+    }
+
+    if (streamIndex < 0 || streamIndex >= streamCount) {
+      throw new IOException("Invalid stream index " + streamIndex + " of " + streamCount);
+    }
+
+    if (this.sessionId != sessionId) {
+      Log.i(TAG, "Session started with " + streamCount + " streams");
+      checkpoints.beginSession(sessionId);
+      completedStreams.clear();
+      this.sessionId   = sessionId;
+      this.streamCount = streamCount;
+    } else if (this.streamCount != streamCount) {
+      throw new IOException("Stream count changed mid-session");
+    }
+
+    Socket previous = connections.put(streamIndex, socket);
+    if (previous != null) {
+      Log.i(TAG, "[" + streamIndex + "] Replacing stale connection");
+      StreamUtil.close(previous);
+    }
+  }
+
+  private synchronized void completeStream(int streamIndex) {
+    completedStreams.add(streamIndex);
+    Log.i(TAG, "[" + streamIndex + "] Stream complete (" + completedStreams.size() + "/" + streamCount + ")");
+
+    if (completedStreams.size() == streamCount) {
+      finished = true;
+      StreamUtil.close(serverSocket);
+    }
+  }
+
+  public interface SegmentReceiver {
+    /**
+     * Called for each segment that hasn't been checkpointed yet. Implementations may be called concurrently for
+     * different streams, and must be idempotent: a segment interrupted part way through will be delivered again.
+     * Anything written must be durable before returning, since the segment is checkpointed right after.
+     */
+    void receive(int streamIndex, long segmentId, @NonNull InputStream inputStream, long length) throws IOException;
+  }
+
+  /**
+   * Exposes exactly one segment of the connection stream, failing rather than returning a short read if the
+   * connection ends early.
+   */
+  private static final class SegmentInputStream extends InputStream {
+    private final InputStream wrapped;
+    private       long        remaining;
+
+    private SegmentInputStream(@NonNull InputStream wrapped, long length) {
+      this.wrapped   = wrapped;
+      this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+
+      int read = wrapped.read();
+      if (read == -1) {
+        throw new EOFException("Connection ended with " + remaining + " bytes remaining in segment");
+      }
+
+      remaining--;
+      return read;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+
+      int read = wrapped.read(b, off, (int) Math.min(len, remaining));
+      if (read == -1) {
+        throw new EOFException("Connection ended with " + remaining + " bytes remaining in segment");
+      }
+
+      remaining -= read;
+      return read;
+    }
+
+    @Override
+    public void close() {
+      // The connection stream outlives the segment
+    }
+
+    private void drain() throws IOException {
+      byte[] buffer = new byte[8192];
+
+      while (read(buffer, 0, buffer.length) != -1) {
+        // Skip whatever the receiver didn't consume
+      }
+    }
+  }
+}
@@ -10,11 +10,15 @@ import org.signal.core.util.StreamUtil;
 import org.signal.core.util.ThreadUtil;
 import org.signal.core.util.logging.Log;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.security.cert.X509Certificate;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLHandshakeException;
@@ -34,7 +38,12 @@ final class NetworkClientThread extends Thread {
   public static final int NETWORK_CLIENT_SSL_ESTABLISHED = 1003;
   public static final int NETWORK_CLIENT_STOPPED         = 1004;
 
-  private volatile SSLSocket client;
+  private static final int  ATTACHMENT_STREAM_COUNT = 3;
+  private static final int  MAX_RECONNECT_ATTEMPTS  = 5;
+  private static final long RECONNECT_DELAY_MS      = TimeUnit.SECONDS.toMillis(1);
+
+  private volatile SSLSocket                 client;
+  private volatile MultiStreamTransferClient multiStreamTransfer;
   private volatile boolean   isRunning;
   private volatile Boolean   isVerified;
 
@@ -92,10 +101,13 @@ final class NetworkClientThread extends Thread {
           Log.i(TAG, "Waiting for user to verify sas");
           awaitAuthenticationCodeVerification();
           Log.d(TAG, "Waiting for server to tell us they also verified");
-          outputStream.write(0x43);
+          boolean multiStream = clientTask instanceof MultiStreamClientTask;
+          int     result;
+
+          outputStream.write(multiStream ? MultiStreamProtocol.VERIFIED_MULTI_STREAM : MultiStreamProtocol.VERIFIED);
           outputStream.flush();
           try {
-            int result = inputStream.read();
+            result = inputStream.read();
             if (result == -1) {
               Log.w(TAG, "Something happened waiting for server to verify");
               throw new DeviceTransferAuthentication.DeviceTransferAuthenticationException("server disconnected while we waited");
@@ -106,7 +118,12 @@ final class NetworkClientThread extends Thread {
           }
 
           handler.sendEmptyMessage(NETWORK_CLIENT_CONNECTED);
-          clientTask.run(context, outputStream);
+          if (multiStream && result == MultiStreamProtocol.VERIFIED_MULTI_STREAM) {
+            Log.i(TAG, "Server supports multi-stream transfers");
+            runMultiStream((MultiStreamClientTask) clientTask, x509, inputStream, outputStream);
+          } else {
+            clientTask.run(context, outputStream);
+          }
           outputStream.flush();
 
           Log.d(TAG, "Waiting for server to tell us they got everything");
@@ -143,6 +160,67 @@ final class NetworkClientThread extends Thread {
     handler.sendEmptyMessage(NETWORK_CLIENT_STOPPED);
   }
 
+  /**
+   * Sends the task's segments over new connections to the port the server gives us, using this connection to agree on
+   * the session. See {@link MultiStreamProtocol}.
+   */
+  private void runMultiStream(@NonNull MultiStreamClientTask task,
+                              @NonNull X509Certificate serverCertificate,
+                              @NonNull InputStream inputStream,
+                              @NonNull OutputStream outputStream)
+      throws IOException
+  {
+    List<TransferSegment> metadataSegments   = task.getMetadataSegments(context);
+    List<TransferSegment> attachmentSegments = task.getAttachmentSegments(context);
+    long                  sessionId          = MultiStreamTransferClient.sessionIdFor(metadataSegments, attachmentSegments, ATTACHMENT_STREAM_COUNT);
+
+    DataOutputStream control = new DataOutputStream(outputStream);
+    control.writeLong(sessionId);
+    control.flush();
+
+    int port = new DataInputStream(inputStream).readInt();
+
+    MultiStreamTransferClient transfer = new MultiStreamTransferClient(streamIndex -> connectStream(port, serverCertificate),
+                                                                       sessionId,
+                                                                       metadataSegments,
+                                                                       attachmentSegments,
+                                                                       ATTACHMENT_STREAM_COUNT,
+                                                                       MAX_RECONNECT_ATTEMPTS,
+                                                                       RECONNECT_DELAY_MS,
+                                                                       new LoggingListener());
+
+    multiStreamTransfer = transfer;
+    try {
+      transfer.run();
+    } finally {
+      multiStreamTransfer = null;
+    }
+  }
+
+  /**
+   * Opens a stream connection, making sure it's to the same server the user verified on the initial connection.
+   */
+  private @NonNull Socket connectStream(int port, @NonNull X509Certificate serverCertificate) throws IOException {
+    SelfSignedIdentity.ApprovingTrustManager trustManager = new SelfSignedIdentity.ApprovingTrustManager();
+    SSLSocket                                socket       = (SSLSocket) SelfSignedIdentity.getApprovingSocketFactory(trustManager).createSocket();
+
+    try {
+      socket.connect(new InetSocketAddress(serverHostAddress, port), 10000);
+      socket.setSoTimeout(MultiStreamProtocol.STREAM_READ_TIMEOUT_MS);
+      socket.startHandshake();
+
+      X509Certificate x509 = trustManager.getX509Certificate();
+      if (x509 == null || !x509.equals(serverCertificate)) {
+        throw new SSLHandshakeException("Stream connected to a different server");
+      }
+
+      return socket;
+    } catch (IOException e) {
+      StreamUtil.close(socket);
+      throw e;
+    }
+  }
+
   private void awaitAuthenticationCodeVerification() throws DeviceTransferAuthentication.DeviceTransferAuthenticationException {
     synchronized (verificationLock) {
       try {
@@ -169,6 +247,12 @@ final class NetworkClientThread extends Thread {
   @AnyThread
   public void shutdown() {
     isRunning = false;
+
+    MultiStreamTransferClient transfer = multiStreamTransfer;
+    if (transfer != null) {
+      transfer.cancel();
+    }
+
     StreamUtil.close(client);
     interrupt();
   }
@@ -176,4 +260,19 @@ final class NetworkClientThread extends Thread {
   private boolean shouldKeepRunning() {
     return !isInterrupted() && isRunning;
   }
+
+  private static final class LoggingListener implements MultiStreamTransferClient.Listener {
+    @Override
+    public void onSegmentSent(int streamIndex, long segmentId) {}
+
+    @Override
+    public void onReconnecting(int streamIndex, int attempt) {
+      Log.i(TAG, "[" + streamIndex + "] Reconnecting, attempt: " + attempt);
+    }
+
+    @Override
+    public void onStreamComplete(int streamIndex) {
+      Log.i(TAG, "[" + streamIndex + "] Stream complete");
+    }
+  }
 }
@@ -9,6 +9,8 @@ import androidx.annotation.NonNull;
 import org.signal.core.util.StreamUtil;
 import org.signal.core.util.logging.Log;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -30,10 +32,11 @@ final class NetworkServerThread extends Thread {
   public static final int NETWORK_CLIENT_DISCONNECTED    = 1004;
   public static final int NETWORK_CLIENT_SSL_ESTABLISHED = 1005;
 
-  private volatile ServerSocket serverSocket;
-  private volatile Socket       clientSocket;
-  private volatile boolean      isRunning;
-  private volatile Boolean      isVerified;
+  private volatile ServerSocket              serverSocket;
+  private volatile Socket                    clientSocket;
+  private volatile MultiStreamServerSession  multiStreamSession;
+  private volatile boolean                   isRunning;
+  private volatile Boolean                   isVerified;
 
   private final Context                           context;
   private final ServerTask                        serverTask;
@@ -80,10 +83,13 @@ final class NetworkServerThread extends Thread {
           Log.i(TAG, "Waiting for user to verify sas");
           awaitAuthenticationCodeVerification();
           Log.d(TAG, "Waiting for client to tell us they also verified");
-          outputStream.write(0x43);
+          boolean multiStream = serverTask instanceof MultiStreamServerTask;
+          int     result;
+
+          outputStream.write(multiStream ? MultiStreamProtocol.VERIFIED_MULTI_STREAM : MultiStreamProtocol.VERIFIED);
           outputStream.flush();
           try {
-            int result = inputStream.read();
+            result = inputStream.read();
             if (result == -1) {
               Log.w(TAG, "Something happened waiting for client to verify");
               throw new DeviceTransferAuthentication.DeviceTransferAuthenticationException("client disconnected while we waited");
@@ -94,7 +100,12 @@ final class NetworkServerThread extends Thread {
           }
 
           handler.sendEmptyMessage(NETWORK_CLIENT_CONNECTED);
-          serverTask.run(context, inputStream);
+          if (multiStream && result == MultiStreamProtocol.VERIFIED_MULTI_STREAM) {
+            Log.i(TAG, "Client supports multi-stream transfers");
+            runMultiStream((MultiStreamServerTask) serverTask, inputStream, outputStream);
+          } else {
+            serverTask.run(context, inputStream);
+          }
 
           outputStream.write(0x53);
           outputStream.flush();
@@ -115,6 +126,11 @@ final class NetworkServerThread extends Thread {
       Log.w(TAG, e);
     } finally {
       StreamUtil.close(serverSocket);
+
+      MultiStreamServerSession session = multiStreamSession;
+      if (session != null) {
+        session.shutdown();
+      }
     }
 
     Log.i(TAG, "Server exiting");
@@ -122,6 +138,32 @@ final class NetworkServerThread extends Thread {
     handler.sendEmptyMessage(NETWORK_SERVER_STOPPED);
   }
 
+  /**
+   * Receives the client's segments over a second server socket, using this connection to agree on the session. If this
+   * connection drops before the transfer completes, the session is left running so the next connection can resume it.
+   * See {@link MultiStreamProtocol}.
+   */
+  private void runMultiStream(@NonNull MultiStreamServerTask task, @NonNull InputStream inputStream, @NonNull OutputStream outputStream) throws IOException {
+    long                     sessionId = new DataInputStream(inputStream).readLong();
+    MultiStreamServerSession session   = multiStreamSession;
+
+    if (session != null && session.canResume(sessionId)) {
+      Log.i(TAG, "Resuming multi-stream session");
+    } else {
+      if (session != null) {
+        session.shutdown();
+      }
+      session            = MultiStreamServerSession.start(context, task, keys, sessionId);
+      multiStreamSession = session;
+    }
+
+    DataOutputStream control = new DataOutputStream(outputStream);
+    control.writeInt(session.getPort());
+    control.flush();
+
+    session.awaitCompletion(inputStream);
+  }
+
   private void awaitAuthenticationCodeVerification() throws DeviceTransferAuthentication.DeviceTransferAuthenticationException {
     synchronized (verificationLock) {
       try {
@@ -161,6 +203,12 @@ final class NetworkServerThread extends Thread {
   @AnyThread
   public void shutdown() {
     isRunning = false;
+
+    MultiStreamServerSession session = multiStreamSession;
+    if (session != null) {
+      session.shutdown();
+    }
+
     StreamUtil.close(clientSocket);
     StreamUtil.close(serverSocket);
     interrupt();
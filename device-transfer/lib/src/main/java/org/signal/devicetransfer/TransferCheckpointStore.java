@@ -0,0 +1,172 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.devicetransfer;
+
+import androidx.annotation.NonNull;
+
+import org.signal.core.util.logging.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Persists which segments of a {@link MultiStreamTransferServer} session have been fully received, so a transfer that
+ * is interrupted (dropped connection or restarted process) resumes from the last completed segment.
+ * <p>
+ * The file is a session id followed by an append-only list of completed segment ids. Each id is synced to disk as soon
+ * as it's marked, before the server reads the next segment.
+ */
+public final class TransferCheckpointStore {
+
+  private static final String TAG = Log.tag(TransferCheckpointStore.class);
+
+  private static final long NO_SESSION = 0;
+
+  private final File      file;
+  private final Set<Long> completed = new HashSet<>();
+
+  private long             sessionId = NO_SESSION;
+  private FileOutputStream fileOutput;
+  private DataOutputStream output;
+
+  public TransferCheckpointStore(@NonNull File file) {
+    this.file = file;
+    load();
+  }
+
+  /**
+   * Starts or continues the given session. Checkpoints belonging to a different session are discarded.
+   */
+  synchronized void beginSession(long sessionId) throws IOException {
+    if (this.sessionId == sessionId && output != null) {
+      return;
+    }
+
+    if (this.sessionId != sessionId) {
+      Log.i(TAG, "Starting new checkpoint session, discarding " + completed.size() + " checkpoints");
+      closeOutput();
+      completed.clear();
+
+      try (FileOutputStream headerOutput = new FileOutputStream(file, false)) {
+        DataOutputStream header = new DataOutputStream(headerOutput);
+        header.writeLong(sessionId);
+        header.flush();
+        headerOutput.getFD().sync();
+      }
+
+      this.sessionId = sessionId;
+    } else {
+      Log.i(TAG, "Resuming checkpoint session with " + completed.size() + " completed segments");
+    }
+
+    fileOutput = new FileOutputStream(file, true);
+    output     = new DataOutputStream(new BufferedOutputStream(fileOutput));
+  }
+
+  synchronized boolean isComplete(long segmentId) {
+    return completed.contains(segmentId);
+  }
+
+  synchronized @NonNull long[] getCompleted() {
+    long[] ids   = new long[completed.size()];
+    int    index = 0;
+
+    for (long id : completed) {
+      ids[index++] = id;
+    }
+
+    return ids;
+  }
+
+  synchronized void markComplete(long segmentId) throws IOException {
+    if (output == null) {
+      throw new IOException("Checkpoint store is closed");
+    }
+
+    if (completed.add(segmentId)) {
+      output.writeLong(segmentId);
+      output.flush();
+      fileOutput.getFD().sync();
+    }
+  }
+
+  public synchronized int getCompletedCount() {
+    return completed.size();
+  }
+
+  /**
+   * Removes all checkpoints, e.g. once the transfer has finished and been imported.
+   */
+  public synchronized void clear() {
+    closeOutput();
+    completed.clear();
+    sessionId = NO_SESSION;
+
+    if (file.exists() && !file.delete()) {
+      Log.w(TAG, "Unable to delete checkpoint file");
+    }
+  }
+
+  synchronized void close() {
+    closeOutput();
+  }
+
+  private void closeOutput() {
+    if (output != null) {
+      try {
+        output.close();
+      } catch (IOException e) {
+        Log.w(TAG, "Failed to close checkpoint file", e);
+      }
+      output     = null;
+      fileOutput = null;
+    }
+  }
+
+  private void load() {
+    if (!file.exists()) {
+      return;
+    }
+
+    long validLength = file.length() - (file.length() % 8);
+
+    try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+      sessionId = input.readLong();
+
+      for (long read = 8; read < validLength; read += 8) {
+        completed.add(input.readLong());
+      }
+    } catch (EOFException e) {
+      Log.w(TAG, "Checkpoint file is empty, ignoring");
+      sessionId = NO_SESSION;
+      completed.clear();
+      return;
+    } catch (IOException e) {
+      Log.w(TAG, "Unable to read checkpoint file, ignoring", e);
+      sessionId = NO_SESSION;
+      completed.clear();
+      return;
+    }
+
+    if (validLength != file.length()) {
+      Log.w(TAG, "Dropping partially written checkpoint");
+      try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+        randomAccessFile.setLength(validLength);
+      } catch (IOException e) {
+        Log.w(TAG, "Unable to truncate checkpoint file", e);
+      }
+    }
+  }
+}
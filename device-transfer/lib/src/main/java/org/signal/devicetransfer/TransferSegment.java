@@ -0,0 +1,51 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.devicetransfer;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A unit of a {@link MultiStreamTransferClient} transfer. Segments are the resume granularity: once the receiver has
+ * checkpointed a segment it will not be sent again, and a segment interrupted part way through is resent in full.
+ */
+public final class TransferSegment {
+
+  private final long   id;
+  private final long   length;
+  private final Source source;
+
+  /**
+   * @param id     Unique across every segment in the transfer, and stable across attempts so checkpoints can be matched.
+   * @param length Exact number of bytes {@code source} will produce.
+   */
+  public TransferSegment(long id, long length, @NonNull Source source) {
+    this.id     = id;
+    this.length = length;
+    this.source = source;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public long getLength() {
+    return length;
+  }
+
+  @NonNull InputStream open() throws IOException {
+    return source.open();
+  }
+
+  public interface Source {
+    /**
+     * Opens a fresh stream over the segment contents. May be called again if the segment has to be resent.
+     */
+    @NonNull InputStream open() throws IOException;
+  }
+}
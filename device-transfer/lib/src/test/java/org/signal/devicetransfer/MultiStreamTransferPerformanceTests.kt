@@ -0,0 +1,98 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.devicetransfer
+
+import org.junit.After
+import org.junit.Before
+import org.junit.Ignore
+import org.junit.Test
+import org.signal.devicetransfer.MultiStreamTransferTest.Companion.newClient
+import org.signal.devicetransfer.MultiStreamTransferTest.Companion.segment
+import org.signal.devicetransfer.MultiStreamTransferTest.Companion.startServer
+import org.signal.devicetransfer.MultiStreamTransferTest.FaultInjectingConnector
+import org.signal.devicetransfer.MultiStreamTransferTest.RecordingReceiver
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.time.Duration.Companion.nanoseconds
+
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+class MultiStreamTransferPerformanceTests {
+
+  companion object {
+    private const val SEGMENT_COUNT = 100L
+    private const val SEGMENT_SIZE = 1_000_000
+  }
+
+  private lateinit var checkpointFile: File
+
+  @Before
+  fun setUp() {
+    checkpointFile = File.createTempFile("checkpoints", ".bin")
+    checkpointFile.delete()
+  }
+
+  @After
+  fun tearDown() {
+    checkpointFile.delete()
+  }
+
+  @Test
+  fun testPerformance_streamRecovery() {
+    val server = startServer(TransferCheckpointStore(checkpointFile), RecordingReceiver())
+    val recovery = RecoveryTimer()
+
+    val connector = FaultInjectingConnector(server.port, mapOf(1 to SEGMENT_SIZE * 10L))
+    newClient(server.port, listOf(segment(0, SEGMENT_SIZE)), attachments(), connector = connector, listener = recovery).run()
+    server.await()
+
+    println("[streamRecovery] Stream recovered ${recovery.recoveryTime()} after disconnect")
+  }
+
+  @Test
+  fun testPerformance_resumeAfterReceiverRestart() {
+    val firstServer = startServer(TransferCheckpointStore(checkpointFile), RecordingReceiver())
+    val failing = FaultInjectingConnector(firstServer.port, mapOf(1 to SEGMENT_SIZE * 30L, 2 to SEGMENT_SIZE * 30L))
+
+    try {
+      newClient(firstServer.port, listOf(segment(0, SEGMENT_SIZE)), attachments(), connector = failing, maxReconnectAttempts = 0).run()
+    } catch (e: IOException) {
+      // Expected
+    }
+    firstServer.shutdown()
+
+    val checkpointed = TransferCheckpointStore(checkpointFile).completedCount
+    val secondServer = startServer(TransferCheckpointStore(checkpointFile), RecordingReceiver())
+
+    val start = System.nanoTime()
+    newClient(secondServer.port, listOf(segment(0, SEGMENT_SIZE)), attachments()).run()
+    secondServer.await()
+
+    println("[resumeAfterReceiverRestart] Resumed with $checkpointed checkpointed segments in ${(System.nanoTime() - start).nanoseconds}")
+  }
+
+  private fun attachments() = (1L..SEGMENT_COUNT).map { segment(it, SEGMENT_SIZE) }
+
+  /**
+   * Measures the time between a stream starting to reconnect and it delivering its next segment.
+   */
+  private class RecoveryTimer : MultiStreamTransferClient.Listener {
+    private val reconnectStarted = ConcurrentHashMap<Int, Long>()
+    private val recoveryNanos = ConcurrentHashMap<Int, Long>()
+
+    override fun onSegmentSent(streamIndex: Int, segmentId: Long) {
+      reconnectStarted.remove(streamIndex)?.let { recoveryNanos[streamIndex] = System.nanoTime() - it }
+    }
+
+    override fun onReconnecting(streamIndex: Int, attempt: Int) {
+      reconnectStarted[streamIndex] = System.nanoTime()
+    }
+
+    override fun onStreamComplete(streamIndex: Int) = Unit
+
+    fun recoveryTime() = recoveryNanos.values.maxOrNull()?.nanoseconds
+  }
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.devicetransfer
+
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.File
+import java.io.FilterOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.net.Socket
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+import kotlin.random.Random
+
+class MultiStreamTransferTest {
+
+  private lateinit var checkpointFile: File
+
+  @Before
+  fun setUp() {
+    checkpointFile = File.createTempFile("checkpoints", ".bin")
+    checkpointFile.delete()
+  }
+
+  @After
+  fun tearDown() {
+    checkpointFile.delete()
+  }
+
+  @Test
+  fun transfer_completesAcrossParallelStreams() {
+    val metadata = listOf(segment(0, 1_000_000))
+    val attachments = (1L..40L).map { segment(it, Random(it).nextInt(1, 200_000)) }
+
+    val receiver = RecordingReceiver()
+    val server = startServer(TransferCheckpointStore(checkpointFile), receiver)
+
+    newClient(server.port, metadata, attachments).run()
+    server.await()
+
+    assertReceived(receiver, metadata + attachments)
+    assertEquals(listOf(0L), receiver.streamOrder[MultiStreamProtocol.METADATA_STREAM])
+  }
+
+  @Test
+  fun transfer_whenAStreamDrops_resumesFromLastCompletedSegment() {
+    val metadata = listOf(segment(0, 100_000))
+    val attachments = (1L..12L).map { segment(it, 100_000) }
+
+    val receiver = RecordingReceiver()
+    val server = startServer(TransferCheckpointStore(checkpointFile), receiver)
+
+    val connector = FaultInjectingConnector(server.port, mapOf(1 to 250_000L))
+    newClient(server.port, metadata, attachments, connector = connector).run()
+    server.await()
+
+    assertReceived(receiver, metadata + attachments)
+    assertEquals(1, connector.faultsInjected.get())
+    assertTrue("Only the interrupted segment should be delivered twice", receiver.deliveries.values.count { it.get() > 1 } <= 1)
+  }
+
+  @Test
+  fun transfer_whenAStreamKeepsDroppingButMakesProgress_keepsReconnecting() {
+    val metadata = listOf(segment(0, 100_000))
+    val attachments = (1L..12L).map { segment(it, 100_000) }
+
+    val receiver = RecordingReceiver()
+    val server = startServer(TransferCheckpointStore(checkpointFile), receiver)
+
+    val connector = FaultInjectingConnector(server.port, mapOf(1 to 150_000L), times = 3)
+    newClient(server.port, metadata, attachments, connector = connector, maxReconnectAttempts = 1).run()
+    server.await()
+
+    assertReceived(receiver, metadata + attachments)
+    assertEquals(3, connector.faultsInjected.get())
+  }
+
+  @Test
+  fun transfer_whenASegmentIsShort_failsWithIOException() {
+    val receiver = RecordingReceiver()
+    val server = startServer(TransferCheckpointStore(checkpointFile), receiver)
+
+    val short = TransferSegment(1, 1_000) { ByteArrayInputStream(ByteArray(10)) }
+    val sessionId = MultiStreamTransferClient.sessionIdFor(emptyList(), listOf(short), ATTACHMENT_STREAMS)
+    val client = MultiStreamTransferClient(FaultInjectingConnector(server.port, emptyMap()), sessionId, emptyList(), listOf(short), ATTACHMENT_STREAMS, 0, 10, NoOpListener)
+
+    val error = runCatching { client.run() }.exceptionOrNull()
+    server.shutdown()
+
+    assertTrue("Expected an IOException but got $error", error is IOException && error.cause == null)
+    assertTrue(receiver.received.isEmpty())
+  }
+
+  @Test
+  fun transfer_forAnotherSession_isRejected() {
+    val receiver = RecordingReceiver()
+    val serverSocket = ServerSocket(0, 8, InetAddress.getLoopbackAddress())
+    val server = MultiStreamTransferServer(serverSocket, 1, TransferCheckpointStore(checkpointFile), receiver)
+    val serverThread = thread {
+      try {
+        server.run()
+      } catch (e: IOException) {
+        // Shut down before completion
+      }
+    }
+
+    try {
+      newClient(serverSocket.localPort, listOf(segment(0, 1_000)), listOf(segment(1, 1_000)), sessionId = 2, maxReconnectAttempts = 0).run()
+      fail("Expected the transfer to be rejected")
+    } catch (e: IOException) {
+      // Expected
+    }
+    RunningServer(serverSocket.localPort, server, serverThread).shutdown()
+
+    assertTrue(receiver.received.isEmpty())
+  }
+
+  @Test
+  fun transfer_whenReceiverRestarts_resumesFromPersistedCheckpoints() {
+    val firstReceiver = RecordingReceiver()
+    val firstServer = startServer(TransferCheckpointStore(checkpointFile), firstReceiver)
+    val failing = FaultInjectingConnector(firstServer.port, mapOf(1 to 450_000L, 2 to 450_000L))
+
+    try {
+      newClient(firstServer.port, restartMetadata(), restartAttachments(), connector = failing, maxReconnectAttempts = 0).run()
+      fail("Expected the transfer to be interrupted")
+    } catch (e: IOException) {
+      // Expected
+    }
+    firstServer.shutdown()
+
+    val firstReceived = TransferCheckpointStore(checkpointFile).completed.toSet()
+    assertTrue(firstReceived.isNotEmpty())
+
+    val secondReceiver = RecordingReceiver()
+    val secondServer = startServer(TransferCheckpointStore(checkpointFile), secondReceiver)
+
+    val metadata = restartMetadata()
+    val attachments = restartAttachments().reversed()
+    newClient(secondServer.port, metadata, attachments).run()
+    secondServer.await()
+
+    val allReceived = firstReceiver.received.filterKeys { it in firstReceived } + secondReceiver.received
+    assertEquals((metadata + attachments).map { it.id }.toSet(), allReceived.keys)
+    for (id in firstReceived) {
+      assertTrue("Segment $id was resent", id !in secondReceiver.received)
+    }
+  }
+
+  @Test
+  fun sessionIdFor_sameSegments_isStable() {
+    val metadata = listOf(segment(0, 100).toTransferSegment())
+    val attachments = (1L..5L).map { segment(it, 100).toTransferSegment() }
+
+    val first = MultiStreamTransferClient.sessionIdFor(metadata, attachments, ATTACHMENT_STREAMS)
+
+    assertEquals(first, MultiStreamTransferClient.sessionIdFor(metadata, attachments.reversed(), ATTACHMENT_STREAMS))
+    assertNotEquals(0L, first)
+  }
+
+  @Test
+  fun sessionIdFor_differentSegments_changes() {
+    val metadata = listOf(segment(0, 100).toTransferSegment())
+    val attachments = (1L..5L).map { segment(it, 100).toTransferSegment() }
+
+    val first = MultiStreamTransferClient.sessionIdFor(metadata, attachments, ATTACHMENT_STREAMS)
+
+    assertNotEquals(first, MultiStreamTransferClient.sessionIdFor(metadata, attachments.dropLast(1), ATTACHMENT_STREAMS))
+    assertNotEquals(first, MultiStreamTransferClient.sessionIdFor(metadata, attachments + segment(6, 100).toTransferSegment(), ATTACHMENT_STREAMS))
+    assertNotEquals(first, MultiStreamTransferClient.sessionIdFor(listOf(segment(0, 101).toTransferSegment()), attachments, ATTACHMENT_STREAMS))
+    assertNotEquals(first, MultiStreamTransferClient.sessionIdFor(metadata, attachments, ATTACHMENT_STREAMS + 1))
+  }
+
+  @Test
+  fun checkpointStore_newSession_discardsPreviousCheckpoints() {
+    TransferCheckpointStore(checkpointFile).apply {
+      beginSession(1)
+      markComplete(10)
+      markComplete(11)
+      close()
+    }
+
+    val resumed = TransferCheckpointStore(checkpointFile)
+    resumed.beginSession(1)
+    assertEquals(setOf(10L, 11L), resumed.completed.toSet())
+    resumed.close()
+
+    val replaced = TransferCheckpointStore(checkpointFile)
+    replaced.beginSession(2)
+    assertEquals(0, replaced.completedCount)
+    replaced.close()
+  }
+
+  @Test
+  fun checkpointStore_partiallyWrittenCheckpoint_isDropped() {
+    TransferCheckpointStore(checkpointFile).apply {
+      beginSession(1)
+      markComplete(10)
+      close()
+    }
+    checkpointFile.appendBytes(byteArrayOf(1, 2, 3))
+
+    val store = TransferCheckpointStore(checkpointFile)
+    store.beginSession(1)
+    store.markComplete(11)
+    store.close()
+
+    assertEquals(setOf(10L, 11L), TransferCheckpointStore(checkpointFile).completed.toSet())
+  }
+
+  private fun assertReceived(receiver: RecordingReceiver, segments: List<TestSegment>) {
+    assertEquals(segments.map { it.id }.toSet(), receiver.received.keys)
+    for (segment in segments) {
+      assertArrayEquals(segment.bytes, receiver.received[segment.id])
+    }
+  }
+
+  private fun restartMetadata() = listOf(segment(0, 100_000))
+
+  private fun restartAttachments() = (1L..20L).map { segment(it, 100_000) }
+
+  companion object {
+    internal const val ATTACHMENT_STREAMS = 3
+
+    internal fun segment(id: Long, length: Int): TestSegment {
+      return TestSegment(id, Random(id).nextBytes(length))
+    }
+
+    /**
+     * Unless a [sessionId] is given, the session id is derived from the segments just like [NetworkClientThread] does.
+     */
+    internal fun newClient(
+      port: Int,
+      metadata: List<TestSegment>,
+      attachments: List<TestSegment>,
+      sessionId: Long? = null,
+      connector: MultiStreamTransferClient.Connector = FaultInjectingConnector(port, emptyMap()),
+      maxReconnectAttempts: Int = 3,
+      listener: MultiStreamTransferClient.Listener = NoOpListener
+    ): MultiStreamTransferClient {
+      val metadataSegments = metadata.map { it.toTransferSegment() }
+      val attachmentSegments = attachments.map { it.toTransferSegment() }
+
+      return MultiStreamTransferClient(
+        connector,
+        sessionId ?: MultiStreamTransferClient.sessionIdFor(metadataSegments, attachmentSegments, ATTACHMENT_STREAMS),
+        metadataSegments,
+        attachmentSegments,
+        ATTACHMENT_STREAMS,
+        maxReconnectAttempts,
+        10,
+        listener
+      )
+    }
+
+    internal fun startServer(checkpoints: TransferCheckpointStore, receiver: MultiStreamTransferServer.SegmentReceiver): RunningServer {
+      val serverSocket = ServerSocket(0, 8, InetAddress.getLoopbackAddress())
+      val server = MultiStreamTransferServer(serverSocket, checkpoints, receiver)
+      val serverThread = thread {
+        try {
+          server.run()
+        } catch (e: IOException) {
+          // Shut down before completion
+        }
+      }
+
+      return RunningServer(serverSocket.localPort, server, serverThread)
+    }
+  }
+
+  internal class TestSegment(val id: Long, val bytes: ByteArray) {
+    fun toTransferSegment(): TransferSegment = TransferSegment(id, bytes.size.toLong()) { ByteArrayInputStream(bytes) }
+  }
+
+  internal class RunningServer(val port: Int, private val server: MultiStreamTransferServer, private val thread: Thread) {
+    fun await() {
+      thread.join(TimeUnit.SECONDS.toMillis(30))
+      assertTrue("Server did not finish", !thread.isAlive)
+    }
+
+    fun shutdown() {
+      server.shutdown()
+      thread.join(TimeUnit.SECONDS.toMillis(30))
+    }
+  }
+
+  internal class RecordingReceiver : MultiStreamTransferServer.SegmentReceiver {
+    val received = ConcurrentHashMap<Long, ByteArray>()
+    val deliveries = ConcurrentHashMap<Long, AtomicInteger>()
+    val streamOrder = ConcurrentHashMap<Int, MutableList<Long>>()
+
+    override fun receive(streamIndex: Int, segmentId: Long, inputStream: InputStream, length: Long) {
+      deliveries.getOrPut(segmentId) { AtomicInteger() }.incrementAndGet()
+      val bytes = inputStream.readBytes()
+      received[segmentId] = bytes
+      streamOrder.getOrPut(streamIndex) { mutableListOf() } += segmentId
+    }
+  }
+
+  internal object NoOpListener : MultiStreamTransferClient.Listener {
+    override fun onSegmentSent(streamIndex: Int, segmentId: Long) = Unit
+    override fun onReconnecting(streamIndex: Int, attempt: Int) = Unit
+    override fun onStreamComplete(streamIndex: Int) = Unit
+  }
+
+  /**
+   * Connects over loopback. The first [times] connections for each stream in [faults] are cut after the given number of bytes.
+   */
+  internal class FaultInjectingConnector(private val port: Int, private val faults: Map<Int, Long>, private val times: Int = 1) : MultiStreamTransferClient.Connector {
+    val faultsInjected = AtomicInteger()
+    private val faulted = ConcurrentHashMap<Int, AtomicInteger>()
+
+    override fun connect(streamIndex: Int): Socket {
+      val limit = faults[streamIndex]
+      return if (limit != null && faulted.getOrPut(streamIndex) { AtomicInteger() }.incrementAndGet() <= times) {
+        FaultySocket(port, limit) { faultsInjected.incrementAndGet() }
+      } else {
+        Socket(InetAddress.getLoopbackAddress(), port)
+      }
+    }
+  }
+
+  internal class FaultySocket(port: Int, private val limit: Long, private val onFault: () -> Unit) : Socket(InetAddress.getLoopbackAddress(), port) {
+    private val output: OutputStream by lazy {
+      object : FilterOutputStream(socketOutputStream()) {
+        var written = 0L
+
+        override fun write(b: Int) {
+          write(byteArrayOf(b.toByte()), 0, 1)
+        }
+
+        override fun write(b: ByteArray, off: Int, len: Int) {
+          if (written + len > limit) {
+            onFault()
+            this@FaultySocket.close()
+            throw IOException("Injected disconnect after $written bytes")
+          }
+          written += len
+          out.write(b, off, len)
+        }
+      }
+    }
+
+    override fun getOutputStream(): OutputStream = output
+
+    private fun socketOutputStream(): OutputStream = super.getOutputStream()
+  }
+}
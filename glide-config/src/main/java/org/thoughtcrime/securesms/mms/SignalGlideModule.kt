@@ -26,6 +26,7 @@ class SignalGlideModule : AppGlideModule() {
 
   override fun applyOptions(context: Context, builder: GlideBuilder) {
     builder.setLogLevel(Log.ERROR)
+    registerGlideComponents.applyOptions(context, builder)
   }
 
   companion object {
@@ -36,5 +37,7 @@ class SignalGlideModule : AppGlideModule() {
 
 interface RegisterGlideComponents {
 
+  fun applyOptions(context: Context, builder: GlideBuilder)
+
   fun registerComponents(context: Context, glide: Glide, registry: Registry)
 }
@@ -1,6 +1,8 @@
 package org.signal.imageeditor.core;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Matrix;
@@ -21,6 +23,7 @@ import androidx.core.view.GestureDetectorCompat;
 import org.signal.imageeditor.R;
 import org.signal.imageeditor.core.model.EditorElement;
 import org.signal.imageeditor.core.model.EditorModel;
+import org.signal.imageeditor.core.model.ElementLayerCache;
 import org.signal.imageeditor.core.model.ThumbRenderer;
 import org.signal.imageeditor.core.renderers.BezierDrawingRenderer;
 import org.signal.imageeditor.core.renderers.MultiLineTextRenderer;
@@ -88,6 +91,8 @@ public final class ImageEditorView extends FrameLayout {
   private final RectF  visibleViewPort = Bounds.newFullBounds();
   private final RectF  screen          = new RectF();
 
+  private final ElementLayerCache layerCache = new ElementLayerCache();
+
   private TapListener                      tapListener;
   private RendererContext                  rendererContext;
   private RendererContext.TypefaceProvider typefaceProvider;
@@ -191,7 +196,9 @@ public final class ImageEditorView extends FrameLayout {
   protected void onDraw(Canvas canvas) {
     if (rendererContext == null || rendererContext.canvas != canvas || rendererContext.typefaceProvider != typefaceProvider) {
       rendererContext = new RendererContext(getContext(), canvas, rendererReady, rendererInvalidate, typefaceProvider);
+      rendererContext.setLayerCache(layerCache);
     }
+    layerCache.setEditingElement(editSession != null ? editSession.getSelected() : null);
     rendererContext.save();
     try {
       rendererContext.canvasMatrix.initial(viewMatrix);
@@ -206,11 +213,51 @@ public final class ImageEditorView extends FrameLayout {
     @Override
     public void onReady(@NonNull Renderer renderer, @Nullable Matrix cropMatrix, @Nullable Point size) {
       model.onReady(renderer, cropMatrix, size);
+      layerCache.onInvalidate(renderer);
       invalidate();
     }
   };
 
-  private final RendererContext.Invalidate rendererInvalidate = renderer -> invalidate();
+  private final RendererContext.Invalidate rendererInvalidate = renderer -> {
+    layerCache.onInvalidate(renderer);
+    invalidate();
+  };
+
+  /**
+   * Frees the bitmaps used to cache committed elements, they are drawn again on the next frame.
+   */
+  public void releaseLayerCache() {
+    layerCache.release();
+  }
+
+  private final ComponentCallbacks2 trimMemoryCallbacks = new ComponentCallbacks2() {
+    @Override
+    public void onTrimMemory(int level) {
+      releaseLayerCache();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    @Override
+    public void onLowMemory() {
+      releaseLayerCache();
+    }
+  };
+
+  @Override
+  protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    getContext().getApplicationContext().registerComponentCallbacks(trimMemoryCallbacks);
+  }
+
+  @Override
+  protected void onDetachedFromWindow() {
+    super.onDetachedFromWindow();
+    getContext().getApplicationContext().unregisterComponentCallbacks(trimMemoryCallbacks);
+    layerCache.release();
+  }
 
   @Override
   protected void onSizeChanged(int w, int h, int oldw, int oldh) {
@@ -257,6 +304,7 @@ public final class ImageEditorView extends FrameLayout {
         this.model.setUndoRedoStackListener(null);
       }
       this.model = model;
+      this.layerCache.release();
       this.model.setInvalidate(this::invalidate);
       this.model.setUndoRedoStackListener(this::onUndoRedoAvailabilityChanged);
       this.model.setVisibleViewPort(visibleViewPort);
@@ -13,6 +13,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import org.signal.imageeditor.core.model.EditorElement;
+import org.signal.imageeditor.core.model.ElementLayerCache;
 
 import java.util.Collections;
 import java.util.List;
@@ -52,6 +53,7 @@ public final class RendererContext {
 
   private List<EditorElement> children = Collections.emptyList();
   private Paint               maskPaint;
+  private ElementLayerCache   layerCache;
 
   public RendererContext(@NonNull Context context, @NonNull Canvas canvas, @NonNull Ready rendererReady, @NonNull Invalidate invalidate, @NonNull TypefaceProvider typefaceProvider) {
     this.context          = context;
@@ -132,6 +134,17 @@ public final class RendererContext {
     return maskPaint;
   }
 
+  /**
+   * Set by the view to reuse rasterized elements between frames, never set for a final render.
+   */
+  public void setLayerCache(@Nullable ElementLayerCache layerCache) {
+    this.layerCache = layerCache;
+  }
+
+  public @Nullable ElementLayerCache getLayerCache() {
+    return layerCache;
+  }
+
   /**
    * Allows a RenderContext creator to specify which font to use for text on the fly.
    */
@@ -0,0 +1,13 @@
+package org.signal.imageeditor.core;
+
+/**
+ * A {@link Renderer} that can report when its persisted state changes, so that the undo history can reuse its
+ * serialized form instead of writing it out again on every push.
+ */
+public interface VersionedRenderer extends Renderer {
+
+  /**
+   * @return A value that changes whenever anything written by {@link #writeToParcel} changes.
+   */
+  int getVersion();
+}
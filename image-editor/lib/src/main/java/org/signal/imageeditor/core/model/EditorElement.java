@@ -80,6 +80,18 @@ public final class EditorElement implements Parcelable {
     in.readTypedList(children, EditorElement.CREATOR);
   }
 
+  /**
+   * Restores an element from its persisted state, see {@link ElementSnapshot}.
+   */
+  EditorElement(@NonNull UUID id, int flags, @NonNull Matrix localMatrix, @Nullable Renderer renderer, int zOrder, @NonNull List<EditorElement> children) {
+    this.id       = id;
+    this.flags    = new EditorFlags(flags);
+    this.renderer = renderer;
+    this.zOrder   = zOrder;
+    this.localMatrix.set(localMatrix);
+    this.children.addAll(children);
+  }
+
   UUID getId() {
     return id;
   }
@@ -121,7 +133,10 @@ public final class EditorElement implements Parcelable {
     }
 
     if (flags.isChildrenVisible()) {
-      drawChildren(children, rendererContext);
+      ElementLayerCache layerCache = rendererContext.getLayerCache();
+      if (layerCache == null || !layerCache.drawChildren(this, children, rendererContext)) {
+        drawChildren(children, rendererContext);
+      }
       drawChildren(deletedChildren, rendererContext);
     }
 
@@ -154,6 +169,19 @@ public final class EditorElement implements Parcelable {
     return editorMatrix;
   }
 
+  /**
+   * The matrix {@link #draw} applies while editing, localMatrix * editorMatrix * animationMatrix.
+   */
+  void getDrawMatrix(@NonNull Matrix outMatrix) {
+    outMatrix.set(localMatrix);
+    outMatrix.preConcat(editorMatrix);
+    animationMatrix.preConcatValueTo(outMatrix);
+  }
+
+  float getAlpha() {
+    return alphaAnimation.getValue();
+  }
+
   EditorElement findElement(@NonNull EditorElement toFind, @NonNull Matrix viewMatrix, @NonNull Matrix outInverseModelMatrix) {
     return findElement(viewMatrix, outInverseModelMatrix, (element, inverseMatrix) -> toFind == element);
   }
@@ -209,6 +209,16 @@ public final class EditorModel implements Parcelable, RendererContext.Ready {
    */
   public void draw(@NonNull RendererContext rendererContext, @Nullable EditorElement renderOnTop) {
     EditorElement root = editorElementHierarchy.getRoot();
+
+    ElementLayerCache layerCache = rendererContext.getLayerCache();
+    if (layerCache != null) {
+      // Text editing draws the tree twice with flags toggled in between, which would churn the layers
+      if (renderOnTop == null) {
+        layerCache.prepare(editorElementHierarchy.getMainImage(), editorElementHierarchy.getSelectedElement());
+      } else {
+        layerCache.prepare(null, null);
+      }
+    }
     if (renderOnTop != null) {
       root.forAllInTree(element -> element.getFlags().mark());
 
@@ -297,13 +307,13 @@ public final class EditorModel implements Parcelable, RendererContext.Ready {
     boolean        didPop   = false;
 
     while (stacks.canUndo(root)) {
-      final EditorElement oldRootElement = root;
-      final EditorElement popped         = stacks.getUndoStack().pop(oldRootElement);
+      final ElementSnapshot oldState = stacks.snapshot(root);
+      final ElementSnapshot popped   = stacks.getUndoStack().pop(oldState);
 
       if (popped != null) {
         didPop = true;
-        editorElementHierarchy = EditorElementHierarchy.create(popped);
-        stacks.getRedoStack().tryPush(oldRootElement);
+        stacks.getRedoStack().tryPush(oldState);
+        editorElementHierarchy = EditorElementHierarchy.create(stacks.restore(popped));
       } else {
         break;
       }
@@ -325,7 +335,7 @@ public final class EditorModel implements Parcelable, RendererContext.Ready {
     boolean        cropping = isCropping();
     UndoRedoStacks stacks   = getActiveUndoRedoStacks(cropping);
 
-    undoRedo(stacks.getUndoStack(), stacks.getRedoStack(), cropping);
+    undoRedo(stacks, stacks.getUndoStack(), stacks.getRedoStack(), cropping);
 
     updateUndoRedoAvailableState(stacks);
   }
@@ -334,19 +344,20 @@ public final class EditorModel implements Parcelable, RendererContext.Ready {
     boolean        cropping = isCropping();
     UndoRedoStacks stacks   = getActiveUndoRedoStacks(cropping);
 
-    undoRedo(stacks.getRedoStack(), stacks.getUndoStack(), cropping);
+    undoRedo(stacks, stacks.getRedoStack(), stacks.getUndoStack(), cropping);
 
     updateUndoRedoAvailableState(stacks);
   }
 
-  private void undoRedo(@NonNull ElementStack fromStack, @NonNull ElementStack toStack, boolean keepEditorState) {
-    final EditorElement oldRootElement = editorElementHierarchy.getRoot();
-    final EditorElement popped         = fromStack.pop(oldRootElement);
+  private void undoRedo(@NonNull UndoRedoStacks stacks, @NonNull ElementStack fromStack, @NonNull ElementStack toStack, boolean keepEditorState) {
+    final EditorElement   oldRootElement = editorElementHierarchy.getRoot();
+    final ElementSnapshot oldState       = stacks.snapshot(oldRootElement);
+    final ElementSnapshot popped         = fromStack.pop(oldState);
 
     if (popped != null) {
-      setEditorElementHierarchy(EditorElementHierarchy.create(popped));
+      toStack.tryPush(oldState);
 
-      toStack.tryPush(oldRootElement);
+      setEditorElementHierarchy(EditorElementHierarchy.create(stacks.restore(popped)));
 
       restoreStateWithAnimations(oldRootElement, editorElementHierarchy.getRoot(), invalidate, keepEditorState);
       invalidate.run();
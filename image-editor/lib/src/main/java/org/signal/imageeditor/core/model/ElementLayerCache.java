@@ -0,0 +1,346 @@
+package org.signal.imageeditor.core.model;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.signal.imageeditor.core.Renderer;
+import org.signal.imageeditor.core.RendererContext;
+import org.signal.imageeditor.core.VersionedRenderer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rasterizes the committed children of the main image into screen sized bitmap layers, so that a frame drawn while
+ * editing only has to render the elements that are actually changing.
+ * <p>
+ * The children are split into runs around the "live" elements, the element being edited and the selected element,
+ * and each run is drawn from its own layer so that z-order is kept. Live elements are always rendered directly.
+ * <p>
+ * A layer is only redrawn when something that affects how its elements draw changes: their matrices, flags, alpha,
+ * renderer version, the matrix of the parent, or when one of their renderers invalidates. While that state is changing
+ * from frame to frame, e.g. during a zoom animation, the elements are drawn directly rather than rasterized every frame.
+ */
+public final class ElementLayerCache {
+
+  private static final int MAX_LAYERS = 3;
+
+  private final List<Layer>         layers = new ArrayList<>(MAX_LAYERS);
+  private final List<EditorElement> run    = new ArrayList<>();
+  private final Matrix              temp   = new Matrix();
+  private final float[]             values = new float[9];
+
+  @Nullable
+  private EditorElement parent;
+  @Nullable
+  private EditorElement selectedElement;
+  @Nullable
+  private EditorElement editingElement;
+
+  /**
+   * @param editingElement The element of the active edit session, if any, it will be rendered directly.
+   */
+  public void setEditingElement(@Nullable EditorElement editingElement) {
+    this.editingElement = editingElement;
+  }
+
+  /**
+   * Called by the renderer context's {@link RendererContext.Invalidate}. Redraws any layer the renderer was drawn into on the
+   * next frame.
+   */
+  public void onInvalidate(@NonNull Renderer renderer) {
+    for (Layer layer : layers) {
+      if (layer.cached.containsRenderer(renderer)) {
+        layer.observed.set(layer.cached);
+        layer.cached.clear();
+      }
+    }
+  }
+
+  /**
+   * Frees the layer bitmaps, the cache can continue to be used and will allocate them again as needed.
+   */
+  public void release() {
+    for (Layer layer : layers) {
+      layer.release();
+    }
+    layers.clear();
+  }
+
+  /**
+   * @param parent The element to cache the children of, or null to disable caching for the next frame.
+   */
+  void prepare(@Nullable EditorElement parent, @Nullable EditorElement selectedElement) {
+    this.parent          = parent;
+    this.selectedElement = selectedElement;
+  }
+
+  /**
+   * Draws the children of the element, using the layers iff it is the prepared parent.
+   *
+   * @return false if the children were not drawn and should be drawn directly.
+   */
+  boolean drawChildren(@NonNull EditorElement element, @NonNull List<EditorElement> children, @NonNull RendererContext rendererContext) {
+    if (element != parent) {
+      return false;
+    }
+
+    rendererContext.getCurrent(temp);
+    temp.getValues(values);
+
+    int layerIndex = 0;
+
+    for (EditorElement child : children) {
+      if (child.getZOrder() < 0) continue;
+
+      if (child == editingElement || child == selectedElement) {
+        layerIndex = drawRun(layerIndex, rendererContext);
+        child.draw(rendererContext);
+      } else {
+        run.add(child);
+      }
+    }
+
+    layerIndex = drawRun(layerIndex, rendererContext);
+
+    while (layers.size() > layerIndex) {
+      layers.remove(layers.size() - 1).release();
+    }
+
+    return true;
+  }
+
+  private int drawRun(int layerIndex, @NonNull RendererContext rendererContext) {
+    if (run.isEmpty()) {
+      return layerIndex;
+    }
+
+    try {
+      if (layerIndex >= MAX_LAYERS) {
+        for (EditorElement element : run) {
+          element.draw(rendererContext);
+        }
+      } else {
+        if (layerIndex == layers.size()) {
+          layers.add(new Layer());
+        }
+        layers.get(layerIndex).draw(run, values, rendererContext);
+      }
+    } finally {
+      run.clear();
+    }
+
+    return layerIndex + 1;
+  }
+
+  private static final class Layer {
+
+    private final LayerState scratch  = new LayerState();
+    private final LayerState observed = new LayerState();
+    private final LayerState cached   = new LayerState();
+    private final Matrix     identity = new Matrix();
+
+    @Nullable
+    private Bitmap bitmap;
+
+    void draw(@NonNull List<EditorElement> elements, @NonNull float[] parentMatrix, @NonNull RendererContext rendererContext) {
+      Canvas canvas = rendererContext.canvas;
+      int    width  = canvas.getWidth();
+      int    height = canvas.getHeight();
+
+      scratch.capture(elements, parentMatrix, width, height);
+
+      if (bitmap == null || !scratch.matches(cached)) {
+        if (!scratch.matches(observed)) {
+          observed.set(scratch);
+          drawDirectly(elements, rendererContext);
+          return;
+        }
+
+        if (width <= 0 || height <= 0) {
+          drawDirectly(elements, rendererContext);
+          return;
+        }
+
+        rasterize(elements, parentMatrix, width, height, rendererContext);
+        cached.set(scratch);
+      }
+
+      rendererContext.save();
+      rendererContext.canvasMatrix.setToIdentity();
+      canvas.drawBitmap(bitmap, identity, null);
+      rendererContext.restore();
+    }
+
+    private void rasterize(@NonNull List<EditorElement> elements, @NonNull float[] parentMatrix, int width, int height, @NonNull RendererContext rendererContext) {
+      if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+        release();
+        bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+      } else {
+        bitmap.eraseColor(Color.TRANSPARENT);
+      }
+
+      RendererContext layerContext = new RendererContext(rendererContext.context,
+                                                         new Canvas(bitmap),
+                                                         rendererContext.rendererReady,
+                                                         rendererContext.invalidate,
+                                                         rendererContext.typefaceProvider);
+      layerContext.setIsEditing(rendererContext.isEditing());
+      layerContext.setMaskPaint(rendererContext.getMaskPaint());
+
+      Matrix matrix = new Matrix();
+      matrix.setValues(parentMatrix);
+      layerContext.canvasMatrix.concat(matrix);
+
+      drawDirectly(elements, layerContext);
+    }
+
+    private static void drawDirectly(@NonNull List<EditorElement> elements, @NonNull RendererContext rendererContext) {
+      for (EditorElement element : elements) {
+        element.draw(rendererContext);
+      }
+    }
+
+    void release() {
+      if (bitmap != null) {
+        bitmap.recycle();
+        bitmap = null;
+      }
+      cached.clear();
+      observed.clear();
+    }
+  }
+
+  /**
+   * Everything that affects how a run of elements is drawn. Compared by identity for elements and renderers.
+   */
+  private static final class LayerState {
+
+    private final Matrix  temp   = new Matrix();
+    private final float[] values = new float[9];
+
+    private Object[] refs   = new Object[16];
+    private float[]  floats = new float[64];
+    private int[]    ints   = new int[16];
+    private int      refCount;
+    private int      floatCount;
+    private int      intCount;
+    private boolean  valid;
+
+    void capture(@NonNull List<EditorElement> elements, @NonNull float[] parentMatrix, int width, int height) {
+      Arrays.fill(refs, 0, refCount, null);
+
+      refCount   = 0;
+      floatCount = 0;
+      intCount   = 0;
+      valid      = true;
+
+      addInt(width);
+      addInt(height);
+      addFloats(parentMatrix);
+
+      for (EditorElement element : elements) {
+        element.forAllInTree(this::add);
+      }
+    }
+
+    private void add(@NonNull EditorElement element) {
+      Renderer renderer = element.getRenderer();
+
+      addRef(element);
+      addRef(renderer);
+      addInt(element.getFlags().getCurrentState());
+      addInt(element.getChildCount());
+      addInt(renderer instanceof VersionedRenderer ? ((VersionedRenderer) renderer).getVersion() : 0);
+      addFloat(element.getAlpha());
+
+      element.getDrawMatrix(temp);
+      temp.getValues(values);
+      addFloats(values);
+    }
+
+    boolean containsRenderer(@NonNull Renderer renderer) {
+      for (int i = 0; i < refCount; i++) {
+        if (refs[i] == renderer) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    void set(@NonNull LayerState other) {
+      if (refs.length < other.refCount) refs = new Object[other.refs.length];
+      if (floats.length < other.floatCount) floats = new float[other.floats.length];
+      if (ints.length < other.intCount) ints = new int[other.ints.length];
+
+      Arrays.fill(refs, other.refCount, refs.length, null);
+      System.arraycopy(other.refs, 0, refs, 0, other.refCount);
+      System.arraycopy(other.floats, 0, floats, 0, other.floatCount);
+      System.arraycopy(other.ints, 0, ints, 0, other.intCount);
+
+      refCount   = other.refCount;
+      floatCount = other.floatCount;
+      intCount   = other.intCount;
+      valid      = other.valid;
+    }
+
+    void clear() {
+      Arrays.fill(refs, 0, refCount, null);
+      refCount = 0;
+      valid    = false;
+    }
+
+    boolean matches(@NonNull LayerState other) {
+      if (!valid || !other.valid) return false;
+      if (refCount != other.refCount || floatCount != other.floatCount || intCount != other.intCount) return false;
+
+      for (int i = 0; i < refCount; i++) {
+        if (refs[i] != other.refs[i]) return false;
+      }
+      for (int i = 0; i < intCount; i++) {
+        if (ints[i] != other.ints[i]) return false;
+      }
+      for (int i = 0; i < floatCount; i++) {
+        if (Float.compare(floats[i], other.floats[i]) != 0) return false;
+      }
+      return true;
+    }
+
+    private void addRef(@Nullable Object ref) {
+      if (refCount == refs.length) {
+        refs = Arrays.copyOf(refs, refs.length * 2);
+      }
+      refs[refCount++] = ref;
+    }
+
+    private void addInt(int value) {
+      if (intCount == ints.length) {
+        ints = Arrays.copyOf(ints, ints.length * 2);
+      }
+      ints[intCount++] = value;
+    }
+
+    private void addFloat(float value) {
+      ensureFloats(1);
+      floats[floatCount++] = value;
+    }
+
+    private void addFloats(@NonNull float[] values) {
+      ensureFloats(values.length);
+      System.arraycopy(values, 0, floats, floatCount, values.length);
+      floatCount += values.length;
+    }
+
+    private void ensureFloats(int count) {
+      if (floatCount + count > floats.length) {
+        floats = Arrays.copyOf(floats, Math.max(floats.length * 2, floatCount + count));
+      }
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package org.signal.imageeditor.core.model;
+
+import android.graphics.Matrix;
+import android.os.Parcel;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.signal.imageeditor.core.Renderer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable snapshot of the persisted state of an {@link EditorElement} tree.
+ * <p>
+ * Snapshots share structure: a node whose own state and children are unchanged between two snapshots is the same
+ * instance in both, so an undo step only costs the elements that changed plus their ancestors, and comparing two
+ * states is usually a reference check. See {@link ElementSnapshotter}.
+ */
+final class ElementSnapshot {
+
+  private final UUID              id;
+  private final int               flags;
+  private final float[]           matrix;
+  private final int               zOrder;
+  @Nullable
+  private final byte[]            renderer;
+  private final ElementSnapshot[] children;
+  private final int               hashCode;
+
+  ElementSnapshot(@NonNull UUID id, int flags, @NonNull float[] matrix, int zOrder, @Nullable byte[] renderer, @NonNull ElementSnapshot[] children) {
+    this.id       = id;
+    this.flags    = flags;
+    this.matrix   = matrix;
+    this.zOrder   = zOrder;
+    this.renderer = renderer;
+    this.children = children;
+    this.hashCode = computeHashCode();
+  }
+
+  @NonNull UUID getId() {
+    return id;
+  }
+
+  @Nullable byte[] getRendererBytes() {
+    return renderer;
+  }
+
+  int getChildCount() {
+    return children.length;
+  }
+
+  @NonNull ElementSnapshot getChild(int i) {
+    return children[i];
+  }
+
+  /**
+   * @return true iff this node's own state matches, and the children are the very same snapshot instances.
+   */
+  boolean hasSameState(int flags, @NonNull float[] matrix, int zOrder, @Nullable byte[] renderer, @NonNull ElementSnapshot[] children) {
+    if (this.flags != flags || this.zOrder != zOrder || this.children.length != children.length) {
+      return false;
+    }
+
+    for (int i = 0; i < children.length; i++) {
+      if (this.children[i] != children[i]) {
+        return false;
+      }
+    }
+
+    return Arrays.equals(this.matrix, matrix) && (this.renderer == renderer || Arrays.equals(this.renderer, renderer));
+  }
+
+  /**
+   * Creates a new, independent, {@link EditorElement} tree with this state.
+   */
+  @NonNull EditorElement restore() {
+    List<EditorElement> restoredChildren = new ArrayList<>(children.length);
+    for (ElementSnapshot child : children) {
+      restoredChildren.add(child.restore());
+    }
+
+    Matrix localMatrix = new Matrix();
+    localMatrix.setValues(matrix);
+
+    return new EditorElement(id, flags, localMatrix, readRenderer(renderer), zOrder, restoredChildren);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) return true;
+    if (!(o instanceof ElementSnapshot)) return false;
+
+    ElementSnapshot other = (ElementSnapshot) o;
+
+    return hashCode == other.hashCode &&
+           flags == other.flags &&
+           zOrder == other.zOrder &&
+           id.equals(other.id) &&
+           Arrays.equals(matrix, other.matrix) &&
+           (renderer == other.renderer || Arrays.equals(renderer, other.renderer)) &&
+           Arrays.equals(children, other.children);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  private int computeHashCode() {
+    int result = id.hashCode();
+    result = 31 * result + flags;
+    result = 31 * result + Arrays.hashCode(matrix);
+    result = 31 * result + zOrder;
+    result = 31 * result + Arrays.hashCode(renderer);
+    for (ElementSnapshot child : children) {
+      result = 31 * result + child.hashCode;
+    }
+    return result;
+  }
+
+  static @Nullable byte[] writeRenderer(@Nullable Renderer renderer) {
+    if (renderer == null) return null;
+
+    Parcel parcel = Parcel.obtain();
+    try {
+      parcel.writeParcelable(renderer, 0);
+      return parcel.marshall();
+    } finally {
+      parcel.recycle();
+    }
+  }
+
+  private static @Nullable Renderer readRenderer(@Nullable byte[] bytes) {
+    if (bytes == null) return null;
+
+    Parcel parcel = Parcel.obtain();
+    try {
+      parcel.unmarshall(bytes, 0, bytes.length);
+      parcel.setDataPosition(0);
+      return parcel.readParcelable(Renderer.class.getClassLoader());
+    } finally {
+      parcel.recycle();
+    }
+  }
+
+  /**
+   * Writes snapshots to a parcel, writing each shared node only once.
+   */
+  static final class ParcelWriter {
+
+    private final Map<ElementSnapshot, Integer> indexes = new IdentityHashMap<>();
+    private final List<ElementSnapshot>         nodes   = new ArrayList<>();
+
+    /**
+     * Registers a root so that it can be referenced by {@link #indexOf}, must be called for every root before {@link #writeNodes}.
+     */
+    void add(@NonNull ElementSnapshot snapshot) {
+      if (indexes.containsKey(snapshot)) return;
+
+      for (ElementSnapshot child : snapshot.children) {
+        add(child);
+      }
+
+      indexes.put(snapshot, nodes.size());
+      nodes.add(snapshot);
+    }
+
+    int indexOf(@Nullable ElementSnapshot snapshot) {
+      if (snapshot == null) return -1;
+
+      Integer index = indexes.get(snapshot);
+      if (index == null) {
+        throw new IllegalStateException("Snapshot was not added");
+      }
+      return index;
+    }
+
+    /**
+     * Nodes are written children first, so each can be rebuilt from already read nodes.
+     */
+    void writeNodes(@NonNull Parcel dest) {
+      dest.writeInt(nodes.size());
+      for (ElementSnapshot node : nodes) {
+        ParcelUtils.writeUUID(dest, node.id);
+        dest.writeInt(node.flags);
+        dest.writeFloatArray(node.matrix);
+        dest.writeInt(node.zOrder);
+        dest.writeByteArray(node.renderer);
+        dest.writeInt(node.children.length);
+        for (ElementSnapshot child : node.children) {
+          dest.writeInt(indexes.get(child));
+        }
+      }
+    }
+  }
+
+  static @NonNull ElementSnapshot[] readNodes(@NonNull Parcel in) {
+    int               count = in.readInt();
+    ElementSnapshot[] nodes = new ElementSnapshot[count];
+
+    for (int i = 0; i < count; i++) {
+      UUID    id       = ParcelUtils.readUUID(in);
+      int     flags    = in.readInt();
+      float[] matrix   = in.createFloatArray();
+      int     zOrder   = in.readInt();
+      byte[]  renderer = in.createByteArray();
+
+      ElementSnapshot[] children = new ElementSnapshot[in.readInt()];
+      for (int c = 0; c < children.length; c++) {
+        children[c] = nodes[in.readInt()];
+      }
+
+      nodes[i] = new ElementSnapshot(id, flags, matrix, zOrder, renderer, children);
+    }
+
+    return nodes;
+  }
+
+  static @Nullable ElementSnapshot fromIndex(@NonNull ElementSnapshot[] nodes, int index) {
+    return index >= 0 ? nodes[index] : null;
+  }
+}
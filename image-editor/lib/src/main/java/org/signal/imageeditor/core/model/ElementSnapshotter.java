@@ -0,0 +1,132 @@
+package org.signal.imageeditor.core.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.signal.imageeditor.core.Renderer;
+import org.signal.imageeditor.core.VersionedRenderer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Takes {@link ElementSnapshot}s of an {@link EditorElement} tree, sharing every node that has not changed since the
+ * previous snapshot.
+ * <p>
+ * Renderers are the expensive part of an element to serialize, a drawing with hundreds of strokes would otherwise be
+ * written out in full on every undo push. A {@link VersionedRenderer} is only serialized again when its version
+ * changes, other renderers are serialized each time but keep the previous bytes instance when they are equal, so that
+ * unchanged nodes can still be shared.
+ */
+final class ElementSnapshotter {
+
+  private Map<UUID, ElementSnapshot>        previous  = new HashMap<>();
+  private Map<Renderer, SerializedRenderer> renderers = new IdentityHashMap<>();
+
+  @NonNull ElementSnapshot snapshot(@NonNull EditorElement root) {
+    Map<UUID, ElementSnapshot>        nextPrevious  = new HashMap<>(previous.size());
+    Map<Renderer, SerializedRenderer> nextRenderers = new IdentityHashMap<>(renderers.size());
+
+    ElementSnapshot snapshot = snapshot(root, nextPrevious, nextRenderers);
+
+    previous  = nextPrevious;
+    renderers = nextRenderers;
+
+    return snapshot;
+  }
+
+  /**
+   * Restores a tree from a snapshot and remembers it, so the next {@link #snapshot} of the restored tree is cheap.
+   */
+  @NonNull EditorElement restore(@NonNull ElementSnapshot snapshot) {
+    EditorElement element = snapshot.restore();
+
+    previous  = new HashMap<>(previous.size());
+    renderers = new IdentityHashMap<>(renderers.size());
+    adopt(element, snapshot);
+
+    return element;
+  }
+
+  private void adopt(@NonNull EditorElement element, @NonNull ElementSnapshot snapshot) {
+    previous.put(snapshot.getId(), snapshot);
+
+    Renderer renderer = element.getRenderer();
+    if (renderer instanceof VersionedRenderer) {
+      renderers.put(renderer, new SerializedRenderer(((VersionedRenderer) renderer).getVersion(), snapshot.getRendererBytes()));
+    }
+
+    for (int i = 0; i < snapshot.getChildCount(); i++) {
+      adopt(element.getChild(i), snapshot.getChild(i));
+    }
+  }
+
+  private @NonNull ElementSnapshot snapshot(@NonNull EditorElement element,
+                                            @NonNull Map<UUID, ElementSnapshot> nextPrevious,
+                                            @NonNull Map<Renderer, SerializedRenderer> nextRenderers)
+  {
+    ElementSnapshot[] children = new ElementSnapshot[element.getChildCount()];
+    for (int i = 0; i < children.length; i++) {
+      children[i] = snapshot(element.getChild(i), nextPrevious, nextRenderers);
+    }
+
+    UUID            id       = element.getId();
+    ElementSnapshot old      = previous.get(id);
+    int             flags    = element.getFlags().asInt();
+    float[]         matrix   = new float[9];
+    byte[]          renderer = getRendererBytes(element.getRenderer(), old, nextRenderers);
+
+    element.getLocalMatrix().getValues(matrix);
+
+    ElementSnapshot snapshot;
+    if (old != null && old.hasSameState(flags, matrix, element.getZOrder(), renderer, children)) {
+      snapshot = old;
+    } else {
+      snapshot = new ElementSnapshot(id, flags, matrix, element.getZOrder(), renderer, children);
+    }
+
+    nextPrevious.put(id, snapshot);
+    return snapshot;
+  }
+
+  private @Nullable byte[] getRendererBytes(@Nullable Renderer renderer,
+                                            @Nullable ElementSnapshot old,
+                                            @NonNull Map<Renderer, SerializedRenderer> nextRenderers)
+  {
+    if (renderer == null) return null;
+
+    if (renderer instanceof VersionedRenderer) {
+      int                version = ((VersionedRenderer) renderer).getVersion();
+      SerializedRenderer cached  = renderers.get(renderer);
+
+      if (cached == null || cached.version != version) {
+        cached = new SerializedRenderer(version, canonicalize(ElementSnapshot.writeRenderer(renderer), old));
+      }
+
+      nextRenderers.put(renderer, cached);
+      return cached.bytes;
+    }
+
+    return canonicalize(ElementSnapshot.writeRenderer(renderer), old);
+  }
+
+  private static @Nullable byte[] canonicalize(@Nullable byte[] bytes, @Nullable ElementSnapshot old) {
+    if (old != null && Arrays.equals(bytes, old.getRendererBytes())) {
+      return old.getRendererBytes();
+    }
+    return bytes;
+  }
+
+  private static final class SerializedRenderer {
+    private final int    version;
+    private final byte[] bytes;
+
+    private SerializedRenderer(int version, byte[] bytes) {
+      this.version = version;
+      this.bytes   = bytes;
+    }
+  }
+}
@@ -1,55 +1,44 @@
 package org.signal.imageeditor.core.model;
 
 import android.os.Parcel;
-import android.os.Parcelable;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.Arrays;
 import java.util.Stack;
 
 /**
  * Contains a stack of elements for undo and redo stacks.
  * <p>
- * Elements are mutable, so this stack serializes the element and keeps a stack of serialized data.
+ * Elements are mutable, so this stack keeps a stack of immutable {@link ElementSnapshot}s. Snapshots share unchanged
+ * nodes with each other, so each entry only costs what changed since the one before it.
  * <p>
  * The stack has a {@link #limit} and if it exceeds that limit during a push the second to earliest item
  * is removed so that it can always go back to the first state. Effectively collapsing the history for
  * the start of the stack.
  */
-final class ElementStack implements Parcelable {
+final class ElementStack {
 
-  private final int           limit;
-  private final Stack<byte[]> stack = new Stack<>();
+  private final int                    limit;
+  private final Stack<ElementSnapshot> stack = new Stack<>();
 
   ElementStack(int limit) {
     this.limit = limit;
   }
 
-  private ElementStack(@NonNull Parcel in) {
-    this(in.readInt());
-    final int count = in.readInt();
-    for (int i = 0; i < count; i++) {
-      stack.add(i, in.createByteArray());
-    }
-  }
-
   /**
-   * Pushes an element to the stack iff the element's serialized value is different to any found at
-   * the top of the stack.
+   * Pushes a state to the stack iff it is different to the one found at the top of the stack.
    * <p>
    * Removes the second to earliest item if it is overflowing.
    *
-   * @param element new editor element state.
+   * @param state new editor element state.
    * @return true iff the pushed item was different to the top item.
    */
-  boolean tryPush(@NonNull EditorElement element) {
-    byte[]  bytes = getBytes(element);
-    boolean push  = stack.isEmpty() || !Arrays.equals(bytes, stack.peek());
+  boolean tryPush(@NonNull ElementSnapshot state) {
+    boolean push = stack.isEmpty() || !state.equals(stack.peek());
 
     if (push) {
-      stack.push(bytes);
+      stack.push(state);
       if (stack.size() > limit) {
         stack.remove(1);
       }
@@ -57,89 +46,56 @@ final class ElementStack implements Parcelable {
     return push;
   }
 
-  static byte[] getBytes(@NonNull Parcelable parcelable) {
-    Parcel parcel = Parcel.obtain();
-    byte[] bytes;
-    try {
-      parcel.writeParcelable(parcelable, 0);
-      bytes = parcel.marshall();
-    } finally {
-      parcel.recycle();
-    }
-    return bytes;
-  }
-
   /**
-   * Pops the first different state from the supplied element.
+   * Pops the first different state from the supplied state.
    */
-  @Nullable EditorElement pop(@NonNull EditorElement element) {
-    if (stack.empty()) return null;
-
-    byte[] elementBytes = getBytes(element);
-    byte[] stackData    = null;
-
-    while (!stack.empty() && stackData == null) {
-      byte[] topData = stack.pop();
+  @Nullable ElementSnapshot pop(@NonNull ElementSnapshot current) {
+    while (!stack.empty()) {
+      ElementSnapshot top = stack.pop();
 
-      if (!Arrays.equals(topData, elementBytes)) {
-        stackData = topData;
+      if (!top.equals(current)) {
+        return top;
       }
     }
 
-    if (stackData == null) return null;
-
-    Parcel parcel = Parcel.obtain();
-    try {
-      parcel.unmarshall(stackData, 0, stackData.length);
-      parcel.setDataPosition(0);
-      return parcel.readParcelable(EditorElement.class.getClassLoader());
-    } finally {
-      parcel.recycle();
-    }
+    return null;
   }
 
   void clear() {
     stack.clear();
   }
 
-  public static final Creator<ElementStack> CREATOR = new Creator<ElementStack>() {
-    @Override
-    public ElementStack createFromParcel(Parcel in) {
-      return new ElementStack(in);
+  boolean stackContainsStateDifferentFrom(@NonNull ElementSnapshot current) {
+    for (ElementSnapshot item : stack) {
+      if (!item.equals(current)) {
+        return true;
+      }
     }
 
-    @Override
-    public ElementStack[] newArray(int size) {
-      return new ElementStack[size];
-    }
-  };
+    return false;
+  }
 
-  @Override
-  public int describeContents() {
-    return 0;
+  void addTo(@NonNull ElementSnapshot.ParcelWriter writer) {
+    for (ElementSnapshot item : stack) {
+      writer.add(item);
+    }
   }
 
-  @Override
-  public void writeToParcel(Parcel dest, int flags) {
+  void writeToParcel(@NonNull Parcel dest, @NonNull ElementSnapshot.ParcelWriter writer) {
     dest.writeInt(limit);
     final int count = stack.size();
     dest.writeInt(count);
     for (int i = 0; i < count; i++) {
-      dest.writeByteArray(stack.get(i));
+      dest.writeInt(writer.indexOf(stack.get(i)));
     }
   }
 
-  boolean stackContainsStateDifferentFrom(@NonNull EditorElement element) {
-    if (stack.isEmpty()) return false;
-
-    byte[] currentStateBytes = getBytes(element);
-
-    for (byte[] item : stack) {
-      if (!Arrays.equals(item, currentStateBytes)) {
-        return true;
-      }
+  static @NonNull ElementStack readFromParcel(@NonNull Parcel in, @NonNull ElementSnapshot[] nodes) {
+    ElementStack elementStack = new ElementStack(in.readInt());
+    final int    count        = in.readInt();
+    for (int i = 0; i < count; i++) {
+      elementStack.stack.add(nodes[in.readInt()]);
     }
-
-    return false;
+    return elementStack;
   }
 }
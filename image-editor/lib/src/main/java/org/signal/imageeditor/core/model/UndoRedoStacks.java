@@ -6,33 +6,34 @@ import android.os.Parcelable;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.Arrays;
-
 final class UndoRedoStacks implements Parcelable {
 
-  private final ElementStack undoStack;
-  private final ElementStack redoStack;
+  private final ElementStack       undoStack;
+  private final ElementStack       redoStack;
+  private final ElementSnapshotter snapshotter = new ElementSnapshotter();
 
-  @NonNull
-  private byte[] unchangedState;
+  @Nullable
+  private ElementSnapshot unchangedState;
 
   UndoRedoStacks(int limit) {
     this(new ElementStack(limit), new ElementStack(limit), null);
   }
 
-  private UndoRedoStacks(ElementStack undoStack, ElementStack redoStack, @Nullable byte[] unchangedState) {
-    this.undoStack = undoStack;
-    this.redoStack = redoStack;
-    this.unchangedState = unchangedState != null ? unchangedState : new byte[0];
+  private UndoRedoStacks(ElementStack undoStack, ElementStack redoStack, @Nullable ElementSnapshot unchangedState) {
+    this.undoStack      = undoStack;
+    this.redoStack      = redoStack;
+    this.unchangedState = unchangedState;
   }
 
   public static final Creator<UndoRedoStacks> CREATOR = new Creator<UndoRedoStacks>() {
     @Override
     public UndoRedoStacks createFromParcel(Parcel in) {
+      ElementSnapshot[] nodes = ElementSnapshot.readNodes(in);
+
       return new UndoRedoStacks(
-      in.readParcelable(ElementStack.class.getClassLoader()),
-      in.readParcelable(ElementStack.class.getClassLoader()),
-      in.createByteArray()
+      ElementStack.readFromParcel(in, nodes),
+      ElementStack.readFromParcel(in, nodes),
+      ElementSnapshot.fromIndex(nodes, in.readInt())
       );
     }
 
@@ -42,11 +43,23 @@ final class UndoRedoStacks implements Parcelable {
     }
   };
 
+  /**
+   * Snapshots share nodes, so all the nodes are written once up front and the stacks refer to them by index.
+   */
   @Override
   public void writeToParcel(Parcel dest, int flags) {
-    dest.writeParcelable(undoStack, flags);
-    dest.writeParcelable(redoStack, flags);
-    dest.writeByteArray(unchangedState);
+    ElementSnapshot.ParcelWriter writer = new ElementSnapshot.ParcelWriter();
+
+    undoStack.addTo(writer);
+    redoStack.addTo(writer);
+    if (unchangedState != null) {
+      writer.add(unchangedState);
+    }
+
+    writer.writeNodes(dest);
+    undoStack.writeToParcel(dest, writer);
+    redoStack.writeToParcel(dest, writer);
+    dest.writeInt(writer.indexOf(unchangedState));
   }
 
   @Override
@@ -62,8 +75,16 @@ final class UndoRedoStacks implements Parcelable {
     return redoStack;
   }
 
+  @NonNull ElementSnapshot snapshot(@NonNull EditorElement element) {
+    return snapshotter.snapshot(element);
+  }
+
+  @NonNull EditorElement restore(@NonNull ElementSnapshot state) {
+    return snapshotter.restore(state);
+  }
+
   void pushState(@NonNull EditorElement element) {
-    if (undoStack.tryPush(element)) {
+    if (undoStack.tryPush(snapshot(element))) {
       redoStack.clear();
     }
   }
@@ -71,24 +92,24 @@ final class UndoRedoStacks implements Parcelable {
   void clear(@NonNull EditorElement element) {
     undoStack.clear();
     redoStack.clear();
-    unchangedState = ElementStack.getBytes(element);
+    unchangedState = snapshot(element);
   }
 
   boolean isChanged(@NonNull EditorElement element) {
-    return !Arrays.equals(ElementStack.getBytes(element), unchangedState);
+    return !snapshot(element).equals(unchangedState);
   }
 
   /**
    * As long as there is something different in the stack somewhere, then we can undo.
    */
   boolean canUndo(@NonNull EditorElement currentState) {
-    return undoStack.stackContainsStateDifferentFrom(currentState);
+    return undoStack.stackContainsStateDifferentFrom(snapshot(currentState));
   }
 
   /**
    * As long as there is something different in the stack somewhere, then we can redo.
    */
   boolean canRedo(@NonNull EditorElement currentState) {
-    return redoStack.stackContainsStateDifferentFrom(currentState);
+    return redoStack.stackContainsStateDifferentFrom(snapshot(currentState));
   }
 }
@@ -11,11 +11,12 @@ import androidx.annotation.Nullable;
 
 import org.signal.imageeditor.core.ColorableRenderer;
 import org.signal.imageeditor.core.RendererContext;
+import org.signal.imageeditor.core.VersionedRenderer;
 
 /**
  * Renders a {@link AutomaticControlPointBezierLine} with {@link #thickness}, {@link #color} and {@link #cap} end type.
  */
-public final class BezierDrawingRenderer extends InvalidateableRenderer implements ColorableRenderer {
+public final class BezierDrawingRenderer extends InvalidateableRenderer implements ColorableRenderer, VersionedRenderer {
 
   private final Paint      paint;
   private final AutomaticControlPointBezierLine bezierLine;
@@ -26,6 +27,7 @@ public final class BezierDrawingRenderer extends InvalidateableRenderer implemen
 
   private       int        color;
   private       float      thickness;
+  private       int        version;
 
   private BezierDrawingRenderer(int color, float thickness, @NonNull Paint.Cap cap, @Nullable AutomaticControlPointBezierLine bezierLine, @Nullable RectF clipRect) {
     this.paint      = new Paint();
@@ -51,6 +53,7 @@ public final class BezierDrawingRenderer extends InvalidateableRenderer implemen
   public void setColor(int color) {
     if (this.color != color) {
       this.color = color;
+      version++;
       updatePaint();
       invalidate();
     }
@@ -59,6 +62,7 @@ public final class BezierDrawingRenderer extends InvalidateableRenderer implemen
   public void setThickness(float thickness) {
     if (this.thickness != thickness) {
       this.thickness = thickness;
+      version++;
       updatePaint();
       invalidate();
     }
@@ -75,6 +79,7 @@ public final class BezierDrawingRenderer extends InvalidateableRenderer implemen
   public void setFirstPoint(PointF point) {
     bezierLine.reset();
     bezierLine.addPoint(point.x, point.y);
+    version++;
     invalidate();
   }
 
@@ -84,9 +89,15 @@ public final class BezierDrawingRenderer extends InvalidateableRenderer implemen
     } else {
       bezierLine.addPoint(point.x, point.y);
     }
+    version++;
     invalidate();
   }
 
+  @Override
+  public int getVersion() {
+    return version;
+  }
+
   @Override
   public void render(@NonNull RendererContext rendererContext) {
     super.render(rendererContext);
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.imageeditor.core.model
+
+import android.app.Application
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Color
+import android.os.Parcel
+import androidx.test.core.app.ApplicationProvider
+import org.junit.Ignore
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.signal.imageeditor.core.Renderer
+import org.signal.imageeditor.core.RendererContext
+import kotlin.time.Duration.Companion.nanoseconds
+
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE, application = Application::class)
+class ElementLayerCachePerformanceTests {
+
+  companion object {
+    private const val WIDTH = 200
+    private const val HEIGHT = 200
+    private const val FRAMES = 100
+  }
+
+  private val canvas = Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888))
+  private val layerCache = ElementLayerCache()
+  private val rendererContext = RendererContext(
+    ApplicationProvider.getApplicationContext(),
+    canvas,
+    { _, _, _ -> },
+    { renderer -> layerCache.onInvalidate(renderer) },
+    { _, _, _ -> error("No text") }
+  ).apply { setLayerCache(layerCache) }
+
+  @Test
+  fun testPerformance_frameTimeWhileDrawing() {
+    for (count in listOf(50, 500)) {
+      val parent = EditorElement(null)
+      repeat(count) { parent.addElement(EditorElement(FillRenderer())) }
+      val live = EditorElement(FillRenderer())
+      parent.addElement(live)
+      layerCache.setEditingElement(live)
+
+      repeat(2) { draw(parent) }
+
+      val start = System.nanoTime()
+      repeat(FRAMES) { draw(parent) }
+      val perFrame = ((System.nanoTime() - start) / FRAMES).nanoseconds
+
+      println("[frameTimeWhileDrawing] $count committed elements, $perFrame per frame")
+    }
+  }
+
+  private fun draw(parent: EditorElement) {
+    layerCache.prepare(parent, null)
+    rendererContext.save()
+    try {
+      parent.draw(rendererContext)
+    } finally {
+      rendererContext.restore()
+    }
+  }
+
+  private class FillRenderer : Renderer {
+    override fun render(rendererContext: RendererContext) {
+      rendererContext.canvas.drawColor(Color.RED)
+    }
+
+    override fun hitTest(x: Float, y: Float): Boolean = false
+
+    override fun describeContents(): Int = 0
+
+    override fun writeToParcel(dest: Parcel, flags: Int) = Unit
+  }
+}
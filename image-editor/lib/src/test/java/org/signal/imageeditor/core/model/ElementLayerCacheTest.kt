@@ -0,0 +1,167 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.imageeditor.core.model
+
+import android.app.Application
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Color
+import android.os.Parcel
+import androidx.test.core.app.ApplicationProvider
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.signal.imageeditor.core.Renderer
+import org.signal.imageeditor.core.RendererContext
+
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE, application = Application::class)
+class ElementLayerCacheTest {
+
+  private val canvas = Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888))
+  private val invalidated = mutableListOf<Renderer>()
+  private val layerCache = ElementLayerCache()
+  private val rendererContext = RendererContext(
+    ApplicationProvider.getApplicationContext(),
+    canvas,
+    { _, _, _ -> },
+    { renderer ->
+      invalidated += renderer
+      layerCache.onInvalidate(renderer)
+    },
+    { _, _, _ -> error("No text") }
+  ).apply { setLayerCache(layerCache) }
+
+  @Test
+  fun committedElements_areOnlyRenderedUntilCached() {
+    val parent = EditorElement(null)
+    val renderers = List(10) { CountingRenderer().also { parent.addElement(EditorElement(it)) } }
+
+    repeat(5) { draw(parent) }
+
+    // Drawn directly while first seen, then once into the layer
+    renderers.forEach { assertEquals(2, it.renders) }
+  }
+
+  @Test
+  fun editingElement_isRenderedEveryFrame() {
+    val parent = EditorElement(null)
+    val committed = List(10) { CountingRenderer().also { parent.addElement(EditorElement(it)) } }
+    val live = CountingRenderer()
+    val liveElement = EditorElement(live)
+    parent.addElement(liveElement)
+    layerCache.setEditingElement(liveElement)
+
+    repeat(5) { draw(parent) }
+
+    assertEquals(5, live.renders)
+    committed.forEach { assertEquals(2, it.renders) }
+  }
+
+  @Test
+  fun elementsAboveTheEditingElement_keepTheirOrderAndAreCached() {
+    val order = mutableListOf<String>()
+    val parent = EditorElement(null)
+    val below = CountingRenderer("below", order)
+    val live = CountingRenderer("live", order)
+    val above = CountingRenderer("above", order)
+    val liveElement = EditorElement(live)
+    parent.addElement(EditorElement(below))
+    parent.addElement(liveElement)
+    parent.addElement(EditorElement(above))
+    layerCache.setEditingElement(liveElement)
+
+    draw(parent)
+    assertEquals(listOf("below", "live", "above"), order)
+
+    repeat(4) { draw(parent) }
+    assertEquals(2, below.renders)
+    assertEquals(2, above.renders)
+  }
+
+  @Test
+  fun changedElement_redrawsItsLayer() {
+    val parent = EditorElement(null)
+    val renderer = CountingRenderer()
+    val element = EditorElement(renderer)
+    parent.addElement(element)
+
+    repeat(3) { draw(parent) }
+    element.localMatrix.postTranslate(10f, 0f)
+    repeat(3) { draw(parent) }
+
+    assertEquals(4, renderer.renders)
+  }
+
+  @Test
+  fun invalidatedRenderer_redrawsItsLayerOnNextFrame() {
+    val parent = EditorElement(null)
+    val renderer = CountingRenderer()
+    parent.addElement(EditorElement(renderer))
+
+    repeat(3) { draw(parent) }
+    renderer.invalidate()
+    draw(parent)
+    draw(parent)
+
+    assertEquals(listOf<Renderer>(renderer), invalidated)
+    assertEquals(3, renderer.renders)
+  }
+
+  @Test
+  fun parentMoving_drawsDirectlyUntilItSettles() {
+    val parent = EditorElement(null)
+    val root = EditorElement(null).apply { addElement(parent) }
+    val renderer = CountingRenderer()
+    parent.addElement(EditorElement(renderer))
+
+    for (i in 1..5) {
+      root.localMatrix.setTranslate(i.toFloat(), 0f)
+      draw(parent, root)
+    }
+
+    assertEquals(5, renderer.renders)
+  }
+
+  private fun draw(parent: EditorElement, root: EditorElement = parent) {
+    layerCache.prepare(parent, null)
+    rendererContext.save()
+    try {
+      root.draw(rendererContext)
+    } finally {
+      rendererContext.restore()
+    }
+  }
+
+  private class CountingRenderer(private val name: String = "", private val order: MutableList<String>? = null) : Renderer {
+    var renders = 0
+    private var invalidate: RendererContext.Invalidate? = null
+
+    override fun render(rendererContext: RendererContext) {
+      renders++
+      order?.add(name)
+      invalidate = rendererContext.invalidate
+      rendererContext.canvas.drawColor(Color.RED)
+    }
+
+    fun invalidate() {
+      invalidate!!.onInvalidate(this)
+    }
+
+    override fun hitTest(x: Float, y: Float): Boolean = false
+
+    override fun describeContents(): Int = 0
+
+    override fun writeToParcel(dest: Parcel, flags: Int) = Unit
+  }
+
+  companion object {
+    private const val WIDTH = 200
+    private const val HEIGHT = 200
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.imageeditor.core.model
+
+import android.app.Application
+import android.graphics.Color
+import android.graphics.Paint
+import android.graphics.PointF
+import android.os.Parcel
+import org.junit.Ignore
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.signal.imageeditor.core.renderers.BezierDrawingRenderer
+import kotlin.time.Duration.Companion.nanoseconds
+
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE, application = Application::class)
+class UndoRedoStacksPerformanceTests {
+
+  companion object {
+    private const val LIMIT = 50
+    private const val STROKES = 500
+    private const val POINTS_PER_STROKE = 40
+  }
+
+  @Test
+  fun testPerformance_500Strokes() {
+    val stacks = UndoRedoStacks(LIMIT)
+    val root = EditorElement(null)
+
+    var pushNanos = 0L
+    var fullSerializeNanos = 0L
+
+    for (i in 0 until STROKES) {
+      var start = System.nanoTime()
+      stacks.pushState(root)
+      pushNanos += System.nanoTime() - start
+
+      start = System.nanoTime()
+      bytes(root)
+      fullSerializeNanos += System.nanoTime() - start
+
+      root.addElement(stroke(i))
+    }
+
+    val start = System.nanoTime()
+    roundTrip(stacks)
+    val roundTripNanos = System.nanoTime() - start
+
+    println("[500Strokes] push: ${pushNanos.nanoseconds}, full serialization: ${fullSerializeNanos.nanoseconds}, parcel round trip: ${roundTripNanos.nanoseconds}")
+  }
+
+  private fun stroke(seed: Int): EditorElement {
+    val renderer = BezierDrawingRenderer(Color.BLACK, 5f, Paint.Cap.ROUND, null)
+    renderer.setFirstPoint(PointF(seed.toFloat(), 0f))
+    for (i in 1 until POINTS_PER_STROKE) {
+      renderer.addNewPoint(PointF(seed + i.toFloat(), i * 2f))
+    }
+    return EditorElement(renderer)
+  }
+
+  private fun roundTrip(stacks: UndoRedoStacks): UndoRedoStacks {
+    val parcel = Parcel.obtain()
+    try {
+      stacks.writeToParcel(parcel, 0)
+      parcel.setDataPosition(0)
+      return UndoRedoStacks.CREATOR.createFromParcel(parcel)
+    } finally {
+      parcel.recycle()
+    }
+  }
+
+  private fun bytes(element: EditorElement): ByteArray {
+    val parcel = Parcel.obtain()
+    try {
+      parcel.writeParcelable(element, 0)
+      return parcel.marshall()
+    } finally {
+      parcel.recycle()
+    }
+  }
+}
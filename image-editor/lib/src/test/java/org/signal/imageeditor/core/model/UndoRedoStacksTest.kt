@@ -0,0 +1,152 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.imageeditor.core.model
+
+import android.app.Application
+import android.graphics.Color
+import android.graphics.Paint
+import android.graphics.PointF
+import android.os.Parcel
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.signal.imageeditor.core.renderers.BezierDrawingRenderer
+
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE, application = Application::class)
+class UndoRedoStacksTest {
+
+  @Test
+  fun pushState_sharesUnchangedStrokesBetweenStates() {
+    val stacks = UndoRedoStacks(LIMIT)
+    val root = EditorElement(null)
+
+    stacks.pushState(root)
+    root.addElement(stroke(0))
+    val first = stacks.snapshot(root)
+
+    root.addElement(stroke(1))
+    val second = stacks.snapshot(root)
+
+    assertTrue(first.getChild(0) === second.getChild(0))
+  }
+
+  @Test
+  fun undoRedo_restoresEachState() {
+    val stacks = UndoRedoStacks(LIMIT)
+    var root = EditorElement(null)
+
+    for (i in 0 until 10) {
+      stacks.pushState(root)
+      root.addElement(stroke(i))
+    }
+
+    for (expected in 9 downTo 0) {
+      root = undo(stacks, root)
+      assertEquals(expected, root.childCount)
+    }
+    assertFalse(stacks.canUndo(root))
+
+    root = redo(stacks, root)
+    assertEquals(1, root.childCount)
+    assertTrue(stacks.canRedo(root))
+  }
+
+  @Test
+  fun undo_afterStrokeIsExtended_restoresOriginalStroke() {
+    val stacks = UndoRedoStacks(LIMIT)
+    var root = EditorElement(null)
+    val renderer = BezierDrawingRenderer(Color.RED, 1f, Paint.Cap.ROUND, null).apply { setFirstPoint(PointF(0f, 0f)) }
+    root.addElement(EditorElement(renderer))
+
+    stacks.pushState(root)
+    val before = bytes(root)
+    renderer.addNewPoint(PointF(10f, 10f))
+
+    root = undo(stacks, root)
+
+    assertArrayEquals(before, bytes(root))
+  }
+
+  @Test
+  fun parcel_roundTrip_restoresStacks() {
+    val stacks = UndoRedoStacks(LIMIT)
+    var root = EditorElement(null)
+
+    for (i in 0 until 20) {
+      stacks.pushState(root)
+      root.addElement(stroke(i))
+    }
+    stacks.clear(root)
+    for (i in 20 until 25) {
+      stacks.pushState(root)
+      root.addElement(stroke(i))
+    }
+    root = undo(stacks, root)
+
+    val copy = roundTrip(stacks)
+
+    assertTrue(copy.canUndo(root))
+    assertTrue(copy.canRedo(root))
+    assertEquals(stacks.isChanged(root), copy.isChanged(root))
+    assertArrayEquals(bytes(undo(stacks, root)), bytes(undo(copy, root)))
+  }
+
+  private fun undo(stacks: UndoRedoStacks, root: EditorElement): EditorElement {
+    return move(stacks, stacks.undoStack, stacks.redoStack, root)
+  }
+
+  private fun redo(stacks: UndoRedoStacks, root: EditorElement): EditorElement {
+    return move(stacks, stacks.redoStack, stacks.undoStack, root)
+  }
+
+  private fun move(stacks: UndoRedoStacks, from: ElementStack, to: ElementStack, root: EditorElement): EditorElement {
+    val current = stacks.snapshot(root)
+    val popped = from.pop(current) ?: return root
+    to.tryPush(current)
+    return stacks.restore(popped)
+  }
+
+  private fun stroke(seed: Int): EditorElement {
+    val renderer = BezierDrawingRenderer(Color.BLACK, 5f, Paint.Cap.ROUND, null)
+    renderer.setFirstPoint(PointF(seed.toFloat(), 0f))
+    for (i in 1 until POINTS_PER_STROKE) {
+      renderer.addNewPoint(PointF(seed + i.toFloat(), i * 2f))
+    }
+    return EditorElement(renderer)
+  }
+
+  private fun roundTrip(stacks: UndoRedoStacks): UndoRedoStacks {
+    val parcel = Parcel.obtain()
+    try {
+      stacks.writeToParcel(parcel, 0)
+      parcel.setDataPosition(0)
+      return UndoRedoStacks.CREATOR.createFromParcel(parcel)
+    } finally {
+      parcel.recycle()
+    }
+  }
+
+  private fun bytes(element: EditorElement): ByteArray {
+    val parcel = Parcel.obtain()
+    try {
+      parcel.writeParcelable(element, 0)
+      return parcel.marshall()
+    } finally {
+      parcel.recycle()
+    }
+  }
+
+  companion object {
+    private const val LIMIT = 50
+    private const val POINTS_PER_STROKE = 40
+  }
+}
@@ -12,7 +12,10 @@ import org.signal.storageservice.protos.groups.local.DecryptedPendingMemberRemov
 import org.signal.storageservice.protos.groups.local.DecryptedRequestingMember;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import okio.ByteString;
 
@@ -107,51 +110,66 @@ public final class GroupChangeUtil {
                                       DecryptedGroupChange conflictingChange,
                                       ChangeSetModifier changeSetModifier)
   {
-    HashMap<ByteString, DecryptedMember>           fullMembersByUuid         = new HashMap<>(groupState.members.size());
-    HashMap<ByteString, DecryptedPendingMember>    pendingMembersByServiceId = new HashMap<>(groupState.pendingMembers.size());
-    HashMap<ByteString, DecryptedRequestingMember> requestingMembersByUuid   = new HashMap<>(groupState.members.size());
-    HashMap<ByteString, DecryptedBannedMember>     bannedMembersByServiceId  = new HashMap<>(groupState.bannedMembers.size());
+    HashMap<ByteString, DecryptedMember> fullMembersByUuid       = new HashMap<>(groupState.members.size());
+    HashSet<ByteString>                  pendingMemberServiceIds = new HashSet<>(groupState.pendingMembers.size());
+    HashSet<ByteString>                  requestingMemberUuids   = new HashSet<>(groupState.requestingMembers.size());
+    HashSet<ByteString>                  bannedMemberServiceIds  = new HashSet<>(groupState.bannedMembers.size());
 
     for (DecryptedMember member : groupState.members) {
       fullMembersByUuid.put(member.aciBytes, member);
     }
 
     for (DecryptedPendingMember member : groupState.pendingMembers) {
-      pendingMembersByServiceId.put(member.serviceIdBytes, member);
+      pendingMemberServiceIds.add(member.serviceIdBytes);
     }
 
     for (DecryptedRequestingMember member : groupState.requestingMembers) {
-      requestingMembersByUuid.put(member.aciBytes, member);
+      requestingMemberUuids.add(member.aciBytes);
     }
 
     for (DecryptedBannedMember member : groupState.bannedMembers) {
-      bannedMembersByServiceId.put(member.serviceIdBytes, member);
+      bannedMemberServiceIds.add(member.serviceIdBytes);
     }
 
-    resolveField3AddMembers                      (conflictingChange, changeSetModifier, fullMembersByUuid, pendingMembersByServiceId);
+    resolveConflict(groupState, fullMembersByUuid, pendingMemberServiceIds, requestingMemberUuids, bannedMemberServiceIds, conflictingChange, changeSetModifier);
+  }
+
+  /**
+   * As {@link #resolveConflict(DecryptedGroup, DecryptedGroupChange)}, but against a group state whose membership has already been
+   * indexed by the caller. Only the non-membership fields of {@param groupState} are read.
+   */
+  static void resolveConflict(DecryptedGroup groupState,
+                              Map<ByteString, DecryptedMember> fullMembersByUuid,
+                              Set<ByteString> pendingMemberServiceIds,
+                              Set<ByteString> requestingMemberUuids,
+                              Set<ByteString> bannedMemberServiceIds,
+                              DecryptedGroupChange conflictingChange,
+                              ChangeSetModifier changeSetModifier)
+  {
+    resolveField3AddMembers                      (conflictingChange, changeSetModifier, fullMembersByUuid, pendingMemberServiceIds);
     resolveField4DeleteMembers                   (conflictingChange, changeSetModifier, fullMembersByUuid);
     resolveField5ModifyMemberRoles               (conflictingChange, changeSetModifier, fullMembersByUuid);
     resolveField6ModifyProfileKeys               (conflictingChange, changeSetModifier, fullMembersByUuid);
-    resolveField7AddPendingMembers               (conflictingChange, changeSetModifier, fullMembersByUuid, pendingMembersByServiceId);
-    resolveField8DeletePendingMembers            (conflictingChange, changeSetModifier, pendingMembersByServiceId);
-    resolveField9PromotePendingMembers           (conflictingChange, changeSetModifier, pendingMembersByServiceId);
+    resolveField7AddPendingMembers               (conflictingChange, changeSetModifier, fullMembersByUuid, pendingMemberServiceIds);
+    resolveField8DeletePendingMembers            (conflictingChange, changeSetModifier, pendingMemberServiceIds);
+    resolveField9PromotePendingMembers           (conflictingChange, changeSetModifier, pendingMemberServiceIds);
     resolveField10ModifyTitle                    (groupState, conflictingChange, changeSetModifier);
     resolveField11ModifyAvatar                   (groupState, conflictingChange, changeSetModifier);
     resolveField12modifyDisappearingMessagesTimer(groupState, conflictingChange, changeSetModifier);
     resolveField13modifyAttributesAccess         (groupState, conflictingChange, changeSetModifier);
     resolveField14modifyAttributesAccess         (groupState, conflictingChange, changeSetModifier);
     resolveField15modifyAddFromInviteLinkAccess  (groupState, conflictingChange, changeSetModifier);
-    resolveField16AddRequestingMembers           (conflictingChange, changeSetModifier, fullMembersByUuid, pendingMembersByServiceId);
-    resolveField17DeleteMembers                  (conflictingChange, changeSetModifier, requestingMembersByUuid);
-    resolveField18PromoteRequestingMembers       (conflictingChange, changeSetModifier, requestingMembersByUuid);
+    resolveField16AddRequestingMembers           (conflictingChange, changeSetModifier, fullMembersByUuid, pendingMemberServiceIds);
+    resolveField17DeleteMembers                  (conflictingChange, changeSetModifier, requestingMemberUuids);
+    resolveField18PromoteRequestingMembers       (conflictingChange, changeSetModifier, requestingMemberUuids);
     resolveField20ModifyDescription              (groupState, conflictingChange, changeSetModifier);
     resolveField21ModifyAnnouncementsOnly        (groupState, conflictingChange, changeSetModifier);
-    resolveField22AddBannedMembers               (conflictingChange, changeSetModifier, bannedMembersByServiceId);
-    resolveField23DeleteBannedMembers            (conflictingChange, changeSetModifier, bannedMembersByServiceId);
+    resolveField22AddBannedMembers               (conflictingChange, changeSetModifier, bannedMemberServiceIds);
+    resolveField23DeleteBannedMembers            (conflictingChange, changeSetModifier, bannedMemberServiceIds);
     resolveField24PromotePendingPniAciMembers    (conflictingChange, changeSetModifier, fullMembersByUuid);
   }
 
-  private static void resolveField3AddMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, HashMap<ByteString, DecryptedMember> fullMembersByUuid, HashMap<ByteString, DecryptedPendingMember> pendingMembersByServiceId) {
+  private static void resolveField3AddMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, Map<ByteString, DecryptedMember> fullMembersByUuid, Set<ByteString> pendingMemberServiceIds) {
     List<DecryptedMember> newMembersList = conflictingChange.newMembers;
 
     for (int i = newMembersList.size() - 1; i >= 0; i--) {
@@ -159,13 +177,13 @@ public final class GroupChangeUtil {
 
       if (fullMembersByUuid.containsKey(member.aciBytes)) {
         result.removeAddMembers(i);
-      } else if (pendingMembersByServiceId.containsKey(member.aciBytes) || pendingMembersByServiceId.containsKey(member.pniBytes)) {
+      } else if (pendingMemberServiceIds.contains(member.aciBytes) || pendingMemberServiceIds.contains(member.pniBytes)) {
         result.moveAddToPromote(i);
       }
     }
   }
 
-  private static void resolveField4DeleteMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, HashMap<ByteString, DecryptedMember> fullMembersByUuid) {
+  private static void resolveField4DeleteMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, Map<ByteString, DecryptedMember> fullMembersByUuid) {
     List<ByteString> deletedMembersList = conflictingChange.deleteMembers;
 
     for (int i = deletedMembersList.size() - 1; i >= 0; i--) {
@@ -177,7 +195,7 @@ public final class GroupChangeUtil {
     }
   }
 
-  private static void resolveField5ModifyMemberRoles(DecryptedGroupChange conflictingChange, ChangeSetModifier result, HashMap<ByteString, DecryptedMember> fullMembersByUuid) {
+  private static void resolveField5ModifyMemberRoles(DecryptedGroupChange conflictingChange, ChangeSetModifier result, Map<ByteString, DecryptedMember> fullMembersByUuid) {
     List<DecryptedModifyMemberRole> modifyRolesList = conflictingChange.modifyMemberRoles;
 
     for (int i = modifyRolesList.size() - 1; i >= 0; i--) {
@@ -190,7 +208,7 @@ public final class GroupChangeUtil {
     }
   }
 
-  private static void resolveField6ModifyProfileKeys(DecryptedGroupChange conflictingChange, ChangeSetModifier result, HashMap<ByteString, DecryptedMember> fullMembersByUuid) {
+  private static void resolveField6ModifyProfileKeys(DecryptedGroupChange conflictingChange, ChangeSetModifier result, Map<ByteString, DecryptedMember> fullMembersByUuid) {
     List<DecryptedMember> modifyProfileKeysList = conflictingChange.modifiedProfileKeys;
 
     for (int i = modifyProfileKeysList.size() - 1; i >= 0; i--) {
@@ -203,37 +221,37 @@ public final class GroupChangeUtil {
     }
   }
 
-  private static void resolveField7AddPendingMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, HashMap<ByteString, DecryptedMember> fullMembersByUuid, HashMap<ByteString, DecryptedPendingMember> pendingMembersByServiceId) {
+  private static void resolveField7AddPendingMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, Map<ByteString, DecryptedMember> fullMembersByUuid, Set<ByteString> pendingMemberServiceIds) {
     List<DecryptedPendingMember> newPendingMembersList = conflictingChange.newPendingMembers;
 
     for (int i = newPendingMembersList.size() - 1; i >= 0; i--) {
       DecryptedPendingMember member = newPendingMembersList.get(i);
 
-      if (fullMembersByUuid.containsKey(member.serviceIdBytes) || pendingMembersByServiceId.containsKey(member.serviceIdBytes)) {
+      if (fullMembersByUuid.containsKey(member.serviceIdBytes) || pendingMemberServiceIds.contains(member.serviceIdBytes)) {
         result.removeAddPendingMembers(i);
       }
     }
   }
 
-  private static void resolveField8DeletePendingMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, HashMap<ByteString, DecryptedPendingMember> pendingMembersByServiceId) {
+  private static void resolveField8DeletePendingMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, Set<ByteString> pendingMemberServiceIds) {
     List<DecryptedPendingMemberRemoval> deletePendingMembersList = conflictingChange.deletePendingMembers;
 
     for (int i = deletePendingMembersList.size() - 1; i >= 0; i--) {
       DecryptedPendingMemberRemoval member = deletePendingMembersList.get(i);
 
-      if (!pendingMembersByServiceId.containsKey(member.serviceIdBytes)) {
+      if (!pendingMemberServiceIds.contains(member.serviceIdBytes)) {
         result.removeDeletePendingMembers(i);
       }
     }
   }
 
-  private static void resolveField9PromotePendingMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, HashMap<ByteString, DecryptedPendingMember> pendingMembersByServiceId) {
+  private static void resolveField9PromotePendingMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, Set<ByteString> pendingMemberServiceIds) {
     List<DecryptedMember> promotePendingMembersList = conflictingChange.promotePendingMembers;
 
     for (int i = promotePendingMembersList.size() - 1; i >= 0; i--) {
       DecryptedMember member = promotePendingMembersList.get(i);
       
-      if (!pendingMembersByServiceId.containsKey(member.aciBytes) && !pendingMembersByServiceId.containsKey(member.pniBytes)) {
+      if (!pendingMemberServiceIds.contains(member.aciBytes) && !pendingMemberServiceIds.contains(member.pniBytes)) {
         result.removePromotePendingMembers(i);
       }
     }
@@ -275,7 +293,7 @@ public final class GroupChangeUtil {
     }
   }
 
-  private static void resolveField16AddRequestingMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, HashMap<ByteString, DecryptedMember> fullMembersByUuid, HashMap<ByteString, DecryptedPendingMember> pendingMembersByServiceId) {
+  private static void resolveField16AddRequestingMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, Map<ByteString, DecryptedMember> fullMembersByUuid, Set<ByteString> pendingMemberServiceIds) {
     List<DecryptedRequestingMember> newMembersList = conflictingChange.newRequestingMembers;
 
     for (int i = newMembersList.size() - 1; i >= 0; i--) {
@@ -283,7 +301,7 @@ public final class GroupChangeUtil {
 
       if (fullMembersByUuid.containsKey(member.aciBytes)) {
         result.removeAddRequestingMembers(i);
-      } else if (pendingMembersByServiceId.containsKey(member.aciBytes)) {
+      } else if (pendingMemberServiceIds.contains(member.aciBytes)) {
         result.moveAddRequestingMembersToPromote(i);
       }
     }
@@ -291,14 +309,14 @@ public final class GroupChangeUtil {
 
   private static void resolveField17DeleteMembers(DecryptedGroupChange conflictingChange,
                                                   ChangeSetModifier result,
-                                                  HashMap<ByteString, DecryptedRequestingMember> requestingMembers)
+                                                  Set<ByteString> requestingMembers)
   {
     List<ByteString> deletedMembersList = conflictingChange.deleteRequestingMembers;
 
     for (int i = deletedMembersList.size() - 1; i >= 0; i--) {
       ByteString member = deletedMembersList.get(i);
 
-      if (!requestingMembers.containsKey(member)) {
+      if (!requestingMembers.contains(member)) {
         result.removeDeleteRequestingMembers(i);
       }
     }
@@ -306,14 +324,14 @@ public final class GroupChangeUtil {
 
   private static void resolveField18PromoteRequestingMembers(DecryptedGroupChange conflictingChange,
                                                              ChangeSetModifier result,
-                                                             HashMap<ByteString, DecryptedRequestingMember> requestingMembersByUuid)
+                                                             Set<ByteString> requestingMembersByUuid)
   {
     List<DecryptedApproveMember> promoteRequestingMembersList = conflictingChange.promoteRequestingMembers;
 
     for (int i = promoteRequestingMembersList.size() - 1; i >= 0; i--) {
       DecryptedApproveMember member = promoteRequestingMembersList.get(i);
 
-      if (!requestingMembersByUuid.containsKey(member.aciBytes)) {
+      if (!requestingMembersByUuid.contains(member.aciBytes)) {
         result.removePromoteRequestingMembers(i);
       }
     }
@@ -331,31 +349,31 @@ public final class GroupChangeUtil {
     }
   }
 
-  private static void resolveField22AddBannedMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, HashMap<ByteString, DecryptedBannedMember> bannedMembersByServiceId) {
+  private static void resolveField22AddBannedMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, Set<ByteString> bannedMemberServiceIds) {
     List<DecryptedBannedMember> newBannedMembersList = conflictingChange.newBannedMembers;
 
     for (int i = newBannedMembersList.size() - 1; i >= 0; i--) {
       DecryptedBannedMember member = newBannedMembersList.get(i);
 
-      if (bannedMembersByServiceId.containsKey(member.serviceIdBytes)) {
+      if (bannedMemberServiceIds.contains(member.serviceIdBytes)) {
         result.removeAddBannedMembers(i);
       }
     }
   }
 
-  private static void resolveField23DeleteBannedMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, HashMap<ByteString, DecryptedBannedMember> bannedMembersByServiceId) {
+  private static void resolveField23DeleteBannedMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, Set<ByteString> bannedMemberServiceIds) {
     List<DecryptedBannedMember> deleteBannedMembersList = conflictingChange.deleteBannedMembers;
 
     for (int i = deleteBannedMembersList.size() - 1; i >= 0; i--) {
       DecryptedBannedMember member = deleteBannedMembersList.get(i);
 
-      if (!bannedMembersByServiceId.containsKey(member.serviceIdBytes)) {
+      if (!bannedMemberServiceIds.contains(member.serviceIdBytes)) {
         result.removeDeleteBannedMembers(i);
       }
     }
   }
 
-  private static void resolveField24PromotePendingPniAciMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, HashMap<ByteString, DecryptedMember> fullMembersByAci) {
+  private static void resolveField24PromotePendingPniAciMembers(DecryptedGroupChange conflictingChange, ChangeSetModifier result, Map<ByteString, DecryptedMember> fullMembersByAci) {
     List<DecryptedMember> promotePendingPniAciMembersList = conflictingChange.promotePendingPniAciMembers;
 
     for (int i = promotePendingPniAciMembersList.size() - 1; i >= 0; i--) {
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.signalservice.api.groupsv2;
+
+import org.signal.libsignal.zkgroup.profiles.ProfileKey;
+import org.whispersystems.signalservice.api.push.ServiceId;
+import org.whispersystems.signalservice.api.push.ServiceId.ACI;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import okio.ByteString;
+
+/**
+ * Remembers the plaintext of the service id and profile key ciphertexts of a single group.
+ * <p>
+ * A member's ciphertexts are the same in every state and change of a group they appear in, and decrypting them is an expensive zkgroup
+ * operation, so without this every member would be decrypted again each time the group is fetched.
+ * <p>
+ * Only ciphertexts that were successfully decrypted with this group's secret params are stored. Thread safe.
+ */
+final class GroupCiphertextCache {
+
+  private final int                                            maxEntries;
+  private final ConcurrentHashMap<ByteString, ServiceId>       serviceIds  = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<ByteString, ProfileKeyEntry> profileKeys = new ConcurrentHashMap<>();
+
+  GroupCiphertextCache(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
+  @Nullable ServiceId getServiceId(ByteString ciphertext) {
+    return serviceIds.get(ciphertext);
+  }
+
+  void putServiceId(ByteString ciphertext, ServiceId serviceId) {
+    if (serviceIds.size() >= maxEntries) {
+      serviceIds.clear();
+    }
+    serviceIds.put(ciphertext, serviceId);
+  }
+
+  /**
+   * Profile key ciphertexts are bound to the member's ACI, so a stored key is only returned for the ACI it was decrypted with.
+   */
+  @Nullable ProfileKey getProfileKey(ByteString ciphertext, ACI aci) {
+    ProfileKeyEntry entry = profileKeys.get(ciphertext);
+    return entry != null && entry.aci.equals(aci) ? entry.profileKey : null;
+  }
+
+  void putProfileKey(ByteString ciphertext, ACI aci, ProfileKey profileKey) {
+    if (profileKeys.size() >= maxEntries) {
+      profileKeys.clear();
+    }
+    profileKeys.put(ciphertext, new ProfileKeyEntry(aci, profileKey));
+  }
+
+  private static final class ProfileKeyEntry {
+    private final ACI        aci;
+    private final ProfileKey profileKey;
+
+    private ProfileKeyEntry(ACI aci, ProfileKey profileKey) {
+      this.aci        = aci;
+      this.profileKey = profileKey;
+    }
+  }
+}
@@ -49,11 +49,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
@@ -74,18 +77,39 @@ public final class GroupsV2Operations {
   /** Highest change epoch this class knows now to decrypt */
   public static final int HIGHEST_KNOWN_EPOCH = 5;
 
-  private final ServerPublicParams        serverPublicParams;
-  private final ClientZkProfileOperations clientZkProfileOperations;
-  private final ClientZkAuthOperations    clientZkAuthOperations;
-  private final int                       maxGroupSize;
-  private final SecureRandom              random;
+  /** Number of groups whose decrypted ciphertexts are remembered */
+  private static final int MAX_CACHED_GROUPS = 8;
+
+  private final ServerPublicParams                    serverPublicParams;
+  private final ClientZkProfileOperations             clientZkProfileOperations;
+  private final ClientZkAuthOperations                clientZkAuthOperations;
+  private final int                                   maxGroupSize;
+  private final SecureRandom                          random;
+  private final ParallelDecryptor                     parallelDecryptor;
+  private final Map<ByteString, GroupCiphertextCache> ciphertextCaches;
 
   public GroupsV2Operations(ClientZkOperations clientZkOperations, int maxGroupSize) {
+    this(clientZkOperations, maxGroupSize, Runnable::run, 1);
+  }
+
+  /**
+   * @param decryptionExecutor    Used to decrypt the members of large groups in parallel. The calling thread also takes part, so it is
+   *                              fine for this to be bounded or busy.
+   * @param decryptionParallelism Maximum number of threads, including the calling thread, to decrypt a single group's members with.
+   */
+  public GroupsV2Operations(ClientZkOperations clientZkOperations, int maxGroupSize, Executor decryptionExecutor, int decryptionParallelism) {
     this.serverPublicParams        = clientZkOperations.getServerPublicParams();
     this.clientZkProfileOperations = clientZkOperations.getProfileOperations();
     this.clientZkAuthOperations    = clientZkOperations.getAuthOperations();
     this.maxGroupSize              = maxGroupSize;
     this.random                    = new SecureRandom();
+    this.parallelDecryptor         = new ParallelDecryptor(decryptionExecutor, decryptionParallelism);
+    this.ciphertextCaches          = new LinkedHashMap<ByteString, GroupCiphertextCache>(MAX_CACHED_GROUPS, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<ByteString, GroupCiphertextCache> eldest) {
+        return size() > MAX_CACHED_GROUPS;
+      }
+    };
   }
 
   /**
@@ -152,17 +176,33 @@ public final class GroupsV2Operations {
     return clientZkAuthOperations;
   }
 
+  private GroupCiphertextCache getCiphertextCache(GroupSecretParams groupSecretParams) {
+    ByteString groupIdentifier = ByteString.of(groupSecretParams.getPublicParams().getGroupIdentifier().serialize());
+
+    synchronized (ciphertextCaches) {
+      GroupCiphertextCache cache = ciphertextCaches.get(groupIdentifier);
+      if (cache == null) {
+        // Pending and requesting members and change actions add to the members, so allow some headroom
+        cache = new GroupCiphertextCache(Math.max(maxGroupSize, 100) * 2);
+        ciphertextCaches.put(groupIdentifier, cache);
+      }
+      return cache;
+    }
+  }
+
   /**
    * Operations on a single group.
    */
   public final class GroupOperations {
 
-    private final GroupSecretParams   groupSecretParams;
-    private final ClientZkGroupCipher clientZkGroupCipher;
+    private final GroupSecretParams    groupSecretParams;
+    private final ClientZkGroupCipher  clientZkGroupCipher;
+    private final GroupCiphertextCache ciphertextCache;
 
     public GroupOperations(GroupSecretParams groupSecretParams) {
       this.groupSecretParams   = groupSecretParams;
       this.clientZkGroupCipher = new ClientZkGroupCipher(groupSecretParams);
+      this.ciphertextCache     = getCiphertextCache(groupSecretParams);
     }
 
     public GroupChange.Actions.Builder createModifyGroupTitle(final String title) {
@@ -443,32 +483,18 @@ public final class GroupsV2Operations {
     public DecryptedGroup decryptGroup(Group group)
         throws VerificationFailedException, InvalidGroupStateException
     {
-      List<Member>                    membersList                = group.members;
-      List<PendingMember>             pendingMembersList         = group.pendingMembers;
-      List<RequestingMember>          requestingMembersList      = group.requestingMembers;
-      List<DecryptedMember>           decryptedMembers           = new ArrayList<>(membersList.size());
-      List<DecryptedPendingMember>    decryptedPendingMembers    = new ArrayList<>(pendingMembersList.size());
-      List<DecryptedRequestingMember> decryptedRequestingMembers = new ArrayList<>(requestingMembersList.size());
-      List<DecryptedBannedMember>     decryptedBannedMembers     = new ArrayList<>(group.bannedMembers.size());
-
-      for (Member member : membersList) {
-        try {
-          decryptedMembers.add(decryptMember(member).build());
-        } catch (InvalidInputException e) {
-          throw new InvalidGroupStateException(e);
-        }
-      }
-
-      for (PendingMember member : pendingMembersList) {
-        decryptedPendingMembers.add(decryptMember(member));
-      }
+      List<DecryptedMember>           decryptedMembers;
+      List<DecryptedPendingMember>    decryptedPendingMembers;
+      List<DecryptedRequestingMember> decryptedRequestingMembers;
+      List<DecryptedBannedMember>     decryptedBannedMembers;
 
-      for (RequestingMember member : requestingMembersList) {
-        decryptedRequestingMembers.add(decryptRequestingMember(member));
-      }
-
-      for (BannedMember member : group.bannedMembers) {
-        decryptedBannedMembers.add(new DecryptedBannedMember.Builder().serviceIdBytes(decryptServiceIdToBinary(member.userId)).timestamp(member.timestamp).build());
+      try {
+        decryptedMembers           = parallelDecryptor.decryptAll(group.members, member -> decryptMember(member).build());
+        decryptedPendingMembers    = parallelDecryptor.decryptAll(group.pendingMembers, this::decryptMember);
+        decryptedRequestingMembers = parallelDecryptor.decryptAll(group.requestingMembers, this::decryptRequestingMember);
+        decryptedBannedMembers     = parallelDecryptor.decryptAll(group.bannedMembers, member -> new DecryptedBannedMember.Builder().serviceIdBytes(decryptServiceIdToBinary(member.userId)).timestamp(member.timestamp).build());
+      } catch (InvalidInputException e) {
+        throw new InvalidGroupStateException(e);
       }
 
       return new DecryptedGroup.Builder()
@@ -801,13 +827,8 @@ public final class GroupsV2Operations {
       } else {
         ProfileKeyCredentialPresentation profileKeyCredentialPresentation = new ProfileKeyCredentialPresentation(member.presentation.toByteArray());
 
-        ServiceId serviceId = ServiceId.fromLibSignal(clientZkGroupCipher.decrypt(profileKeyCredentialPresentation.getUuidCiphertext()));
-        if (!(serviceId instanceof ACI)) {
-          throw new InvalidGroupStateException();
-        }
-        ACI aci = (ACI) serviceId;
-
-        ProfileKey profileKey = clientZkGroupCipher.decryptProfileKey(profileKeyCredentialPresentation.getProfileKeyCiphertext(), aci.getLibSignalAci());
+        ACI        aci        = decryptAci(ByteString.of(profileKeyCredentialPresentation.getUuidCiphertext().serialize()));
+        ProfileKey profileKey = decryptProfileKey(ByteString.of(profileKeyCredentialPresentation.getProfileKeyCiphertext().serialize()), aci);
 
         return new DecryptedMember.Builder()
                                   .aciBytes(aci.toByteString())
@@ -858,13 +879,8 @@ public final class GroupsV2Operations {
           throw new InvalidGroupStateException(e);
         }
 
-        ServiceId serviceId = ServiceId.fromLibSignal(clientZkGroupCipher.decrypt(profileKeyCredentialPresentation.getUuidCiphertext()));
-        if (!(serviceId instanceof ACI)) {
-          throw new InvalidGroupStateException();
-        }
-        ACI aci = (ACI) serviceId;
-
-        ProfileKey profileKey = clientZkGroupCipher.decryptProfileKey(profileKeyCredentialPresentation.getProfileKeyCiphertext(), aci.getLibSignalAci());
+        ACI        aci        = decryptAci(ByteString.of(profileKeyCredentialPresentation.getUuidCiphertext().serialize()));
+        ProfileKey profileKey = decryptProfileKey(ByteString.of(profileKeyCredentialPresentation.getProfileKeyCiphertext().serialize()), aci);
 
         return new DecryptedRequestingMember.Builder()
                                             .aciBytes(aci.toByteString())
@@ -874,9 +890,17 @@ public final class GroupsV2Operations {
     }
 
     private ProfileKey decryptProfileKey(ByteString profileKey, ACI aci) throws VerificationFailedException, InvalidGroupStateException {
+      ProfileKey cached = ciphertextCache.getProfileKey(profileKey, aci);
+      if (cached != null) {
+        return cached;
+      }
+
       try {
         ProfileKeyCiphertext profileKeyCiphertext = new ProfileKeyCiphertext(profileKey.toByteArray());
-        return clientZkGroupCipher.decryptProfileKey(profileKeyCiphertext, aci.getLibSignalAci());
+        ProfileKey           decrypted            = clientZkGroupCipher.decryptProfileKey(profileKeyCiphertext, aci.getLibSignalAci());
+
+        ciphertextCache.putProfileKey(profileKey, aci, decrypted);
+        return decrypted;
       } catch (InvalidInputException e) {
         throw new InvalidGroupStateException(e);
       }
@@ -900,8 +924,16 @@ public final class GroupsV2Operations {
     }
 
     private ServiceId decryptServiceId(ByteString userId) throws InvalidGroupStateException, VerificationFailedException {
+      ServiceId cached = ciphertextCache.getServiceId(userId);
+      if (cached != null) {
+        return cached;
+      }
+
       try {
-        return ServiceId.fromLibSignal(clientZkGroupCipher.decrypt(new UuidCiphertext(userId.toByteArray())));
+        ServiceId decrypted = ServiceId.fromLibSignal(clientZkGroupCipher.decrypt(new UuidCiphertext(userId.toByteArray())));
+
+        ciphertextCache.putServiceId(userId, decrypted);
+        return decrypted;
       } catch (InvalidInputException e) {
         throw new InvalidGroupStateException(e);
       }
@@ -920,21 +952,21 @@ public final class GroupsV2Operations {
      */
     private ServiceId decryptServiceIdOrUnknown(ByteString userId) {
       try {
-        return ServiceId.fromLibSignal(clientZkGroupCipher.decrypt(new UuidCiphertext(userId.toByteArray())));
-      } catch (InvalidInputException | VerificationFailedException e) {
+        return decryptServiceId(userId);
+      } catch (InvalidGroupStateException | VerificationFailedException e) {
         return ACI.UNKNOWN;
       }
     }
 
     private ACI decryptAciOrUnknown(ByteString userId) {
       try {
-        ServiceId result = ServiceId.fromLibSignal(clientZkGroupCipher.decrypt(new UuidCiphertext(userId.toByteArray())));
+        ServiceId result = decryptServiceId(userId);
         if (result instanceof ACI) {
           return (ACI) result;
         } else {
           return ACI.UNKNOWN;
         }
-      } catch (InvalidInputException | VerificationFailedException e) {
+      } catch (InvalidGroupStateException | VerificationFailedException e) {
         return ACI.UNKNOWN;
       }
     }
@@ -1054,7 +1086,7 @@ public final class GroupsV2Operations {
         } else {
           ProfileKeyCredentialPresentation profileKeyCredentialPresentation = new ProfileKeyCredentialPresentation(addMember.added.presentation.toByteArray());
 
-          ids.add(ServiceId.fromLibSignal(clientZkGroupCipher.decrypt(profileKeyCredentialPresentation.getUuidCiphertext())));
+          ids.add(decryptServiceId(ByteString.of(profileKeyCredentialPresentation.getUuidCiphertext().serialize())));
         }
       }
       return ids;
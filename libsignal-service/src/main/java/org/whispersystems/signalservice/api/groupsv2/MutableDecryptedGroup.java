@@ -0,0 +1,470 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.signalservice.api.groupsv2;
+
+import org.signal.libsignal.protocol.logging.Log;
+import org.signal.storageservice.protos.groups.AccessControl;
+import org.signal.storageservice.protos.groups.Member;
+import org.signal.storageservice.protos.groups.local.DecryptedApproveMember;
+import org.signal.storageservice.protos.groups.local.DecryptedBannedMember;
+import org.signal.storageservice.protos.groups.local.DecryptedGroup;
+import org.signal.storageservice.protos.groups.local.DecryptedGroupChange;
+import org.signal.storageservice.protos.groups.local.DecryptedMember;
+import org.signal.storageservice.protos.groups.local.DecryptedModifyMemberRole;
+import org.signal.storageservice.protos.groups.local.DecryptedPendingMember;
+import org.signal.storageservice.protos.groups.local.DecryptedPendingMemberRemoval;
+import org.signal.storageservice.protos.groups.local.DecryptedRequestingMember;
+import org.signal.storageservice.protos.groups.local.EnabledState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import okio.ByteString;
+
+/**
+ * A group state that changes are applied to in place, for applying a long run of changes without rebuilding every member list for
+ * each one as {@link DecryptedGroupUtil#applyWithoutRevisionCheck} does.
+ * <p>
+ * Members are indexed by ACI, and pending, requesting and banned members by service id, so each action costs the same however large
+ * the group is. Protos are only built when {@link #toDecryptedGroup()} is called, and lists that have not changed since the last call
+ * are reused.
+ * <p>
+ * Applying a change gives the same state as {@link DecryptedGroupUtil#applyWithoutRevisionCheck}, provided no ACI appears more than
+ * once in the members list, which the server guarantees. If {@link #apply} throws, the state is left partially applied and this
+ * instance should be discarded.
+ * <p>
+ * Not thread safe.
+ */
+public final class MutableDecryptedGroup {
+
+  private static final String TAG = MutableDecryptedGroup.class.getSimpleName();
+
+  /** The group with empty member lists, for all of the other fields. */
+  private DecryptedGroup attributes;
+
+  private final LinkedHashMap<ByteString, DecryptedMember> membersByAci;
+  private final List<DecryptedPendingMember>               pendingMembers;
+  private final List<DecryptedRequestingMember>            requestingMembers;
+  private final List<DecryptedBannedMember>                bannedMembers;
+
+  private final Map<ByteString, Integer> pendingMemberServiceIds;
+  private final Map<ByteString, Integer> requestingMemberAcis;
+  private final Map<ByteString, Integer> bannedMemberServiceIds;
+
+  private DecryptedGroup lastBuilt;
+  private boolean        membersChanged;
+  private boolean        pendingMembersChanged;
+  private boolean        requestingMembersChanged;
+  private boolean        bannedMembersChanged;
+
+  public MutableDecryptedGroup(DecryptedGroup group) {
+    this.attributes        = group.newBuilder()
+                                  .members(new ArrayList<>())
+                                  .pendingMembers(new ArrayList<>())
+                                  .requestingMembers(new ArrayList<>())
+                                  .bannedMembers(new ArrayList<>())
+                                  .build();
+    this.membersByAci      = new LinkedHashMap<>(group.members.size());
+    this.pendingMembers    = new ArrayList<>(group.pendingMembers);
+    this.requestingMembers = new ArrayList<>(group.requestingMembers);
+    this.bannedMembers     = new ArrayList<>(group.bannedMembers);
+
+    this.pendingMemberServiceIds = new HashMap<>(pendingMembers.size());
+    this.requestingMemberAcis    = new HashMap<>(requestingMembers.size());
+    this.bannedMemberServiceIds  = new HashMap<>(bannedMembers.size());
+
+    for (DecryptedMember member : group.members) {
+      membersByAci.put(member.aciBytes, member);
+    }
+
+    for (DecryptedPendingMember member : pendingMembers) {
+      increment(pendingMemberServiceIds, member.serviceIdBytes);
+    }
+
+    for (DecryptedRequestingMember member : requestingMembers) {
+      increment(requestingMemberAcis, member.aciBytes);
+    }
+
+    for (DecryptedBannedMember member : bannedMembers) {
+      increment(bannedMemberServiceIds, member.serviceIdBytes);
+    }
+
+    this.lastBuilt = group;
+  }
+
+  public int getRevision() {
+    return attributes.revision;
+  }
+
+  /**
+   * Same as {@link GroupChangeUtil#resolveConflict(DecryptedGroup, DecryptedGroupChange)} against the current state, without building it.
+   */
+  public DecryptedGroupChange.Builder resolveConflict(DecryptedGroupChange conflictingChange) {
+    DecryptedGroupChange.Builder result = conflictingChange.newBuilder();
+
+    GroupChangeUtil.resolveConflict(attributes,
+                                    membersByAci,
+                                    pendingMemberServiceIds.keySet(),
+                                    requestingMemberAcis.keySet(),
+                                    bannedMemberServiceIds.keySet(),
+                                    conflictingChange,
+                                    new DecryptedGroupChangeActionsBuilderChangeSetModifier(result));
+
+    return result;
+  }
+
+  /**
+   * Applies the change in place, without checking its revision follows the current one.
+   */
+  public void apply(DecryptedGroupChange change) throws NotAbleToApplyGroupV2ChangeException {
+    DecryptedGroup.Builder attributesBuilder = attributes.newBuilder().revision(change.revision);
+
+    applyAddMemberAction(change.newMembers);
+    applyDeleteMemberActions(change.deleteMembers);
+    applyModifyMemberRoleActions(change.modifyMemberRoles);
+    applyModifyMemberProfileKeyActions(change.modifiedProfileKeys);
+    applyAddPendingMemberActions(change.newPendingMembers);
+    applyDeletePendingMemberActions(change.deletePendingMembers);
+    applyPromotePendingMemberActions(change.promotePendingMembers);
+    applyAttributeActions(attributesBuilder, change);
+    applyAddRequestingMembers(change.newRequestingMembers);
+    applyDeleteRequestingMembers(change.deleteRequestingMembers);
+    applyPromoteRequestingMemberActions(change.promoteRequestingMembers);
+    applyAddBannedMembersActions(change.newBannedMembers);
+    applyDeleteBannedMembersActions(change.deleteBannedMembers);
+    applyPromotePendingPniAciMemberActions(change.promotePendingPniAciMembers);
+
+    attributes = attributesBuilder.build();
+  }
+
+  /**
+   * Builds the current state.
+   */
+  public DecryptedGroup toDecryptedGroup() {
+    DecryptedGroup.Builder builder = attributes.newBuilder();
+
+    builder.members(membersChanged ? new ArrayList<>(membersByAci.values()) : lastBuilt.members);
+    builder.pendingMembers(pendingMembersChanged ? new ArrayList<>(pendingMembers) : lastBuilt.pendingMembers);
+    builder.requestingMembers(requestingMembersChanged ? new ArrayList<>(requestingMembers) : lastBuilt.requestingMembers);
+    builder.bannedMembers(bannedMembersChanged ? new ArrayList<>(bannedMembers) : lastBuilt.bannedMembers);
+
+    lastBuilt                = builder.build();
+    membersChanged           = false;
+    pendingMembersChanged    = false;
+    requestingMembersChanged = false;
+    bannedMembersChanged     = false;
+
+    return lastBuilt;
+  }
+
+  private void applyAddMemberAction(List<DecryptedMember> newMembersList) {
+    if (newMembersList.isEmpty()) return;
+
+    for (DecryptedMember member : newMembersList) {
+      putMember(member);
+    }
+
+    removePendingAndRequestingMembersNowInGroup();
+  }
+
+  private void applyDeleteMemberActions(List<ByteString> deleteMembersList) {
+    for (ByteString removedMember : deleteMembersList) {
+      if (membersByAci.remove(removedMember) == null) {
+        Log.w(TAG, "Deleted member on change not found in group");
+      } else {
+        membersChanged = true;
+      }
+    }
+  }
+
+  private void applyModifyMemberRoleActions(List<DecryptedModifyMemberRole> modifyMemberRolesList) throws NotAbleToApplyGroupV2ChangeException {
+    for (DecryptedModifyMemberRole modifyMemberRole : modifyMemberRolesList) {
+      DecryptedMember member = membersByAci.get(modifyMemberRole.aciBytes);
+
+      if (member == null) {
+        throw new NotAbleToApplyGroupV2ChangeException();
+      }
+
+      ensureKnownRole(modifyMemberRole.role);
+
+      putMember(member.newBuilder().role(modifyMemberRole.role).build());
+    }
+  }
+
+  private void applyModifyMemberProfileKeyActions(List<DecryptedMember> modifiedProfileKeysList) throws NotAbleToApplyGroupV2ChangeException {
+    for (DecryptedMember modifyProfileKey : modifiedProfileKeysList) {
+      DecryptedMember member = membersByAci.get(modifyProfileKey.aciBytes);
+
+      if (member == null) {
+        throw new NotAbleToApplyGroupV2ChangeException();
+      }
+
+      putMember(member.newBuilder().profileKey(modifyProfileKey.profileKey).build());
+    }
+  }
+
+  private void applyAddPendingMemberActions(List<DecryptedPendingMember> newPendingMembersList) throws NotAbleToApplyGroupV2ChangeException {
+    if (newPendingMembersList.isEmpty()) return;
+
+    Set<ByteString> pendingMemberCipherTexts = new HashSet<>(pendingMembers.size());
+
+    for (DecryptedPendingMember pendingMember : pendingMembers) {
+      pendingMemberCipherTexts.add(pendingMember.serviceIdCipherText);
+    }
+
+    for (DecryptedPendingMember pendingMember : newPendingMembersList) {
+      if (membersByAci.containsKey(pendingMember.serviceIdBytes)) {
+        throw new NotAbleToApplyGroupV2ChangeException();
+      }
+
+      if (!pendingMemberCipherTexts.contains(pendingMember.serviceIdCipherText)) {
+        addPendingMember(pendingMember);
+      }
+    }
+  }
+
+  private void applyDeletePendingMemberActions(List<DecryptedPendingMemberRemoval> deletePendingMembersList) {
+    for (DecryptedPendingMemberRemoval removedMember : deletePendingMembersList) {
+      int index = -1;
+
+      for (int i = 0; i < pendingMembers.size(); i++) {
+        if (removedMember.serviceIdCipherText.equals(pendingMembers.get(i).serviceIdCipherText)) {
+          index = i;
+          break;
+        }
+      }
+
+      if (index == -1) {
+        Log.w(TAG, "Deleted pending member on change not found in group");
+        continue;
+      }
+
+      removePendingMember(index);
+    }
+  }
+
+  private void applyPromotePendingMemberActions(List<DecryptedMember> promotePendingMembersList) throws NotAbleToApplyGroupV2ChangeException {
+    for (DecryptedMember newMember : promotePendingMembersList) {
+      removePendingMemberByServiceId(newMember.aciBytes);
+      putMember(newMember);
+    }
+  }
+
+  private static void applyAttributeActions(DecryptedGroup.Builder builder, DecryptedGroupChange change) {
+    if (change.newTitle != null) {
+      builder.title(change.newTitle.value_);
+    }
+
+    if (change.newDescription != null) {
+      builder.description(change.newDescription.value_);
+    }
+
+    if (change.newIsAnnouncementGroup != EnabledState.UNKNOWN) {
+      builder.isAnnouncementGroup(change.newIsAnnouncementGroup);
+    }
+
+    if (change.newAvatar != null) {
+      builder.avatar(change.newAvatar.value_);
+    }
+
+    if (change.newTimer != null) {
+      builder.disappearingMessagesTimer(change.newTimer);
+    }
+
+    if (change.newAttributeAccess != AccessControl.AccessRequired.UNKNOWN) {
+      builder.accessControl(accessControlBuilder(builder).attributes(change.newAttributeAccess).build());
+    }
+
+    if (change.newMemberAccess != AccessControl.AccessRequired.UNKNOWN) {
+      builder.accessControl(accessControlBuilder(builder).members(change.newMemberAccess).build());
+    }
+
+    if (change.newInviteLinkAccess != AccessControl.AccessRequired.UNKNOWN) {
+      builder.accessControl(accessControlBuilder(builder).addFromInviteLink(change.newInviteLinkAccess).build());
+    }
+
+    if (change.newInviteLinkPassword.size() > 0) {
+      builder.inviteLinkPassword(change.newInviteLinkPassword);
+    }
+  }
+
+  private static AccessControl.Builder accessControlBuilder(DecryptedGroup.Builder builder) {
+    return builder.accessControl != null ? builder.accessControl.newBuilder() : new AccessControl.Builder();
+  }
+
+  private void applyAddRequestingMembers(List<DecryptedRequestingMember> newRequestingMembers) {
+    for (DecryptedRequestingMember member : newRequestingMembers) {
+      requestingMembers.add(member);
+      increment(requestingMemberAcis, member.aciBytes);
+      requestingMembersChanged = true;
+    }
+  }
+
+  private void applyDeleteRequestingMembers(List<ByteString> deleteRequestingMembersList) {
+    for (ByteString removedMember : deleteRequestingMembersList) {
+      if (removeRequestingMember(removedMember) == null) {
+        Log.w(TAG, "Deleted member on change not found in group");
+      }
+    }
+  }
+
+  private void applyPromoteRequestingMemberActions(List<DecryptedApproveMember> promoteRequestingMembers) throws NotAbleToApplyGroupV2ChangeException {
+    for (DecryptedApproveMember approvedMember : promoteRequestingMembers) {
+      if (!requestingMemberAcis.containsKey(approvedMember.aciBytes)) {
+        Log.w(TAG, "Deleted member on change not found in group");
+        continue;
+      }
+
+      ensureKnownRole(approvedMember.role);
+
+      DecryptedRequestingMember requestingMember = removeRequestingMember(approvedMember.aciBytes);
+
+      putMember(new DecryptedMember.Builder()
+                                   .aciBytes(approvedMember.aciBytes)
+                                   .profileKey(requestingMember.profileKey)
+                                   .role(approvedMember.role)
+                                   .build());
+    }
+  }
+
+  private void applyAddBannedMembersActions(List<DecryptedBannedMember> newBannedMembersList) {
+    if (newBannedMembersList.isEmpty()) return;
+
+    Set<ByteString> alreadyBanned = new HashSet<>(bannedMemberServiceIds.keySet());
+
+    for (DecryptedBannedMember member : newBannedMembersList) {
+      if (alreadyBanned.contains(member.serviceIdBytes)) {
+        Log.w(TAG, "Banned member already in banned list");
+      } else {
+        bannedMembers.add(member);
+        increment(bannedMemberServiceIds, member.serviceIdBytes);
+        bannedMembersChanged = true;
+      }
+    }
+  }
+
+  private void applyDeleteBannedMembersActions(List<DecryptedBannedMember> deleteMembersList) {
+    for (DecryptedBannedMember removedMember : deleteMembersList) {
+      int index = -1;
+
+      if (bannedMemberServiceIds.containsKey(removedMember.serviceIdBytes)) {
+        for (int i = 0; i < bannedMembers.size(); i++) {
+          if (removedMember.serviceIdBytes.equals(bannedMembers.get(i).serviceIdBytes)) {
+            index = i;
+            break;
+          }
+        }
+      }
+
+      if (index == -1) {
+        Log.w(TAG, "Deleted banned member on change not found in banned list");
+        continue;
+      }
+
+      decrement(bannedMemberServiceIds, bannedMembers.remove(index).serviceIdBytes);
+      bannedMembersChanged = true;
+    }
+  }
+
+  private void applyPromotePendingPniAciMemberActions(List<DecryptedMember> promotePendingPniAciMembersList) throws NotAbleToApplyGroupV2ChangeException {
+    for (DecryptedMember newMember : promotePendingPniAciMembersList) {
+      removePendingMemberByServiceId(newMember.pniBytes);
+      putMember(newMember);
+    }
+  }
+
+  private void removePendingAndRequestingMembersNowInGroup() {
+    for (int i = pendingMembers.size() - 1; i >= 0; i--) {
+      if (membersByAci.containsKey(pendingMembers.get(i).serviceIdBytes)) {
+        removePendingMember(i);
+      }
+    }
+
+    Iterator<DecryptedRequestingMember> requesting = requestingMembers.iterator();
+    while (requesting.hasNext()) {
+      DecryptedRequestingMember member = requesting.next();
+
+      if (membersByAci.containsKey(member.aciBytes)) {
+        requesting.remove();
+        decrement(requestingMemberAcis, member.aciBytes);
+        requestingMembersChanged = true;
+      }
+    }
+  }
+
+  private void putMember(DecryptedMember member) {
+    membersByAci.put(member.aciBytes, member);
+    membersChanged = true;
+  }
+
+  private void addPendingMember(DecryptedPendingMember member) {
+    pendingMembers.add(member);
+    increment(pendingMemberServiceIds, member.serviceIdBytes);
+    pendingMembersChanged = true;
+  }
+
+  private void removePendingMember(int index) {
+    decrement(pendingMemberServiceIds, pendingMembers.remove(index).serviceIdBytes);
+    pendingMembersChanged = true;
+  }
+
+  private void removePendingMemberByServiceId(ByteString serviceIdBytes) throws NotAbleToApplyGroupV2ChangeException {
+    if (pendingMemberServiceIds.containsKey(serviceIdBytes)) {
+      for (int i = 0; i < pendingMembers.size(); i++) {
+        if (serviceIdBytes.equals(pendingMembers.get(i).serviceIdBytes)) {
+          removePendingMember(i);
+          return;
+        }
+      }
+    }
+
+    throw new NotAbleToApplyGroupV2ChangeException();
+  }
+
+  private DecryptedRequestingMember removeRequestingMember(ByteString aciBytes) {
+    if (!requestingMemberAcis.containsKey(aciBytes)) {
+      return null;
+    }
+
+    for (int i = 0; i < requestingMembers.size(); i++) {
+      if (aciBytes.equals(requestingMembers.get(i).aciBytes)) {
+        DecryptedRequestingMember removed = requestingMembers.remove(i);
+        decrement(requestingMemberAcis, aciBytes);
+        requestingMembersChanged = true;
+        return removed;
+      }
+    }
+
+    return null;
+  }
+
+  private static void ensureKnownRole(Member.Role role) throws NotAbleToApplyGroupV2ChangeException {
+    if (role != Member.Role.ADMINISTRATOR && role != Member.Role.DEFAULT) {
+      throw new NotAbleToApplyGroupV2ChangeException();
+    }
+  }
+
+  private static void increment(Map<ByteString, Integer> counts, ByteString key) {
+    Integer count = counts.get(key);
+    counts.put(key, count == null ? 1 : count + 1);
+  }
+
+  private static void decrement(Map<ByteString, Integer> counts, ByteString key) {
+    Integer count = counts.get(key);
+
+    if (count == null || count <= 1) {
+      counts.remove(key);
+    } else {
+      counts.put(key, count - 1);
+    }
+  }
+}
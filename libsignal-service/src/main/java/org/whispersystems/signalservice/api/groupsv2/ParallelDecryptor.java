@@ -0,0 +1,119 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.signalservice.api.groupsv2;
+
+import org.signal.libsignal.zkgroup.InvalidInputException;
+import org.signal.libsignal.zkgroup.VerificationFailedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decrypts the items of a list in chunks spread across an {@link Executor}.
+ * <p>
+ * The calling thread works through chunks too, and only waits for chunks that another thread has already started, so this can't
+ * deadlock when the executor is busy, or is the executor the caller is running on.
+ */
+final class ParallelDecryptor {
+
+  /** Below this, handing work to another thread costs more than decrypting it. */
+  static final int MIN_CHUNK_SIZE = 16;
+
+  private final Executor executor;
+  private final int      parallelism;
+
+  ParallelDecryptor(Executor executor, int parallelism) {
+    this.executor    = executor;
+    this.parallelism = parallelism;
+  }
+
+  interface Decryption<T, R> {
+    R decrypt(T item) throws VerificationFailedException, InvalidGroupStateException, InvalidInputException;
+  }
+
+  /**
+   * @return The decrypted items, in the same order as the input.
+   */
+  @SuppressWarnings("unchecked")
+  <T, R> List<R> decryptAll(List<T> items, Decryption<T, R> decryption)
+      throws VerificationFailedException, InvalidGroupStateException, InvalidInputException
+  {
+    int chunkCount = Math.min(parallelism * 4, (items.size() + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE);
+
+    if (parallelism <= 1 || chunkCount <= 1) {
+      List<R> results = new ArrayList<>(items.size());
+      for (T item : items) {
+        results.add(decryption.decrypt(item));
+      }
+      return results;
+    }
+
+    int                        chunkSize = (items.size() + chunkCount - 1) / chunkCount;
+    Object[]                   results   = new Object[items.size()];
+    AtomicInteger              nextChunk = new AtomicInteger();
+    AtomicReference<Exception> failure   = new AtomicReference<>();
+    CountDownLatch             done      = new CountDownLatch(chunkCount);
+
+    Runnable worker = () -> {
+      int chunk;
+      while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+        try {
+          int end = Math.min(items.size(), (chunk + 1) * chunkSize);
+          for (int i = chunk * chunkSize; i < end && failure.get() == null; i++) {
+            results[i] = decryption.decrypt(items.get(i));
+          }
+        } catch (Exception e) {
+          failure.compareAndSet(null, e);
+        } finally {
+          done.countDown();
+        }
+      }
+    };
+
+    try {
+      for (int i = 1; i < Math.min(parallelism, chunkCount); i++) {
+        executor.execute(worker);
+      }
+    } catch (RejectedExecutionException e) {
+      // The chunks are left for this thread
+    }
+    worker.run();
+
+    boolean interrupted = false;
+    while (true) {
+      try {
+        done.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    Exception e = failure.get();
+    if (e instanceof VerificationFailedException) {
+      throw (VerificationFailedException) e;
+    } else if (e instanceof InvalidGroupStateException) {
+      throw (InvalidGroupStateException) e;
+    } else if (e instanceof InvalidInputException) {
+      throw (InvalidInputException) e;
+    } else if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    } else if (e != null) {
+      throw new AssertionError(e);
+    }
+
+    return (List<R>) Arrays.asList(results);
+  }
+}
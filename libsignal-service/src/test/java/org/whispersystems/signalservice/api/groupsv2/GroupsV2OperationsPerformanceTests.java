@@ -0,0 +1,125 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.signalservice.api.groupsv2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.signal.libsignal.zkgroup.InvalidInputException;
+import org.signal.libsignal.zkgroup.VerificationFailedException;
+import org.signal.libsignal.zkgroup.groups.ClientZkGroupCipher;
+import org.signal.libsignal.zkgroup.groups.GroupMasterKey;
+import org.signal.libsignal.zkgroup.groups.GroupSecretParams;
+import org.signal.libsignal.zkgroup.profiles.ProfileKey;
+import org.signal.storageservice.protos.groups.Group;
+import org.signal.storageservice.protos.groups.Member;
+import org.signal.storageservice.protos.groups.local.DecryptedGroup;
+import org.whispersystems.signalservice.api.push.ServiceId.ACI;
+import org.whispersystems.signalservice.internal.util.Util;
+import org.whispersystems.signalservice.testutil.LibSignalLibraryUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okio.ByteString;
+
+import static org.junit.Assert.assertEquals;
+
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+public final class GroupsV2OperationsPerformanceTests {
+
+  private static final int MEMBER_COUNT = 1000;
+  private static final int ITERATIONS   = 5;
+
+  private ClientZkOperations clientZkOperations;
+  private GroupSecretParams  groupSecretParams;
+  private Group              group;
+  private int                parallelism;
+  private ExecutorService    executor;
+
+  @Before
+  public void setup() throws InvalidInputException {
+    LibSignalLibraryUtil.assumeLibSignalSupportedOnOS();
+
+    TestZkGroupServer server = new TestZkGroupServer();
+
+    clientZkOperations = new ClientZkOperations(server.getServerPublicParams());
+    groupSecretParams  = GroupSecretParams.deriveFromMasterKey(new GroupMasterKey(Util.getSecretBytes(32)));
+    group              = buildGroup();
+    parallelism        = Runtime.getRuntime().availableProcessors();
+    executor           = Executors.newFixedThreadPool(Math.max(1, parallelism - 1));
+  }
+
+  @After
+  public void tearDown() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testPerformance_serial() throws VerificationFailedException, InvalidGroupStateException {
+    for (int i = 0; i < ITERATIONS; i++) {
+      // A new instance each time, so nothing is memoized
+      time("serial", new GroupsV2Operations(clientZkOperations, MEMBER_COUNT));
+    }
+  }
+
+  @Test
+  public void testPerformance_parallel() throws VerificationFailedException, InvalidGroupStateException {
+    for (int i = 0; i < ITERATIONS; i++) {
+      time("parallel x" + parallelism, new GroupsV2Operations(clientZkOperations, MEMBER_COUNT, executor, parallelism));
+    }
+  }
+
+  @Test
+  public void testPerformance_memoized() throws VerificationFailedException, InvalidGroupStateException {
+    GroupsV2Operations operations = new GroupsV2Operations(clientZkOperations, MEMBER_COUNT, executor, parallelism);
+
+    time("first", operations);
+    for (int i = 0; i < ITERATIONS; i++) {
+      time("memoized", operations);
+    }
+  }
+
+  private void time(String label, GroupsV2Operations operations) throws VerificationFailedException, InvalidGroupStateException {
+    long           start     = System.nanoTime();
+    DecryptedGroup decrypted = operations.forGroup(groupSecretParams).decryptGroup(group);
+    long           duration  = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    System.out.println("[" + label + "] Decrypted " + MEMBER_COUNT + " members in " + duration + " ms");
+    assertEquals(MEMBER_COUNT, decrypted.members.size());
+  }
+
+  private Group buildGroup() throws InvalidInputException {
+    GroupsV2Operations.GroupOperations groupOperations = new GroupsV2Operations(clientZkOperations, MEMBER_COUNT).forGroup(groupSecretParams);
+    ClientZkGroupCipher                cipher          = new ClientZkGroupCipher(groupSecretParams);
+    List<Member>                       members         = new ArrayList<>(MEMBER_COUNT);
+
+    for (int i = 0; i < MEMBER_COUNT; i++) {
+      ACI        aci        = ACI.from(UUID.randomUUID());
+      ProfileKey profileKey = new ProfileKey(Util.getSecretBytes(32));
+
+      members.add(new Member.Builder()
+                            .role(Member.Role.DEFAULT)
+                            .userId(groupOperations.encryptServiceId(aci))
+                            .profileKey(ByteString.of(cipher.encryptProfileKey(profileKey, aci.getLibSignalAci()).serialize()))
+                            .joinedAtRevision(i)
+                            .build());
+    }
+
+    return new Group.Builder()
+                    .revision(MEMBER_COUNT)
+                    .title(groupOperations.encryptTitle("Title"))
+                    .members(members)
+                    .build();
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.signalservice.api.groupsv2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.signal.libsignal.zkgroup.InvalidInputException;
+import org.signal.libsignal.zkgroup.VerificationFailedException;
+import org.signal.libsignal.zkgroup.groups.ClientZkGroupCipher;
+import org.signal.libsignal.zkgroup.groups.GroupMasterKey;
+import org.signal.libsignal.zkgroup.groups.GroupSecretParams;
+import org.signal.libsignal.zkgroup.profiles.ProfileKey;
+import org.signal.storageservice.protos.groups.BannedMember;
+import org.signal.storageservice.protos.groups.Group;
+import org.signal.storageservice.protos.groups.Member;
+import org.signal.storageservice.protos.groups.PendingMember;
+import org.signal.storageservice.protos.groups.RequestingMember;
+import org.signal.storageservice.protos.groups.local.DecryptedGroup;
+import org.whispersystems.signalservice.api.push.ServiceId.ACI;
+import org.whispersystems.signalservice.internal.util.Util;
+import org.whispersystems.signalservice.testutil.LibSignalLibraryUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okio.ByteString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public final class GroupsV2Operations_parallel_decrypt_Test {
+
+  private ClientZkOperations clientZkOperations;
+  private GroupSecretParams  groupSecretParams;
+  private ExecutorService    executor;
+
+  @Before
+  public void setup() {
+    LibSignalLibraryUtil.assumeLibSignalSupportedOnOS();
+
+    TestZkGroupServer server = new TestZkGroupServer();
+
+    clientZkOperations = new ClientZkOperations(server.getServerPublicParams());
+    groupSecretParams  = GroupSecretParams.deriveFromMasterKey(newGroupMasterKey());
+    executor           = Executors.newFixedThreadPool(3);
+  }
+
+  @After
+  public void tearDown() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void parallel_decrypt_matches_serial_decrypt() throws VerificationFailedException, InvalidGroupStateException {
+    Group group = buildGroup(200, 50, 50, 20);
+
+    DecryptedGroup serial   = new GroupsV2Operations(clientZkOperations, 1000).forGroup(groupSecretParams).decryptGroup(group);
+    DecryptedGroup parallel = new GroupsV2Operations(clientZkOperations, 1000, executor, 4).forGroup(groupSecretParams).decryptGroup(group);
+
+    assertEquals(serial, parallel);
+    assertEquals(200, parallel.members.size());
+    assertEquals(50, parallel.pendingMembers.size());
+    assertEquals(50, parallel.requestingMembers.size());
+    assertEquals(20, parallel.bannedMembers.size());
+  }
+
+  @Test
+  public void second_decrypt_of_a_group_matches_the_first() throws VerificationFailedException, InvalidGroupStateException {
+    GroupsV2Operations operations = new GroupsV2Operations(clientZkOperations, 1000, executor, 4);
+    Group              group      = buildGroup(100, 10, 10, 10);
+
+    DecryptedGroup first  = operations.forGroup(groupSecretParams).decryptGroup(group);
+    DecryptedGroup second = operations.forGroup(groupSecretParams).decryptGroup(group);
+
+    assertEquals(first, second);
+  }
+
+  @Test(expected = InvalidGroupStateException.class)
+  public void parallel_decrypt_of_a_bad_member_fails() throws VerificationFailedException, InvalidGroupStateException {
+    Group        group   = buildGroup(100, 0, 0, 0);
+    List<Member> members = new ArrayList<>(group.members);
+
+    members.set(57, members.get(57).newBuilder().userId(ByteString.of(new byte[] { 1, 2, 3 })).build());
+
+    new GroupsV2Operations(clientZkOperations, 1000, executor, 4).forGroup(groupSecretParams)
+                                                                 .decryptGroup(group.newBuilder().members(members).build());
+  }
+
+  @Test
+  public void cached_profile_key_is_not_returned_for_another_aci() {
+    GroupCiphertextCache cache      = new GroupCiphertextCache(10);
+    ACI                  aci        = ACI.from(UUID.randomUUID());
+    ByteString           ciphertext = ByteString.of(Util.getSecretBytes(65));
+    ProfileKey           profileKey = newProfileKey();
+
+    cache.putProfileKey(ciphertext, aci, profileKey);
+
+    assertSame(profileKey, cache.getProfileKey(ciphertext, aci));
+    assertNull(cache.getProfileKey(ciphertext, ACI.from(UUID.randomUUID())));
+  }
+
+  @Test
+  public void cache_is_cleared_when_full() {
+    GroupCiphertextCache cache = new GroupCiphertextCache(2);
+    ByteString           first = ByteString.of(Util.getSecretBytes(65));
+
+    cache.putServiceId(first, ACI.from(UUID.randomUUID()));
+    cache.putServiceId(ByteString.of(Util.getSecretBytes(65)), ACI.from(UUID.randomUUID()));
+    cache.putServiceId(ByteString.of(Util.getSecretBytes(65)), ACI.from(UUID.randomUUID()));
+
+    assertNull(cache.getServiceId(first));
+  }
+
+  private Group buildGroup(int memberCount, int pendingCount, int requestingCount, int bannedCount) {
+    GroupsV2Operations.GroupOperations groupOperations = new GroupsV2Operations(clientZkOperations, 1000).forGroup(groupSecretParams);
+    ClientZkGroupCipher                cipher          = new ClientZkGroupCipher(groupSecretParams);
+
+    List<Member>           members    = new ArrayList<>(memberCount);
+    List<PendingMember>    pending    = new ArrayList<>(pendingCount);
+    List<RequestingMember> requesting = new ArrayList<>(requestingCount);
+    List<BannedMember>     banned     = new ArrayList<>(bannedCount);
+
+    for (int i = 0; i < memberCount; i++) {
+      ACI aci = ACI.from(UUID.randomUUID());
+      members.add(new Member.Builder()
+                            .role(i == 0 ? Member.Role.ADMINISTRATOR : Member.Role.DEFAULT)
+                            .userId(groupOperations.encryptServiceId(aci))
+                            .profileKey(ByteString.of(cipher.encryptProfileKey(newProfileKey(), aci.getLibSignalAci()).serialize()))
+                            .joinedAtRevision(i)
+                            .build());
+    }
+
+    for (int i = 0; i < pendingCount; i++) {
+      pending.add(new PendingMember.Builder()
+                                   .member(new Member.Builder().role(Member.Role.DEFAULT).userId(groupOperations.encryptServiceId(ACI.from(UUID.randomUUID()))).build())
+                                   .addedByUserId(groupOperations.encryptServiceId(ACI.from(UUID.randomUUID())))
+                                   .timestamp(i)
+                                   .build());
+    }
+
+    for (int i = 0; i < requestingCount; i++) {
+      ACI aci = ACI.from(UUID.randomUUID());
+      requesting.add(new RequestingMember.Builder()
+                                         .userId(groupOperations.encryptServiceId(aci))
+                                         .profileKey(ByteString.of(cipher.encryptProfileKey(newProfileKey(), aci.getLibSignalAci()).serialize()))
+                                         .timestamp(i)
+                                         .build());
+    }
+
+    for (int i = 0; i < bannedCount; i++) {
+      banned.add(new BannedMember.Builder().userId(groupOperations.encryptServiceId(ACI.from(UUID.randomUUID()))).timestamp(i).build());
+    }
+
+    return new Group.Builder()
+                    .revision(10)
+                    .title(groupOperations.encryptTitle("Title"))
+                    .members(members)
+                    .pendingMembers(pending)
+                    .requestingMembers(requesting)
+                    .bannedMembers(banned)
+                    .build();
+  }
+
+  private static GroupMasterKey newGroupMasterKey() {
+    try {
+      return new GroupMasterKey(Util.getSecretBytes(32));
+    } catch (InvalidInputException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static ProfileKey newProfileKey() {
+    try {
+      return new ProfileKey(Util.getSecretBytes(32));
+    } catch (InvalidInputException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.signalservice.api.groupsv2;
+
+import org.junit.Test;
+import org.signal.storageservice.protos.groups.AccessControl;
+import org.signal.storageservice.protos.groups.Member;
+import org.signal.storageservice.protos.groups.local.DecryptedApproveMember;
+import org.signal.storageservice.protos.groups.local.DecryptedBannedMember;
+import org.signal.storageservice.protos.groups.local.DecryptedGroup;
+import org.signal.storageservice.protos.groups.local.DecryptedGroupChange;
+import org.signal.storageservice.protos.groups.local.DecryptedMember;
+import org.signal.storageservice.protos.groups.local.DecryptedModifyMemberRole;
+import org.signal.storageservice.protos.groups.local.DecryptedPendingMember;
+import org.signal.storageservice.protos.groups.local.DecryptedPendingMemberRemoval;
+import org.signal.storageservice.protos.groups.local.DecryptedRequestingMember;
+import org.signal.storageservice.protos.groups.local.DecryptedString;
+import org.signal.storageservice.protos.groups.local.DecryptedTimer;
+import org.signal.storageservice.protos.groups.local.EnabledState;
+import org.whispersystems.signalservice.api.util.UuidUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import okio.ByteString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.whispersystems.signalservice.api.groupsv2.ProtoTestUtils.admin;
+import static org.whispersystems.signalservice.api.groupsv2.ProtoTestUtils.bannedMember;
+import static org.whispersystems.signalservice.api.groupsv2.ProtoTestUtils.encrypt;
+import static org.whispersystems.signalservice.api.groupsv2.ProtoTestUtils.member;
+import static org.whispersystems.signalservice.api.groupsv2.ProtoTestUtils.pendingMember;
+import static org.whispersystems.signalservice.api.groupsv2.ProtoTestUtils.pendingPniAciMember;
+import static org.whispersystems.signalservice.api.groupsv2.ProtoTestUtils.randomProfileKey;
+import static org.whispersystems.signalservice.api.groupsv2.ProtoTestUtils.requestingMember;
+
+public final class MutableDecryptedGroupTest {
+
+  @Test
+  public void unchanged_group_is_returned_as_is() {
+    DecryptedGroup group = new DecryptedGroup.Builder()
+                                             .revision(10)
+                                             .title("Title")
+                                             .members(List.of(member(UUID.randomUUID()), member(UUID.randomUUID())))
+                                             .build();
+
+    DecryptedGroup result = new MutableDecryptedGroup(group).toDecryptedGroup();
+
+    assertEquals(group, result);
+    assertSame(group.members, result.members);
+  }
+
+  @Test
+  public void untouched_lists_are_reused() throws NotAbleToApplyGroupV2ChangeException {
+    DecryptedGroup group = new DecryptedGroup.Builder()
+                                             .revision(10)
+                                             .members(List.of(member(UUID.randomUUID())))
+                                             .pendingMembers(List.of(pendingMember(UUID.randomUUID())))
+                                             .build();
+
+    MutableDecryptedGroup mutableGroup = new MutableDecryptedGroup(group);
+    mutableGroup.apply(new DecryptedGroupChange.Builder().revision(11).newMembers(List.of(member(UUID.randomUUID()))).build());
+
+    DecryptedGroup result = mutableGroup.toDecryptedGroup();
+
+    assertEquals(2, result.members.size());
+    assertSame(group.pendingMembers, result.pendingMembers);
+  }
+
+  @Test(expected = NotAbleToApplyGroupV2ChangeException.class)
+  public void modify_role_of_non_member_fails() throws NotAbleToApplyGroupV2ChangeException {
+    DecryptedGroup group = new DecryptedGroup.Builder()
+                                             .revision(10)
+                                             .members(List.of(member(UUID.randomUUID())))
+                                             .build();
+
+    new MutableDecryptedGroup(group).apply(new DecryptedGroupChange.Builder()
+                                                                   .revision(11)
+                                                                   .modifyMemberRoles(List.of(new DecryptedModifyMemberRole.Builder()
+                                                                                                                           .aciBytes(UuidUtil.toByteString(UUID.randomUUID()))
+                                                                                                                           .role(Member.Role.ADMINISTRATOR)
+                                                                                                                           .build()))
+                                                                   .build());
+  }
+
+  @Test
+  public void random_changes_match_DecryptedGroupUtil() throws NotAbleToApplyGroupV2ChangeException {
+    Random random = new Random(44);
+
+    for (int run = 0; run < 20; run++) {
+      DecryptedGroup        expected     = randomGroup(random);
+      MutableDecryptedGroup mutableGroup = new MutableDecryptedGroup(expected);
+
+      for (int i = 0; i < 50; i++) {
+        DecryptedGroupChange change = randomChange(random, expected);
+
+        assertEquals(GroupChangeUtil.resolveConflict(expected, change).build(), mutableGroup.resolveConflict(change).build());
+
+        expected = DecryptedGroupUtil.applyWithoutRevisionCheck(expected, change);
+        mutableGroup.apply(change);
+
+        if (random.nextBoolean()) {
+          assertEquals(expected, mutableGroup.toDecryptedGroup());
+        }
+      }
+
+      assertEquals(expected, mutableGroup.toDecryptedGroup());
+      assertEquals(expected.revision, mutableGroup.getRevision());
+    }
+  }
+
+  private static DecryptedGroup randomGroup(Random random) {
+    List<DecryptedMember>           members    = new ArrayList<>();
+    List<DecryptedPendingMember>    pending    = new ArrayList<>();
+    List<DecryptedRequestingMember> requesting = new ArrayList<>();
+    List<DecryptedBannedMember>     banned     = new ArrayList<>();
+
+    members.add(admin(UUID.randomUUID(), randomProfileKey()));
+    for (int i = random.nextInt(30); i > 0; i--) members.add(member(UUID.randomUUID(), randomProfileKey()));
+    for (int i = random.nextInt(5); i > 0; i--) pending.add(pendingMember(UUID.randomUUID()));
+    for (int i = random.nextInt(5); i > 0; i--) requesting.add(requestingMember(UUID.randomUUID()));
+    for (int i = random.nextInt(5); i > 0; i--) banned.add(bannedMember(UUID.randomUUID()));
+
+    return new DecryptedGroup.Builder()
+                             .revision(random.nextInt(100))
+                             .title("Title")
+                             .accessControl(new AccessControl.Builder().members(AccessControl.AccessRequired.MEMBER).build())
+                             .members(members)
+                             .pendingMembers(pending)
+                             .requestingMembers(requesting)
+                             .bannedMembers(banned)
+                             .build();
+  }
+
+  /**
+   * A change that can be applied to the group, with a mix of actions that are and aren't already reflected in it.
+   */
+  private static DecryptedGroupChange randomChange(Random random, DecryptedGroup group) {
+    DecryptedGroupChange.Builder change = new DecryptedGroupChange.Builder().revision(group.revision + 1);
+
+    switch (random.nextInt(12)) {
+      case 0:
+        change.newMembers(List.of(member(UUID.randomUUID(), randomProfileKey()), pick(random, group.members)));
+        break;
+      case 1:
+        if (group.members.size() > 1) {
+          change.deleteMembers(List.of(pick(random, group.members).aciBytes, UuidUtil.toByteString(UUID.randomUUID())));
+        }
+        break;
+      case 2:
+        change.modifyMemberRoles(List.of(new DecryptedModifyMemberRole.Builder()
+                                                                      .aciBytes(pick(random, group.members).aciBytes)
+                                                                      .role(random.nextBoolean() ? Member.Role.ADMINISTRATOR : Member.Role.DEFAULT)
+                                                                      .build()));
+        break;
+      case 3:
+        DecryptedMember keyChange = pick(random, group.members);
+        change.modifiedProfileKeys(List.of(random.nextBoolean() ? keyChange : keyChange.newBuilder().profileKey(ByteString.of(randomProfileKey().serialize())).build()));
+        break;
+      case 4:
+        UUID pni = UUID.randomUUID();
+        change.newPendingMembers(List.of(pendingMember(UUID.randomUUID()), pendingMember(pni)));
+        if (!group.pendingMembers.isEmpty()) {
+          change.newPendingMembers(List.of(pendingMember(pni), pick(random, group.pendingMembers)));
+        }
+        break;
+      case 5:
+        if (!group.pendingMembers.isEmpty()) {
+          DecryptedPendingMember pending = pick(random, group.pendingMembers);
+          change.deletePendingMembers(List.of(new DecryptedPendingMemberRemoval.Builder()
+                                                                                .serviceIdBytes(pending.serviceIdBytes)
+                                                                                .serviceIdCipherText(pending.serviceIdCipherText)
+                                                                                .build(),
+                                              new DecryptedPendingMemberRemoval.Builder()
+                                                                                .serviceIdCipherText(encrypt(UUID.randomUUID()))
+                                                                                .build()));
+        }
+        break;
+      case 6:
+        if (!group.pendingMembers.isEmpty()) {
+          DecryptedPendingMember pending = pick(random, group.pendingMembers);
+          if (random.nextBoolean()) {
+            change.promotePendingMembers(List.of(new DecryptedMember.Builder().aciBytes(pending.serviceIdBytes).role(Member.Role.DEFAULT).build()));
+          } else {
+            change.promotePendingPniAciMembers(List.of(pendingPniAciMember(UuidUtil.toByteString(UUID.randomUUID()), pending.serviceIdBytes, ByteString.of(randomProfileKey().serialize()))));
+          }
+        }
+        break;
+      case 7:
+        change.newTitle(new DecryptedString.Builder().value_(random.nextBoolean() ? group.title : "Title " + random.nextInt()).build())
+              .newDescription(new DecryptedString.Builder().value_("Description " + random.nextInt(3)).build())
+              .newTimer(new DecryptedTimer.Builder().duration(random.nextInt(3)).build())
+              .newIsAnnouncementGroup(random.nextBoolean() ? EnabledState.ENABLED : EnabledState.DISABLED);
+        break;
+      case 8:
+        change.newAttributeAccess(AccessControl.AccessRequired.ADMINISTRATOR)
+              .newMemberAccess(random.nextBoolean() ? AccessControl.AccessRequired.MEMBER : AccessControl.AccessRequired.ADMINISTRATOR)
+              .newInviteLinkAccess(AccessControl.AccessRequired.ANY)
+              .newInviteLinkPassword(ByteString.of((byte) random.nextInt()))
+              .newAvatar(new DecryptedString.Builder().value_("avatar" + random.nextInt(3)).build());
+        break;
+      case 9:
+        change.newRequestingMembers(List.of(requestingMember(UUID.randomUUID())));
+        if (!group.requestingMembers.isEmpty()) {
+          DecryptedRequestingMember requesting = pick(random, group.requestingMembers);
+          if (random.nextBoolean()) {
+            change.deleteRequestingMembers(List.of(requesting.aciBytes, UuidUtil.toByteString(UUID.randomUUID())));
+          } else {
+            change.promoteRequestingMembers(List.of(new DecryptedApproveMember.Builder().aciBytes(requesting.aciBytes).role(Member.Role.DEFAULT).build()));
+          }
+        }
+        break;
+      case 10:
+        change.newBannedMembers(List.of(bannedMember(UUID.randomUUID())));
+        if (!group.bannedMembers.isEmpty()) {
+          change.newBannedMembers(List.of(bannedMember(UUID.randomUUID()), pick(random, group.bannedMembers)))
+                .deleteBannedMembers(List.of(pick(random, group.bannedMembers), bannedMember(UUID.randomUUID())));
+        }
+        break;
+      default:
+        if (!group.pendingMembers.isEmpty()) {
+          DecryptedPendingMember pending = pick(random, group.pendingMembers);
+          change.newMembers(List.of(new DecryptedMember.Builder().aciBytes(pending.serviceIdBytes).role(Member.Role.DEFAULT).build()));
+        }
+        if (!group.requestingMembers.isEmpty()) {
+          DecryptedRequestingMember requesting = pick(random, group.requestingMembers);
+          change.newMembers(List.of(new DecryptedMember.Builder().aciBytes(requesting.aciBytes).role(Member.Role.DEFAULT).build()));
+        }
+        break;
+    }
+
+    return change.build();
+  }
+
+  private static <T> T pick(Random random, List<T> list) {
+    return list.get(random.nextInt(list.size()));
+  }
+}
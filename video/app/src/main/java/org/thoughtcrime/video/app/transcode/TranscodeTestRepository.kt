@@ -57,6 +57,8 @@ class TranscodeTestRepository(context: Context) {
         inputData.putInt(TranscodeWorker.KEY_AUDIO_BIT_RATE, customTranscodingOptions.audioBitrate)
         inputData.putBoolean(TranscodeWorker.KEY_ENABLE_FASTSTART, customTranscodingOptions.enableFastStart)
         inputData.putBoolean(TranscodeWorker.KEY_ENABLE_AUDIO_REMUX, customTranscodingOptions.enableAudioRemux)
+        inputData.putBoolean(TranscodeWorker.KEY_ENABLE_PIPELINING, customTranscodingOptions.enablePipelining)
+        inputData.putBoolean(TranscodeWorker.KEY_ENABLE_SEGMENTING, customTranscodingOptions.enableSegmenting)
       }
 
       val transcodeRequest = OneTimeWorkRequestBuilder<TranscodeWorker>()
@@ -105,7 +107,7 @@ class TranscodeTestRepository(context: Context) {
     }
   }
 
-  data class CustomTranscodingOptions(val videoCodec: String, val videoResolution: VideoResolution, val videoBitrate: Int, val audioBitrate: Int, val enableFastStart: Boolean, val enableAudioRemux: Boolean)
+  data class CustomTranscodingOptions(val videoCodec: String, val videoResolution: VideoResolution, val videoBitrate: Int, val audioBitrate: Int, val enableFastStart: Boolean, val enableAudioRemux: Boolean, val enablePipelining: Boolean, val enableSegmenting: Boolean)
 
   companion object {
     private const val TAG = "TranscodingTestRepository"
@@ -44,6 +44,8 @@ class TranscodeTestViewModel : ViewModel() {
   var useAutoTranscodingSettings by mutableStateOf(true)
   var enableFastStart by mutableStateOf(true)
   var enableAudioRemux by mutableStateOf(true)
+  var enablePipelining by mutableStateOf(false)
+  var enableSegmenting by mutableStateOf(false)
   var forceSequentialQueueProcessing by mutableStateOf(false)
 
   fun initialize(context: Context) {
@@ -71,7 +73,9 @@ class TranscodeTestViewModel : ViewModel() {
           (videoMegaBitrate * MEGABIT).roundToInt(),
           audioKiloBitrate * KILOBIT,
           enableAudioRemux,
-          enableFastStart
+          enableFastStart,
+          enablePipelining,
+          enableSegmenting
         )
       )
     }
@@ -27,12 +27,16 @@ import org.thoughtcrime.securesms.video.TranscodingPreset
 import org.thoughtcrime.securesms.video.postprocessing.Mp4FaststartPostProcessor
 import org.thoughtcrime.securesms.video.videoconverter.MediaConverter.VideoCodec
 import org.thoughtcrime.securesms.video.videoconverter.mediadatasource.InputStreamMediaDataSource
+import org.thoughtcrime.securesms.video.videoconverter.segmented.SegmentStorage
 import org.thoughtcrime.securesms.video.videoconverter.utils.VideoConstants
 import org.thoughtcrime.video.app.R
 import java.io.File
 import java.io.FileInputStream
+import java.io.FileOutputStream
 import java.io.IOException
 import java.io.InputStream
+import java.io.OutputStream
+import java.nio.channels.Channels
 import java.time.Instant
 
 /**
@@ -92,15 +96,33 @@ class TranscodeWorker(ctx: Context, params: WorkerParameters) : CoroutineWorker(
       throw IllegalArgumentException("Improper input data! No TranscodingPreset defined, or invalid manual parameters!")
     }
 
+    transcoder.setPipelined(inputParams.pipelining)
+    val segmentDirectory = if (inputParams.segmenting) File(applicationContext.cacheDir, "segments-$filenameBase").apply { mkdirs() } else null
+    if (segmentDirectory != null) {
+      transcoder.setSegmentStorage(CacheSegmentStorage(segmentDirectory))
+    }
+
     applicationContext.openFileOutput(tempFilename, Context.MODE_PRIVATE).use { outputStream ->
-      transcoder.transcode({ percent: Int ->
-        if (lastProgress != percent) {
-          lastProgress = percent
-          Log.v(TAG, "$logPrefix Updating progress percent to $percent%")
-          setProgressAsync(Data.Builder().putInt(KEY_PROGRESS, percent).build())
-          setForegroundAsync(createForegroundInfo(percent, inputParams.notificationId))
+      var currentFramesPerSecond = 0f
+      val progress = object : StreamingTranscoder.Progress {
+        override fun onProgress(percent: Int) {
+          if (lastProgress != percent) {
+            lastProgress = percent
+            Log.v(TAG, "$logPrefix Updating progress percent to $percent% at $currentFramesPerSecond fps")
+            setProgressAsync(Data.Builder().putInt(KEY_PROGRESS, percent).putFloat(KEY_FRAMES_PER_SECOND, currentFramesPerSecond).build())
+            setForegroundAsync(createForegroundInfo(percent, inputParams.notificationId))
+          }
+        }
+
+        override fun onThroughput(framesPerSecond: Float) {
+          currentFramesPerSecond = framesPerSecond
         }
-      }, outputStream, { isStopped })
+      }
+      try {
+        transcoder.transcode(progress, outputStream, { isStopped })
+      } finally {
+        segmentDirectory?.deleteRecursively()
+      }
     }
 
     Log.v(TAG, "$logPrefix Initial transcode completed successfully!")
@@ -126,6 +148,31 @@ class TranscodeWorker(ctx: Context, params: WorkerParameters) : CoroutineWorker(
         }
       }
       Log.v(TAG, "$logPrefix Rename successful.")
+    } else if (transcoder.faststartMetadata != null) {
+      val faststartMetadata = transcoder.faststartMetadata!!
+      applicationContext.openFileInput(tempFilename).use { tempFileStream ->
+        applicationContext.contentResolver.openOutputStream(finalFile.uri, "w").use { finalFileStream ->
+          if (finalFileStream == null) {
+            Log.w(TAG, "$logPrefix Could not open output file for I/O!")
+            return Result.failure()
+          }
+
+          val tempFileLength = tempFileStream.channel.size()
+          val bytesCopied = Mp4FaststartPostProcessor.processWithMetadata(faststartMetadata, tempFileStream.channel, Channels.newChannel(finalFileStream))
+
+          if (bytesCopied != tempFileLength) {
+            Log.w(TAG, "$logPrefix Postprocessing failed! Original transcoded filesize ($tempFileLength) did not match postprocessed filesize ($bytesCopied)")
+            return Result.failure()
+          }
+
+          Log.v(TAG, "$logPrefix Faststart splice successful.")
+        }
+      }
+      val tempFile = File(applicationContext.filesDir, tempFilename)
+      if (!tempFile.delete()) {
+        Log.w(TAG, "$logPrefix Failed to delete temp file after processing!")
+        return Result.failure()
+      }
     } else {
       val tempFileLength: Long
       applicationContext.openFileInput(tempFilename).use { tempFileStream ->
@@ -208,29 +255,39 @@ class TranscodeWorker(ctx: Context, params: WorkerParameters) : CoroutineWorker(
     }
   }
 
+  /**
+   * Every read opens its own stream, which the read closes, so that extractors on several threads can share this.
+   */
   private class WorkerMediaDataSource(private val file: File) : InputStreamMediaDataSource() {
 
     private val size = file.length()
 
-    private var inputStream: InputStream? = null
-
-    override fun close() {
-      inputStream?.close()
-    }
+    override fun close() = Unit
 
     override fun getSize(): Long {
       return size
     }
 
     override fun createInputStream(position: Long): InputStream {
-      inputStream?.close()
       val openedInputStream = FileInputStream(file)
       openedInputStream.skip(position)
-      inputStream = openedInputStream
       return openedInputStream
     }
   }
 
+  /**
+   * Keeps the segments of a segmented transcode as plain files in the cache.
+   */
+  private class CacheSegmentStorage(private val directory: File) : SegmentStorage {
+    override fun createOutputStream(name: String): OutputStream = FileOutputStream(File(directory, name))
+
+    override fun createInputStream(name: String): InputStream = FileInputStream(File(directory, name))
+
+    override fun delete(name: String) {
+      File(directory, name).delete()
+    }
+  }
+
   private data class InputParams(private val inputData: Data) {
     val notificationId: Int = inputData.getInt(KEY_NOTIFICATION_ID, -1)
     val inputUri: Uri = Uri.parse(inputData.getString(KEY_INPUT_URI))
@@ -243,6 +300,8 @@ class TranscodeWorker(ctx: Context, params: WorkerParameters) : CoroutineWorker(
     val videoBitrate: Int = inputData.getInt(KEY_VIDEO_BIT_RATE, -1)
     val audioBitrate: Int = inputData.getInt(KEY_AUDIO_BIT_RATE, -1)
     val audioRemux: Boolean = inputData.getBoolean(KEY_ENABLE_AUDIO_REMUX, true)
+    val pipelining: Boolean = inputData.getBoolean(KEY_ENABLE_PIPELINING, false)
+    val segmenting: Boolean = inputData.getBoolean(KEY_ENABLE_SEGMENTING, false)
   }
 
   companion object {
@@ -254,12 +313,15 @@ class TranscodeWorker(ctx: Context, params: WorkerParameters) : CoroutineWorker(
     const val KEY_OUTPUT_URI = "output_uri"
     const val KEY_TRANSCODING_PRESET_NAME = "transcoding_quality_preset"
     const val KEY_PROGRESS = "progress"
+    const val KEY_FRAMES_PER_SECOND = "frames_per_second"
     const val KEY_VIDEO_CODEC = "video_codec"
     const val KEY_LONG_EDGE = "resolution_long_edge"
     const val KEY_SHORT_EDGE = "resolution_short_edge"
     const val KEY_VIDEO_BIT_RATE = "video_bit_rate"
     const val KEY_AUDIO_BIT_RATE = "audio_bit_rate"
     const val KEY_ENABLE_AUDIO_REMUX = "audio_remux"
+    const val KEY_ENABLE_PIPELINING = "pipelining"
+    const val KEY_ENABLE_SEGMENTING = "segmenting"
     const val KEY_ENABLE_FASTSTART = "video_enable_faststart"
     const val KEY_NOTIFICATION_ID = "notification_id"
   }
@@ -112,6 +112,10 @@ fun ConfigureEncodingParameters(
         onFastStartSettingCheckChanged = { viewModel.enableFastStart = it },
         audioRemuxChecked = viewModel.enableAudioRemux,
         onAudioRemuxCheckChanged = { viewModel.enableAudioRemux = it },
+        pipeliningChecked = viewModel.enablePipelining,
+        onPipeliningCheckChanged = { viewModel.enablePipelining = it },
+        segmentingChecked = viewModel.enableSegmenting,
+        onSegmentingCheckChanged = { viewModel.enableSegmenting = it },
         videoSliderPosition = viewModel.videoMegaBitrate,
         updateVideoSliderPosition = { viewModel.videoMegaBitrate = it },
         audioSliderPosition = viewModel.audioKiloBitrate,
@@ -180,6 +184,10 @@ private fun CustomSettings(
   onFastStartSettingCheckChanged: (Boolean) -> Unit,
   audioRemuxChecked: Boolean,
   onAudioRemuxCheckChanged: (Boolean) -> Unit,
+  pipeliningChecked: Boolean,
+  onPipeliningCheckChanged: (Boolean) -> Unit,
+  segmentingChecked: Boolean,
+  onSegmentingCheckChanged: (Boolean) -> Unit,
   videoSliderPosition: Float,
   updateVideoSliderPosition: (Float) -> Unit,
   audioSliderPosition: Int,
@@ -247,6 +255,32 @@ private fun CustomSettings(
     Text(text = "Allow audio remuxing", style = MaterialTheme.typography.bodySmall)
   }
 
+  Row(
+    verticalAlignment = Alignment.CenterVertically,
+    modifier = Modifier
+      .padding(vertical = 8.dp, horizontal = 8.dp)
+      .fillMaxWidth()
+  ) {
+    Checkbox(
+      checked = pipeliningChecked,
+      onCheckedChange = { onPipeliningCheckChanged(it) }
+    )
+    Text(text = "Pipeline audio and video conversion", style = MaterialTheme.typography.bodySmall)
+  }
+
+  Row(
+    verticalAlignment = Alignment.CenterVertically,
+    modifier = Modifier
+      .padding(vertical = 8.dp, horizontal = 8.dp)
+      .fillMaxWidth()
+  ) {
+    Checkbox(
+      checked = segmentingChecked,
+      onCheckedChange = { onSegmentingCheckChanged(it) }
+    )
+    Text(text = "Transcode long videos in parallel segments", style = MaterialTheme.typography.bodySmall)
+  }
+
   Row(
     verticalAlignment = Alignment.CenterVertically,
     modifier = Modifier
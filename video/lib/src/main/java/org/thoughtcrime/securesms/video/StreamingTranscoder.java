@@ -14,9 +14,13 @@ import org.signal.core.util.logging.Log;
 import org.thoughtcrime.securesms.video.exceptions.VideoSizeException;
 import org.thoughtcrime.securesms.video.exceptions.VideoSourceException;
 import org.thoughtcrime.securesms.video.interfaces.TranscoderCancelationSignal;
+import org.thoughtcrime.securesms.video.postprocessing.Mp4FaststartMetadata;
 import org.thoughtcrime.securesms.video.videoconverter.MediaConverter;
 import org.thoughtcrime.securesms.video.videoconverter.exceptions.EncodingException;
+import org.thoughtcrime.securesms.video.videoconverter.exceptions.SegmentMismatchException;
 import org.thoughtcrime.securesms.video.videoconverter.mediadatasource.MediaDataSourceMediaInput;
+import org.thoughtcrime.securesms.video.videoconverter.segmented.SegmentStorage;
+import org.thoughtcrime.securesms.video.videoconverter.segmented.SegmentedMediaConverter;
 
 import java.io.FilterOutputStream;
 import java.io.IOException;
@@ -41,6 +45,10 @@ public final class StreamingTranscoder {
   private final @Nullable TranscoderOptions  options;
   private final           boolean            allowAudioRemux;
 
+  private           boolean              pipelined;
+  private @Nullable SegmentStorage       segmentStorage;
+  private @Nullable Mp4FaststartMetadata faststartMetadata;
+
   /**
    * @param upperSizeLimit A upper size to transcode to. The actual output size can be up to 10% smaller.
    */
@@ -166,37 +174,61 @@ public final class StreamingTranscoder {
 
     final long startTime = System.currentTimeMillis();
 
-    final MediaConverter converter = new MediaConverter();
-
-    converter.setInput(new MediaDataSourceMediaInput(dataSource));
     final CountingOutputStream outStream;
     if (sizeLimitEnabled) {
       outStream = new CountingOutputStream(new LimitedSizeOutputStream(stream, upperSizeLimit));
     } else {
       outStream = new CountingOutputStream(stream);
     }
-    converter.setOutput(outStream);
-    converter.setVideoCodec(targetQuality.getCodec());
-    converter.setVideoResolution(targetQuality.getOutputResolution());
-    converter.setVideoBitrate(targetQuality.getTargetVideoBitRate());
-    converter.setAudioBitrate(targetQuality.getTargetAudioBitRate());
-    converter.setAllowAudioRemux(allowAudioRemux);
 
+    long timeFrom = 0;
+    long timeTo   = 0;
     if (options != null) {
       if (options.endTimeUs > 0) {
-        long timeFrom = options.startTimeUs / 1000;
-        long timeTo   = options.endTimeUs   / 1000;
-        converter.setTimeRange(timeFrom, timeTo);
+        timeFrom = options.startTimeUs / 1000;
+        timeTo   = options.endTimeUs   / 1000;
         Log.i(TAG, String.format(Locale.US, "Trimming:\nTotal duration: %d\nKeeping: %d..%d\nFinal duration:(%d)", duration, timeFrom, timeTo, timeTo - timeFrom));
       }
     }
 
-    converter.setListener(percent -> {
-      progress.onProgress(percent);
-      return cancelationSignal != null && cancelationSignal.isCanceled();
-    });
+    final MediaConverter.Listener listener = new MediaConverter.Listener() {
+      @Override
+      public boolean onProgress(int percent) {
+        progress.onProgress(percent);
+        return cancelationSignal != null && cancelationSignal.isCanceled();
+      }
+
+      @Override
+      public void onThroughput(float framesPerSecond) {
+        progress.onThroughput(framesPerSecond);
+      }
+    };
+
+    long mdatSize = -1;
+
+    if (segmentStorage != null) {
+      final SegmentedMediaConverter segmentedConverter = new SegmentedMediaConverter(new MediaDataSourceMediaInput(dataSource), segmentStorage, targetQuality.getCodec(), targetQuality.getOutputResolution(), this::createConverter);
+      segmentedConverter.setTimeRange(timeFrom, timeTo);
+      segmentedConverter.setListener(listener);
+      try {
+        mdatSize          = segmentedConverter.convert(outStream);
+        faststartMetadata = segmentedConverter.getFaststartMetadata();
+      } catch (SegmentMismatchException e) {
+        Log.w(TAG, "Unable to join segments, converting in one piece", e);
+      }
+    }
+
+    if (mdatSize < 0) {
+      final MediaConverter converter = createConverter();
+      if (timeTo > 0) {
+        converter.setTimeRange(timeFrom, timeTo);
+      }
+      converter.setOutput(outStream);
+      converter.setListener(listener);
 
-    long mdatSize = converter.convert();
+      mdatSize          = converter.convert();
+      faststartMetadata = converter.getFaststartMetadata();
+    }
 
     long  outSize           = outStream.getCount();
     float encodeDurationSec = (System.currentTimeMillis() - startTime) / 1000f;
@@ -224,10 +256,48 @@ public final class StreamingTranscoder {
     return mdatSize;
   }
 
+  /**
+   * @return What is needed to move the metadata of the transcoded file to the front without reading it back to find
+   * it, or null if the muxer couldn't record it. Available once {@link #transcode} returns.
+   */
+  public @Nullable Mp4FaststartMetadata getFaststartMetadata() {
+    return faststartMetadata;
+  }
+
+  /**
+   * Run audio and video conversion on their own threads and keep several video frames in flight through the codecs.
+   * See {@link MediaConverter#setPipelined(boolean)}.
+   */
+  public void setPipelined(boolean pipelined) {
+    this.pipelined = pipelined;
+  }
+
+  /**
+   * Split long videos at key frames and transcode the parts on several codec instances at once, keeping the encoded
+   * parts in the given storage until they are joined. See {@link SegmentedMediaConverter}.
+   */
+  public void setSegmentStorage(@Nullable SegmentStorage segmentStorage) {
+    this.segmentStorage = segmentStorage;
+  }
+
   public boolean isTranscodeRequired() {
     return transcodeRequired;
   }
 
+  private @NonNull MediaConverter createConverter() throws IOException {
+    final MediaConverter converter = new MediaConverter();
+
+    converter.setInput(new MediaDataSourceMediaInput(dataSource));
+    converter.setVideoCodec(targetQuality.getCodec());
+    converter.setVideoResolution(targetQuality.getOutputResolution());
+    converter.setVideoBitrate(targetQuality.getTargetVideoBitRate());
+    converter.setAudioBitrate(targetQuality.getTargetAudioBitRate());
+    converter.setAllowAudioRemux(allowAudioRemux);
+    converter.setPipelined(pipelined);
+
+    return converter;
+  }
+
   private static long getDuration(MediaMetadataRetriever mediaMetadataRetriever) throws VideoSourceException {
     String durationString = mediaMetadataRetriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
     if (durationString == null) {
@@ -251,6 +321,12 @@ public final class StreamingTranscoder {
 
   public interface Progress {
     void onProgress(int percent);
+
+    /**
+     * The average rate video frames have been encoded at so far.
+     */
+    default void onThroughput(float framesPerSecond) {
+    }
   }
 
   private static class LimitedSizeOutputStream extends FilterOutputStream {
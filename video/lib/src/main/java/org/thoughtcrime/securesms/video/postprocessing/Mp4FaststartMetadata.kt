@@ -0,0 +1,25 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.video.postprocessing
+
+/**
+ * Recorded by the muxer while it writes a file, this is everything needed to rewrite that file with the metadata at
+ * the front, without first reading the file to find it.
+ *
+ * @property header The ftyp and moov boxes, with chunk offsets that account for the moov box now being first, followed by
+ * the mdat box header.
+ * @property dataOffset Where the mdat payload starts in the file as written by the muxer.
+ * @property dataLength The length of the mdat payload.
+ */
+class Mp4FaststartMetadata(
+  val header: ByteArray,
+  val dataOffset: Long,
+  val dataLength: Long
+) {
+  /** The length of the rewritten file, which is the same as that of the file written by the muxer. */
+  val length: Long
+    get() = header.size + dataLength
+}
@@ -14,6 +14,9 @@ import java.io.ByteArrayInputStream
 import java.io.InputStream
 import java.io.OutputStream
 import java.io.SequenceInputStream
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.channels.WritableByteChannel
 
 /**
  * A post processor that takes a stream of bytes, and using [Mp4Sanitizer], moves the metadata to the front of the file.
@@ -60,6 +63,18 @@ class Mp4FaststartPostProcessor(private val inputStreamFactory: InputStreamFacto
     return SequenceInputStream(ByteArrayInputStream(metadata.sanitizedMetadata), LimitedInputStream(inputStream, metadata.dataLength))
   }
 
+  /**
+   * Like [process], but uses the layout the muxer recorded while writing, so the input is only read once and the
+   * metadata doesn't need to be found or sanitized.
+   *
+   * It is the responsibility of the caller to close the resulting [InputStream].
+   */
+  fun processWithMetadata(metadata: Mp4FaststartMetadata): SequenceInputStream {
+    val inputStream = inputStreamFactory.create()
+    inputStream.skipNBytesCompat(metadata.dataOffset)
+    return SequenceInputStream(ByteArrayInputStream(metadata.header), LimitedInputStream(inputStream, metadata.dataLength))
+  }
+
   fun interface InputStreamFactory {
     fun create(): InputStream
   }
@@ -74,6 +89,48 @@ class Mp4FaststartPostProcessor(private val inputStreamFactory: InputStreamFacto
       }
     }
 
+    /**
+     * Writes the faststart version of [source], a file written by the muxer, to [target]. The mdat payload is
+     * transferred channel to channel, without passing through the heap.
+     *
+     * @return The number of bytes actually written to [target].
+     */
+    @JvmStatic
+    fun processWithMetadata(metadata: Mp4FaststartMetadata, source: FileChannel, target: WritableByteChannel): Long {
+      var written = 0L
+      val header = ByteBuffer.wrap(metadata.header)
+      while (header.hasRemaining()) {
+        written += target.write(header)
+      }
+
+      var position = metadata.dataOffset
+      val end = metadata.dataOffset + metadata.dataLength
+      while (position < end) {
+        val transferred = source.transferTo(position, end - position, target)
+        if (transferred <= 0) {
+          throw VideoPostProcessingException("Unexpected end of file at $position, expected $end")
+        }
+        position += transferred
+        written += transferred
+      }
+
+      return written
+    }
+
+    private fun InputStream.skipNBytesCompat(count: Long) {
+      var remaining = count
+      while (remaining > 0) {
+        val skipped = skip(remaining)
+        if (skipped > 0) {
+          remaining -= skipped
+        } else if (read() >= 0) {
+          remaining--
+        } else {
+          throw VideoPostProcessingException("Unexpected end of stream, $remaining bytes short of the mdat payload")
+        }
+      }
+    }
+
     @JvmStatic
     private fun sanitizeMetadata(inputStream: InputStream, inputLength: Long): SanitizedMetadata {
       inputStream.use {
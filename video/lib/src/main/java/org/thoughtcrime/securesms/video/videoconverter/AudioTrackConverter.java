@@ -58,7 +58,7 @@ final class AudioTrackConverter {
     boolean mAudioEncoderDone;
     private boolean skipTrancode;
 
-    private int     mOutputAudioTrack = -1;
+    int mOutputAudioTrack = -1;
 
     private int mPendingAudioDecoderOutputBufferIndex = -1;
     long mMuxingAudioPresentationTime;
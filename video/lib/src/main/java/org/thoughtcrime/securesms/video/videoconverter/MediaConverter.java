@@ -32,6 +32,7 @@ import org.signal.core.util.logging.Log;
 import org.thoughtcrime.securesms.video.videoconverter.exceptions.EncodingException;
 import org.thoughtcrime.securesms.video.interfaces.MediaInput;
 import org.thoughtcrime.securesms.video.interfaces.Muxer;
+import org.thoughtcrime.securesms.video.postprocessing.Mp4FaststartMetadata;
 import org.thoughtcrime.securesms.video.videoconverter.muxer.StreamingMuxer;
 
 import java.io.File;
@@ -41,6 +42,8 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 @SuppressWarnings("WeakerAccess")
 public final class MediaConverter {
@@ -49,6 +52,8 @@ public final class MediaConverter {
 
     private static final int STUCK_FRAME_THRESHOLD = 100;
 
+    private static final int PIPELINED_FRAMES_IN_FLIGHT = 4;
+
     // Describes when the annotation will be discarded
     @Retention(RetentionPolicy.SOURCE)
     @StringDef({VIDEO_CODEC_H264, VIDEO_CODEC_H265})
@@ -66,12 +71,23 @@ public final class MediaConverter {
     private @VideoCodec String mVideoCodec = VIDEO_CODEC_H264;
     private int mAudioBitrate = 128000; // 128Kbps
     private boolean mAllowAudioRemux = false;
+    private boolean mIncludeVideo = true;
+    private boolean mIncludeAudio = true;
 
     private Listener mListener;
-    private boolean mCancelled;
+    private volatile boolean mCancelled;
+    private boolean mPipelined;
+    private long mMuxingStartTime;
+    private @Nullable Mp4FaststartMetadata mFaststartMetadata;
 
     public interface Listener {
         boolean onProgress(int percent);
+
+        /**
+         * Called alongside {@link #onProgress(int)} with the average rate video frames have been encoded at so far.
+         */
+        default void onThroughput(float framesPerSecond) {
+        }
     }
 
     public MediaConverter() {
@@ -96,6 +112,14 @@ public final class MediaConverter {
         mOutput = new StreamOutput(stream);
     }
 
+    /**
+     * Writes the converted tracks to a muxer owned by the caller. It is stopped and released when {@link #convert()}
+     * returns, like the muxers created for the other outputs.
+     */
+    public void setOutput(final @NonNull Muxer muxer) {
+        mOutput = new MuxerOutput(muxer);
+    }
+
     @SuppressWarnings("unused")
     public void setTimeRange(long timeFrom, long timeTo) {
         mTimeFrom = timeFrom;
@@ -138,6 +162,36 @@ public final class MediaConverter {
         mAllowAudioRemux = allow;
     }
 
+    /**
+     * Whether to convert the input's video track, if it has one. Defaults to true.
+     */
+    public void setIncludeVideo(boolean includeVideo) {
+        mIncludeVideo = includeVideo;
+    }
+
+    /**
+     * Whether to convert the input's audio track, if it has one. Defaults to true.
+     */
+    public void setIncludeAudio(boolean includeAudio) {
+        mIncludeAudio = includeAudio;
+    }
+
+    /**
+     * Converts audio and video on separate threads, muxing on a third, and keeps several video frames in flight
+     * through the codecs rather than stepping each through decode, render, encode and mux in turn.
+     */
+    public void setPipelined(boolean pipelined) {
+        mPipelined = pipelined;
+    }
+
+    /**
+     * @return What is needed to move the metadata of the converted file to the front, if the output was written by a
+     * {@link StreamingMuxer}. Available once {@link #convert()} returns.
+     */
+    public @Nullable Mp4FaststartMetadata getFaststartMetadata() {
+        return mFaststartMetadata;
+    }
+
     /**
      * @return The total content size of the MP4 mdat box.
      */
@@ -156,8 +210,12 @@ public final class MediaConverter {
         try {
             muxer = mOutput.createMuxer();
 
-            videoTrackConverter = VideoTrackConverter.create(mInput, mTimeFrom, mTimeTo, mVideoResolution, mVideoBitrate, mVideoCodec);
-            audioTrackConverter = AudioTrackConverter.create(mInput, mTimeFrom, mTimeTo, mAudioBitrate, mAllowAudioRemux && muxer.supportsAudioRemux());
+            if (mIncludeVideo) {
+                videoTrackConverter = VideoTrackConverter.create(mInput, mTimeFrom, mTimeTo, mVideoResolution, mVideoBitrate, mVideoCodec);
+            }
+            if (mIncludeAudio) {
+                audioTrackConverter = AudioTrackConverter.create(mInput, mTimeFrom, mTimeTo, mAudioBitrate, mAllowAudioRemux && muxer.supportsAudioRemux());
+            }
 
             if (videoTrackConverter == null && audioTrackConverter == null) {
                 throw new EncodingException("No video and audio tracks");
@@ -171,6 +229,10 @@ public final class MediaConverter {
             mdatContentLength = muxer.stop();
             muxerStopped = true;
 
+            if (muxer instanceof StreamingMuxer) {
+                mFaststartMetadata = ((StreamingMuxer) muxer).getFaststartMetadata();
+            }
+
         } catch (EncodingException | IOException e) {
             Log.e(TAG, "error converting", e);
             exception = e;
@@ -240,6 +302,9 @@ public final class MediaConverter {
                 videoTrackConverter == null ? 0 : videoTrackConverter.mInputDuration,
                 audioTrackConverter == null ? 0 : audioTrackConverter.mInputDuration);
 
+        final QueuedMuxer queuedMuxer = mPipelined && videoTrackConverter != null ? new QueuedMuxer(muxer) : null;
+        final Muxer       trackMuxer  = queuedMuxer != null ? queuedMuxer : muxer;
+
         while (!mCancelled &&
                 ((videoTrackConverter != null && !videoTrackConverter.mVideoEncoderDone) ||
                  (audioTrackConverter != null &&!audioTrackConverter.mAudioEncoderDone))) {
@@ -267,33 +332,32 @@ public final class MediaConverter {
                 audioTrackConverter.step();
             }
 
-            if (inputDuration != 0 && mListener != null) {
-                final long timeFromUs = mTimeFrom <= 0 ? 0 : mTimeFrom * 1000;
-                final long timeToUs = mTimeTo <= 0 ? inputDuration : mTimeTo * 1000;
-                final int curPercentProcessed = (int) (100 *
-                        (Math.max(
-                                videoTrackConverter == null ? 0 : videoTrackConverter.mMuxingVideoPresentationTime,
-                                audioTrackConverter == null ? 0 : audioTrackConverter.mMuxingAudioPresentationTime)
-                         - timeFromUs) / (timeToUs - timeFromUs));
-
-                if (curPercentProcessed != percentProcessed) {
-                    percentProcessed = curPercentProcessed;
-                    mCancelled = mCancelled || mListener.onProgress(percentProcessed);
-                }
-            }
+            percentProcessed = updateProgress(
+                    percentProcessed,
+                    Math.max(
+                            videoTrackConverter == null ? 0 : videoTrackConverter.mMuxingVideoPresentationTime,
+                            audioTrackConverter == null ? 0 : audioTrackConverter.mMuxingAudioPresentationTime),
+                    inputDuration,
+                    videoTrackConverter);
 
             if (!muxing
                     && (videoTrackConverter == null || videoTrackConverter.mEncoderOutputVideoFormat != null)
                     && (audioTrackConverter == null || audioTrackConverter.mEncoderOutputAudioFormat != null)) {
                 if (videoTrackConverter != null) {
-                    videoTrackConverter.setMuxer(muxer);
+                    videoTrackConverter.setMuxer(trackMuxer);
                 }
                 if (audioTrackConverter != null) {
-                    audioTrackConverter.setMuxer(muxer);
+                    audioTrackConverter.setMuxer(trackMuxer);
                 }
                 Log.d(TAG, "muxer: starting");
-                muxer.start();
+                trackMuxer.start();
+                mMuxingStartTime = System.nanoTime();
                 muxing = true;
+
+                if (queuedMuxer != null) {
+                    doPipelinedMux(videoTrackConverter, audioTrackConverter, queuedMuxer, inputDuration, percentProcessed);
+                    break;
+                }
             }
         }
 
@@ -308,6 +372,179 @@ public final class MediaConverter {
         // TODO: Check the generated output file.
     }
 
+    /**
+     * Once muxing has started, converts video on this thread, which owns the GL context the video converter renders
+     * with, and audio on a thread of its own. Both write to the {@link QueuedMuxer}, which muxes on a third thread.
+     * A failure on either side cancels the conversion and aborts the muxer, so the other side stops too.
+     */
+    private void doPipelinedMux(
+            final @NonNull VideoTrackConverter videoTrackConverter,
+            final @Nullable AudioTrackConverter audioTrackConverter,
+            final @NonNull QueuedMuxer muxer,
+            final long inputDuration,
+            final int percentProcessed) throws IOException, TranscodingException {
+
+        Log.d(TAG, "muxer: pipelining");
+        videoTrackConverter.setFramesInFlight(PIPELINED_FRAMES_IN_FLIGHT);
+
+        final FutureTask<Void> audioTask;
+        if (audioTrackConverter != null) {
+            audioTask = new FutureTask<>(() -> {
+                try {
+                    doAudioConversion(audioTrackConverter, muxer);
+                } catch (Throwable t) {
+                    mCancelled = true;
+                    muxer.abort();
+                    throw t;
+                }
+                return null;
+            });
+            new Thread(audioTask, "media-converter-audio").start();
+        } else {
+            audioTask = null;
+        }
+
+        try {
+            doVideoConversion(videoTrackConverter, muxer, inputDuration, percentProcessed);
+        } catch (IOException | TranscodingException | RuntimeException e) {
+            mCancelled = true;
+            muxer.abort();
+            awaitConversion(audioTask);
+            throw e;
+        }
+
+        final Throwable audioFailure = awaitConversion(audioTask);
+        if (audioFailure != null) {
+            muxer.abort();
+            if (audioFailure instanceof IOException) {
+                throw (IOException) audioFailure;
+            } else if (audioFailure instanceof RuntimeException) {
+                throw (RuntimeException) audioFailure;
+            } else {
+                throw new TranscodingException(audioFailure);
+            }
+        }
+
+        muxer.finish();
+    }
+
+    private void doVideoConversion(
+            final @NonNull VideoTrackConverter videoTrackConverter,
+            final @NonNull QueuedMuxer muxer,
+            final long inputDuration,
+            int percentProcessed) throws IOException, TranscodingException {
+
+        VideoTrackConverterState oldState = null;
+        int stuckFrames = 0;
+
+        try {
+            while (!mCancelled && !videoTrackConverter.mVideoEncoderDone) {
+                final VideoTrackConverterState currentState = videoTrackConverter.dumpState();
+                if (currentState.equals(oldState)) {
+                    if (++stuckFrames >= STUCK_FRAME_THRESHOLD) {
+                        mCancelled = true;
+                    }
+                } else {
+                    oldState = currentState;
+                    stuckFrames = 0;
+                }
+
+                videoTrackConverter.step();
+
+                percentProcessed = updateProgress(percentProcessed, videoTrackConverter.mMuxingVideoPresentationTime, inputDuration, videoTrackConverter);
+            }
+        } finally {
+            muxer.finishTrack(videoTrackConverter.mOutputVideoTrack);
+        }
+    }
+
+    private void doAudioConversion(
+            final @NonNull AudioTrackConverter audioTrackConverter,
+            final @NonNull QueuedMuxer muxer) throws IOException {
+
+        AudioTrackConverterState oldState = null;
+        int stuckFrames = 0;
+
+        try {
+            while (!mCancelled && !audioTrackConverter.mAudioEncoderDone) {
+                final AudioTrackConverterState currentState = audioTrackConverter.dumpState();
+                if (currentState.equals(oldState)) {
+                    if (++stuckFrames >= STUCK_FRAME_THRESHOLD) {
+                        mCancelled = true;
+                    }
+                } else {
+                    oldState = currentState;
+                    stuckFrames = 0;
+                }
+
+                audioTrackConverter.step();
+            }
+        } finally {
+            muxer.finishTrack(audioTrackConverter.mOutputAudioTrack);
+        }
+    }
+
+    /**
+     * Waits for a conversion running on another thread, even if interrupted, as its codecs can't be released while it
+     * is still using them.
+     *
+     * @return What the conversion threw, if anything.
+     */
+    private static @Nullable Throwable awaitConversion(final @Nullable FutureTask<Void> task) {
+        if (task == null) {
+            return null;
+        }
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    task.get();
+                    return null;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    return e.getCause();
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reports progress and throughput to the listener whenever the percentage processed changes.
+     *
+     * @return The percentage processed.
+     */
+    private int updateProgress(
+            final int percentProcessed,
+            final long presentationTimeUs,
+            final long inputDuration,
+            final @Nullable VideoTrackConverter videoTrackConverter) {
+
+        if (inputDuration == 0 || mListener == null) {
+            return percentProcessed;
+        }
+
+        final long timeFromUs = mTimeFrom <= 0 ? 0 : mTimeFrom * 1000;
+        final long timeToUs = mTimeTo <= 0 ? inputDuration : mTimeTo * 1000;
+        final int curPercentProcessed = (int) (100 * (presentationTimeUs - timeFromUs) / (timeToUs - timeFromUs));
+
+        if (curPercentProcessed != percentProcessed) {
+            mCancelled = mCancelled || mListener.onProgress(curPercentProcessed);
+
+            final long elapsed = System.nanoTime() - mMuxingStartTime;
+            if (videoTrackConverter != null && mMuxingStartTime != 0 && elapsed > 0) {
+                mListener.onThroughput(videoTrackConverter.getEncodedFrameCount() * 1e9f / elapsed);
+            }
+        }
+
+        return curPercentProcessed;
+    }
+
     static String getMimeTypeFor(MediaFormat format) {
         return format.getString(MediaFormat.KEY_MIME);
     }
@@ -384,4 +621,18 @@ public final class MediaConverter {
             return new StreamingMuxer(outputStream);
         }
     }
+
+    private static class MuxerOutput implements Output {
+
+        final Muxer muxer;
+
+        MuxerOutput(final @NonNull Muxer muxer) {
+            this.muxer = muxer;
+        }
+
+        @Override
+        public @NonNull Muxer createMuxer() {
+            return muxer;
+        }
+    }
 }
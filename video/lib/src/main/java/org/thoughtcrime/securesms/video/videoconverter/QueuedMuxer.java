@@ -0,0 +1,256 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.video.videoconverter;
+
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.signal.core.util.logging.Log;
+import org.thoughtcrime.securesms.video.interfaces.Muxer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets track converters running on their own threads write to a {@link Muxer} that expects a single writer.
+ * <p>
+ * Samples are copied into a bounded queue per track, and a muxing thread writes them to the wrapped muxer in
+ * presentation time order across tracks. A converter that gets too far ahead of the others blocks until they catch up,
+ * which keeps the muxer's interleaving buffers small.
+ */
+final class QueuedMuxer implements Muxer {
+
+    private static final String TAG = "media-converter";
+
+    private static final int QUEUE_CAPACITY = 30;
+
+    private static final int WAIT = -1;
+    private static final int DONE = -2;
+
+    private final Muxer                    muxer;
+    private final List<ArrayDeque<Sample>> queues   = new ArrayList<>();
+    private final List<Boolean>            finished = new ArrayList<>();
+
+    private @Nullable Thread    muxingThread;
+    private @Nullable Throwable failure;
+    private           boolean   aborted;
+
+    QueuedMuxer(final @NonNull Muxer muxer) {
+        this.muxer = muxer;
+    }
+
+    @Override
+    public void start() throws IOException {
+        muxer.start();
+        muxingThread = new Thread(this::mux, "media-converter-muxer");
+        muxingThread.start();
+    }
+
+    /**
+     * Waits for every queued sample to be written, then stops the wrapped muxer.
+     */
+    @Override
+    public long stop() throws IOException {
+        finish();
+        return muxer.stop();
+    }
+
+    @Override
+    public synchronized int addTrack(final @NonNull MediaFormat format) throws IOException {
+        final int track = muxer.addTrack(format);
+        while (queues.size() <= track) {
+            queues.add(new ArrayDeque<>(QUEUE_CAPACITY));
+            finished.add(false);
+        }
+        return track;
+    }
+
+    @Override
+    public void writeSampleData(final int trackIndex, final @NonNull ByteBuffer byteBuf, final @NonNull MediaCodec.BufferInfo bufferInfo) throws IOException {
+        final ByteBuffer copy = ByteBuffer.allocateDirect(bufferInfo.size);
+        final ByteBuffer source = byteBuf.duplicate();
+        source.position(bufferInfo.offset);
+        source.limit(bufferInfo.offset + bufferInfo.size);
+        copy.put(source);
+        copy.flip();
+
+        final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        info.set(0, bufferInfo.size, bufferInfo.presentationTimeUs, bufferInfo.flags);
+
+        synchronized (this) {
+            final ArrayDeque<Sample> queue = queues.get(trackIndex);
+            while (queue.size() >= QUEUE_CAPACITY && failure == null && !aborted) {
+                await();
+            }
+            throwIfFailed();
+            queue.add(new Sample(copy, info));
+            notifyAll();
+        }
+    }
+
+    /**
+     * Marks the end of a track, so the muxing thread stops waiting for its samples.
+     */
+    synchronized void finishTrack(final int trackIndex) {
+        if (trackIndex >= 0 && trackIndex < finished.size()) {
+            finished.set(trackIndex, true);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits for every queued sample to be written to the wrapped muxer.
+     */
+    void finish() throws IOException {
+        synchronized (this) {
+            for (int i = 0; i < finished.size(); i++) {
+                finished.set(i, true);
+            }
+            notifyAll();
+        }
+
+        if (muxingThread != null) {
+            try {
+                muxingThread.join();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            muxingThread = null;
+        }
+
+        synchronized (this) {
+            throwIfFailed();
+        }
+    }
+
+    /**
+     * Drops anything queued and unblocks any waiting converters, which then fail. Returns once the muxing thread has
+     * stopped writing to the wrapped muxer.
+     */
+    void abort() {
+        synchronized (this) {
+            aborted = true;
+            for (ArrayDeque<Sample> queue : queues) {
+                queue.clear();
+            }
+            notifyAll();
+        }
+
+        final Thread thread = muxingThread;
+        if (thread != null && thread != Thread.currentThread()) {
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void release() {
+        abort();
+        muxer.release();
+    }
+
+    @Override
+    public boolean supportsAudioRemux() {
+        return muxer.supportsAudioRemux();
+    }
+
+    private void mux() {
+        try {
+            Sample sample;
+            int    track;
+            while (true) {
+                synchronized (this) {
+                    track = nextTrack();
+                    while (track == WAIT) {
+                        await();
+                        track = nextTrack();
+                    }
+                    if (track == DONE) {
+                        return;
+                    }
+                    sample = queues.get(track).remove();
+                    notifyAll();
+                }
+                muxer.writeSampleData(track, sample.buffer, sample.info);
+            }
+        } catch (Throwable t) {
+            Log.w(TAG, "Muxing failed", t);
+            synchronized (this) {
+                failure = t;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * The track with the earliest sample at the head of its queue, as long as every unfinished track has something
+     * queued to compare against.
+     */
+    private int nextTrack() {
+        if (aborted) {
+            return DONE;
+        }
+
+        int  next     = DONE;
+        long earliest = Long.MAX_VALUE;
+        for (int i = 0; i < queues.size(); i++) {
+            final Sample head = queues.get(i).peek();
+            if (head == null) {
+                if (!finished.get(i)) {
+                    return WAIT;
+                }
+            } else if (head.info.presentationTimeUs < earliest) {
+                earliest = head.info.presentationTimeUs;
+                next     = i;
+            }
+        }
+        return next;
+    }
+
+    private void await() throws InterruptedIOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void throwIfFailed() throws IOException {
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure != null) {
+            throw new IOException("Muxing failed", failure);
+        } else if (aborted) {
+            throw new IOException("Muxing aborted");
+        }
+    }
+
+    private static final class Sample {
+        final ByteBuffer            buffer;
+        final MediaCodec.BufferInfo info;
+
+        Sample(final @NonNull ByteBuffer buffer, final @NonNull MediaCodec.BufferInfo info) {
+            this.buffer = buffer;
+            this.info   = info;
+        }
+    }
+}
@@ -68,7 +68,7 @@ final class VideoTrackConverter {
     private boolean mVideoDecoderDone;
     boolean mVideoEncoderDone;
 
-    private int mOutputVideoTrack = -1;
+    int mOutputVideoTrack = -1;
 
     long mMuxingVideoPresentationTime;
 
@@ -78,6 +78,8 @@ final class VideoTrackConverter {
 
     private Muxer mMuxer;
 
+    private int mFramesInFlight = 1;
+
     @RequiresApi(23)
     static @Nullable VideoTrackConverter create(
             final @NonNull MediaInput input,
@@ -216,13 +218,26 @@ final class VideoTrackConverter {
         }
     }
 
+    /**
+     * How many frames each step may feed to the decoder and take from the encoder. With more than one, the codecs are
+     * kept busy with work queued up while a frame is rendered, rather than being handed one frame at a time.
+     */
+    void setFramesInFlight(final int framesInFlight) {
+        mFramesInFlight = Math.max(1, framesInFlight);
+    }
+
+    int getEncodedFrameCount() {
+        return mVideoEncodedFrameCount;
+    }
+
     void step() throws IOException, TranscodingException {
         // Extract video from file and feed to decoder.
         // Do not extract video if we have determined the output format but we are not yet
         // ready to mux the frames.
+        int extracted = 0;
         while (!mVideoExtractorDone
                 && (mEncoderOutputVideoFormat == null || mMuxer != null)) {
-            int decoderInputBufferIndex = mVideoDecoder.dequeueInputBuffer(TIMEOUT_USEC);
+            int decoderInputBufferIndex = mVideoDecoder.dequeueInputBuffer(extracted == 0 ? TIMEOUT_USEC : 0);
             if (decoderInputBufferIndex == MediaCodec.INFO_TRY_AGAIN_LATER) {
                 if (VERBOSE) Log.d(TAG, "no video decoder input buffer");
                 break;
@@ -257,8 +272,10 @@ final class VideoTrackConverter {
             }
             mVideoExtractor.advance();
             mVideoExtractedFrameCount++;
-            // We extracted a frame, let's try something else next.
-            break;
+            // We extracted a frame, let's try something else next, unless we're keeping more frames in flight.
+            if (++extracted >= mFramesInFlight) {
+                break;
+            }
         }
 
         // Poll output frames from the video decoder and feed the encoder.
@@ -324,11 +341,12 @@ final class VideoTrackConverter {
         }
 
         // Poll frames from the video encoder and send them to the muxer.
+        int encoded = 0;
         while (!mVideoEncoderDone && (mEncoderOutputVideoFormat == null || mMuxer != null)) {
-            final int encoderOutputBufferIndex = mVideoEncoder.dequeueOutputBuffer(mVideoEncoderOutputBufferInfo, TIMEOUT_USEC);
+            final int encoderOutputBufferIndex = mVideoEncoder.dequeueOutputBuffer(mVideoEncoderOutputBufferInfo, encoded == 0 ? TIMEOUT_USEC : 0);
             if (encoderOutputBufferIndex == MediaCodec.INFO_TRY_AGAIN_LATER) {
                 if (VERBOSE) Log.d(TAG, "no video encoder output buffer");
-                if (mVideoDecoderDone) {
+                if (mVideoDecoderDone && encoded == 0) {
                     // on some devices and encoder stops after signalEndOfInputStream
                     Log.w(TAG, "mVideoDecoderDone, but didn't get BUFFER_FLAG_END_OF_STREAM");
                     mVideoEncodedFrameCount = mVideoDecodedFrameCount;
@@ -372,8 +390,10 @@ final class VideoTrackConverter {
             }
             mVideoEncoder.releaseOutputBuffer(encoderOutputBufferIndex, false);
             mVideoEncodedFrameCount++;
-            // We enqueued an encoded frame, let's try something else next.
-            break;
+            // We enqueued an encoded frame, let's try something else next, unless we're keeping more frames in flight.
+            if (++encoded >= mFramesInFlight) {
+                break;
+            }
         }
     }
 
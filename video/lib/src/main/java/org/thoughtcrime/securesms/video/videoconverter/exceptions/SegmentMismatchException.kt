@@ -0,0 +1,11 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+package org.thoughtcrime.securesms.video.videoconverter.exceptions
+
+/**
+ * Separately encoded segments of a video can't be joined into a single track, usually because the encoders produced
+ * different codec configurations. Nothing has been written to the output when this is thrown.
+ */
+class SegmentMismatchException(message: String?) : Exception(message)
@@ -20,6 +20,7 @@
 package org.thoughtcrime.securesms.video.videoconverter.muxer;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import org.mp4parser.Box;
 import org.mp4parser.boxes.iso14496.part12.ChunkOffsetBox;
@@ -47,9 +48,12 @@ import org.mp4parser.tools.Mp4Arrays;
 import org.mp4parser.tools.Mp4Math;
 import org.mp4parser.tools.Path;
 import org.signal.core.util.logging.Log;
+import org.thoughtcrime.securesms.video.postprocessing.Mp4FaststartMetadata;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -80,8 +84,12 @@ final class Mp4Writer extends DefaultBoxes implements SampleSink {
   private final WritableByteChannel  sink;
   private final List<StreamingTrack> source;
   private final Date                 creationTime = new Date();
+  private final FileTypeBox          fileTypeBox;
 
   private boolean hasWrittenMdat = false;
+  private long    mdatOffset     = -1;
+
+  private Mp4FaststartMetadata faststartMetadata;
 
   /**
    * Contains the start time of the next segment in line that will be created.
@@ -147,7 +155,8 @@ final class Mp4Writer extends DefaultBoxes implements SampleSink {
     final List<String> minorBrands = new LinkedList<>();
     minorBrands.add("isom");
     minorBrands.add("mp42");
-    write(sink, new FileTypeBox("mp42", 0, minorBrands));
+    fileTypeBox = new FileTypeBox("mp42", 0, minorBrands);
+    write(sink, fileTypeBox);
   }
 
   public void close() throws IOException {
@@ -155,7 +164,9 @@ final class Mp4Writer extends DefaultBoxes implements SampleSink {
       writeChunkContainer(createChunkContainer(streamingTrack));
       streamingTrack.close();
     }
-    write(sink, createMoov());
+    final Box moov = createMoov();
+    write(sink, moov);
+    faststartMetadata = createFaststartMetadata(moov);
     hasWrittenMdat = false;
   }
 
@@ -163,6 +174,61 @@ final class Mp4Writer extends DefaultBoxes implements SampleSink {
     return mMDatTotalContentLength;
   }
 
+  /**
+   * @return How to rewrite the written file with the moov box before the mdat box, or null if it can't be. Only
+   * available after {@link #close()}.
+   */
+  public @Nullable Mp4FaststartMetadata getFaststartMetadata() {
+    return faststartMetadata;
+  }
+
+  /**
+   * The file is written as ftyp, mdat, moov. Moving the moov box in front of the mdat box shifts every sample by the
+   * size of the moov box, which doesn't change when the chunk offsets do, so the offsets can be updated in place.
+   */
+  private @Nullable Mp4FaststartMetadata createFaststartMetadata(final @NonNull Box moov) throws IOException {
+    if (mdatOffset < 0) {
+      return null;
+    }
+
+    final long moovSize = moov.getSize();
+
+    for (TrackBox trackBox : trackBoxes.values()) {
+      final ChunkOffsetBox stco    = Objects.requireNonNull(Path.getPath(trackBox, "mdia[0]/minf[0]/stbl[0]/stco[0]"));
+      final long[]         offsets = stco.getChunkOffsets();
+
+      if (offsets.length > 0 && offsets[offsets.length - 1] + moovSize > UInt32_MAX) {
+        Log.w(TAG, "Chunk offsets would overflow after moving moov, cannot faststart.");
+        return null;
+      }
+    }
+
+    for (TrackBox trackBox : trackBoxes.values()) {
+      final ChunkOffsetBox stco    = Objects.requireNonNull(Path.getPath(trackBox, "mdia[0]/minf[0]/stbl[0]/stco[0]"));
+      final long[]         offsets = stco.getChunkOffsets().clone();
+
+      for (int i = 0; i < offsets.length; i++) {
+        offsets[i] += moovSize;
+      }
+      stco.setChunkOffsets(offsets);
+    }
+
+    final long dataLength = mMDatTotalContentLength - 8;
+    final long mdatSize   = mMDatTotalContentLength <= UInt32_MAX ? mMDatTotalContentLength : 0;
+
+    final ByteArrayOutputStream header = new ByteArrayOutputStream(l2i(fileTypeBox.getSize() + moovSize + 8));
+    final WritableByteChannel   channel = Channels.newChannel(header);
+
+    fileTypeBox.getBox(channel);
+    moov.getBox(channel);
+    channel.write(ByteBuffer.wrap(new byte[] {
+        (byte) (mdatSize >>> 24), (byte) (mdatSize >>> 16), (byte) (mdatSize >>> 8), (byte) mdatSize,
+        109, 100, 97, 116, // 'm' 'd' 'a' 't'
+    }));
+
+    return new Mp4FaststartMetadata(header.toByteArray(), mdatOffset + 8, dataLength);
+  }
+
   private Box createMoov() {
     final MovieBox movieBox = new MovieBox();
 
@@ -262,6 +328,9 @@ final class Mp4Writer extends DefaultBoxes implements SampleSink {
     final TrackBox       tb   = trackBoxes.get(chunkContainer.streamingTrack);
     final ChunkOffsetBox stco = Objects.requireNonNull(Path.getPath(tb, "mdia[0]/minf[0]/stbl[0]/stco[0]"));
     final int extraChunkOffset = hasWrittenMdat ? 0 : 8;
+    if (!hasWrittenMdat) {
+      mdatOffset = bytesWritten;
+    }
     stco.setChunkOffsets(Mp4Arrays.copyOfAndAppend(stco.getChunkOffsets(), bytesWritten + extraChunkOffset));
     chunkContainer.mdat.includeHeader = !hasWrittenMdat;
     write(sink, chunkContainer.mdat);
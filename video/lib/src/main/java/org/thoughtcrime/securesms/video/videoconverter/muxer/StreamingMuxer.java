@@ -10,6 +10,7 @@ import org.mp4parser.boxes.iso14496.part1.objectdescriptors.DecoderSpecificInfo;
 import org.mp4parser.streaming.StreamingTrack;
 import org.signal.core.util.logging.Log;
 import org.thoughtcrime.securesms.video.interfaces.Muxer;
+import org.thoughtcrime.securesms.video.postprocessing.Mp4FaststartMetadata;
 import org.thoughtcrime.securesms.video.videoconverter.utils.MediaCodecCompat;
 
 import java.io.IOException;
@@ -24,6 +25,7 @@ public final class StreamingMuxer implements Muxer {
   private final OutputStream          outputStream;
   private final List<MediaCodecTrack> tracks = new ArrayList<>();
   private       Mp4Writer             mp4Writer;
+  private       Mp4FaststartMetadata  faststartMetadata;
 
   public StreamingMuxer(OutputStream outputStream) {
     this.outputStream = outputStream;
@@ -48,12 +50,20 @@ public final class StreamingMuxer implements Muxer {
     }
     mp4Writer.close();
     long mdatLength = mp4Writer.getTotalMdatContentLength();
+    faststartMetadata = mp4Writer.getFaststartMetadata();
 
     mp4Writer = null;
 
     return mdatLength;
   }
 
+  /**
+   * @return What is needed to move the metadata of the written file to the front, available once stopped.
+   */
+  public @Nullable Mp4FaststartMetadata getFaststartMetadata() {
+    return faststartMetadata;
+  }
+
   @Override
   public int addTrack(@NonNull MediaFormat format) throws IOException {
 
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.video.videoconverter.segmented;
+
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.signal.core.util.logging.Log;
+import org.thoughtcrime.securesms.video.interfaces.Muxer;
+import org.thoughtcrime.securesms.video.videoconverter.exceptions.SegmentMismatchException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Joins separately encoded segments of a track into a single track of a {@link Muxer}, interleaved with a track that
+ * was encoded in one piece.
+ * <p>
+ * Each segment is expected to start on a key frame at {@link Segment#startUs}. Converters start decoding at the key
+ * frame before their start time and stop a little after their end time, so samples outside of each segment's window are
+ * dropped, as the neighbouring segment has its own copy of them.
+ */
+public final class SegmentConcatenator {
+
+    private static final String TAG = "media-converter";
+
+    private static final String[] CODEC_CONFIG_KEYS = { "csd-0", "csd-1", "csd-2" };
+
+    private SegmentConcatenator() {}
+
+    public static final class Segment {
+        final SegmentRecorder recorder;
+        final long            startUs;
+        final long            endUs;
+
+        /**
+         * @param startUs The time of the key frame the segment starts with.
+         * @param endUs   The start of the next segment, or {@link Long#MAX_VALUE} for the last.
+         */
+        public Segment(final @NonNull SegmentRecorder recorder, final long startUs, final long endUs) {
+            this.recorder = recorder;
+            this.startUs  = startUs;
+            this.endUs    = endUs;
+        }
+    }
+
+    /**
+     * Checks that every segment has a single track, encoded with the same codec configuration, so that they can share a
+     * sample description in the output.
+     *
+     * @return The format to add to the muxer for the joined track.
+     */
+    public static @NonNull MediaFormat checkSegments(final @NonNull List<Segment> segments) throws SegmentMismatchException {
+        if (segments.isEmpty()) {
+            throw new IllegalArgumentException("No segments");
+        }
+
+        MediaFormat first = null;
+        for (int i = 0; i < segments.size(); i++) {
+            final List<MediaFormat> formats = segments.get(i).recorder.getFormats();
+            if (formats.size() != 1) {
+                throw new SegmentMismatchException("Segment " + i + " has " + formats.size() + " tracks");
+            }
+
+            final MediaFormat format = formats.get(0);
+            if (first == null) {
+                first = format;
+            } else if (!hasSameCodecConfig(first, format)) {
+                throw new SegmentMismatchException("Segment " + i + " was encoded with a different codec configuration");
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Adds the joined track and the continuous track to the muxer, starts it, and writes every sample to it in
+     * presentation time order. The muxer is not stopped.
+     *
+     * @param continuous A recording with a single track covering the whole output, or null.
+     */
+    public static void concatenate(final @NonNull List<Segment> segments,
+                                   final @Nullable SegmentRecorder continuous,
+                                   final @NonNull Muxer muxer)
+        throws IOException, SegmentMismatchException
+    {
+        final MediaFormat segmentedFormat = checkSegments(segments);
+        if (continuous != null && continuous.getFormats().size() != 1) {
+            throw new SegmentMismatchException(continuous.getName() + " has " + continuous.getFormats().size() + " tracks");
+        }
+
+        final int segmentedTrack  = muxer.addTrack(segmentedFormat);
+        final int continuousTrack = continuous != null ? muxer.addTrack(continuous.getFormats().get(0)) : -1;
+        muxer.start();
+
+        final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+        try (SegmentedSamples segmented = new SegmentedSamples(segments);
+             ContinuousSamples other = new ContinuousSamples(continuous))
+        {
+            boolean hasSegmented = segmented.next();
+            boolean hasOther     = other.next();
+
+            while (hasSegmented || hasOther) {
+                if (hasSegmented && (!hasOther || segmented.cursor.getPresentationTimeUs() <= other.cursor.getPresentationTimeUs())) {
+                    segmented.cursor.getBufferInfo(info);
+                    muxer.writeSampleData(segmentedTrack, segmented.cursor.getData(), info);
+                    hasSegmented = segmented.next();
+                } else {
+                    other.cursor.getBufferInfo(info);
+                    muxer.writeSampleData(continuousTrack, other.cursor.getData(), info);
+                    hasOther = other.next();
+                }
+            }
+        }
+    }
+
+    static boolean hasSameCodecConfig(final @NonNull MediaFormat a, final @NonNull MediaFormat b) {
+        if (!Objects.equals(a.getString(MediaFormat.KEY_MIME), b.getString(MediaFormat.KEY_MIME))) {
+            return false;
+        }
+        for (String key : CODEC_CONFIG_KEYS) {
+            final ByteBuffer configA = a.containsKey(key) ? a.getByteBuffer(key) : null;
+            final ByteBuffer configB = b.containsKey(key) ? b.getByteBuffer(key) : null;
+            if (!Objects.equals(configA, configB)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Walks the samples of each segment in turn, skipping those outside of the segment's window.
+     */
+    private static final class SegmentedSamples implements Closeable {
+        private final List<Segment> segments;
+
+        private           int                    segmentIndex = -1;
+        private @Nullable Segment                segment;
+        private @Nullable SegmentRecorder.Cursor cursor;
+        private           boolean                startedSegment;
+        private           int                    droppedFrames;
+
+        SegmentedSamples(final @NonNull List<Segment> segments) {
+            this.segments = segments;
+        }
+
+        boolean next() throws IOException {
+            while (true) {
+                if (cursor == null) {
+                    if (++segmentIndex >= segments.size()) {
+                        return false;
+                    }
+                    segment        = segments.get(segmentIndex);
+                    cursor         = segment.recorder.openCursor();
+                    startedSegment = false;
+                    droppedFrames  = 0;
+                }
+
+                if (!cursor.next()) {
+                    cursor.close();
+                    cursor = null;
+                    continue;
+                }
+
+                final long presentationTimeUs = cursor.getPresentationTimeUs();
+                if (presentationTimeUs < segment.startUs || presentationTimeUs >= segment.endUs) {
+                    continue;
+                }
+
+                if (!startedSegment) {
+                    if (!cursor.isKeyFrame()) {
+                        droppedFrames++;
+                        continue;
+                    }
+                    if (droppedFrames > 0) {
+                        Log.w(TAG, "Dropped " + droppedFrames + " frames before the first key frame of segment " + segmentIndex);
+                    }
+                    startedSegment = true;
+                }
+
+                return true;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (cursor != null) {
+                cursor.close();
+                cursor = null;
+            }
+        }
+    }
+
+    private static final class ContinuousSamples implements Closeable {
+        private final @Nullable SegmentRecorder.Cursor cursor;
+
+        ContinuousSamples(final @Nullable SegmentRecorder recorder) throws IOException {
+            this.cursor = recorder != null ? recorder.openCursor() : null;
+        }
+
+        boolean next() throws IOException {
+            return cursor != null && cursor.next();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+}
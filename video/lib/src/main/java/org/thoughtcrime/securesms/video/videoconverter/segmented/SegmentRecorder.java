@@ -0,0 +1,215 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.video.videoconverter.segmented;
+
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.thoughtcrime.securesms.video.interfaces.Muxer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link Muxer} that records the encoded samples it is given to {@link SegmentStorage}, so that a converter can run
+ * ahead of the real muxer. The samples are read back in the order they were written with {@link #openCursor()}.
+ * <p>
+ * Only the sample data goes to storage. The track formats and the size, time and flags of each sample are kept in
+ * memory, which comes to a few hundred kilobytes for an hour of video.
+ */
+public final class SegmentRecorder implements Muxer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SegmentStorage    storage;
+    private final String            name;
+    private final List<MediaFormat> formats = new ArrayList<>();
+
+    private int[]  tracks            = new int[256];
+    private int[]  sizes             = new int[256];
+    private int[]  flags             = new int[256];
+    private long[] presentationTimes = new long[256];
+    private int    sampleCount;
+    private long   length;
+    private byte[] copyBuffer        = new byte[0];
+
+    private @Nullable OutputStream outputStream;
+
+    public SegmentRecorder(final @NonNull SegmentStorage storage, final @NonNull String name) {
+        this.storage = storage;
+        this.name    = name;
+    }
+
+    @Override
+    public void start() throws IOException {
+        outputStream = new BufferedOutputStream(storage.createOutputStream(name), BUFFER_SIZE);
+    }
+
+    /**
+     * @return The number of bytes of sample data recorded.
+     */
+    @Override
+    public long stop() throws IOException {
+        if (outputStream != null) {
+            outputStream.close();
+            outputStream = null;
+        }
+        return length;
+    }
+
+    @Override
+    public int addTrack(final @NonNull MediaFormat format) {
+        formats.add(format);
+        return formats.size() - 1;
+    }
+
+    @Override
+    public void writeSampleData(final int trackIndex, final @NonNull ByteBuffer byteBuf, final @NonNull MediaCodec.BufferInfo bufferInfo) throws IOException {
+        if (outputStream == null) {
+            throw new IllegalStateException("Not recording");
+        }
+
+        if (sampleCount == sizes.length) {
+            final int capacity = sampleCount * 2;
+            tracks            = Arrays.copyOf(tracks, capacity);
+            sizes             = Arrays.copyOf(sizes, capacity);
+            flags             = Arrays.copyOf(flags, capacity);
+            presentationTimes = Arrays.copyOf(presentationTimes, capacity);
+        }
+
+        if (byteBuf.hasArray()) {
+            outputStream.write(byteBuf.array(), byteBuf.arrayOffset() + bufferInfo.offset, bufferInfo.size);
+        } else {
+            if (copyBuffer.length < bufferInfo.size) {
+                copyBuffer = new byte[bufferInfo.size];
+            }
+            final ByteBuffer source = byteBuf.duplicate();
+            source.position(bufferInfo.offset);
+            source.get(copyBuffer, 0, bufferInfo.size);
+            outputStream.write(copyBuffer, 0, bufferInfo.size);
+        }
+
+        tracks[sampleCount]            = trackIndex;
+        sizes[sampleCount]             = bufferInfo.size;
+        flags[sampleCount]             = bufferInfo.flags;
+        presentationTimes[sampleCount] = bufferInfo.presentationTimeUs;
+        sampleCount++;
+        length += bufferInfo.size;
+    }
+
+    @Override
+    public void release() {
+        if (outputStream != null) {
+            try {
+                outputStream.close();
+            } catch (IOException ignored) {
+            }
+            outputStream = null;
+        }
+    }
+
+    @Override
+    public boolean supportsAudioRemux() {
+        return true;
+    }
+
+    public @NonNull String getName() {
+        return name;
+    }
+
+    public @NonNull List<MediaFormat> getFormats() {
+        return Collections.unmodifiableList(formats);
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Reads the recorded samples back from storage, in the order they were written.
+     */
+    public @NonNull Cursor openCursor() throws IOException {
+        return new Cursor(new DataInputStream(new BufferedInputStream(storage.createInputStream(name), BUFFER_SIZE)));
+    }
+
+    public final class Cursor implements Closeable {
+
+        private final DataInputStream inputStream;
+
+        private int        index  = -1;
+        private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+        private Cursor(final @NonNull DataInputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        /**
+         * Moves to the next sample, reading its data into a buffer that is reused for every sample.
+         *
+         * @return False once every sample has been read.
+         */
+        public boolean next() throws IOException {
+            if (index + 1 >= sampleCount) {
+                index = sampleCount;
+                return false;
+            }
+            index++;
+
+            final int size = sizes[index];
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+            }
+            inputStream.readFully(buffer.array(), 0, size);
+            buffer.clear();
+            buffer.limit(size);
+            return true;
+        }
+
+        public int getTrack() {
+            return tracks[index];
+        }
+
+        public long getPresentationTimeUs() {
+            return presentationTimes[index];
+        }
+
+        public int getFlags() {
+            return flags[index];
+        }
+
+        public boolean isKeyFrame() {
+            return (flags[index] & MediaCodec.BUFFER_FLAG_KEY_FRAME) != 0;
+        }
+
+        /**
+         * The current sample's data, valid until {@link #next()} is called.
+         */
+        public @NonNull ByteBuffer getData() {
+            return buffer;
+        }
+
+        public void getBufferInfo(final @NonNull MediaCodec.BufferInfo info) {
+            info.set(0, sizes[index], presentationTimes[index], flags[index]);
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+    }
+}
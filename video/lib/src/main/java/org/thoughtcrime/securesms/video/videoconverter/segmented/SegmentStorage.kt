@@ -0,0 +1,24 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.video.videoconverter.segmented
+
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+
+/**
+ * Where [SegmentRecorder]s keep the encoded samples of each part of a video until they are concatenated. These hold
+ * the user's media, so callers should store them the same way they store the transcoded output.
+ */
+interface SegmentStorage {
+  @Throws(IOException::class)
+  fun createOutputStream(name: String): OutputStream
+
+  @Throws(IOException::class)
+  fun createInputStream(name: String): InputStream
+
+  fun delete(name: String)
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.video.videoconverter.segmented;
+
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import org.signal.core.util.logging.Log;
+import org.thoughtcrime.securesms.video.interfaces.MediaInput;
+import org.thoughtcrime.securesms.video.postprocessing.Mp4FaststartMetadata;
+import org.thoughtcrime.securesms.video.videoconverter.MediaConverter;
+import org.thoughtcrime.securesms.video.videoconverter.exceptions.EncodingException;
+import org.thoughtcrime.securesms.video.videoconverter.exceptions.SegmentMismatchException;
+import org.thoughtcrime.securesms.video.videoconverter.muxer.StreamingMuxer;
+import org.thoughtcrime.securesms.video.videoconverter.utils.DeviceCapabilities;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Transcodes a long video on several codec instances at once, by splitting its video track at key frames, converting
+ * each part with its own {@link MediaConverter}, and joining the parts back together with {@link SegmentConcatenator}.
+ * <p>
+ * Audio is converted in a single pass alongside the video segments, as AAC encoders add priming samples at the start
+ * of every stream that would be audible at each join.
+ */
+@RequiresApi(23)
+public final class SegmentedMediaConverter {
+
+    private static final String TAG = "media-converter";
+
+    private static final int MAX_SEGMENTS = 4;
+
+    /** Shorter segments spend more of their time starting codecs than converting. */
+    private static final long MIN_SEGMENT_DURATION_US = 15_000_000L;
+
+    public interface ConverterFactory {
+        /**
+         * A converter configured with the input, codecs and bitrates to use, which is given its time range, tracks,
+         * output and listener by {@link SegmentedMediaConverter}.
+         */
+        @NonNull MediaConverter create() throws IOException;
+    }
+
+    private final MediaInput       input;
+    private final SegmentStorage   storage;
+    private final ConverterFactory converterFactory;
+    private final String           videoCodec;
+    private final int              videoResolution;
+
+    private           long                    timeFrom;
+    private           long                    timeTo;
+    private @Nullable MediaConverter.Listener listener;
+
+    private @Nullable Mp4FaststartMetadata faststartMetadata;
+
+    /**
+     * @param input           Used to find where to split the video. Each converter reads the input through its own.
+     * @param videoCodec      The codec the converters encode with, to find out how many can run at once.
+     * @param videoResolution The short edge of the converted video.
+     */
+    public SegmentedMediaConverter(final @NonNull MediaInput input,
+                                   final @NonNull SegmentStorage storage,
+                                   final @NonNull @MediaConverter.VideoCodec String videoCodec,
+                                   final int videoResolution,
+                                   final @NonNull ConverterFactory converterFactory)
+    {
+        this.input            = input;
+        this.storage          = storage;
+        this.videoCodec       = videoCodec;
+        this.videoResolution  = videoResolution;
+        this.converterFactory = converterFactory;
+    }
+
+    /**
+     * See {@link MediaConverter#setTimeRange(long, long)}.
+     */
+    public void setTimeRange(long timeFrom, long timeTo) {
+        if (timeTo > 0 && timeFrom >= timeTo) {
+            throw new IllegalArgumentException("timeFrom:" + timeFrom + " timeTo:" + timeTo);
+        }
+        this.timeFrom = timeFrom;
+        this.timeTo   = timeTo;
+    }
+
+    /**
+     * Progress is reported across all segments, weighted by their duration. It may be called from any of the threads the
+     * segments are converted on, but never concurrently.
+     */
+    public void setListener(final @Nullable MediaConverter.Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return What is needed to move the metadata of the converted file to the front. Available once {@link #convert}
+     * returns.
+     */
+    public @Nullable Mp4FaststartMetadata getFaststartMetadata() {
+        return faststartMetadata;
+    }
+
+    /**
+     * Converts the input into an MP4 written to the output stream. If the video is too short to be worth splitting, or
+     * the device can only run one transcode at a time, it is converted in one piece.
+     *
+     * @return The total content size of the MP4 mdat box.
+     * @throws SegmentMismatchException If the segments couldn't be joined. Nothing has been written to the output, so the
+     *                                  caller can convert the video in one piece instead.
+     */
+    @WorkerThread
+    public long convert(final @NonNull OutputStream outputStream) throws EncodingException, IOException, SegmentMismatchException {
+        final VideoTrackInfo videoTrack = readVideoTrack();
+
+        final List<Long> segmentStarts;
+        final long       endUs;
+        if (videoTrack != null) {
+            final long startUs     = Math.max(timeFrom, 0) * 1000;
+            final int  maxSegments = maxConcurrentTranscodes(videoTrack.format);
+
+            endUs         = timeTo > 0 ? timeTo * 1000 : videoTrack.durationUs;
+            segmentStarts = findSegmentStarts(videoTrack.extractor, startUs, endUs, maxSegments);
+            videoTrack.extractor.release();
+        } else {
+            segmentStarts = new ArrayList<>();
+            endUs         = 0;
+        }
+
+        if (segmentStarts.size() < 2) {
+            Log.i(TAG, "Converting in one piece");
+            final MediaConverter converter = converterFactory.create();
+            converter.setTimeRange(timeFrom, timeTo);
+            converter.setListener(listener);
+            converter.setOutput(outputStream);
+            final long mdatLength = converter.convert();
+            faststartMetadata = converter.getFaststartMetadata();
+            return mdatLength;
+        }
+
+        Log.i(TAG, "Converting in " + segmentStarts.size() + " segments starting at " + segmentStarts);
+
+        final List<SegmentConcatenator.Segment> segments = new ArrayList<>(segmentStarts.size());
+        final SegmentRecorder                   audio    = hasAudioTrack() ? new SegmentRecorder(storage, "audio") : null;
+        final ProgressAggregator                progress = new ProgressAggregator(segmentStarts, endUs);
+        final ExecutorService                   executor = Executors.newFixedThreadPool(segmentStarts.size() + (audio != null ? 1 : 0));
+
+        try {
+            final List<Future<Long>> conversions = new ArrayList<>();
+
+            for (int i = 0; i < segmentStarts.size(); i++) {
+                final boolean last           = i == segmentStarts.size() - 1;
+                final long    segmentStartUs = segmentStarts.get(i);
+                final long    segmentEndUs   = last ? Long.MAX_VALUE : segmentStarts.get(i + 1);
+                final SegmentRecorder recorder = new SegmentRecorder(storage, "segment-" + i);
+                segments.add(new SegmentConcatenator.Segment(recorder, segmentStartUs, segmentEndUs));
+
+                final MediaConverter converter = converterFactory.create();
+                // Converters stop at the first frame after their end time, so round up to include the next key frame.
+                converter.setTimeRange(segmentStartUs / 1000, last ? timeTo : (segmentEndUs + 999) / 1000);
+                converter.setIncludeAudio(false);
+                converter.setOutput(recorder);
+                converter.setListener(progress.forSegment(i));
+                conversions.add(executor.submit(converter::convert));
+            }
+
+            if (audio != null) {
+                final MediaConverter converter = converterFactory.create();
+                converter.setTimeRange(timeFrom, timeTo);
+                converter.setIncludeVideo(false);
+                converter.setOutput(audio);
+                converter.setListener(progress.forAudio());
+                conversions.add(executor.submit(converter::convert));
+            }
+
+            awaitConversions(conversions, progress);
+
+            final StreamingMuxer muxer = new StreamingMuxer(outputStream);
+            SegmentConcatenator.concatenate(segments, audio, muxer);
+            final long mdatLength = muxer.stop();
+            faststartMetadata = muxer.getFaststartMetadata();
+            return mdatLength;
+        } finally {
+            executor.shutdownNow();
+            for (SegmentConcatenator.Segment segment : segments) {
+                storage.delete(segment.recorder.getName());
+            }
+            if (audio != null) {
+                storage.delete(audio.getName());
+            }
+        }
+    }
+
+    /**
+     * Picks up to {@code maxSegments} start times between {@code startUs} and {@code endUs}, spread as evenly as the key
+     * frames allow. The first is always {@code startUs}, and each of the others is a key frame.
+     *
+     * @param previousKeyFrame The time of the last key frame at or before the given time.
+     */
+    @VisibleForTesting
+    static @NonNull List<Long> chooseSegmentStarts(final long startUs,
+                                                   final long endUs,
+                                                   final int maxSegments,
+                                                   final long minSegmentDurationUs,
+                                                   final @NonNull LongUnaryOperator previousKeyFrame)
+    {
+        final List<Long> starts = new ArrayList<>();
+        starts.add(startUs);
+
+        final long duration = endUs - startUs;
+        final int  count    = (int) Math.min(maxSegments, duration / minSegmentDurationUs);
+
+        for (int i = 1; i < count; i++) {
+            final long keyFrameUs = previousKeyFrame.applyAsLong(startUs + duration * i / count);
+            if (keyFrameUs - starts.get(starts.size() - 1) >= minSegmentDurationUs / 2 && endUs - keyFrameUs >= minSegmentDurationUs / 2) {
+                starts.add(keyFrameUs);
+            }
+        }
+        return starts;
+    }
+
+    private static @NonNull List<Long> findSegmentStarts(final @NonNull MediaExtractor extractor, final long startUs, final long endUs, final int maxSegments) {
+        return chooseSegmentStarts(startUs, endUs, maxSegments, MIN_SEGMENT_DURATION_US, timeUs -> {
+            extractor.seekTo(timeUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+            return extractor.getSampleTime();
+        });
+    }
+
+    private int maxConcurrentTranscodes(final @NonNull MediaFormat inputFormat) {
+        final int width       = inputFormat.getInteger(MediaFormat.KEY_WIDTH);
+        final int height      = inputFormat.getInteger(MediaFormat.KEY_HEIGHT);
+        final int shortEdge   = Math.min(width, height);
+        final int outputShort = videoResolution > 0 ? Math.min(videoResolution, shortEdge) : shortEdge;
+        final int outputLong  = Math.max(width, height) * outputShort / shortEdge;
+        final int limit       = Math.max(1, Math.min(MAX_SEGMENTS, Runtime.getRuntime().availableProcessors() / 2));
+
+        return DeviceCapabilities.maxConcurrentVideoTranscodes(inputFormat, videoCodec, outputLong, outputShort, limit);
+    }
+
+    private @Nullable VideoTrackInfo readVideoTrack() throws IOException {
+        final MediaExtractor extractor = input.createExtractor();
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            final MediaFormat format = extractor.getTrackFormat(i);
+            final String      mime   = format.getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith("video/") && format.containsKey(MediaFormat.KEY_DURATION)) {
+                extractor.selectTrack(i);
+                return new VideoTrackInfo(extractor, format, format.getLong(MediaFormat.KEY_DURATION));
+            }
+        }
+        extractor.release();
+        return null;
+    }
+
+    private boolean hasAudioTrack() throws IOException {
+        final MediaExtractor extractor = input.createExtractor();
+        try {
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                final String mime = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            extractor.release();
+        }
+    }
+
+    /**
+     * Waits for every conversion, cancelling the others as soon as one fails.
+     */
+    private static void awaitConversions(final @NonNull List<Future<Long>> conversions, final @NonNull ProgressAggregator progress) throws EncodingException, IOException {
+        Exception failure = null;
+        for (Future<Long> conversion : conversions) {
+            try {
+                conversion.get();
+            } catch (ExecutionException e) {
+                progress.cancel();
+                if (failure == null) {
+                    failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            } catch (InterruptedException e) {
+                progress.cancel();
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+
+        if (failure instanceof EncodingException) {
+            throw (EncodingException) failure;
+        } else if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure != null) {
+            throw new EncodingException("Segment conversion failed", failure);
+        } else if (progress.isCancelled()) {
+            throw new EncodingException("Transcode cancelled");
+        }
+    }
+
+    private static final class VideoTrackInfo {
+        final MediaExtractor extractor;
+        final MediaFormat    format;
+        final long           durationUs;
+
+        VideoTrackInfo(final @NonNull MediaExtractor extractor, final @NonNull MediaFormat format, final long durationUs) {
+            this.extractor  = extractor;
+            this.format     = format;
+            this.durationUs = durationUs;
+        }
+    }
+
+    /**
+     * Combines the progress of every segment into one percentage, and cancels them all when the listener asks to.
+     */
+    private final class ProgressAggregator {
+        private final long[]  durations;
+        private final int[]   percents;
+        private final float[] framesPerSecond;
+        private final long    totalDuration;
+
+        private int              reportedPercent = -1;
+        private volatile boolean cancelled;
+
+        ProgressAggregator(final @NonNull List<Long> segmentStarts, final long endUs) {
+            durations       = new long[segmentStarts.size()];
+            percents        = new int[segmentStarts.size()];
+            framesPerSecond = new float[segmentStarts.size()];
+
+            long total = 0;
+            for (int i = 0; i < durations.length; i++) {
+                final long next = i + 1 < durations.length ? segmentStarts.get(i + 1) : endUs;
+                durations[i] = Math.max(1, next - segmentStarts.get(i));
+                total += durations[i];
+            }
+            totalDuration = total;
+        }
+
+        @NonNull MediaConverter.Listener forSegment(final int index) {
+            return new MediaConverter.Listener() {
+                @Override
+                public boolean onProgress(int percent) {
+                    return onSegmentProgress(index, percent);
+                }
+
+                @Override
+                public void onThroughput(float fps) {
+                    onSegmentThroughput(index, fps);
+                }
+            };
+        }
+
+        @NonNull MediaConverter.Listener forAudio() {
+            return percent -> cancelled;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        private synchronized boolean onSegmentProgress(final int index, final int percent) {
+            percents[index] = percent;
+
+            long done = 0;
+            for (int i = 0; i < durations.length; i++) {
+                done += durations[i] * Math.max(0, Math.min(100, percents[i]));
+            }
+            final int overall = (int) (done / totalDuration);
+
+            if (overall != reportedPercent && listener != null) {
+                reportedPercent = overall;
+                cancelled = cancelled || listener.onProgress(overall);
+            }
+            return cancelled;
+        }
+
+        private synchronized void onSegmentThroughput(final int index, final float fps) {
+            framesPerSecond[index] = fps;
+
+            float total = 0;
+            for (float segmentFramesPerSecond : framesPerSecond) {
+                total += segmentFramesPerSecond;
+            }
+            if (listener != null) {
+                listener.onThroughput(total);
+            }
+        }
+    }
+}
@@ -7,13 +7,41 @@ package org.thoughtcrime.securesms.video.videoconverter.utils
 
 import android.media.MediaCodecList
 import android.media.MediaFormat
+import androidx.annotation.RequiresApi
 import org.signal.core.util.isNotNullOrBlank
+import org.signal.core.util.logging.Log
 
 object DeviceCapabilities {
+  private val TAG = Log.tag(DeviceCapabilities::class.java)
+
   @JvmStatic
   fun canEncodeHevc(): Boolean {
     val mediaCodecList = MediaCodecList(MediaCodecList.REGULAR_CODECS)
     val encoder = mediaCodecList.findEncoderForFormat(MediaFormat.createVideoFormat(MediaFormat.MIMETYPE_VIDEO_HEVC, VideoConstants.VIDEO_LONG_EDGE_HD, VideoConstants.VIDEO_SHORT_EDGE_HD))
     return encoder.isNotNullOrBlank()
   }
+
+  /**
+   * How many videos of [inputFormat] can be transcoded to [outputMimeType] at once, going by the number of instances
+   * the decoder and encoder say they support, up to [limit]. That number is shared with other apps, so this is an upper
+   * bound rather than a promise. Always at least 1.
+   */
+  @JvmStatic
+  @RequiresApi(23)
+  fun maxConcurrentVideoTranscodes(inputFormat: MediaFormat, outputMimeType: String, outputWidth: Int, outputHeight: Int, limit: Int): Int {
+    return try {
+      val mediaCodecList = MediaCodecList(MediaCodecList.REGULAR_CODECS)
+      val inputMimeType = inputFormat.getString(MediaFormat.KEY_MIME) ?: return 1
+      val decoder = mediaCodecList.findDecoderForFormat(inputFormat) ?: return 1
+      val encoder = mediaCodecList.findEncoderForFormat(MediaFormat.createVideoFormat(outputMimeType, outputWidth, outputHeight)) ?: return 1
+
+      val decoderInstances = mediaCodecList.codecInfos.first { it.name == decoder }.getCapabilitiesForType(inputMimeType).maxSupportedInstances
+      val encoderInstances = mediaCodecList.codecInfos.first { it.name == encoder }.getCapabilitiesForType(outputMimeType).maxSupportedInstances
+
+      minOf(decoderInstances, encoderInstances, limit).coerceAtLeast(1)
+    } catch (e: Exception) {
+      Log.w(TAG, "Unable to determine codec instance limits", e)
+      1
+    }
+  }
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.video.videoconverter
+
+import android.app.Application
+import android.media.MediaCodec
+import android.media.MediaFormat
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.thoughtcrime.securesms.video.interfaces.Muxer
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.concurrent.thread
+
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE, application = Application::class)
+class QueuedMuxerTest {
+
+  @Test
+  fun `given two tracks written from two threads, when I finish, then samples are muxed in presentation time order`() {
+    val recording = RecordingMuxer()
+    val muxer = QueuedMuxer(recording)
+    val video = muxer.addTrack(MediaFormat())
+    val audio = muxer.addTrack(MediaFormat())
+    muxer.start()
+
+    val videoThread = thread {
+      for (i in 0 until 300) {
+        muxer.writeSampleData(video, sample(i), info(i * 33_333L))
+      }
+      muxer.finishTrack(video)
+    }
+    val audioThread = thread {
+      for (i in 0 until 470) {
+        muxer.writeSampleData(audio, sample(i), info(i * 21_333L))
+      }
+      muxer.finishTrack(audio)
+    }
+    videoThread.join()
+    audioThread.join()
+    muxer.finish()
+
+    assertEquals(770, recording.samples.size)
+    assertEquals(recording.samples.sortedBy { it.second }, recording.samples)
+    assertEquals((0 until 300).toList(), recording.samples.filter { it.first == video }.map { it.third })
+  }
+
+  @Test
+  fun `given one track far ahead, when the other has not written, then the first blocks`() {
+    val muxer = QueuedMuxer(RecordingMuxer())
+    val video = muxer.addTrack(MediaFormat())
+    val audio = muxer.addTrack(MediaFormat())
+    muxer.start()
+
+    val written = CountDownLatch(100)
+    val audioThread = thread {
+      for (i in 0 until 100) {
+        muxer.writeSampleData(audio, sample(i), info(i * 1000L))
+        written.countDown()
+      }
+      muxer.finishTrack(audio)
+    }
+
+    assertFalse(written.await(200, TimeUnit.MILLISECONDS))
+
+    muxer.finishTrack(video)
+    assertTrue(written.await(5, TimeUnit.SECONDS))
+    audioThread.join()
+    muxer.finish()
+  }
+
+  @Test(expected = IOException::class)
+  fun `given the muxer fails, when I write, then the failure is rethrown`() {
+    val muxer = QueuedMuxer(object : RecordingMuxer() {
+      override fun writeSampleData(trackIndex: Int, byteBuf: ByteBuffer, bufferInfo: MediaCodec.BufferInfo) {
+        throw IOException("Disk full")
+      }
+    })
+    val video = muxer.addTrack(MediaFormat())
+    muxer.start()
+
+    for (i in 0 until 1000) {
+      muxer.writeSampleData(video, sample(i), info(i * 1000L))
+    }
+  }
+
+  private fun sample(value: Int): ByteBuffer {
+    return ByteBuffer.allocate(4).putInt(0, value)
+  }
+
+  private fun info(presentationTimeUs: Long): MediaCodec.BufferInfo {
+    return MediaCodec.BufferInfo().apply { set(0, 4, presentationTimeUs, 0) }
+  }
+
+  private open class RecordingMuxer : Muxer {
+    val samples: MutableList<Triple<Int, Long, Int>> = Collections.synchronizedList(mutableListOf())
+    private var tracks = 0
+
+    override fun start() = Unit
+    override fun stop(): Long = 0
+    override fun addTrack(format: MediaFormat): Int = tracks++
+    override fun release() = Unit
+    override fun supportsAudioRemux(): Boolean = false
+
+    override fun writeSampleData(trackIndex: Int, byteBuf: ByteBuffer, bufferInfo: MediaCodec.BufferInfo) {
+      samples += Triple(trackIndex, bufferInfo.presentationTimeUs, byteBuf.getInt(bufferInfo.offset))
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.video.videoconverter.muxer
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.mp4parser.IsoFile
+import org.mp4parser.boxes.iso14496.part12.ChunkOffsetBox
+import org.mp4parser.boxes.iso14496.part12.SampleDescriptionBox
+import org.mp4parser.boxes.iso14496.part12.SampleSizeBox
+import org.mp4parser.boxes.iso14496.part12.SampleToChunkBox
+import org.mp4parser.boxes.sampleentry.AudioSampleEntry
+import org.mp4parser.streaming.input.AbstractStreamingTrack
+import org.mp4parser.streaming.input.StreamingSampleImpl
+import org.mp4parser.tools.Path
+import org.thoughtcrime.securesms.video.postprocessing.Mp4FaststartMetadata
+import org.thoughtcrime.securesms.video.postprocessing.Mp4FaststartPostProcessor
+import java.io.ByteArrayOutputStream
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
+
+class Mp4WriterFaststartTest {
+
+  @get:Rule
+  val temporaryFolder = TemporaryFolder()
+
+  @Test
+  fun `given a muxed file, when I splice with its metadata, then moov is first and chunk offsets point at the samples`() {
+    val samples = List(200) { i -> ByteArray(100 + (i * 37) % 5000) { (i + it).toByte() } }
+    val file = temporaryFolder.newFile()
+
+    val metadata = FileOutputStream(file).use { mux(it) { track -> samples.forEach { track.write(ByteBuffer.wrap(it), 40) } } }
+
+    val output = ByteArrayOutputStream()
+    val written = FileInputStream(file).use { Mp4FaststartPostProcessor.processWithMetadata(metadata, it.channel, Channels.newChannel(output)) }
+    val bytes = output.toByteArray()
+
+    assertEquals(file.length(), written)
+    assertEquals(file.length(), bytes.size.toLong())
+    assertEquals(listOf("ftyp", "moov", "mdat"), topLevelBoxTypes(bytes))
+
+    val isoFile = IsoFile(Channels.newChannel(bytes.inputStream()))
+    val stbl = "moov[0]/trak[0]/mdia[0]/minf[0]/stbl[0]"
+    val stco: ChunkOffsetBox = checkNotNull(Path.getPath(isoFile, "$stbl/stco[0]"))
+    val stsz: SampleSizeBox = checkNotNull(Path.getPath(isoFile, "$stbl/stsz[0]"))
+    val stsc: SampleToChunkBox = checkNotNull(Path.getPath(isoFile, "$stbl/stsc[0]"))
+
+    val chunkOffsets = stco.chunkOffsets
+    val samplesPerChunk = stsc.blowup(chunkOffsets.size)
+    var sample = 0
+    for (chunk in chunkOffsets.indices) {
+      var offset = chunkOffsets[chunk]
+      repeat(samplesPerChunk[chunk].toInt()) {
+        val size = stsz.getSampleSizeAtIndex(sample).toInt()
+        assertArrayEquals("Sample $sample", samples[sample], bytes.copyOfRange(offset.toInt(), offset.toInt() + size))
+        offset += size
+        sample++
+      }
+    }
+    assertEquals(samples.size, sample)
+  }
+
+  @Test
+  fun `given a muxed file, when I process a stream with its metadata, then same as splicing`() {
+    val file = temporaryFolder.newFile()
+    val metadata = FileOutputStream(file).use { mux(it) { track -> repeat(100) { i -> track.write(ByteBuffer.wrap(ByteArray(1000) { i.toByte() }), 40) } } }
+
+    val spliced = ByteArrayOutputStream()
+    FileInputStream(file).use { Mp4FaststartPostProcessor.processWithMetadata(metadata, it.channel, Channels.newChannel(spliced)) }
+
+    val streamed = Mp4FaststartPostProcessor { FileInputStream(file) }.processWithMetadata(metadata).use { it.readBytes() }
+
+    assertArrayEquals(spliced.toByteArray(), streamed)
+  }
+
+  private fun topLevelBoxTypes(bytes: ByteArray): List<String> {
+    val types = mutableListOf<String>()
+    val buffer = ByteBuffer.wrap(bytes)
+    while (buffer.hasRemaining()) {
+      val start = buffer.position()
+      val size = buffer.int.toLong() and 0xFFFFFFFFL
+      types += String(bytes, start + 4, 4, Charsets.US_ASCII)
+      buffer.position(if (size == 0L) bytes.size else start + size.toInt())
+    }
+    return types
+  }
+
+  companion object {
+    internal fun mux(outputStream: OutputStream, write: (TestTrack) -> Unit): Mp4FaststartMetadata {
+      val track = TestTrack()
+      val writer = Mp4Writer(listOf(track), Channels.newChannel(outputStream))
+      write(track)
+      writer.close()
+      return checkNotNull(writer.faststartMetadata)
+    }
+
+    internal class TestTrack : AbstractStreamingTrack() {
+      private val stsd = SampleDescriptionBox().apply { addBox(AudioSampleEntry("mp4a")) }
+
+      override fun getTimescale(): Long = 1000
+      override fun getHandler(): String = "soun"
+      override fun getLanguage(): String = "und"
+      override fun getSampleDescriptionBox(): SampleDescriptionBox = stsd
+      override fun close() = Unit
+
+      fun write(content: ByteBuffer, durationMs: Long) {
+        sampleSink.acceptSample(StreamingSampleImpl(content, durationMs), this)
+      }
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.video.videoconverter.muxer
+
+import org.junit.Ignore
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.thoughtcrime.securesms.video.postprocessing.Mp4FaststartPostProcessor
+import org.thoughtcrime.securesms.video.videoconverter.muxer.Mp4WriterFaststartTest.Companion.mux
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.InputStream
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
+import javax.crypto.Cipher
+import javax.crypto.CipherInputStream
+import javax.crypto.CipherOutputStream
+import javax.crypto.spec.IvParameterSpec
+import javax.crypto.spec.SecretKeySpec
+import kotlin.time.Duration.Companion.nanoseconds
+
+@Ignore("This is just for testing performance, not correctness, and they can therefore take a long time. Run them manually when you need to.")
+class Mp4WriterPerformanceTests {
+
+  companion object {
+    private const val MEGABYTES = 200
+    private const val ITERATIONS = 3
+  }
+
+  @get:Rule
+  val temporaryFolder = TemporaryFolder()
+
+  /**
+   * Mp4Sanitizer is native and can't run here, so the old path is represented by the full decrypting reads it makes:
+   * one to find the length, one to find the moov box at the end, and one to copy the result.
+   */
+  @Test
+  fun testPerformance_faststart200MB() {
+    val key = SecretKeySpec(ByteArray(32) { it.toByte() }, "AES")
+    val iv = IvParameterSpec(ByteArray(16))
+    val encrypted = temporaryFolder.newFile()
+    val plaintext = temporaryFolder.newFile()
+
+    val content = ByteBuffer.allocate(1024 * 1024)
+    val metadata = CipherOutputStream(FileOutputStream(encrypted), cipher(Cipher.ENCRYPT_MODE, key, iv)).use { encryptedOutput ->
+      FileOutputStream(plaintext).use { plaintextOutput ->
+        mux(TeeOutputStream(encryptedOutput, plaintextOutput)) { track -> repeat(MEGABYTES) { track.write(content.duplicate(), 33) } }
+      }
+    }
+    val factory = Mp4FaststartPostProcessor.InputStreamFactory { CipherInputStream(FileInputStream(encrypted), cipher(Cipher.DECRYPT_MODE, key, iv)) }
+
+    measure("legacy, 3 decrypting passes") {
+      factory.create().use { it.drain() }
+      factory.create().use { it.drain() }
+      factory.create().use { it.drain() }
+    }
+
+    measure("recorded metadata, 1 decrypting pass") {
+      Mp4FaststartPostProcessor(factory).processWithMetadata(metadata).use { it.drain() }
+    }
+
+    measure("recorded metadata, unencrypted splice") {
+      FileInputStream(plaintext).use { Mp4FaststartPostProcessor.processWithMetadata(metadata, it.channel, Channels.newChannel(NullOutputStream)) }
+    }
+  }
+
+  private fun measure(name: String, block: () -> Unit) {
+    block()
+    val start = System.nanoTime()
+    repeat(ITERATIONS) { block() }
+    val duration = ((System.nanoTime() - start) / ITERATIONS).nanoseconds
+
+    println("[faststart${MEGABYTES}MB] $name in $duration per run")
+  }
+
+  private fun cipher(mode: Int, key: SecretKeySpec, iv: IvParameterSpec): Cipher {
+    return Cipher.getInstance("AES/CTR/NoPadding").apply { init(mode, key, iv) }
+  }
+
+  private fun InputStream.drain() {
+    val buffer = ByteArray(64 * 1024)
+    while (read(buffer) >= 0) Unit
+  }
+
+  private class TeeOutputStream(private val first: OutputStream, private val second: OutputStream) : OutputStream() {
+    override fun write(b: Int) {
+      first.write(b)
+      second.write(b)
+    }
+
+    override fun write(b: ByteArray, off: Int, len: Int) {
+      first.write(b, off, len)
+      second.write(b, off, len)
+    }
+  }
+
+  private object NullOutputStream : OutputStream() {
+    override fun write(b: Int) = Unit
+    override fun write(b: ByteArray, off: Int, len: Int) = Unit
+  }
+}
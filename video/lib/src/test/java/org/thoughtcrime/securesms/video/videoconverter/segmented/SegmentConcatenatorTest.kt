@@ -0,0 +1,211 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.video.videoconverter.segmented
+
+import android.app.Application
+import android.media.MediaCodec
+import android.media.MediaCodecInfo
+import android.media.MediaFormat
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mp4parser.IsoFile
+import org.mp4parser.boxes.iso14496.part12.SampleSizeBox
+import org.mp4parser.tools.Path
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.thoughtcrime.securesms.video.interfaces.Muxer
+import org.thoughtcrime.securesms.video.videoconverter.exceptions.SegmentMismatchException
+import org.thoughtcrime.securesms.video.videoconverter.muxer.StreamingMuxer
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.InputStream
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
+
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE, application = Application::class)
+class SegmentConcatenatorTest {
+
+  private val storage = MemorySegmentStorage()
+
+  @Test
+  fun `given segments that overlap at their key frames, when I concatenate, then every frame is written once in order`() {
+    val segments = listOf(
+      SegmentConcatenator.Segment(recordVideo("segment-0", 0, 4.seconds), 0, 4.seconds),
+      SegmentConcatenator.Segment(recordVideo("segment-1", 4.seconds, 7.seconds), 4.seconds, 7.seconds),
+      SegmentConcatenator.Segment(recordVideo("segment-2", 7.seconds, 10.seconds), 7.seconds, Long.MAX_VALUE)
+    )
+    val muxer = RecordingMuxer()
+
+    SegmentConcatenator.concatenate(segments, null, muxer)
+
+    val expected = (0..10.seconds step FRAME_DURATION_US).toList()
+    assertEquals(1, muxer.formats.size)
+    assertEquals(expected, muxer.samples.map { it.presentationTimeUs })
+    assertEquals(expected, muxer.samples.map { it.content })
+    assertTrue(muxer.samples.filter { it.presentationTimeUs % 1.seconds == 0L }.all { (it.flags and MediaCodec.BUFFER_FLAG_KEY_FRAME) != 0 })
+  }
+
+  @Test
+  fun `given audio converted in one piece, when I concatenate, then it is interleaved with the video by presentation time`() {
+    val segments = listOf(
+      SegmentConcatenator.Segment(recordVideo("segment-0", 0, 3.seconds), 0, 3.seconds),
+      SegmentConcatenator.Segment(recordVideo("segment-1", 3.seconds, 6.seconds), 3.seconds, Long.MAX_VALUE)
+    )
+    val audio = recordAudio("audio", 0, 6.seconds)
+    val muxer = RecordingMuxer()
+
+    SegmentConcatenator.concatenate(segments, audio, muxer)
+
+    assertEquals(listOf("video/avc", "audio/mp4a-latm"), muxer.formats.map { it.getString(MediaFormat.KEY_MIME) })
+    assertEquals(muxer.samples.sortedBy { it.presentationTimeUs }, muxer.samples)
+    assertEquals(audio.sampleCount, muxer.samples.count { it.track == 1 })
+    assertEquals((0..6.seconds step FRAME_DURATION_US).toList(), muxer.samples.filter { it.track == 0 }.map { it.presentationTimeUs })
+  }
+
+  @Test
+  fun `given segments with different codec configurations, when I concatenate, then nothing is written`() {
+    val segments = listOf(
+      SegmentConcatenator.Segment(recordVideo("segment-0", 0, 4.seconds), 0, 4.seconds),
+      SegmentConcatenator.Segment(recordVideo("segment-1", 4.seconds, 8.seconds, videoFormat(pps = byteArrayOf(0, 0, 0, 1, 0x68, 0x01))), 4.seconds, Long.MAX_VALUE)
+    )
+    val muxer = RecordingMuxer()
+
+    try {
+      SegmentConcatenator.concatenate(segments, null, muxer)
+      fail()
+    } catch (e: SegmentMismatchException) {
+      assertTrue(muxer.formats.isEmpty())
+      assertFalse(muxer.started)
+    }
+  }
+
+  @Test
+  fun `given a segment that does not start on a key frame, when I concatenate, then frames before its first key frame are dropped`() {
+    val segments = listOf(
+      SegmentConcatenator.Segment(recordVideo("segment-0", 0, 4.seconds), 0, 4.seconds),
+      SegmentConcatenator.Segment(recordVideo("segment-1", 4.seconds, 8.seconds, keyFrames = setOf(5.seconds)), 4.seconds, Long.MAX_VALUE)
+    )
+    val muxer = RecordingMuxer()
+
+    SegmentConcatenator.concatenate(segments, null, muxer)
+
+    val expected = (0 until 4.seconds step FRAME_DURATION_US) + (5.seconds..8.seconds step FRAME_DURATION_US)
+    assertEquals(expected, muxer.samples.map { it.presentationTimeUs })
+  }
+
+  @Test
+  fun `given AAC segments, when I concatenate into a streaming muxer, then the file has every sample once`() {
+    val frameDuration = 1024 * 1_000_000L / 44_100
+    val first = recordAudio("segment-0", 0, 2.seconds)
+    val second = recordAudio("segment-1", 2.seconds - frameDuration, 4.seconds)
+    val segmentStart = (0..4.seconds step frameDuration).first { it >= 2.seconds }
+    val segments = listOf(
+      SegmentConcatenator.Segment(first, 0, segmentStart),
+      SegmentConcatenator.Segment(second, segmentStart, Long.MAX_VALUE)
+    )
+
+    val output = ByteArrayOutputStream()
+    val muxer = StreamingMuxer(output)
+    SegmentConcatenator.concatenate(segments, null, muxer)
+    muxer.stop()
+
+    val isoFile = IsoFile(Channels.newChannel(output.toByteArray().inputStream()))
+    val stsz: SampleSizeBox = checkNotNull(Path.getPath(isoFile, "moov[0]/trak[0]/mdia[0]/minf[0]/stbl[0]/stsz[0]"))
+    assertEquals((0..4.seconds step frameDuration).count().toLong(), stsz.sampleCount)
+  }
+
+  private fun recordVideo(name: String, fromUs: Long, toUs: Long, format: MediaFormat = videoFormat(), keyFrames: Set<Long>? = null): SegmentRecorder {
+    return record(name, format, fromUs, toUs, FRAME_DURATION_US) { keyFrames?.contains(it) ?: (it % 1.seconds == 0L) }
+  }
+
+  private fun recordAudio(name: String, fromUs: Long, toUs: Long): SegmentRecorder {
+    val frameDuration = 1024 * 1_000_000L / 44_100
+    val firstFrame = (fromUs + frameDuration - 1) / frameDuration * frameDuration
+    return record(name, audioFormat(), firstFrame, toUs, frameDuration) { true }
+  }
+
+  private fun record(name: String, format: MediaFormat, fromUs: Long, toUs: Long, durationUs: Long, isKeyFrame: (Long) -> Boolean): SegmentRecorder {
+    val recorder = SegmentRecorder(storage, name)
+    val track = recorder.addTrack(format)
+    recorder.start()
+
+    var presentationTimeUs = fromUs
+    while (presentationTimeUs <= toUs) {
+      val info = MediaCodec.BufferInfo().apply { set(0, 8, presentationTimeUs, if (isKeyFrame(presentationTimeUs)) MediaCodec.BUFFER_FLAG_KEY_FRAME else 0) }
+      recorder.writeSampleData(track, ByteBuffer.allocate(8).putLong(0, presentationTimeUs), info)
+      presentationTimeUs += durationUs
+    }
+
+    recorder.stop()
+    return recorder
+  }
+
+  private fun videoFormat(pps: ByteArray = byteArrayOf(0, 0, 0, 1, 0x68, 0xCE.toByte(), 0x38, 0x80)): MediaFormat {
+    return MediaFormat.createVideoFormat("video/avc", 1280, 720).apply {
+      setByteBuffer("csd-0", ByteBuffer.wrap(byteArrayOf(0, 0, 0, 1, 0x67, 0x42, 0xC0.toByte(), 0x1F, 0xDA.toByte(), 0x01, 0x40, 0x16, 0xE8.toByte())))
+      setByteBuffer("csd-1", ByteBuffer.wrap(pps))
+    }
+  }
+
+  private fun audioFormat(): MediaFormat {
+    return MediaFormat.createAudioFormat("audio/mp4a-latm", 44_100, 2).apply {
+      setInteger(MediaFormat.KEY_BIT_RATE, 128_000)
+      setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC)
+      setByteBuffer("csd-0", ByteBuffer.wrap(byteArrayOf(0x12, 0x10)))
+    }
+  }
+
+  private val Int.seconds: Long
+    get() = this * 1_000_000L
+
+  private class RecordedSample(val track: Int, val presentationTimeUs: Long, val flags: Int, val content: Long)
+
+  private class RecordingMuxer : Muxer {
+    val formats = mutableListOf<MediaFormat>()
+    val samples = mutableListOf<RecordedSample>()
+    var started = false
+
+    override fun start() {
+      started = true
+    }
+
+    override fun stop(): Long = 0
+
+    override fun addTrack(format: MediaFormat): Int {
+      formats += format
+      return formats.size - 1
+    }
+
+    override fun writeSampleData(trackIndex: Int, byteBuf: ByteBuffer, bufferInfo: MediaCodec.BufferInfo) {
+      samples += RecordedSample(trackIndex, bufferInfo.presentationTimeUs, bufferInfo.flags, byteBuf.getLong(bufferInfo.offset))
+    }
+
+    override fun release() = Unit
+    override fun supportsAudioRemux(): Boolean = true
+  }
+
+  private class MemorySegmentStorage : SegmentStorage {
+    private val segments = mutableMapOf<String, ByteArrayOutputStream>()
+
+    override fun createOutputStream(name: String): OutputStream = ByteArrayOutputStream().also { segments[name] = it }
+
+    override fun createInputStream(name: String): InputStream = ByteArrayInputStream(segments.getValue(name).toByteArray())
+
+    override fun delete(name: String) {
+      segments.remove(name)
+    }
+  }
+
+  companion object {
+    private const val FRAME_DURATION_US = 40_000L
+  }
+}
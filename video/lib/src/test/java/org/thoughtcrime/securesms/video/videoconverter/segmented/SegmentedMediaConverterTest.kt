@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.thoughtcrime.securesms.video.videoconverter.segmented
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class SegmentedMediaConverterTest {
+
+  @Test
+  fun `given frequent key frames, when I choose segment starts, then segments are even`() {
+    val starts = SegmentedMediaConverter.chooseSegmentStarts(0, 120.seconds, 4, 15.seconds) { keyFrameBefore(it, 2.seconds) }
+
+    assertEquals(listOf(0L, 30.seconds, 60.seconds, 90.seconds), starts)
+  }
+
+  @Test
+  fun `given a short video, when I choose segment starts, then there are fewer segments than allowed`() {
+    assertEquals(listOf(0L, 20.seconds), SegmentedMediaConverter.chooseSegmentStarts(0, 40.seconds, 4, 15.seconds) { keyFrameBefore(it, 2.seconds) })
+    assertEquals(listOf(0L), SegmentedMediaConverter.chooseSegmentStarts(0, 20.seconds, 4, 15.seconds) { keyFrameBefore(it, 2.seconds) })
+  }
+
+  @Test
+  fun `given sparse key frames, when I choose segment starts, then segments that would be too short are merged`() {
+    val starts = SegmentedMediaConverter.chooseSegmentStarts(0, 60.seconds, 4, 15.seconds) { keyFrameBefore(it, 25.seconds) }
+
+    assertEquals(listOf(0L, 25.seconds), starts)
+  }
+
+  @Test
+  fun `given a trimmed video, when I choose segment starts, then the first segment starts at the trim`() {
+    val starts = SegmentedMediaConverter.chooseSegmentStarts(10.seconds, 70.seconds, 4, 15.seconds) { keyFrameBefore(it, 2.seconds) }
+
+    assertEquals(listOf(10.seconds, 24.seconds, 40.seconds, 54.seconds), starts)
+  }
+
+  private fun keyFrameBefore(timeUs: Long, interval: Long): Long {
+    return timeUs / interval * interval
+  }
+
+  private val Int.seconds: Long
+    get() = this * 1_000_000L
+}